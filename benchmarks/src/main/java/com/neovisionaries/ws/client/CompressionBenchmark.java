@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks of {@link DeflateCompressor}, {@link DeflateDecompressor}
+ * and round trips through {@link PerMessageDeflateExtension}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark
+{
+    @Param({ "256", "4096", "65536" })
+    public int size;
+
+
+    @Param({ "JSON", "TEXT", "RANDOM" })
+    public Corpus corpus;
+
+
+    /**
+     * {@code true} to emulate {@code server_no_context_takeover}, which
+     * makes every message decompressed independently.
+     */
+    @Param({ "true", "false" })
+    public boolean noContextTakeover;
+
+
+    private byte[] mPlain;
+    private byte[] mDeflated;
+    private byte[] mCompressed;
+    private PerMessageDeflateExtension mExtension;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        mPlain      = corpus.generate(size);
+        mDeflated   = DeflateCompressor.compress(mPlain);
+        mExtension  = createExtension();
+        mCompressed = mExtension.compress(mPlain);
+    }
+
+
+    private PerMessageDeflateExtension createExtension() throws WebSocketException
+    {
+        String text = noContextTakeover
+                    ? "permessage-deflate; server_no_context_takeover"
+                    : "permessage-deflate";
+
+        PerMessageDeflateExtension extension =
+            (PerMessageDeflateExtension)WebSocketExtension.parse(text);
+
+        extension.validate();
+
+        return extension;
+    }
+
+
+    @Benchmark
+    public byte[] deflate() throws Exception
+    {
+        return DeflateCompressor.compress(mPlain);
+    }
+
+
+    @Benchmark
+    public ByteArray inflate() throws Exception
+    {
+        ByteArray input  = new ByteArray(mDeflated);
+        ByteArray output = new ByteArray(mPlain.length);
+
+        DeflateDecompressor.decompress(input, output);
+
+        return output;
+    }
+
+
+    @Benchmark
+    public byte[] extensionCompress() throws Exception
+    {
+        return mExtension.compress(mPlain);
+    }
+
+
+    @Benchmark
+    public byte[] extensionDecompress() throws Exception
+    {
+        // With context takeover, the sliding window keeps growing up to
+        // its limit, which is what happens on a long-lived connection.
+        return mExtension.decompress(mCompressed);
+    }
+
+
+    @Benchmark
+    public byte[] extensionRoundTrip() throws Exception
+    {
+        return mExtension.decompress(mExtension.compress(mPlain));
+    }
+}
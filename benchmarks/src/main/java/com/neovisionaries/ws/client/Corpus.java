@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.Random;
+
+
+/**
+ * Payload corpora used by the benchmarks.
+ *
+ * <p>
+ * The payloads are generated from a fixed seed so that every run (and
+ * every machine) measures exactly the same bytes.
+ * </p>
+ */
+enum Corpus
+{
+    /**
+     * Small JSON objects as sent by chat and notification services.
+     * Highly compressible.
+     */
+    JSON
+    {
+        @Override
+        byte[] generate(int size, Random random)
+        {
+            StringBuilder builder = new StringBuilder(size + 128);
+
+            for (int i = 0; builder.length() < size; ++i)
+            {
+                builder.append("{\"id\":").append(random.nextInt(1000000))
+                       .append(",\"type\":\"").append(TYPES[random.nextInt(TYPES.length)])
+                       .append("\",\"user\":\"user").append(random.nextInt(500))
+                       .append("\",\"seq\":").append(i)
+                       .append(",\"text\":\"").append(WORDS[random.nextInt(WORDS.length)])
+                       .append(' ').append(WORDS[random.nextInt(WORDS.length)])
+                       .append("\"}\n");
+            }
+
+            return truncate(Misc.getBytesUTF8(builder.toString()), size);
+        }
+    },
+
+
+    /**
+     * Natural-language text which contains multi-byte UTF-8 characters.
+     */
+    TEXT
+    {
+        @Override
+        byte[] generate(int size, Random random)
+        {
+            StringBuilder builder = new StringBuilder(size + 64);
+
+            while (builder.length() < size)
+            {
+                builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+
+                if (random.nextInt(16) == 0)
+                {
+                    // "Konnichiwa" in Japanese (3 bytes per character in UTF-8).
+                    builder.append("\u3053\u3093\u306b\u3061\u306f ");
+                }
+            }
+
+            // Truncating the string (not the bytes) keeps UTF-8 valid.
+            return Misc.getBytesUTF8(builder.substring(0, size));
+        }
+    },
+
+
+    /**
+     * Random bytes such as already-compressed media. Not compressible.
+     */
+    RANDOM
+    {
+        @Override
+        byte[] generate(int size, Random random)
+        {
+            byte[] data = new byte[size];
+
+            random.nextBytes(data);
+
+            return data;
+        }
+    },
+    ;
+
+
+    private static final long SEED = 0x6e76776562736f63L;
+
+
+    private static final String[] TYPES = {
+        "message", "presence", "typing", "ack", "receipt"
+    };
+
+
+    private static final String[] WORDS = {
+        "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog",
+        "websocket", "frame", "payload", "server", "client", "latency",
+        "throughput", "compression", "handshake", "message", "ping", "pong"
+    };
+
+
+    abstract byte[] generate(int size, Random random);
+
+
+    /**
+     * Generate a payload of the given size (approximately for {@link #TEXT}).
+     */
+    byte[] generate(int size)
+    {
+        return generate(size, new Random(SEED));
+    }
+
+
+    private static byte[] truncate(byte[] data, int size)
+    {
+        if (data.length == size)
+        {
+            return data;
+        }
+
+        byte[] truncated = new byte[size];
+
+        System.arraycopy(data, 0, truncated, 0, size);
+
+        return truncated;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks of frame encoding and decoding: {@link
+ * WebSocketInputStream#readFrame()}, {@link
+ * WebSocketOutputStream#write(WebSocketFrame)}, {@link
+ * WebSocketFrame#mask(byte[], byte[])} and frame splitting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameCodecBenchmark
+{
+    @Param({ "16", "125", "1024", "65536" })
+    public int size;
+
+
+    @Param({ "JSON", "RANDOM" })
+    public Corpus corpus;
+
+
+    private byte[] mPayload;
+    private byte[] mMaskingKey;
+    private WebSocketFrame mFrame;
+    private byte[] mEncodedFrame;
+    private ByteArrayInputStream mEncodedInput;
+    private WebSocketInputStream mInput;
+    private WebSocketOutputStream mOutput;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        mPayload      = corpus.generate(size);
+        mMaskingKey   = new byte[] { 0x12, 0x34, 0x56, 0x78 };
+        mFrame        = WebSocketFrame.createBinaryFrame(mPayload);
+        mEncodedFrame = encodeServerFrame(mPayload);
+        mEncodedInput = new ByteArrayInputStream(mEncodedFrame);
+        mInput        = new WebSocketInputStream(mEncodedInput);
+        mOutput       = new WebSocketOutputStream(new NullOutputStream());
+    }
+
+
+    /**
+     * Encode a binary frame in the way a server sends it (not masked).
+     */
+    private static byte[] encodeServerFrame(byte[] payload)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length + 10);
+
+        // FIN + binary.
+        out.write(0x82);
+
+        int len = payload.length;
+
+        if (len <= 125)
+        {
+            out.write(len);
+        }
+        else if (len <= 65535)
+        {
+            out.write(126);
+            out.write(len >>> 8);
+            out.write(len);
+        }
+        else
+        {
+            out.write(127);
+
+            for (int shift = 56; 0 <= shift; shift -= 8)
+            {
+                out.write((int)(((long)len) >>> shift));
+            }
+        }
+
+        out.write(payload, 0, len);
+
+        return out.toByteArray();
+    }
+
+
+    @Benchmark
+    public WebSocketFrame readFrame() throws Exception
+    {
+        // Rewind the input to the head of the encoded frame.
+        mEncodedInput.reset();
+
+        return mInput.readFrame();
+    }
+
+
+    @Benchmark
+    public WebSocketOutputStream writeFrame() throws IOException
+    {
+        mOutput.write(mFrame);
+
+        return mOutput;
+    }
+
+
+    @Benchmark
+    public byte[] mask()
+    {
+        return WebSocketFrame.mask(mMaskingKey, mPayload);
+    }
+
+
+    @Benchmark
+    public List<WebSocketFrame> split()
+    {
+        // Split into frames of 1/4 of the payload (at least 1 byte each).
+        return WebSocketFrame.splitIfNecessary(mFrame, Math.max(1, size / 4), null);
+    }
+
+
+    /**
+     * An output stream which discards everything.
+     */
+    private static class NullOutputStream extends OutputStream
+    {
+        @Override
+        public void write(int b)
+        {
+        }
+
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+        }
+    }
+}
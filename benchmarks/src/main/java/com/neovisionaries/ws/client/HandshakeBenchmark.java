@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks of {@link Misc#readLine(java.io.InputStream, String)} and
+ * {@link HandshakeReader#readHandshake(WebSocketInputStream, String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandshakeBenchmark
+{
+    private static final String KEY = "dGhlIHNhbXBsZSBub25jZQ==";
+
+
+    private byte[] mResponse;
+    private byte[] mLine;
+    private WebSocket mWebSocket;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        // A typical response of a server behind a load balancer.
+        String response =
+            "HTTP/1.1 101 Switching Protocols\r\n" +
+            "Server: nginx/1.13.8\r\n" +
+            "Date: Mon, 05 Feb 2018 10:00:00 GMT\r\n" +
+            "Connection: upgrade\r\n" +
+            "Upgrade: websocket\r\n" +
+            "Sec-WebSocket-Accept: " + computeAccept(KEY) + "\r\n" +
+            "Sec-WebSocket-Extensions: permessage-deflate; client_max_window_bits=15\r\n" +
+            "Set-Cookie: SESSION=0123456789abcdef0123456789abcdef; Path=/; HttpOnly\r\n" +
+            "Strict-Transport-Security: max-age=31536000\r\n" +
+            "\r\n";
+
+        mResponse = Misc.getBytesUTF8(response);
+        mLine     = Misc.getBytesUTF8("Set-Cookie: SESSION=0123456789abcdef0123456789abcdef; Path=/; HttpOnly\r\n");
+
+        // The WebSocket is never connected. It is used only to validate
+        // the response against the request.
+        mWebSocket = new WebSocketFactory().createSocket("ws://localhost/")
+            .addExtension(WebSocketExtension.PERMESSAGE_DEFLATE);
+    }
+
+
+    private static String computeAccept(String key) throws Exception
+    {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+
+        return Base64.encode(md.digest(
+            Misc.getBytesUTF8(key + "258EAFA5-E914-47DA-95CA-C5AB0DC85B11")));
+    }
+
+
+    @Benchmark
+    public String readLine() throws Exception
+    {
+        return Misc.readLine(new ByteArrayInputStream(mLine), "UTF-8");
+    }
+
+
+    @Benchmark
+    public Map<String, List<String>> readHandshake() throws Exception
+    {
+        WebSocketInputStream input =
+            new WebSocketInputStream(new ByteArrayInputStream(mResponse));
+
+        return new HandshakeReader(mWebSocket).readHandshake(input, KEY);
+    }
+}
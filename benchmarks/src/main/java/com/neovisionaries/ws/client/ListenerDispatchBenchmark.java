@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks of {@link ListenerManager} dispatch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerDispatchBenchmark
+{
+    @Param({ "1", "4" })
+    public int listeners;
+
+
+    private ListenerManager mManager;
+    private WebSocketFrame mFrame;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        WebSocket websocket = new WebSocketFactory().createSocket("ws://localhost/");
+
+        mManager = new ListenerManager(websocket);
+        mFrame   = WebSocketFrame.createTextFrame("hello");
+
+        for (int i = 0; i < listeners; ++i)
+        {
+            mManager.addListener(new TextListener());
+        }
+    }
+
+
+    @Benchmark
+    public void textMessage()
+    {
+        mManager.callOnTextMessage("hello");
+    }
+
+
+    @Benchmark
+    public void frame()
+    {
+        // Most listeners do not override onFrame().
+        mManager.callOnFrame(mFrame);
+    }
+
+
+    /**
+     * A listener which consumes text messages only.
+     */
+    private static class TextListener extends WebSocketAdapter
+    {
+        // Updated so that the call cannot be optimized away.
+        private long mLength;
+
+
+        @Override
+        public void onTextMessage(WebSocket websocket, String text)
+        {
+            mLength += text.length();
+        }
+    }
+}
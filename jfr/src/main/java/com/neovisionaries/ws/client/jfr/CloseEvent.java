@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client.jfr;
+
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+
+/**
+ * The closing handshake of a WebSocket connection.
+ */
+@Name("com.neovisionaries.ws.client.Close")
+@Label("WebSocket Close")
+@Category({ "WebSocket" })
+@Description("The closing handshake of a WebSocket connection.")
+class CloseEvent extends jdk.jfr.Event
+{
+    @Label("URI")
+    String uri;
+
+    @Label("Server Close Code")
+    int serverCloseCode;
+
+    @Label("Client Close Code")
+    int clientCloseCode;
+
+    @Label("Closed by Server")
+    boolean closedByServer;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
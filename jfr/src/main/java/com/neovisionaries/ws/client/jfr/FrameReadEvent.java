@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client.jfr;
+
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.DataAmount;
+
+
+/**
+ * A WebSocket frame read from the server.
+ */
+@Name("com.neovisionaries.ws.client.FrameRead")
+@Label("WebSocket Frame Read")
+@Category({ "WebSocket" })
+@Enabled(false)
+@Description("A WebSocket frame read from the server.")
+class FrameReadEvent extends jdk.jfr.Event
+{
+    @Label("URI")
+    String uri;
+
+    @Label("Opcode")
+    int opcode;
+
+    @Label("Payload Size")
+    @DataAmount
+    int payloadSize;
+}
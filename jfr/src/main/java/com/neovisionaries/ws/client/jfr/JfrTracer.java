@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client.jfr;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import com.neovisionaries.ws.client.ConnectPhase;
+import com.neovisionaries.ws.client.WebSocket;
+import com.neovisionaries.ws.client.WebSocketFrame;
+import com.neovisionaries.ws.client.WebSocketTracer;
+
+
+/**
+ * A {@link WebSocketTracer} which emits Java Flight Recorder events.
+ *
+ * <p>
+ * This class is registered as a service, so WebSockets created by
+ * {@link com.neovisionaries.ws.client.WebSocketFactory WebSocketFactory}
+ * use it automatically when this module is on the class path. Each event
+ * type can be enabled or disabled in the JFR settings as usual. Frame
+ * events are disabled by default because they are emitted once per
+ * frame.
+ * </p>
+ *
+ * <p>
+ * The volume of frame events can be reduced further by the following
+ * system properties.
+ * </p>
+ *
+ * <blockquote>
+ * <table border="1" cellpadding="5" style="border-collapse: collapse;">
+ *   <tr>
+ *     <th>Property</th>
+ *     <th>Description</th>
+ *   </tr>
+ *   <tr>
+ *     <td>{@code com.neovisionaries.ws.client.jfr.frameSampling}</td>
+ *     <td>Emit one frame event out of every <i>N</i> frames. The default value is 1.</td>
+ *   </tr>
+ *   <tr>
+ *     <td>{@code com.neovisionaries.ws.client.jfr.frameWriteThreshold}</td>
+ *     <td>Emit frame write events only when writing a frame took at least
+ *         the given number of nanoseconds. The default value is 0.</td>
+ *   </tr>
+ * </table>
+ * </blockquote>
+ *
+ * <p>
+ * The durations are measured by the client before the events are
+ * created, so they are recorded in the {@code elapsed} field of each
+ * event instead of the event duration.
+ * </p>
+ *
+ * @since 2.3
+ */
+public class JfrTracer implements WebSocketTracer
+{
+    private static final String PROPERTY_PREFIX = "com.neovisionaries.ws.client.jfr.";
+
+
+    private final long mFrameSampling;
+    private final long mFrameWriteThreshold;
+    private final AtomicLong mFrameCount = new AtomicLong();
+
+
+    /**
+     * The default constructor. The sampling interval and the threshold
+     * are read from the system properties.
+     */
+    public JfrTracer()
+    {
+        this(Long.getLong(PROPERTY_PREFIX + "frameSampling", 1),
+             Long.getLong(PROPERTY_PREFIX + "frameWriteThreshold", 0));
+    }
+
+
+    /**
+     * Constructor with the sampling interval and the threshold of frame events.
+     *
+     * @param frameSampling
+     *         Emit one frame event out of every {@code frameSampling} frames.
+     *         Values less than 1 are treated as 1.
+     *
+     * @param frameWriteThreshold
+     *         The minimum time in nanoseconds taken by writing a frame
+     *         for a frame write event to be emitted.
+     */
+    public JfrTracer(long frameSampling, long frameWriteThreshold)
+    {
+        mFrameSampling       = Math.max(1, frameSampling);
+        mFrameWriteThreshold = Math.max(0, frameWriteThreshold);
+    }
+
+
+    @Override
+    public void onConnectPhase(WebSocket websocket, ConnectPhase phase, long duration, Throwable error)
+    {
+        ConnectPhaseEvent event = new ConnectPhaseEvent();
+
+        if (event.isEnabled() == false)
+        {
+            return;
+        }
+
+        event.uri     = websocket.getURI().toString();
+        event.phase   = phase.name();
+        event.elapsed = duration;
+        event.error   = (error == null) ? null : error.toString();
+        event.commit();
+    }
+
+
+    @Override
+    public void onFrameRead(WebSocket websocket, WebSocketFrame frame)
+    {
+        FrameReadEvent event = new FrameReadEvent();
+
+        if (event.isEnabled() == false || isSampled() == false)
+        {
+            return;
+        }
+
+        event.uri         = websocket.getURI().toString();
+        event.opcode      = frame.getOpcode();
+        event.payloadSize = frame.getPayloadLength();
+        event.commit();
+    }
+
+
+    @Override
+    public void onFrameWritten(WebSocket websocket, WebSocketFrame frame, long duration)
+    {
+        if (duration < mFrameWriteThreshold)
+        {
+            return;
+        }
+
+        FrameWriteEvent event = new FrameWriteEvent();
+
+        if (event.isEnabled() == false || isSampled() == false)
+        {
+            return;
+        }
+
+        event.uri         = websocket.getURI().toString();
+        event.opcode      = frame.getOpcode();
+        event.payloadSize = frame.getPayloadLength();
+        event.elapsed     = duration;
+        event.commit();
+    }
+
+
+    @Override
+    public void onCompression(
+            WebSocket websocket, boolean compress, int inputLength, int outputLength, long duration)
+    {
+        CompressionEvent event = new CompressionEvent();
+
+        if (event.isEnabled() == false)
+        {
+            return;
+        }
+
+        event.uri        = websocket.getURI().toString();
+        event.compress   = compress;
+        event.inputSize  = inputLength;
+        event.outputSize = outputLength;
+        event.elapsed    = duration;
+        event.commit();
+    }
+
+
+    @Override
+    public void onQueueStall(WebSocket websocket, long duration, int queueSize)
+    {
+        QueueStallEvent event = new QueueStallEvent();
+
+        if (event.isEnabled() == false)
+        {
+            return;
+        }
+
+        event.uri       = websocket.getURI().toString();
+        event.queueSize = queueSize;
+        event.elapsed   = duration;
+        event.commit();
+    }
+
+
+    @Override
+    public void onClose(
+            WebSocket websocket, WebSocketFrame serverCloseFrame,
+            WebSocketFrame clientCloseFrame, boolean closedByServer, long duration)
+    {
+        CloseEvent event = new CloseEvent();
+
+        if (event.isEnabled() == false)
+        {
+            return;
+        }
+
+        event.uri             = websocket.getURI().toString();
+        event.serverCloseCode = getCloseCode(serverCloseFrame);
+        event.clientCloseCode = getCloseCode(clientCloseFrame);
+        event.closedByServer  = closedByServer;
+        event.elapsed         = duration;
+        event.commit();
+    }
+
+
+    private boolean isSampled()
+    {
+        if (mFrameSampling == 1)
+        {
+            return true;
+        }
+
+        return (mFrameCount.getAndIncrement() % mFrameSampling) == 0;
+    }
+
+
+    private static int getCloseCode(WebSocketFrame frame)
+    {
+        // -1 means that the close frame is not available.
+        return (frame == null) ? -1 : frame.getCloseCode();
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client.loadgen;
+
+
+import java.util.Random;
+
+
+/**
+ * A distribution of non-negative values, used for message sizes and
+ * intervals between messages.
+ *
+ * <p>
+ * The textual form is one of the following.
+ * </p>
+ *
+ * <blockquote>
+ * <table border="1" cellpadding="5" style="border-collapse: collapse;">
+ *   <tr><th>Form</th><th>Meaning</th></tr>
+ *   <tr><td>{@code N} or {@code fixed:N}</td><td>Always N.</td></tr>
+ *   <tr><td>{@code uniform:MIN-MAX}</td><td>Uniformly distributed between MIN and MAX (inclusive).</td></tr>
+ *   <tr><td>{@code exponential:MEAN}</td><td>Exponentially distributed with the mean MEAN.</td></tr>
+ * </table>
+ * </blockquote>
+ */
+abstract class Distribution
+{
+    private final String mText;
+
+
+    Distribution(String text)
+    {
+        mText = text;
+    }
+
+
+    /**
+     * Get the next value.
+     */
+    abstract long next(Random random);
+
+
+    /**
+     * Get the mean value.
+     */
+    abstract double getMean();
+
+
+    @Override
+    public String toString()
+    {
+        return mText;
+    }
+
+
+    static Distribution parse(String text)
+    {
+        int colon = text.indexOf(':');
+
+        if (colon < 0)
+        {
+            return new Fixed(text, Long.parseLong(text));
+        }
+
+        String type  = text.substring(0, colon);
+        String value = text.substring(colon + 1);
+
+        if (type.equals("fixed"))
+        {
+            return new Fixed(text, Long.parseLong(value));
+        }
+        else if (type.equals("uniform"))
+        {
+            int hyphen = value.indexOf('-');
+
+            if (hyphen < 0)
+            {
+                throw new IllegalArgumentException("'uniform:MIN-MAX' is expected: " + text);
+            }
+
+            return new Uniform(text,
+                Long.parseLong(value.substring(0, hyphen)),
+                Long.parseLong(value.substring(hyphen + 1)));
+        }
+        else if (type.equals("exponential"))
+        {
+            return new Exponential(text, Double.parseDouble(value));
+        }
+
+        throw new IllegalArgumentException("Unknown distribution: " + text);
+    }
+
+
+    /**
+     * Exponentially distributed intervals with the given rate per second,
+     * i.e. arrivals of a Poisson process.
+     */
+    static Distribution poisson(double ratePerSecond)
+    {
+        return new Exponential("poisson:" + ratePerSecond, 1e9 / ratePerSecond);
+    }
+
+
+    private static class Fixed extends Distribution
+    {
+        private final long mValue;
+
+
+        Fixed(String text, long value)
+        {
+            super(text);
+
+            if (value < 0)
+            {
+                throw new IllegalArgumentException("A negative value: " + text);
+            }
+
+            mValue = value;
+        }
+
+
+        @Override
+        long next(Random random)
+        {
+            return mValue;
+        }
+
+
+        @Override
+        double getMean()
+        {
+            return mValue;
+        }
+    }
+
+
+    private static class Uniform extends Distribution
+    {
+        private final long mMin;
+        private final long mRange;
+
+
+        Uniform(String text, long min, long max)
+        {
+            super(text);
+
+            if (min < 0 || max < min)
+            {
+                throw new IllegalArgumentException("0 <= MIN <= MAX is required: " + text);
+            }
+
+            mMin   = min;
+            mRange = max - min + 1;
+        }
+
+
+        @Override
+        long next(Random random)
+        {
+            return mMin + (long)(random.nextDouble() * mRange);
+        }
+
+
+        @Override
+        double getMean()
+        {
+            return mMin + (mRange - 1) / 2.0;
+        }
+    }
+
+
+    private static class Exponential extends Distribution
+    {
+        private final double mMean;
+
+
+        Exponential(String text, double mean)
+        {
+            super(text);
+
+            if (mean <= 0)
+            {
+                throw new IllegalArgumentException("A positive mean is required: " + text);
+            }
+
+            mMean = mean;
+        }
+
+
+        @Override
+        long next(Random random)
+        {
+            // Inverse transform sampling. 1 - nextDouble() is in (0, 1].
+            return (long)(-mMean * Math.log(1.0 - random.nextDouble()));
+        }
+
+
+        @Override
+        double getMean()
+        {
+            return mMean;
+        }
+    }
+}
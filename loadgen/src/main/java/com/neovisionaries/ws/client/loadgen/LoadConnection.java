@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client.loadgen;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import com.neovisionaries.ws.client.WebSocket;
+import com.neovisionaries.ws.client.WebSocketAdapter;
+import com.neovisionaries.ws.client.WebSocketException;
+import com.neovisionaries.ws.client.WebSocketFrame;
+
+
+/**
+ * A connection driven by {@link LoadGenerator}.
+ *
+ * <p>
+ * Messages are sent on a schedule computed from the configured rate, not
+ * when the previous send returned. Each message carries the time at which
+ * it <i>should</i> have been sent, so the latency measured when its echo
+ * arrives includes any time it was delayed by a busy sender, a full frame
+ * queue or a slow server. This avoids the coordinated omission problem of
+ * load generators which only measure the messages they manage to send.
+ * </p>
+ */
+class LoadConnection extends WebSocketAdapter
+{
+    /**
+     * The length of the timestamp at the head of text messages
+     * (16 hexadecimal digits).
+     */
+    static final int TEXT_TIMESTAMP_LENGTH = 16;
+
+
+    /**
+     * The length of the timestamp at the head of binary messages.
+     */
+    static final int BINARY_TIMESTAMP_LENGTH = 8;
+
+
+    private final LoadGenerator mGenerator;
+    private final WebSocket mWebSocket;
+    private final Random mRandom;
+    private volatile boolean mOpen;
+    private volatile long mNextSendAt = Long.MAX_VALUE;
+
+
+    LoadConnection(LoadGenerator generator, WebSocket websocket, long seed)
+    {
+        mGenerator = generator;
+        mWebSocket = websocket;
+        mRandom    = new Random(seed);
+    }
+
+
+    WebSocket getWebSocket()
+    {
+        return mWebSocket;
+    }
+
+
+    boolean isOpen()
+    {
+        return mOpen;
+    }
+
+
+    long getNextSendAt()
+    {
+        return mNextSendAt;
+    }
+
+
+    /**
+     * Send all the messages whose scheduled time has come. Called only
+     * by the sender thread which owns this connection.
+     */
+    void sendDue(long now)
+    {
+        while (mOpen && mNextSendAt <= now)
+        {
+            long intendedAt = mNextSendAt;
+
+            send(intendedAt);
+
+            mNextSendAt = intendedAt + mGenerator.getInterval().next(mRandom);
+        }
+    }
+
+
+    private void send(long intendedAt)
+    {
+        int size = (int)mGenerator.getOptions().size.next(mRandom);
+        long timestamp = intendedAt - mGenerator.getEpoch();
+
+        if (mGenerator.getOptions().binary)
+        {
+            mWebSocket.sendBinary(createBinary(timestamp, size));
+        }
+        else
+        {
+            mWebSocket.sendText(createText(timestamp, size));
+        }
+
+        mGenerator.onMessageSent();
+    }
+
+
+    private byte[] createBinary(long timestamp, int size)
+    {
+        byte[] message = new byte[Math.max(size, BINARY_TIMESTAMP_LENGTH)];
+        byte[] filler  = mGenerator.getFiller();
+
+        for (int i = 0; i < BINARY_TIMESTAMP_LENGTH; ++i)
+        {
+            message[i] = (byte)(timestamp >>> (56 - i * 8));
+        }
+
+        for (int i = BINARY_TIMESTAMP_LENGTH; i < message.length; ++i)
+        {
+            message[i] = filler[i % filler.length];
+        }
+
+        return message;
+    }
+
+
+    private String createText(long timestamp, int size)
+    {
+        StringBuilder builder = new StringBuilder(Math.max(size, TEXT_TIMESTAMP_LENGTH));
+        String hex = Long.toHexString(timestamp);
+
+        // Zero-padded hexadecimal timestamp.
+        for (int i = hex.length(); i < TEXT_TIMESTAMP_LENGTH; ++i)
+        {
+            builder.append('0');
+        }
+
+        builder.append(hex);
+
+        String filler = mGenerator.getTextFiller();
+
+        while (builder.length() < size)
+        {
+            builder.append(filler, 0, Math.min(filler.length(), size - builder.length()));
+        }
+
+        return builder.toString();
+    }
+
+
+    @Override
+    public void onConnected(WebSocket websocket, Map<String, List<String>> headers)
+    {
+        // Start at a random point of the first interval so that the
+        // connections do not send in lockstep.
+        long offset = (long)(mRandom.nextDouble() * mGenerator.getInterval().getMean());
+
+        mNextSendAt = System.nanoTime() + offset;
+        mOpen = true;
+
+        mGenerator.onConnected();
+    }
+
+
+    @Override
+    public void onDisconnected(
+            WebSocket websocket, WebSocketFrame serverCloseFrame,
+            WebSocketFrame clientCloseFrame, boolean closedByServer)
+    {
+        boolean wasOpen = mOpen;
+
+        mOpen = false;
+        mNextSendAt = Long.MAX_VALUE;
+
+        if (wasOpen)
+        {
+            mGenerator.onDisconnected(closedByServer);
+        }
+    }
+
+
+    @Override
+    public void onError(WebSocket websocket, WebSocketException cause)
+    {
+        mGenerator.onError(cause);
+    }
+
+
+    @Override
+    public void onTextMessage(WebSocket websocket, String text)
+    {
+        if (text.length() < TEXT_TIMESTAMP_LENGTH)
+        {
+            mGenerator.onMessageReceived(-1);
+            return;
+        }
+
+        long timestamp;
+
+        try
+        {
+            timestamp = Long.parseLong(text.substring(0, TEXT_TIMESTAMP_LENGTH), 16);
+        }
+        catch (NumberFormatException e)
+        {
+            // Not an echo of a message sent by this generator.
+            mGenerator.onMessageReceived(-1);
+            return;
+        }
+
+        mGenerator.onMessageReceived(timestamp);
+    }
+
+
+    @Override
+    public void onBinaryMessage(WebSocket websocket, byte[] binary)
+    {
+        if (binary.length < BINARY_TIMESTAMP_LENGTH)
+        {
+            mGenerator.onMessageReceived(-1);
+            return;
+        }
+
+        long timestamp = 0;
+
+        for (int i = 0; i < BINARY_TIMESTAMP_LENGTH; ++i)
+        {
+            timestamp = (timestamp << 8) | (binary[i] & 0xFF);
+        }
+
+        mGenerator.onMessageReceived(timestamp);
+    }
+}
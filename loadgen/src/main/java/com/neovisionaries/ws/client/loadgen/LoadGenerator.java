@@ -0,0 +1,511 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client.loadgen;
+
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import com.neovisionaries.ws.client.ConnectLatencies;
+import com.neovisionaries.ws.client.ConnectPhase;
+import com.neovisionaries.ws.client.LatencyHistogram;
+import com.neovisionaries.ws.client.WebSocket;
+import com.neovisionaries.ws.client.WebSocketException;
+import com.neovisionaries.ws.client.WebSocketExtension;
+import com.neovisionaries.ws.client.WebSocketFactory;
+import com.neovisionaries.ws.client.WebSocketMetricsSnapshot;
+
+
+/**
+ * A command-line load generator for WebSocket servers.
+ *
+ * <p>
+ * Connections are opened at a configurable ramp rate through a single
+ * {@link WebSocketFactory}, so connection phases and traffic are measured
+ * by the library itself ({@link WebSocketFactory#getConnectLatencies()},
+ * {@link WebSocketFactory#getMetrics()}). Round-trip times are measured
+ * from the scheduled send time of each message (see {@link LoadConnection})
+ * and require the server to echo messages back.
+ * </p>
+ *
+ * <pre>
+ * java -jar loadgen.jar --uri=ws://localhost:8080/echo --connections=1000 --rate=10
+ * </pre>
+ *
+ * @since 2.3
+ */
+public class LoadGenerator
+{
+    private static final String TEXT_FILLER =
+        "{\"type\":\"quote\",\"symbol\":\"NVWS\",\"bid\":101.25,\"ask\":101.27,\"venue\":\"XNAS\"}";
+
+
+    private final LoadOptions mOptions;
+    private final Distribution mInterval;
+    private final WebSocketFactory mFactory = new WebSocketFactory();
+    private final List<LoadConnection> mConnections = new ArrayList<LoadConnection>();
+    private final long mEpoch = System.nanoTime();
+    private final byte[] mFiller = TEXT_FILLER.getBytes();
+    private final LatencyHistogram mLatencies = new LatencyHistogram();
+    private volatile LatencyHistogram mIntervalLatencies = new LatencyHistogram();
+    private final AtomicInteger mOpenCount = new AtomicInteger();
+    private final AtomicLong mConnectFailures = new AtomicLong();
+    private final AtomicLong mDisconnects = new AtomicLong();
+    private final AtomicLong mErrors = new AtomicLong();
+    private final AtomicLong mSentCount = new AtomicLong();
+    private final AtomicLong mReceivedCount = new AtomicLong();
+    private volatile boolean mStopped;
+
+
+    LoadGenerator(LoadOptions options)
+    {
+        mOptions  = options;
+        mInterval = (0 < options.rate) ? options.getInterval() : null;
+    }
+
+
+    public static void main(String[] args) throws Exception
+    {
+        LoadOptions options;
+
+        try
+        {
+            options = LoadOptions.parse(args);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        new LoadGenerator(options).run(System.out);
+
+        // Threads of the library may still be closing connections.
+        System.exit(0);
+    }
+
+
+    LoadOptions getOptions()
+    {
+        return mOptions;
+    }
+
+
+    Distribution getInterval()
+    {
+        return mInterval;
+    }
+
+
+    long getEpoch()
+    {
+        return mEpoch;
+    }
+
+
+    byte[] getFiller()
+    {
+        return mFiller;
+    }
+
+
+    String getTextFiller()
+    {
+        return TEXT_FILLER;
+    }
+
+
+    void onConnected()
+    {
+        mOpenCount.incrementAndGet();
+    }
+
+
+    void onDisconnected(boolean closedByServer)
+    {
+        mOpenCount.decrementAndGet();
+
+        if (mStopped == false)
+        {
+            // Not closed by this generator.
+            mDisconnects.incrementAndGet();
+        }
+    }
+
+
+    void onError(WebSocketException cause)
+    {
+        mErrors.incrementAndGet();
+    }
+
+
+    void onMessageSent()
+    {
+        mSentCount.incrementAndGet();
+    }
+
+
+    /**
+     * @param timestamp
+     *         The timestamp carried by the message. -1 if the message
+     *         was not an echo of a message sent by this generator.
+     */
+    void onMessageReceived(long timestamp)
+    {
+        mReceivedCount.incrementAndGet();
+
+        if (timestamp < 0)
+        {
+            return;
+        }
+
+        long latency = System.nanoTime() - (mEpoch + timestamp);
+
+        mLatencies.record(latency);
+        mIntervalLatencies.record(latency);
+    }
+
+
+    void run(PrintStream out) throws InterruptedException
+    {
+        out.println("Options: " + mOptions);
+
+        ExecutorService connectExecutor = Executors.newFixedThreadPool(mOptions.connectThreads);
+        List<SenderThread> senders = startSenders();
+        Reporter reporter = new Reporter(out);
+        reporter.start();
+
+        try
+        {
+            // Open connections at the ramp rate.
+            ramp(connectExecutor);
+
+            // Steady state.
+            Thread.sleep(mOptions.duration * 1000L);
+        }
+        finally
+        {
+            mStopped = true;
+            reporter.interrupt();
+            reporter.join();
+
+            for (SenderThread sender : senders)
+            {
+                sender.interrupt();
+            }
+
+            connectExecutor.shutdownNow();
+            connectExecutor.awaitTermination(10, TimeUnit.SECONDS);
+
+            for (LoadConnection connection : mConnections)
+            {
+                connection.getWebSocket().disconnect();
+            }
+        }
+
+        printSummary(out);
+    }
+
+
+    private List<SenderThread> startSenders()
+    {
+        List<SenderThread> senders = new ArrayList<SenderThread>();
+
+        if (mInterval == null)
+        {
+            // --rate=0. Nothing to send.
+            return senders;
+        }
+
+        for (int i = 0; i < mOptions.senderThreads; ++i)
+        {
+            SenderThread sender = new SenderThread(i);
+            senders.add(sender);
+        }
+
+        for (int i = 0; i < mOptions.connections; ++i)
+        {
+            // The connections are assigned to the senders in a round-robin
+            // manner. A connection is added to its sender before it is created.
+            senders.get(i % senders.size()).mIndices.add(i);
+        }
+
+        for (SenderThread sender : senders)
+        {
+            sender.start();
+        }
+
+        return senders;
+    }
+
+
+    private void ramp(ExecutorService connectExecutor) throws InterruptedException
+    {
+        long startedAt = System.nanoTime();
+        long step = (long)(1e9 / mOptions.rampRate);
+
+        for (int i = 0; i < mOptions.connections; ++i)
+        {
+            long delay = startedAt + i * step - System.nanoTime();
+
+            if (0 < delay)
+            {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+
+            LoadConnection connection = createConnection(i);
+
+            synchronized (mConnections)
+            {
+                mConnections.add(connection);
+            }
+
+            connectExecutor.execute(new ConnectTask(connection));
+        }
+    }
+
+
+    private LoadConnection createConnection(int index)
+    {
+        WebSocket ws;
+
+        try
+        {
+            ws = mFactory.createSocket(mOptions.uri);
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException("Failed to create a WebSocket: " + e.getMessage(), e);
+        }
+
+        LoadConnection connection = new LoadConnection(this, ws, index);
+
+        ws.addListener(connection);
+        ws.setPingInterval(mOptions.pingInterval);
+
+        if (mOptions.compression)
+        {
+            ws.addExtension(WebSocketExtension.PERMESSAGE_DEFLATE);
+        }
+
+        return connection;
+    }
+
+
+    private LoadConnection getConnection(int index)
+    {
+        synchronized (mConnections)
+        {
+            return (index < mConnections.size()) ? mConnections.get(index) : null;
+        }
+    }
+
+
+    private void printSummary(PrintStream out)
+    {
+        ConnectLatencies connect = mFactory.getConnectLatencies();
+        WebSocketMetricsSnapshot metrics = mFactory.getMetrics().snapshot();
+
+        out.println();
+        out.println("==== Summary ====");
+        out.printf("connections: requested=%d, failed=%d, dropped=%d, errors=%d%n",
+            mOptions.connections, mConnectFailures.get(), mDisconnects.get(), mErrors.get());
+        out.println("connect (ms):");
+        printLatency(out, "  total", connect.getTotal());
+
+        for (ConnectPhase phase : ConnectPhase.values())
+        {
+            LatencyHistogram histogram = connect.getLatency(phase);
+
+            if (histogram.getCount() != 0)
+            {
+                printLatency(out, "  " + phase, histogram);
+            }
+        }
+
+        out.printf("messages: sent=%d, received=%d%n", mSentCount.get(), mReceivedCount.get());
+        out.println("round trip (ms, corrected for coordinated omission):");
+        printLatency(out, "  all", mLatencies.snapshot());
+        out.println("library metrics: " + metrics);
+    }
+
+
+    private static void printLatency(PrintStream out, String label, LatencyHistogram h)
+    {
+        out.printf("%-24s count=%d p50=%.2f p90=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+            label, h.getCount(), ms(h.getPercentile(50)), ms(h.getPercentile(90)),
+            ms(h.getPercentile(99)), ms(h.getPercentile(99.9)), ms(h.getMax()));
+    }
+
+
+    private static double ms(long nanos)
+    {
+        return nanos / 1e6;
+    }
+
+
+    /**
+     * Opens a connection.
+     */
+    private class ConnectTask implements Runnable
+    {
+        private final LoadConnection mConnection;
+
+
+        ConnectTask(LoadConnection connection)
+        {
+            mConnection = connection;
+        }
+
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                mConnection.getWebSocket().connect();
+            }
+            catch (WebSocketException e)
+            {
+                mConnectFailures.incrementAndGet();
+            }
+        }
+    }
+
+
+    /**
+     * Sends the scheduled messages of a subset of the connections.
+     */
+    private class SenderThread extends Thread
+    {
+        /**
+         * Upper bound of a sleep, so that new connections are noticed.
+         */
+        private static final long MAX_PARK = 10L * 1000 * 1000;
+
+
+        private final List<Integer> mIndices = new ArrayList<Integer>();
+
+
+        SenderThread(int id)
+        {
+            super("LoadGeneratorSender-" + id);
+            setDaemon(true);
+        }
+
+
+        @Override
+        public void run()
+        {
+            while (mStopped == false && isInterrupted() == false)
+            {
+                long now  = System.nanoTime();
+                long next = now + MAX_PARK;
+
+                for (int index : mIndices)
+                {
+                    LoadConnection connection = getConnection(index);
+
+                    if (connection == null || connection.isOpen() == false)
+                    {
+                        continue;
+                    }
+
+                    connection.sendDue(now);
+                    next = Math.min(next, connection.getNextSendAt());
+                }
+
+                long delay = next - System.nanoTime();
+
+                if (0 < delay)
+                {
+                    LockSupport.parkNanos(delay);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Prints progress periodically.
+     */
+    private class Reporter extends Thread
+    {
+        private final PrintStream mOut;
+
+
+        Reporter(PrintStream out)
+        {
+            super("LoadGeneratorReporter");
+            setDaemon(true);
+            mOut = out;
+        }
+
+
+        @Override
+        public void run()
+        {
+            long interval = mOptions.reportInterval * 1000L;
+            long startedAt = System.currentTimeMillis();
+            long lastSent = 0, lastReceived = 0, lastBytesOut = 0, lastBytesIn = 0;
+
+            while (true)
+            {
+                try
+                {
+                    Thread.sleep(interval);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+
+                WebSocketMetricsSnapshot metrics = mFactory.getMetrics().snapshot();
+                long sent     = mSentCount.get();
+                long received = mReceivedCount.get();
+                long bytesOut = metrics.getBytesOut();
+                long bytesIn  = metrics.getBytesIn();
+                double seconds = interval / 1000.0;
+
+                // Start a new interval histogram.
+                LatencyHistogram latencies = mIntervalLatencies;
+                mIntervalLatencies = new LatencyHistogram();
+
+                mOut.printf("[%5ds] open=%d sent=%.0f/s recv=%.0f/s out=%.2fMB/s in=%.2fMB/s " +
+                    "rtt(ms) p50=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+                    (System.currentTimeMillis() - startedAt) / 1000, mOpenCount.get(),
+                    (sent - lastSent) / seconds, (received - lastReceived) / seconds,
+                    (bytesOut - lastBytesOut) / seconds / 1e6, (bytesIn - lastBytesIn) / seconds / 1e6,
+                    ms(latencies.getPercentile(50)), ms(latencies.getPercentile(99)),
+                    ms(latencies.getPercentile(99.9)), ms(latencies.getMax()));
+
+                lastSent     = sent;
+                lastReceived = received;
+                lastBytesOut = bytesOut;
+                lastBytesIn  = bytesIn;
+            }
+        }
+    }
+}
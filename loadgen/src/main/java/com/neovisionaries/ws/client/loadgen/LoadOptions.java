@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client.loadgen;
+
+
+import java.net.URI;
+
+
+/**
+ * Command line options of {@link LoadGenerator}.
+ */
+class LoadOptions
+{
+    static final String USAGE =
+        "Usage: java -jar loadgen.jar --uri=URI [options]\n" +
+        "\n" +
+        "  --uri=URI                 WebSocket endpoint (required). An echo server is\n" +
+        "                            needed to measure latencies.\n" +
+        "  --connections=N           Number of connections. (default: 100)\n" +
+        "  --ramp-rate=N             New connections per second. (default: 50)\n" +
+        "  --connect-threads=N       Threads which perform opening handshakes. (default: 16)\n" +
+        "  --duration=SECONDS        Duration of the steady state after ramp-up. (default: 60)\n" +
+        "  --rate=N                  Messages per second per connection. 0 to send\n" +
+        "                            nothing. (default: 1)\n" +
+        "  --arrival=fixed|poisson   Intervals between messages. (default: fixed)\n" +
+        "  --size=DISTRIBUTION       Message size in bytes: N, fixed:N, uniform:MIN-MAX\n" +
+        "                            or exponential:MEAN. (default: 256)\n" +
+        "  --binary                  Send binary messages instead of text messages.\n" +
+        "  --compression             Offer permessage-deflate.\n" +
+        "  --ping-interval=MILLIS    Interval of ping frames. 0 to disable. (default: 0)\n" +
+        "  --sender-threads=N        Threads which send messages. (default: 4)\n" +
+        "  --report-interval=SECONDS Interval of progress reports. (default: 5)\n";
+
+
+    URI uri;
+    int connections = 100;
+    double rampRate = 50;
+    int connectThreads = 16;
+    int duration = 60;
+    double rate = 1;
+    boolean poisson;
+    Distribution size = Distribution.parse("256");
+    boolean binary;
+    boolean compression;
+    long pingInterval;
+    int senderThreads = 4;
+    int reportInterval = 5;
+
+
+    static LoadOptions parse(String[] args)
+    {
+        LoadOptions options = new LoadOptions();
+
+        for (String arg : args)
+        {
+            if (arg.startsWith("--") == false)
+            {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+
+            int equal    = arg.indexOf('=');
+            String name  = (equal < 0) ? arg.substring(2) : arg.substring(2, equal);
+            String value = (equal < 0) ? null : arg.substring(equal + 1);
+
+            options.set(name, value);
+        }
+
+        if (options.uri == null)
+        {
+            throw new IllegalArgumentException("--uri is required.");
+        }
+
+        return options;
+    }
+
+
+    private void set(String name, String value)
+    {
+        if (name.equals("binary"))
+        {
+            binary = true;
+            return;
+        }
+        else if (name.equals("compression"))
+        {
+            compression = true;
+            return;
+        }
+
+        if (value == null)
+        {
+            throw new IllegalArgumentException("--" + name + " requires a value.");
+        }
+
+        if (name.equals("uri"))
+        {
+            uri = URI.create(value);
+        }
+        else if (name.equals("connections"))
+        {
+            connections = Integer.parseInt(value);
+        }
+        else if (name.equals("ramp-rate"))
+        {
+            rampRate = Double.parseDouble(value);
+        }
+        else if (name.equals("connect-threads"))
+        {
+            connectThreads = Integer.parseInt(value);
+        }
+        else if (name.equals("duration"))
+        {
+            duration = Integer.parseInt(value);
+        }
+        else if (name.equals("rate"))
+        {
+            rate = Double.parseDouble(value);
+        }
+        else if (name.equals("arrival"))
+        {
+            poisson = parseArrival(value);
+        }
+        else if (name.equals("size"))
+        {
+            size = Distribution.parse(value);
+        }
+        else if (name.equals("ping-interval"))
+        {
+            pingInterval = Long.parseLong(value);
+        }
+        else if (name.equals("sender-threads"))
+        {
+            senderThreads = Integer.parseInt(value);
+        }
+        else if (name.equals("report-interval"))
+        {
+            reportInterval = Integer.parseInt(value);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown option: --" + name);
+        }
+    }
+
+
+    private static boolean parseArrival(String value)
+    {
+        if (value.equals("poisson"))
+        {
+            return true;
+        }
+        else if (value.equals("fixed"))
+        {
+            return false;
+        }
+
+        throw new IllegalArgumentException("--arrival must be 'fixed' or 'poisson'.");
+    }
+
+
+    /**
+     * The distribution of intervals between messages in nanoseconds.
+     */
+    Distribution getInterval()
+    {
+        if (poisson)
+        {
+            return Distribution.poisson(rate);
+        }
+
+        return Distribution.parse("fixed:" + (long)(1e9 / rate));
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+            "uri=%s, connections=%d, ramp-rate=%.1f/s, duration=%ds, rate=%.2f/s (%s), " +
+            "size=%s, %s, compression=%s, ping-interval=%dms",
+            uri, connections, rampRate, duration, rate, (poisson ? "poisson" : "fixed"),
+            size, (binary ? "binary" : "text"), compression, pingInterval);
+    }
+}
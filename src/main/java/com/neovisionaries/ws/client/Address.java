@@ -16,9 +16,6 @@
 package com.neovisionaries.ws.client;
 
 
-import java.net.InetSocketAddress;
-
-
 class Address
 {
     private final String mHost;
@@ -33,15 +30,15 @@ class Address
     }
 
 
-    InetSocketAddress toInetSocketAddress()
+    String getHostname()
     {
-        return new InetSocketAddress(mHost, mPort);
+        return mHost;
     }
 
 
-    String getHostname()
+    int getPort()
     {
-        return mHost;
+        return mPort;
     }
 
 
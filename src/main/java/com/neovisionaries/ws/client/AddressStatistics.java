@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Results of past connection attempts per address, used to decide the
+ * order in which the addresses of a host are tried.
+ *
+ * <p>
+ * Addresses to which the last connection attempt succeeded come first,
+ * faster ones first. Addresses never tried come next, and addresses to
+ * which the last attempt failed come last. A failure is forgotten after
+ * {@link #FAILURE_EXPIRY} so that a recovered address gets a chance again.
+ * </p>
+ *
+ * @since 2.3
+ */
+class AddressStatistics
+{
+    /**
+     * The maximum number of addresses remembered.
+     */
+    private static final int MAX_RECORDS = 256;
+
+
+    /**
+     * The time in milliseconds after which a failure is forgotten.
+     */
+    static final long FAILURE_EXPIRY = 10 * 60 * 1000L;
+
+
+    private static final int RANK_SUCCEEDED = 0;
+    private static final int RANK_UNKNOWN   = 1;
+    private static final int RANK_FAILED    = 2;
+
+
+    private final Map<InetAddress, Record> mRecords = new RecordMap();
+
+
+    private static class Record
+    {
+        private boolean mSucceeded;
+        private long mFailedAt;
+        private long mConnectTime = -1;
+        private int mSuccessCount;
+        private int mFailureCount;
+    }
+
+
+    /**
+     * A map which discards the least recently used record when full.
+     */
+    private static class RecordMap extends LinkedHashMap<InetAddress, Record>
+    {
+        private static final long serialVersionUID = 1L;
+
+
+        RecordMap()
+        {
+            super(16, 0.75f, true);
+        }
+
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<InetAddress, Record> eldest)
+        {
+            return MAX_RECORDS < size();
+        }
+    }
+
+
+    /**
+     * An address with the snapshot of its statistics taken for sorting.
+     */
+    private static class Candidate
+    {
+        private final InetAddress mAddress;
+        private final int mRank;
+        private final long mConnectTime;
+
+
+        Candidate(InetAddress address, int rank, long connectTime)
+        {
+            mAddress     = address;
+            mRank        = rank;
+            mConnectTime = connectTime;
+        }
+    }
+
+
+    private static class CandidateComparator implements Comparator<Candidate>
+    {
+        @Override
+        public int compare(Candidate c1, Candidate c2)
+        {
+            if (c1.mRank != c2.mRank)
+            {
+                return (c1.mRank < c2.mRank) ? -1 : 1;
+            }
+
+            if (c1.mRank != RANK_SUCCEEDED || c1.mConnectTime == c2.mConnectTime)
+            {
+                // Keep the original order.
+                return 0;
+            }
+
+            return (c1.mConnectTime < c2.mConnectTime) ? -1 : 1;
+        }
+    }
+
+
+    /**
+     * Record a successful connection attempt.
+     *
+     * @param connectTime
+     *         The time taken to connect in nanoseconds.
+     */
+    synchronized void onSuccess(InetAddress address, long connectTime)
+    {
+        Record record = getRecord(address);
+
+        record.mSucceeded = true;
+        record.mSuccessCount++;
+
+        if (record.mConnectTime < 0)
+        {
+            record.mConnectTime = connectTime;
+        }
+        else
+        {
+            // Smooth the connect time in the same way as TCP's SRTT.
+            record.mConnectTime += (connectTime - record.mConnectTime) / 8;
+        }
+    }
+
+
+    /**
+     * Record a failed connection attempt.
+     */
+    synchronized void onFailure(InetAddress address)
+    {
+        Record record = getRecord(address);
+
+        record.mSucceeded = false;
+        record.mFailedAt  = System.currentTimeMillis();
+        record.mFailureCount++;
+    }
+
+
+    synchronized int getSuccessCount(InetAddress address)
+    {
+        Record record = mRecords.get(address);
+
+        return (record == null) ? 0 : record.mSuccessCount;
+    }
+
+
+    synchronized int getFailureCount(InetAddress address)
+    {
+        Record record = mRecords.get(address);
+
+        return (record == null) ? 0 : record.mFailureCount;
+    }
+
+
+    private Record getRecord(InetAddress address)
+    {
+        Record record = mRecords.get(address);
+
+        if (record == null)
+        {
+            record = new Record();
+            mRecords.put(address, record);
+        }
+
+        return record;
+    }
+
+
+    /**
+     * Sort the addresses in the order in which they should be tried.
+     *
+     * @param interleave
+     *         {@code true} to interleave IPv6 and IPv4 addresses as
+     *         described in RFC 8305, Section 4, before applying the
+     *         statistics.
+     */
+    InetAddress[] sort(InetAddress[] addresses, boolean interleave)
+    {
+        if (addresses.length < 2)
+        {
+            return addresses;
+        }
+
+        List<InetAddress> ordered = interleave
+                ? interleave(addresses) : Arrays.asList(addresses);
+
+        List<Candidate> candidates = new ArrayList<Candidate>(ordered.size());
+        long now = System.currentTimeMillis();
+
+        synchronized (this)
+        {
+            for (InetAddress address : ordered)
+            {
+                candidates.add(toCandidate(address, now));
+            }
+        }
+
+        // Stable sort. Addresses of the same rank keep their order.
+        Collections.sort(candidates, new CandidateComparator());
+
+        InetAddress[] sorted = new InetAddress[candidates.size()];
+
+        for (int i = 0; i < sorted.length; ++i)
+        {
+            sorted[i] = candidates.get(i).mAddress;
+        }
+
+        return sorted;
+    }
+
+
+    private Candidate toCandidate(InetAddress address, long now)
+    {
+        Record record = mRecords.get(address);
+
+        if (record == null)
+        {
+            return new Candidate(address, RANK_UNKNOWN, -1);
+        }
+
+        if (record.mSucceeded)
+        {
+            return new Candidate(address, RANK_SUCCEEDED, record.mConnectTime);
+        }
+
+        if (now - record.mFailedAt < FAILURE_EXPIRY)
+        {
+            return new Candidate(address, RANK_FAILED, -1);
+        }
+
+        // The failure is old enough to be forgotten.
+        return new Candidate(address, RANK_UNKNOWN, -1);
+    }
+
+
+    /**
+     * Alternate the address families, starting with the family of the
+     * first address, and otherwise keeping the order given by the resolver.
+     */
+    private static List<InetAddress> interleave(InetAddress[] addresses)
+    {
+        List<InetAddress> first  = new ArrayList<InetAddress>();
+        List<InetAddress> second = new ArrayList<InetAddress>();
+        boolean firstIsV6 = (addresses[0] instanceof Inet6Address);
+
+        for (InetAddress address : addresses)
+        {
+            if ((address instanceof Inet6Address) == firstIsV6)
+            {
+                first.add(address);
+            }
+            else
+            {
+                second.add(address);
+            }
+        }
+
+        List<InetAddress> result = new ArrayList<InetAddress>(addresses.length);
+
+        for (int i = 0; i < first.size() || i < second.size(); ++i)
+        {
+            if (i < first.size())
+            {
+                result.add(first.get(i));
+            }
+
+            if (i < second.size())
+            {
+                result.add(second.get(i));
+            }
+        }
+
+        return result;
+    }
+}
@@ -44,66 +44,43 @@ class Base64
             return null;
         }
 
-        int capacity = (((((data.length * 8) + 5) / 6) + 3) / 4) * 4;
-
-        StringBuilder builder = new StringBuilder(capacity);
-
-        for (int bitIndex = 0; ; bitIndex += 6)
-        {
-            int bits = extractBits(data, bitIndex);
-
-            if (bits < 0)
-            {
-                break;
-            }
-
-            builder.append((char)INDEX_TABLE[bits]);
-        }
-
-        for (int i = builder.length(); i < capacity; ++i)
-        {
-            builder.append('=');
-        }
-
-        return builder.toString();
+        return Misc.toStringUTF8(encodeToBytes(data));
     }
 
 
-    private static int extractBits(byte[] data, int bitIndex)
+    /**
+     * Encode the data into base64 characters in ASCII, without creating
+     * a string.
+     */
+    public static byte[] encodeToBytes(byte[] data)
     {
-        int byteIndex = bitIndex / 8;
-        byte nextByte;
+        byte[] encoded = new byte[((data.length + 2) / 3) * 4];
+        int i = 0;
+        int j = 0;
 
-        if (data.length <= byteIndex)
+        // Convert each 3 bytes into 4 characters.
+        for (; i + 2 < data.length; i += 3)
         {
-            return -1;
-        }
-        else if (data.length - 1 == byteIndex)
-        {
-            nextByte = 0;
-        }
-        else
-        {
-            nextByte = data[byteIndex + 1];
+            int bits = ((data[i] & 0xFF) << 16) | ((data[i + 1] & 0xFF) << 8) | (data[i + 2] & 0xFF);
+
+            encoded[j++] = INDEX_TABLE[(bits >>> 18) & 0x3F];
+            encoded[j++] = INDEX_TABLE[(bits >>> 12) & 0x3F];
+            encoded[j++] = INDEX_TABLE[(bits >>>  6) & 0x3F];
+            encoded[j++] = INDEX_TABLE[ bits         & 0x3F];
         }
 
-        switch ((bitIndex % 24) / 6)
+        // The remaining 1 or 2 bytes, padded with '='.
+        if (i < data.length)
         {
-            case 0:
-                return ((data[byteIndex] >> 2) & 0x3F);
+            boolean two = (i + 1 < data.length);
+            int bits = ((data[i] & 0xFF) << 16) | (two ? (data[i + 1] & 0xFF) << 8 : 0);
 
-            case 1:
-                return (((data[byteIndex] << 4) & 0x30) | ((nextByte >> 4) & 0x0F));
-
-            case 2:
-                return (((data[byteIndex] << 2) & 0x3C) | ((nextByte >> 6) & 0x03));
-
-            case 3:
-                return (data[byteIndex] & 0x3F);
-
-            default:
-                // Never reach here.
-                return 0;
+            encoded[j++] = INDEX_TABLE[(bits >>> 18) & 0x3F];
+            encoded[j++] = INDEX_TABLE[(bits >>> 12) & 0x3F];
+            encoded[j++] = two ? INDEX_TABLE[(bits >>> 6) & 0x3F] : (byte)'=';
+            encoded[j++] = '=';
         }
+
+        return encoded;
     }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Aggregate statistics of a broadcast performed by {@link WebSocketGroup}.
+ *
+ * <p>
+ * Note that frames are sent asynchronously. The number returned from
+ * {@link #getQueuedCount()} is the number of WebSockets which accepted
+ * the frame into their queues. It does not mean that the frame has
+ * already reached the peers.
+ * </p>
+ *
+ * @see WebSocketGroup
+ *
+ * @since 2.3
+ */
+public class BroadcastResult
+{
+    private final int mTargetCount;
+    private final int mQueuedCount;
+    private final int mFilteredCount;
+    private final int mNotOpenCount;
+    private final int mOverWatermarkCount;
+    private final int mFailedCount;
+    private final long mElapsedTime;
+
+
+    BroadcastResult(
+            int targetCount, int queuedCount, int filteredCount, int notOpenCount,
+            int overWatermarkCount, int failedCount, long elapsedTime)
+    {
+        mTargetCount        = targetCount;
+        mQueuedCount        = queuedCount;
+        mFilteredCount      = filteredCount;
+        mNotOpenCount       = notOpenCount;
+        mOverWatermarkCount = overWatermarkCount;
+        mFailedCount        = failedCount;
+        mElapsedTime        = elapsedTime;
+    }
+
+
+    /**
+     * Get the number of WebSockets in the group at the time of the broadcast.
+     *
+     * @return
+     *         The number of WebSockets examined by the broadcast.
+     */
+    public int getTargetCount()
+    {
+        return mTargetCount;
+    }
+
+
+    /**
+     * Get the number of WebSockets to which the frame was queued.
+     *
+     * @return
+     *         The number of WebSockets to which the frame was queued.
+     */
+    public int getQueuedCount()
+    {
+        return mQueuedCount;
+    }
+
+
+    /**
+     * Get the number of WebSockets rejected by the filter.
+     *
+     * @return
+     *         The number of WebSockets rejected by the filter.
+     */
+    public int getFilteredCount()
+    {
+        return mFilteredCount;
+    }
+
+
+    /**
+     * Get the number of WebSockets skipped because their state was
+     * not {@link WebSocketState#OPEN OPEN}.
+     *
+     * @return
+     *         The number of WebSockets skipped because they were not open.
+     */
+    public int getNotOpenCount()
+    {
+        return mNotOpenCount;
+    }
+
+
+    /**
+     * Get the number of WebSockets skipped because the number of frames
+     * in their queues had reached the watermark.
+     *
+     * @return
+     *         The number of WebSockets skipped because they were too busy.
+     *
+     * @see WebSocketGroup#setQueueWatermark(int)
+     */
+    public int getOverWatermarkCount()
+    {
+        return mOverWatermarkCount;
+    }
+
+
+    /**
+     * Get the number of WebSockets for which queuing the frame failed
+     * with an unexpected exception.
+     *
+     * @return
+     *         The number of WebSockets for which the broadcast failed.
+     */
+    public int getFailedCount()
+    {
+        return mFailedCount;
+    }
+
+
+    /**
+     * Get the time taken by the broadcast.
+     *
+     * @return
+     *         The elapsed time in nanoseconds.
+     */
+    public long getElapsedTime()
+    {
+        return mElapsedTime;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+            "BroadcastResult(target=%d, queued=%d, filtered=%d, notOpen=%d, overWatermark=%d, failed=%d, elapsed=%dns)",
+            mTargetCount, mQueuedCount, mFilteredCount, mNotOpenCount,
+            mOverWatermarkCount, mFailedCount, mElapsedTime);
+    }
+}
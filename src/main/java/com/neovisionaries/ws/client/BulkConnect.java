@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * The progress of a bulk connect started by {@link BulkConnector}.
+ *
+ * <p>
+ * {@link #getFutures()} returns one {@link Future} per WebSocket in the
+ * order given to {@link BulkConnector}. A future completes with the
+ * connected WebSocket, or with an {@link java.util.concurrent.ExecutionException
+ * ExecutionException} whose cause is the {@link WebSocketException} (or
+ * the {@link java.io.IOException IOException} raised while creating the
+ * WebSocket). A connect which has started cannot be cancelled, so that
+ * the connected WebSocket is always handed to the caller.
+ * </p>
+ *
+ * @see BulkConnector
+ *
+ * @since 2.3
+ */
+public class BulkConnect
+{
+    private final List<Task> mTasks;
+    private final List<Future<WebSocket>> mFutures;
+    private final AtomicInteger mNextIndex = new AtomicInteger();
+    private final AtomicInteger mSucceededCount = new AtomicInteger();
+    private final AtomicInteger mFailedCount = new AtomicInteger();
+    private final AtomicInteger mCancelledCount = new AtomicInteger();
+    private final RateLimiter mRateLimiter;
+
+
+    BulkConnect(List<Callable<WebSocket>> callables, RateLimiter rateLimiter)
+    {
+        mTasks = new ArrayList<Task>(callables.size());
+
+        for (Callable<WebSocket> callable : callables)
+        {
+            mTasks.add(new Task(callable));
+        }
+
+        mFutures     = Collections.<Future<WebSocket>>unmodifiableList(mTasks);
+        mRateLimiter = rateLimiter;
+    }
+
+
+    /**
+     * A connect task which counts its own outcome.
+     */
+    private class Task extends FutureTask<WebSocket>
+    {
+        private boolean mStarted;
+
+
+        Task(Callable<WebSocket> callable)
+        {
+            super(callable);
+        }
+
+
+        /**
+         * Mark this task as started.
+         *
+         * @return
+         *         {@code false} if this task has been cancelled.
+         */
+        synchronized boolean start()
+        {
+            if (isCancelled())
+            {
+                return false;
+            }
+
+            mStarted = true;
+
+            return true;
+        }
+
+
+        @Override
+        public synchronized boolean cancel(boolean mayInterruptIfRunning)
+        {
+            // FutureTask.cancel() succeeds even while the task is running,
+            // and then the result of the connect would be discarded with
+            // the connection left open.
+            if (mStarted)
+            {
+                return false;
+            }
+
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+
+        @Override
+        protected void done()
+        {
+            if (isCancelled())
+            {
+                mCancelledCount.incrementAndGet();
+            }
+            else if (getException() == null)
+            {
+                mSucceededCount.incrementAndGet();
+            }
+            else
+            {
+                mFailedCount.incrementAndGet();
+            }
+
+            synchronized (BulkConnect.this)
+            {
+                // Wake up the threads waiting for the completion.
+                BulkConnect.this.notifyAll();
+            }
+        }
+
+
+        private Throwable getException()
+        {
+            try
+            {
+                get();
+
+                return null;
+            }
+            catch (Exception e)
+            {
+                return e;
+            }
+        }
+    }
+
+
+    /**
+     * A thread to execute connect tasks one by one.
+     */
+    private class Worker extends Thread
+    {
+        Worker()
+        {
+            super("BulkConnect");
+        }
+
+
+        @Override
+        public void run()
+        {
+            Task task;
+
+            while ((task = nextTask()) != null)
+            {
+                if (task.isCancelled())
+                {
+                    continue;
+                }
+
+                if (mRateLimiter != null)
+                {
+                    try
+                    {
+                        mRateLimiter.acquire();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        // Stop executing tasks.
+                        return;
+                    }
+                }
+
+                // Skip the task if it has been cancelled while waiting.
+                if (task.start() == false)
+                {
+                    continue;
+                }
+
+                task.run();
+            }
+        }
+    }
+
+
+    /**
+     * Start the worker threads.
+     */
+    void start(int concurrency)
+    {
+        int count = Math.min(concurrency, mTasks.size());
+
+        for (int i = 0; i < count; ++i)
+        {
+            new Worker().start();
+        }
+    }
+
+
+    private Task nextTask()
+    {
+        int index = mNextIndex.getAndIncrement();
+
+        return (index < mTasks.size()) ? mTasks.get(index) : null;
+    }
+
+
+    /**
+     * Get the futures of the WebSockets.
+     *
+     * @return
+     *         An unmodifiable list of the futures, in the order in which
+     *         the WebSockets (or URIs) were given.
+     */
+    public List<Future<WebSocket>> getFutures()
+    {
+        return mFutures;
+    }
+
+
+    /**
+     * Get the number of WebSockets to connect.
+     *
+     * @return
+     *         The total number of WebSockets.
+     */
+    public int getTotalCount()
+    {
+        return mTasks.size();
+    }
+
+
+    /**
+     * Get the number of WebSockets which have been connected.
+     *
+     * @return
+     *         The number of successful connects.
+     */
+    public int getSucceededCount()
+    {
+        return mSucceededCount.get();
+    }
+
+
+    /**
+     * Get the number of WebSockets which failed to be connected.
+     *
+     * @return
+     *         The number of failed connects.
+     */
+    public int getFailedCount()
+    {
+        return mFailedCount.get();
+    }
+
+
+    /**
+     * Get the number of connects cancelled by {@link #cancel()}.
+     *
+     * @return
+     *         The number of cancelled connects.
+     */
+    public int getCancelledCount()
+    {
+        return mCancelledCount.get();
+    }
+
+
+    /**
+     * Get the number of connects which have completed, successfully or not.
+     *
+     * @return
+     *         The number of completed connects.
+     */
+    public int getCompletedCount()
+    {
+        return getSucceededCount() + getFailedCount() + getCancelledCount();
+    }
+
+
+    /**
+     * Check if all the connects have completed.
+     *
+     * @return
+     *         {@code true} if all the connects have completed.
+     */
+    public boolean isDone()
+    {
+        return getTotalCount() <= getCompletedCount();
+    }
+
+
+    /**
+     * Cancel the connects which have not started yet. Connects in
+     * progress are not affected and complete normally.
+     */
+    public void cancel()
+    {
+        for (Task task : mTasks)
+        {
+            task.cancel(false);
+        }
+    }
+
+
+    /**
+     * Wait until all the connects complete.
+     *
+     * @throws InterruptedException
+     *         The current thread was interrupted while waiting.
+     */
+    public synchronized void await() throws InterruptedException
+    {
+        while (isDone() == false)
+        {
+            wait();
+        }
+    }
+
+
+    /**
+     * Wait until all the connects complete or the timeout elapses.
+     *
+     * @param timeout
+     *         The maximum time to wait.
+     *
+     * @param unit
+     *         The unit of the timeout.
+     *
+     * @return
+     *         {@code true} if all the connects have completed.
+     *
+     * @throws InterruptedException
+     *         The current thread was interrupted while waiting.
+     */
+    public synchronized boolean await(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (isDone() == false)
+        {
+            long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0)
+            {
+                return false;
+            }
+
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+
+        return true;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format("BulkConnect(total=%d, succeeded=%d, failed=%d, cancelled=%d)",
+                getTotalCount(), getSucceededCount(), getFailedCount(), getCancelledCount());
+    }
+}
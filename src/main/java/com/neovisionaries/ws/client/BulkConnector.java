@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+
+/**
+ * Connects many WebSockets with bounded parallelism and rate.
+ *
+ * <p>
+ * {@link WebSocket#connectAsynchronously()} starts a thread per WebSocket
+ * and {@link WebSocket#connect(java.util.concurrent.ExecutorService)}
+ * leaves the scheduling to the caller. A bulk connector instead runs at
+ * most {@link #setConcurrency(int) concurrency} connects at a time on its
+ * own worker threads, and starts at most {@link #setRate(double) rate}
+ * connects per second, so that the server is not flooded with TCP and TLS
+ * handshakes.
+ * </p>
+ *
+ * <pre style="border-left: solid 5px lightgray;"> BulkConnector connector = factory.createBulkConnector()
+ *     .setConcurrency(50)
+ *     .setRate(200);
+ *
+ * BulkConnect bulk = connector.connect(websockets);
+ *
+ * while (bulk.await(1, TimeUnit.SECONDS) == false)
+ * {
+ *     System.out.println(bulk);
+ * }</pre>
+ *
+ * @see BulkConnect
+ *
+ * @since 2.3
+ */
+public class BulkConnector
+{
+    private final WebSocketFactory mFactory;
+    private int mConcurrency = 16;
+    private double mRate;
+    private WebSocketInitializer mInitializer;
+
+
+    BulkConnector(WebSocketFactory factory)
+    {
+        mFactory = factory;
+    }
+
+
+    /**
+     * A task to create a WebSocket for a URI and connect it.
+     */
+    private static class Creator implements Callable<WebSocket>
+    {
+        private final WebSocketFactory mFactory;
+        private final URI mURI;
+        private final WebSocketInitializer mInitializer;
+
+
+        Creator(WebSocketFactory factory, URI uri, WebSocketInitializer initializer)
+        {
+            mFactory     = factory;
+            mURI         = uri;
+            mInitializer = initializer;
+        }
+
+
+        @Override
+        public WebSocket call() throws Exception
+        {
+            WebSocket websocket = mFactory.createSocket(mURI);
+
+            if (mInitializer != null)
+            {
+                mInitializer.initialize(websocket);
+            }
+
+            return websocket.connect();
+        }
+    }
+
+
+    /**
+     * Get the maximum number of connects performed at a time.
+     * The default value is 16.
+     *
+     * @return
+     *         The maximum number of concurrent connects.
+     */
+    public int getConcurrency()
+    {
+        return mConcurrency;
+    }
+
+
+    /**
+     * Set the maximum number of connects performed at a time. It is also
+     * the maximum number of worker threads of a bulk connect.
+     *
+     * @param concurrency
+     *         The maximum number of concurrent connects.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given value is less than 1.
+     */
+    public BulkConnector setConcurrency(int concurrency)
+    {
+        if (concurrency < 1)
+        {
+            throw new IllegalArgumentException("concurrency must be at least 1.");
+        }
+
+        mConcurrency = concurrency;
+
+        return this;
+    }
+
+
+    /**
+     * Get the maximum number of connects started per second.
+     * The default value is 0, which means no limit.
+     *
+     * @return
+     *         The maximum connect rate per second.
+     */
+    public double getRate()
+    {
+        return mRate;
+    }
+
+
+    /**
+     * Set the maximum number of connects started per second. Connects are
+     * spaced out evenly rather than started in bursts.
+     *
+     * @param rate
+     *         The maximum connect rate per second. 0 means no limit.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given value is negative.
+     */
+    public BulkConnector setRate(double rate)
+    {
+        if (rate < 0)
+        {
+            throw new IllegalArgumentException("rate cannot be negative.");
+        }
+
+        mRate = rate;
+
+        return this;
+    }
+
+
+    /**
+     * Get the initializer applied to WebSockets created by {@link
+     * #connectTo(Collection)}.
+     *
+     * @return
+     *         The initializer. {@code null} if not set.
+     */
+    public WebSocketInitializer getInitializer()
+    {
+        return mInitializer;
+    }
+
+
+    /**
+     * Set the initializer applied to WebSockets created by {@link
+     * #connectTo(Collection)} before they are connected.
+     *
+     * @param initializer
+     *         An initializer. {@code null} to use WebSockets as created
+     *         by the factory.
+     *
+     * @return
+     *         {@code this} object.
+     */
+    public BulkConnector setInitializer(WebSocketInitializer initializer)
+    {
+        mInitializer = initializer;
+
+        return this;
+    }
+
+
+    /**
+     * Connect the given WebSockets in the background.
+     *
+     * @param websockets
+     *         WebSockets which have not been connected yet.
+     *
+     * @return
+     *         The progress of the bulk connect.
+     *
+     * @throws IllegalArgumentException
+     *         The given collection is {@code null} or contains {@code null}.
+     */
+    public BulkConnect connect(Collection<WebSocket> websockets)
+    {
+        if (websockets == null)
+        {
+            throw new IllegalArgumentException("The given collection is null.");
+        }
+
+        List<Callable<WebSocket>> callables = new ArrayList<Callable<WebSocket>>(websockets.size());
+
+        for (WebSocket websocket : websockets)
+        {
+            if (websocket == null)
+            {
+                throw new IllegalArgumentException("The given collection contains null.");
+            }
+
+            callables.add(websocket.connectable());
+        }
+
+        return start(callables);
+    }
+
+
+    /**
+     * Create WebSockets for the given URIs by the factory and connect them
+     * in the background. The WebSockets are created by the worker threads
+     * just before they are connected.
+     *
+     * @param uris
+     *         The URIs of WebSocket endpoints.
+     *
+     * @return
+     *         The progress of the bulk connect.
+     *
+     * @throws IllegalArgumentException
+     *         The given collection is {@code null} or contains {@code null}.
+     */
+    public BulkConnect connectTo(Collection<URI> uris)
+    {
+        if (uris == null)
+        {
+            throw new IllegalArgumentException("The given collection is null.");
+        }
+
+        List<Callable<WebSocket>> callables = new ArrayList<Callable<WebSocket>>(uris.size());
+
+        for (URI uri : uris)
+        {
+            if (uri == null)
+            {
+                throw new IllegalArgumentException("The given collection contains null.");
+            }
+
+            callables.add(new Creator(mFactory, uri, mInitializer));
+        }
+
+        return start(callables);
+    }
+
+
+    private BulkConnect start(List<Callable<WebSocket>> callables)
+    {
+        RateLimiter limiter = (0 < mRate) ? new RateLimiter(mRate) : null;
+
+        BulkConnect bulk = new BulkConnect(callables, limiter);
+        bulk.start(mConcurrency);
+
+        return bulk;
+    }
+}
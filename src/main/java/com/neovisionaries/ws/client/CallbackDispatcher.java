@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Serial executor which runs listener callbacks of one WebSocket on a
+ * (possibly shared) {@link Executor} in the order they were dispatched.
+ *
+ * <p>
+ * At most one task of this dispatcher is submitted to the executor at a
+ * time. The task drains the queue and gives the executor thread back
+ * after {@link #BATCH_SIZE} callbacks so that one busy WebSocket cannot
+ * monopolize a thread pool shared by many WebSockets.
+ * </p>
+ *
+ * <p>
+ * When the number of queued callbacks reaches the capacity, {@link
+ * #dispatch(Runnable)} blocks. This pushes back on the reading thread
+ * so that a slow listener slows down reading instead of exhausting
+ * memory. If the blocked thread is interrupted (e.g. the reading thread
+ * is being stopped), the callback is queued beyond the capacity and
+ * counted so that the thread can finish even when the executor has
+ * stalled. No callback is lost; the closing handshake bounds the number
+ * of frames which can still arrive.
+ * </p>
+ */
+class CallbackDispatcher implements Runnable
+{
+    private static final int BATCH_SIZE = 64;
+
+
+    private final Executor mExecutor;
+    private final int mCapacity;
+    private final LinkedList<Entry> mQueue = new LinkedList<Entry>();
+    private boolean mRunning;
+    private int mMaxQueueDepth;
+    private long mDispatchedCount;
+    private long mBlockedCount;
+    private long mOverflowCount;
+    private long mTotalWaitTime;
+    private long mTotalCallbackTime;
+    private long mMaxCallbackTime;
+
+
+    private static class Entry
+    {
+        final Runnable task;
+        final long queuedAt;
+
+
+        Entry(Runnable task, long queuedAt)
+        {
+            this.task     = task;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+
+    /**
+     * @param capacity
+     *         The maximum number of queued callbacks. 0 means no limit.
+     */
+    public CallbackDispatcher(Executor executor, int capacity)
+    {
+        mExecutor = executor;
+        mCapacity = capacity;
+    }
+
+
+    /**
+     * Queue a callback. This method blocks while the queue is full. If the
+     * calling thread is interrupted while blocked, the callback is queued
+     * beyond the capacity and the interrupt status of the thread is restored.
+     */
+    public void dispatch(Runnable task)
+    {
+        boolean submit;
+        boolean interrupted = false;
+
+        synchronized (this)
+        {
+            if (0 < mCapacity && mCapacity <= mQueue.size())
+            {
+                ++mBlockedCount;
+
+                // Wait until the callbacks catch up.
+                while (mCapacity <= mQueue.size())
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        // The caller is being stopped. Don't keep it
+                        // waiting for a stalled executor, but don't lose
+                        // the callback either.
+                        ++mOverflowCount;
+                        interrupted = true;
+                        break;
+                    }
+                }
+            }
+
+            mQueue.addLast(new Entry(task, System.nanoTime()));
+
+            if (mMaxQueueDepth < mQueue.size())
+            {
+                mMaxQueueDepth = mQueue.size();
+            }
+
+            // Submit this dispatcher unless it is already running.
+            submit = (mRunning == false);
+            mRunning = true;
+        }
+
+        if (interrupted)
+        {
+            // Let the caller know it has been interrupted.
+            Thread.currentThread().interrupt();
+        }
+
+        if (submit)
+        {
+            submit();
+        }
+    }
+
+
+    private void submit()
+    {
+        try
+        {
+            mExecutor.execute(this);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // The executor is not available (e.g. it has been shut down).
+            // Run the callbacks on the calling thread so that they are
+            // not lost and the caller is not blocked forever.
+            run();
+        }
+    }
+
+
+    @Override
+    public void run()
+    {
+        while (drain())
+        {
+            try
+            {
+                // Give the executor thread back to other tasks and
+                // continue later.
+                mExecutor.execute(this);
+                return;
+            }
+            catch (RejectedExecutionException e)
+            {
+                // Keep draining on this thread.
+            }
+        }
+    }
+
+
+    /**
+     * Execute up to {@link #BATCH_SIZE} callbacks.
+     *
+     * @return
+     *         {@code true} if callbacks remain in the queue.
+     */
+    private boolean drain()
+    {
+        for (int i = 0; i < BATCH_SIZE; ++i)
+        {
+            Entry entry;
+
+            synchronized (this)
+            {
+                entry = mQueue.poll();
+
+                if (entry == null)
+                {
+                    // Nothing to do. The next dispatch() submits again.
+                    mRunning = false;
+                    return false;
+                }
+
+                // Wake up the reading thread blocked in dispatch().
+                notifyAll();
+            }
+
+            long startedAt = System.nanoTime();
+
+            try
+            {
+                entry.task.run();
+            }
+            catch (Throwable t)
+            {
+                // ListenerManager handles exceptions thrown by listeners.
+                // Keep the dispatcher alive in any case.
+            }
+
+            record(entry.queuedAt, startedAt, System.nanoTime());
+        }
+
+        return true;
+    }
+
+
+    private synchronized void record(long queuedAt, long startedAt, long finishedAt)
+    {
+        long callbackTime = finishedAt - startedAt;
+
+        ++mDispatchedCount;
+        mTotalWaitTime     += (startedAt - queuedAt);
+        mTotalCallbackTime += callbackTime;
+
+        if (mMaxCallbackTime < callbackTime)
+        {
+            mMaxCallbackTime = callbackTime;
+        }
+    }
+
+
+    public synchronized CallbackStatistics getStatistics()
+    {
+        return new CallbackStatistics(
+            mQueue.size(), mMaxQueueDepth, mDispatchedCount, mBlockedCount,
+            mOverflowCount, mTotalWaitTime, mTotalCallbackTime, mMaxCallbackTime);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Statistics of listener callbacks dispatched to the executor set by
+ * {@link WebSocket#setCallbackExecutor(java.util.concurrent.Executor)
+ * setCallbackExecutor()}.
+ *
+ * <p>
+ * An instance is a snapshot taken when {@link WebSocket#getCallbackStatistics()}
+ * is called.
+ * </p>
+ *
+ * @since 2.3
+ */
+public class CallbackStatistics
+{
+    private final int mQueueDepth;
+    private final int mMaxQueueDepth;
+    private final long mDispatchedCount;
+    private final long mBlockedCount;
+    private final long mOverflowCount;
+    private final long mTotalWaitTime;
+    private final long mTotalCallbackTime;
+    private final long mMaxCallbackTime;
+
+
+    CallbackStatistics(
+            int queueDepth, int maxQueueDepth, long dispatchedCount, long blockedCount,
+            long overflowCount, long totalWaitTime, long totalCallbackTime, long maxCallbackTime)
+    {
+        mQueueDepth        = queueDepth;
+        mMaxQueueDepth     = maxQueueDepth;
+        mDispatchedCount   = dispatchedCount;
+        mBlockedCount      = blockedCount;
+        mOverflowCount     = overflowCount;
+        mTotalWaitTime     = totalWaitTime;
+        mTotalCallbackTime = totalCallbackTime;
+        mMaxCallbackTime   = maxCallbackTime;
+    }
+
+
+    /**
+     * Get the number of callbacks waiting to be executed.
+     *
+     * @return
+     *         The current depth of the dispatch queue.
+     */
+    public int getQueueDepth()
+    {
+        return mQueueDepth;
+    }
+
+
+    /**
+     * Get the maximum depth the dispatch queue has reached.
+     *
+     * @return
+     *         The maximum depth of the dispatch queue.
+     */
+    public int getMaxQueueDepth()
+    {
+        return mMaxQueueDepth;
+    }
+
+
+    /**
+     * Get the number of callbacks executed so far.
+     *
+     * @return
+     *         The number of executed callbacks.
+     */
+    public long getDispatchedCount()
+    {
+        return mDispatchedCount;
+    }
+
+
+    /**
+     * Get the number of times the reading thread was blocked because
+     * the dispatch queue was full.
+     *
+     * @return
+     *         The number of times the reading thread waited for the
+     *         callbacks to catch up.
+     *
+     * @see WebSocket#setCallbackQueueSize(int)
+     */
+    public long getBlockedCount()
+    {
+        return mBlockedCount;
+    }
+
+
+    /**
+     * Get the number of callbacks queued beyond the queue size because
+     * the reading thread was interrupted (e.g. stopped) while it was
+     * waiting for the callbacks to catch up.
+     *
+     * @return
+     *         The number of callbacks queued beyond the queue size.
+     *
+     * @see WebSocket#setCallbackQueueSize(int)
+     */
+    public long getOverflowCount()
+    {
+        return mOverflowCount;
+    }
+
+
+    /**
+     * Get the average time callbacks spent in the queue before they
+     * started.
+     *
+     * @return
+     *         The average waiting time in nanoseconds. 0 if no callback
+     *         has been executed.
+     */
+    public long getAverageWaitTime()
+    {
+        return (mDispatchedCount == 0) ? 0 : mTotalWaitTime / mDispatchedCount;
+    }
+
+
+    /**
+     * Get the average execution time of callbacks.
+     *
+     * @return
+     *         The average execution time in nanoseconds. 0 if no callback
+     *         has been executed.
+     */
+    public long getAverageCallbackTime()
+    {
+        return (mDispatchedCount == 0) ? 0 : mTotalCallbackTime / mDispatchedCount;
+    }
+
+
+    /**
+     * Get the longest execution time of callbacks.
+     *
+     * @return
+     *         The maximum execution time in nanoseconds.
+     */
+    public long getMaxCallbackTime()
+    {
+        return mMaxCallbackTime;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+            "CallbackStatistics(queueDepth=%d, maxQueueDepth=%d, dispatched=%d, blocked=%d, avgWait=%dns, avgCallback=%dns, maxCallback=%dns)",
+            mQueueDepth, mMaxQueueDepth, mDispatchedCount, mBlockedCount,
+            getAverageWaitTime(), getAverageCallbackTime(), mMaxCallbackTime);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Latency histograms of the phases of establishing WebSocket connections,
+ * aggregated over all the WebSockets created by a {@link WebSocketFactory}.
+ *
+ * <p>
+ * Only successful phases are recorded, so that timeouts and refused
+ * connections do not skew the distributions. Failures are visible in
+ * {@link ConnectTimings#getFailedPhase()} of each WebSocket.
+ * </p>
+ *
+ * @see WebSocketFactory#getConnectLatencies()
+ *
+ * @since 2.3
+ */
+public class ConnectLatencies
+{
+    private final LatencyHistogram[] mPhases;
+    private final LatencyHistogram mTotal;
+    private final LatencyHistogram mResumed;
+
+
+    ConnectLatencies()
+    {
+        mPhases = new LatencyHistogram[ConnectPhase.values().length];
+
+        for (int i = 0; i < mPhases.length; ++i)
+        {
+            mPhases[i] = new LatencyHistogram(null);
+        }
+
+        mTotal   = new LatencyHistogram(null);
+        mResumed = new LatencyHistogram(null);
+    }
+
+
+    void record(ConnectPhase phase, long nanos)
+    {
+        mPhases[phase.ordinal()].record(nanos);
+    }
+
+
+    void recordTotal(long nanos)
+    {
+        mTotal.record(nanos);
+    }
+
+
+    void recordResumed(long nanos)
+    {
+        mResumed.record(nanos);
+    }
+
+
+    /**
+     * Get a snapshot of the histogram of the given phase.
+     *
+     * @param phase
+     *         A phase.
+     *
+     * @return
+     *         A snapshot of the histogram of the phase.
+     */
+    public LatencyHistogram getLatency(ConnectPhase phase)
+    {
+        return mPhases[phase.ordinal()].snapshot();
+    }
+
+
+    /**
+     * Get a snapshot of the histogram of the time taken by successful
+     * {@link WebSocket#connect()} calls as a whole.
+     *
+     * @return
+     *         A snapshot of the total connect time histogram.
+     */
+    public LatencyHistogram getTotal()
+    {
+        return mTotal.snapshot();
+    }
+
+
+    /**
+     * Get a snapshot of the histogram of TLS handshakes which resumed
+     * a session. They are included in the histogram of {@link
+     * ConnectPhase#TLS_HANDSHAKE TLS_HANDSHAKE}, too, so comparing the two
+     * histograms shows the saving by session resumption.
+     *
+     * @return
+     *         A snapshot of the histogram of resumed TLS handshakes.
+     *
+     * @see ConnectTimings#isSessionResumed()
+     */
+    public LatencyHistogram getResumedTlsHandshake()
+    {
+        return mResumed.snapshot();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("ConnectLatencies(");
+
+        for (ConnectPhase phase : ConnectPhase.values())
+        {
+            builder.append(phase).append('=').append(getLatency(phase)).append(", ");
+        }
+
+        return builder.append("resumed=").append(getResumedTlsHandshake())
+                .append(", total=").append(getTotal()).append(')').toString();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Phases of establishing a WebSocket connection.
+ *
+ * @see ConnectTimings
+ * @see WebSocketTracer#onConnectPhase(WebSocket, ConnectPhase, long, Throwable)
+ *
+ * @since 2.3
+ */
+public enum ConnectPhase
+{
+    /**
+     * Resolving the host name of the server or the proxy server.
+     */
+    DNS_LOOKUP,
+
+
+    /**
+     * Establishing a TCP connection to the server or to the proxy server.
+     */
+    SOCKET_CONNECT,
+
+
+    /**
+     * Handshake with the proxy server ({@code CONNECT} method).
+     */
+    PROXY_HANDSHAKE,
+
+
+    /**
+     * TLS handshake with the server.
+     */
+    TLS_HANDSHAKE,
+
+
+    /**
+     * Verifying that the certificate of the server matches the host name.
+     */
+    HOSTNAME_VERIFICATION,
+
+
+    /**
+     * WebSocket <a href="https://tools.ietf.org/html/rfc6455#section-4"
+     * >opening handshake</a>, from sending the request until the response
+     * has been validated.
+     */
+    OPENING_HANDSHAKE,
+    ;
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Durations of the phases of the last attempt to establish a WebSocket
+ * connection.
+ *
+ * <p>
+ * An instance is available from {@link WebSocket#getConnectTimings()}
+ * once {@link WebSocket#connect()} has returned or thrown an exception,
+ * that is, also in {@link WebSocketListener#onConnected(WebSocket, java.util.Map)
+ * onConnected} and {@link WebSocketListener#onConnectError(WebSocket,
+ * WebSocketException) onConnectError}.
+ * </p>
+ *
+ * <p>
+ * All durations are in nanoseconds. A phase which was not performed
+ * (e.g. {@link ConnectPhase#PROXY_HANDSHAKE PROXY_HANDSHAKE} when no proxy
+ * is used, or the phases after the one which failed) has a duration of -1.
+ * </p>
+ *
+ * @see WebSocketFactory#getConnectLatencies()
+ *
+ * @since 2.3
+ */
+public class ConnectTimings
+{
+    private final long[] mDurations;
+    private ConnectPhase mFailedPhase;
+    private long mTotal = -1;
+    private boolean mSessionResumed;
+
+
+    ConnectTimings()
+    {
+        mDurations = new long[ConnectPhase.values().length];
+
+        for (int i = 0; i < mDurations.length; ++i)
+        {
+            // Not performed yet.
+            mDurations[i] = -1;
+        }
+    }
+
+
+    void setDuration(ConnectPhase phase, long nanos, boolean failed)
+    {
+        mDurations[phase.ordinal()] = nanos;
+
+        if (failed)
+        {
+            mFailedPhase = phase;
+        }
+    }
+
+
+    void setTotal(long nanos)
+    {
+        mTotal = nanos;
+    }
+
+
+    void setSessionResumed(boolean resumed)
+    {
+        mSessionResumed = resumed;
+    }
+
+
+    /**
+     * Get the duration of the given phase.
+     *
+     * @param phase
+     *         A phase.
+     *
+     * @return
+     *         The duration of the phase in nanoseconds. -1 if the phase
+     *         was not performed.
+     */
+    public long getDuration(ConnectPhase phase)
+    {
+        return mDurations[phase.ordinal()];
+    }
+
+
+    /**
+     * Get the time taken by {@link WebSocket#connect()} as a whole.
+     *
+     * @return
+     *         The total duration in nanoseconds.
+     */
+    public long getTotal()
+    {
+        return mTotal;
+    }
+
+
+    /**
+     * Get the phase which failed.
+     *
+     * @return
+     *         The phase which failed. {@code null} if no phase failed.
+     */
+    public ConnectPhase getFailedPhase()
+    {
+        return mFailedPhase;
+    }
+
+
+    /**
+     * Check if the TLS handshake resumed a session established by a
+     * previous connection instead of performing a full handshake.
+     *
+     * <p>
+     * JSSE does not tell whether a session was resumed, so this is
+     * judged by whether the session has the same ID as the session of
+     * the previous connection to the same server through the same
+     * {@link WebSocketFactory}. A resumption which gives the session a
+     * new ID (possible in TLS 1.3) is reported as a full handshake.
+     * When a proxy is used, this is about the handshake with the
+     * WebSocket endpoint.
+     * </p>
+     *
+     * @return
+     *         {@code true} if a TLS session was resumed. {@code false} if
+     *         a full handshake was performed or TLS was not used.
+     */
+    public boolean isSessionResumed()
+    {
+        return mSessionResumed;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("ConnectTimings(");
+
+        for (ConnectPhase phase : ConnectPhase.values())
+        {
+            long duration = getDuration(phase);
+
+            if (duration < 0)
+            {
+                // Not performed.
+                continue;
+            }
+
+            builder.append(phase).append('=').append(duration).append(", ");
+        }
+
+        builder.append("total=").append(mTotal);
+
+        if (mSessionResumed)
+        {
+            builder.append(", resumed");
+        }
+
+        if (mFailedPhase != null)
+        {
+            builder.append(", failed=").append(mFailedPhase);
+        }
+
+        return builder.append(')').toString();
+    }
+}
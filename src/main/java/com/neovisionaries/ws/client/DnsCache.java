@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * A cache of host name resolution results shared by the WebSockets
+ * created by a {@link WebSocketFactory}.
+ *
+ * <p>
+ * When many WebSockets reconnect at the same time (e.g. after a server
+ * deployment), only one of them performs the lookup of a host name and
+ * the others wait for its result. Failures are cached, too, when a
+ * negative TTL is set, so that a broken resolver is not hammered.
+ * </p>
+ *
+ * @since 2.3
+ */
+class DnsCache
+{
+    private final Map<String, Entry> mEntries = new HashMap<String, Entry>();
+    private volatile long mTtl;
+    private volatile long mNegativeTtl;
+
+
+    /**
+     * A resolution result, or a resolution in progress.
+     */
+    private static class Entry
+    {
+        private boolean mDone;
+        private InetAddress[] mAddresses;
+        private UnknownHostException mError;
+        private long mExpiresAt;
+
+
+        synchronized void complete(InetAddress[] addresses, UnknownHostException error, long expiresAt)
+        {
+            mAddresses = addresses;
+            mError     = error;
+            mExpiresAt = expiresAt;
+            mDone      = true;
+
+            // Wake up the threads waiting for the result.
+            notifyAll();
+        }
+
+
+        synchronized InetAddress[] await() throws UnknownHostException
+        {
+            boolean interrupted = false;
+
+            while (mDone == false)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted)
+            {
+                // Restore the interrupted status.
+                Thread.currentThread().interrupt();
+            }
+
+            if (mError != null)
+            {
+                // Each caller gets its own exception with its own stack
+                // trace, so that callers cannot affect one another.
+                UnknownHostException error = new UnknownHostException(mError.getMessage());
+                error.initCause(mError);
+
+                throw error;
+            }
+
+            return mAddresses;
+        }
+
+
+        synchronized boolean isExpired(long now)
+        {
+            // An entry in progress is never expired.
+            return mDone && mExpiresAt <= now;
+        }
+    }
+
+
+    long getTtl()
+    {
+        return mTtl;
+    }
+
+
+    void setTtl(long ttl)
+    {
+        mTtl = ttl;
+    }
+
+
+    long getNegativeTtl()
+    {
+        return mNegativeTtl;
+    }
+
+
+    void setNegativeTtl(long ttl)
+    {
+        mNegativeTtl = ttl;
+    }
+
+
+    void clear()
+    {
+        synchronized (mEntries)
+        {
+            mEntries.clear();
+        }
+    }
+
+
+    /**
+     * Resolve the host name into all its addresses.
+     */
+    InetAddress[] resolve(String host) throws UnknownHostException
+    {
+        // If caching is disabled.
+        if (mTtl <= 0 && mNegativeTtl <= 0)
+        {
+            return InetAddress.getAllByName(host);
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry;
+        boolean owner = false;
+
+        synchronized (mEntries)
+        {
+            entry = mEntries.get(host);
+
+            if (entry == null || entry.isExpired(now))
+            {
+                // This thread performs the lookup.
+                entry = new Entry();
+                owner = true;
+
+                mEntries.put(host, entry);
+            }
+        }
+
+        if (owner)
+        {
+            lookup(host, entry);
+        }
+
+        return entry.await();
+    }
+
+
+    private void lookup(String host, Entry entry)
+    {
+        try
+        {
+            InetAddress[] addresses = InetAddress.getAllByName(host);
+
+            entry.complete(addresses, null, System.currentTimeMillis() + mTtl);
+        }
+        catch (UnknownHostException e)
+        {
+            entry.complete(null, e, System.currentTimeMillis() + mNegativeTtl);
+        }
+        catch (RuntimeException e)
+        {
+            // E.g. SecurityException. Do not leave the waiting threads blocked.
+            UnknownHostException error = new UnknownHostException(host + ": " + e.getMessage());
+            error.initCause(e);
+
+            entry.complete(null, error, 0);
+        }
+    }
+}
@@ -36,7 +36,8 @@ class HandshakeBuilder
     private final String mHost;
     private final String mPath;
     private final URI mUri;
-    private String mKey;
+    private boolean mCustomized;
+    private volatile HandshakeTemplate mTemplate;
     private Set<String> mProtocols;
     private List<WebSocketExtension> mExtensions;
     private List<String[]> mHeaders;
@@ -63,7 +64,8 @@ class HandshakeBuilder
         mHost       = source.mHost;
         mPath       = source.mPath;
         mUri        = source.mUri;
-        mKey        = source.mKey;
+        mCustomized = source.mCustomized;
+        mTemplate   = source.mTemplate;
         mProtocols  = copyProtocols(source.mProtocols);
         mExtensions = copyExtensions(source.mExtensions);
         mHeaders    = copyHeaders(source.mHeaders);
@@ -81,6 +83,9 @@ class HandshakeBuilder
 
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             if (mProtocols == null)
             {
                 // 'LinkedHashSet' is used because the elements
@@ -103,6 +108,9 @@ class HandshakeBuilder
 
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             if (mProtocols == null)
             {
                 return;
@@ -122,6 +130,9 @@ class HandshakeBuilder
     {
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             mProtocols = null;
         }
     }
@@ -173,6 +184,9 @@ class HandshakeBuilder
 
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             if (mExtensions == null)
             {
                 mExtensions = new ArrayList<WebSocketExtension>();
@@ -198,6 +212,9 @@ class HandshakeBuilder
 
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             if (mExtensions == null)
             {
                 return;
@@ -222,6 +239,9 @@ class HandshakeBuilder
 
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             if (mExtensions == null)
             {
                 return;
@@ -254,6 +274,9 @@ class HandshakeBuilder
     {
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             mExtensions = null;
         }
     }
@@ -319,6 +342,9 @@ class HandshakeBuilder
 
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             if (mHeaders == null)
             {
                 mHeaders = new ArrayList<String[]>();
@@ -338,6 +364,9 @@ class HandshakeBuilder
 
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             if (mHeaders == null)
             {
                 return;
@@ -370,6 +399,9 @@ class HandshakeBuilder
     {
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             mHeaders = null;
         }
     }
@@ -379,6 +411,9 @@ class HandshakeBuilder
     {
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             mUserInfo = userInfo;
         }
     }
@@ -406,6 +441,9 @@ class HandshakeBuilder
     {
         synchronized (this)
         {
+            // The template is rebuilt on the next connection.
+            onChanged();
+
             mUserInfo = null;
         }
     }
@@ -417,9 +455,60 @@ class HandshakeBuilder
     }
 
 
-    public void setKey(String key)
+    /**
+     * Get the template of the opening handshake request. The template is
+     * built on the first call after a change, or shared through the cache
+     * when no change has been made since creation.
+     */
+    public HandshakeTemplate getTemplate(HandshakeTemplateCache cache)
+    {
+        HandshakeTemplate template = mTemplate;
+
+        if (template != null)
+        {
+            return template;
+        }
+
+        synchronized (this)
+        {
+            // The key of the cache. Only the endpoint matters
+            // unless the handshake has been customized.
+            String key = mCustomized ? null : createCacheKey();
+
+            if (key != null)
+            {
+                template = cache.get(key);
+            }
+
+            if (template == null)
+            {
+                template = new HandshakeTemplate(
+                    buildRequestLine(), buildHeaders(HandshakeTemplate.KEY_PLACEHOLDER));
+
+                if (key != null)
+                {
+                    cache.put(key, template);
+                }
+            }
+
+            mTemplate = template;
+        }
+
+        return template;
+    }
+
+
+    private String createCacheKey()
+    {
+        // SP does not appear in the host or the path.
+        return (mUserInfo == null) ? mHost + mPath : mHost + mPath + " " + mUserInfo;
+    }
+
+
+    private void onChanged()
     {
-        mKey = key;
+        mCustomized = true;
+        mTemplate   = null;
     }
 
 
@@ -429,7 +518,7 @@ class HandshakeBuilder
     }
 
 
-    public List<String[]> buildHeaders()
+    public List<String[]> buildHeaders(String key)
     {
         List<String[]> headers = new ArrayList<String[]>();
 
@@ -446,7 +535,7 @@ class HandshakeBuilder
         headers.add(VERSION_HEADER);
 
         // Sec-WebSocket-Key
-        headers.add(new String[] { "Sec-WebSocket-Key", mKey } );
+        headers.add(new String[] { "Sec-WebSocket-Key", key } );
 
         // Sec-WebSocket-Protocol
         if (mProtocols != null && mProtocols.size() != 0)
@@ -44,11 +44,14 @@ class HandshakeReader
 
     public Map<String, List<String>> readHandshake(WebSocketInputStream input, String key) throws WebSocketException
     {
+        // The reader of the status line and the headers.
+        HttpResponseReader reader = new HttpResponseReader();
+
         // Read the status line.
-        StatusLine statusLine = readStatusLine(input);
+        StatusLine statusLine = readStatusLine(reader, input);
 
         // Read HTTP headers.
-        Map<String, List<String>> headers = readHttpHeaders(input);
+        Map<String, List<String>> headers = readHttpHeaders(reader, input);
 
         // Validate the status line.
         validateStatusLine(statusLine, headers, input);
@@ -76,14 +79,14 @@ class HandshakeReader
     /**
      * Read a status line from an HTTP server.
      */
-    private StatusLine readStatusLine(WebSocketInputStream input) throws WebSocketException
+    private StatusLine readStatusLine(HttpResponseReader reader, WebSocketInputStream input) throws WebSocketException
     {
         String line;
 
         try
         {
             // Read the status line.
-            line = input.readLine();
+            line = reader.readStatusLine(input);
         }
         catch (IOException e)
         {
@@ -116,100 +119,31 @@ class HandshakeReader
     }
 
 
-    private Map<String, List<String>> readHttpHeaders(WebSocketInputStream input) throws WebSocketException
+    private Map<String, List<String>> readHttpHeaders(HttpResponseReader reader, WebSocketInputStream input) throws WebSocketException
     {
         // Create a map of HTTP headers. Keys are case-insensitive.
         Map<String, List<String>> headers =
             new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
 
-        StringBuilder builder = null;
-        String line;
-
-        while (true)
+        try
         {
-            try
-            {
-                line = input.readLine();
-            }
-            catch (IOException e)
-            {
-                // An error occurred while HTTP header section was being read.
-                throw new WebSocketException(
-                    WebSocketError.HTTP_HEADER_FAILURE,
-                    "An error occurred while HTTP header section was being read: " + e.getMessage(), e);
-            }
-
-            // If the end of the header section was reached.
-            if (line == null || line.length() == 0)
-            {
-                if (builder != null)
-                {
-                    parseHttpHeader(headers, builder.toString());
-                }
-
-                // The end of the header section.
-                break;
-            }
-
-            // The first line of the line.
-            char ch = line.charAt(0);
-
-            // If the first char is SP or HT.
-            if (ch == ' ' || ch == '\t')
-            {
-                if (builder == null)
-                {
-                    // Weird. No preceding "field-name:field-value" line. Ignore this line.
-                    continue;
-                }
-
-                // Replacing the leading 1*(SP|HT) to a single SP.
-                line = line.replaceAll("^[ \t]+", " ");
-
-                // Concatenate
-                builder.append(line);
-
-                continue;
-            }
-
-            if (builder != null)
-            {
-                parseHttpHeader(headers, builder.toString());
-            }
-
-            builder = new StringBuilder(line);
-        }
-
-        return headers;
-    }
-
+            // Read the headers. The end of the stream is regarded
+            // as the end of the header section.
+            reader.readHeaders(input, headers);
 
-    private void parseHttpHeader(Map<String, List<String>> headers, String header)
-    {
-        // Split 'header' to name & value.
-        String[] pair = header.split(":", 2);
-
-        if (pair.length < 2)
-        {
-            // Weird. Ignore this header.
-            return;
+            // Give bytes read beyond the header section (e.g. the first
+            // frames or the response body) back to the stream.
+            reader.finish(input);
         }
-
-        // Name. (Remove leading and trailing spaces)
-        String name = pair[0].trim();
-
-        // Value. (Remove leading and trailing spaces)
-        String value = pair[1].trim();
-
-        List<String> list = headers.get(name);
-
-        if (list == null)
+        catch (IOException e)
         {
-            list = new ArrayList<String>();
-            headers.put(name, list);
+            // An error occurred while HTTP header section was being read.
+            throw new WebSocketException(
+                WebSocketError.HTTP_HEADER_FAILURE,
+                "An error occurred while HTTP header section was being read: " + e.getMessage(), e);
         }
 
-        list.add(value);
+        return headers;
     }
 
 
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * An opening handshake request encoded in advance, with a slot for the
+ * value of {@code Sec-WebSocket-Key}, which is the only part that differs
+ * between connections.
+ *
+ * <p>
+ * Instances are immutable. They are shared by the WebSockets created by
+ * {@link WebSocket#recreate()} and, through {@link HandshakeTemplateCache},
+ * by the WebSockets created by a factory for the same endpoint.
+ * </p>
+ *
+ * @since 2.3
+ */
+class HandshakeTemplate
+{
+    /**
+     * The length of a value of {@code Sec-WebSocket-Key}, that is,
+     * the length of a base64-encoded 16-byte value.
+     */
+    static final int KEY_LENGTH = 24;
+
+
+    /**
+     * The value put in the slot while the template is built.
+     */
+    static final String KEY_PLACEHOLDER = "AAAAAAAAAAAAAAAAAAAAAA==";
+
+
+    private static final String KEY_HEADER = "Sec-WebSocket-Key";
+    private final String mRequestLine;
+    private final List<String[]> mHeaders;
+    private final int mKeyIndex;
+    private final byte[] mBytes;
+    private final int mKeyOffset;
+
+
+    /**
+     * Build a template.
+     *
+     * @param requestLine
+     *         The request line.
+     *
+     * @param headers
+     *         The headers, which must contain {@code Sec-WebSocket-Key}
+     *         whose value is {@link #KEY_PLACEHOLDER}.
+     */
+    HandshakeTemplate(String requestLine, List<String[]> headers)
+    {
+        mRequestLine = requestLine;
+        mHeaders     = headers;
+        mKeyIndex    = indexOfKey(headers);
+
+        // The request up to the value of Sec-WebSocket-Key.
+        StringBuilder builder = new StringBuilder();
+        builder.append(requestLine).append("\r\n");
+
+        for (int i = 0; i < mKeyIndex; ++i)
+        {
+            builder.append(headers.get(i)[0]).append(": ").append(headers.get(i)[1]).append("\r\n");
+        }
+
+        builder.append(KEY_HEADER).append(": ");
+
+        mKeyOffset = Misc.getBytesUTF8(builder.toString()).length;
+        mBytes     = Misc.getBytesUTF8(HandshakeBuilder.build(requestLine, headers));
+    }
+
+
+    private static int indexOfKey(List<String[]> headers)
+    {
+        for (int i = 0; i < headers.size(); ++i)
+        {
+            if (KEY_HEADER.equals(headers.get(i)[0]))
+            {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException("The headers do not contain " + KEY_HEADER + ".");
+    }
+
+
+    String getRequestLine()
+    {
+        return mRequestLine;
+    }
+
+
+    /**
+     * Build the headers with the given key. The list can be modified
+     * by the caller.
+     */
+    List<String[]> buildHeaders(String key)
+    {
+        List<String[]> headers = new ArrayList<String[]>(mHeaders);
+
+        headers.set(mKeyIndex, new String[] { KEY_HEADER, key });
+
+        return headers;
+    }
+
+
+    /**
+     * Build the encoded request with the given key.
+     *
+     * @param key
+     *         The value of {@code Sec-WebSocket-Key}, {@link #KEY_LENGTH}
+     *         ASCII bytes.
+     */
+    byte[] build(byte[] key)
+    {
+        byte[] bytes = new byte[mBytes.length];
+
+        System.arraycopy(mBytes, 0, bytes, 0, mBytes.length);
+        System.arraycopy(key, 0, bytes, mKeyOffset, KEY_LENGTH);
+
+        return bytes;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A cache of opening handshake request templates shared by the WebSockets
+ * created by a {@link WebSocketFactory}, so that connections to the same
+ * endpoint (e.g. those made by {@link WebSocketPool} and {@link
+ * BulkConnector}) do not build the same request again and again.
+ *
+ * <p>
+ * Only the templates of WebSockets whose handshake has not been customized
+ * since creation (by adding headers, protocols, extensions and so on) are
+ * cached, so the key is just the endpoint.
+ * </p>
+ *
+ * @since 2.3
+ */
+class HandshakeTemplateCache
+{
+    /**
+     * The maximum number of templates remembered.
+     */
+    private static final int MAX_ENTRIES = 64;
+
+
+    private final Map<String, HandshakeTemplate> mTemplates = new TemplateMap();
+
+
+    /**
+     * A map which discards the least recently used entry when full.
+     */
+    private static class TemplateMap extends LinkedHashMap<String, HandshakeTemplate>
+    {
+        private static final long serialVersionUID = 1L;
+
+
+        TemplateMap()
+        {
+            super(16, 0.75f, true);
+        }
+
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, HandshakeTemplate> eldest)
+        {
+            return MAX_ENTRIES < size();
+        }
+    }
+
+
+    HandshakeTemplate get(String key)
+    {
+        synchronized (mTemplates)
+        {
+            return mTemplates.get(key);
+        }
+    }
+
+
+    void put(String key, HandshakeTemplate template)
+    {
+        synchronized (mTemplates)
+        {
+            mTemplates.put(key, template);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+
+
+/**
+ * A cache of successful hostname verifications keyed by the hostname
+ * and the SHA-256 fingerprint of the peer certificate, so that
+ * reconnections to the same server skip parsing the certificate.
+ *
+ * <p>
+ * Failures are not cached. They are expected to be rare and should be
+ * reported in the same way every time. Successes expire after a while,
+ * so that a long-running process verifies certificates again from time
+ * to time as it would without the cache.
+ * </p>
+ *
+ * @since 2.3
+ */
+class HostnameVerificationCache
+{
+    /**
+     * The maximum number of verifications remembered.
+     */
+    private static final int MAX_ENTRIES = 256;
+
+
+    /**
+     * The default time in milliseconds for which a verification is
+     * remembered (1 hour).
+     */
+    private static final long DEFAULT_LIFETIME = 60 * 60 * 1000L;
+
+
+    /**
+     * The time at which each verification expires, by {@link System#nanoTime()}.
+     */
+    private final Map<String, Long> mVerified = new VerifiedMap();
+    private final HostnameVerifier mVerifier;
+    private final long mLifetime;
+
+
+    /**
+     * A map which discards the least recently used entry when full.
+     */
+    private static class VerifiedMap extends LinkedHashMap<String, Long>
+    {
+        private static final long serialVersionUID = 1L;
+
+
+        VerifiedMap()
+        {
+            super(16, 0.75f, true);
+        }
+
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+        {
+            return MAX_ENTRIES < size();
+        }
+    }
+
+
+    HostnameVerificationCache()
+    {
+        this(OkHostnameVerifier.INSTANCE, DEFAULT_LIFETIME);
+    }
+
+
+    /**
+     * Constructor with the verifier and the lifetime of verifications
+     * in milliseconds.
+     */
+    HostnameVerificationCache(HostnameVerifier verifier, long lifetime)
+    {
+        mVerifier = verifier;
+        mLifetime = lifetime;
+    }
+
+
+    /**
+     * Verify the hostname against the certificate of the session.
+     *
+     * @return
+     *         {@code true} if the hostname matches the certificate.
+     */
+    boolean verify(String hostname, SSLSession session)
+    {
+        // The key of the cache. null if it cannot be computed.
+        String key = createKey(hostname, session);
+
+        if (key != null && isVerified(key))
+        {
+            // Verified before.
+            return true;
+        }
+
+        if (mVerifier.verify(hostname, session) == false)
+        {
+            return false;
+        }
+
+        if (key != null)
+        {
+            synchronized (mVerified)
+            {
+                mVerified.put(key, System.nanoTime() + mLifetime * 1000000L);
+            }
+        }
+
+        return true;
+    }
+
+
+    private boolean isVerified(String key)
+    {
+        synchronized (mVerified)
+        {
+            Long expiresAt = mVerified.get(key);
+
+            if (expiresAt == null)
+            {
+                // Not verified yet.
+                return false;
+            }
+
+            if (0 < System.nanoTime() - expiresAt)
+            {
+                // The verification has expired.
+                mVerified.remove(key);
+                return false;
+            }
+
+            return true;
+        }
+    }
+
+
+    void clear()
+    {
+        synchronized (mVerified)
+        {
+            mVerified.clear();
+        }
+    }
+
+
+    private static String createKey(String hostname, SSLSession session)
+    {
+        try
+        {
+            // The certificate of the peer itself.
+            Certificate certificate = session.getPeerCertificates()[0];
+
+            byte[] fingerprint = MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded());
+
+            return hostname + "#" + Base64.encode(fingerprint);
+        }
+        catch (SSLPeerUnverifiedException e)
+        {
+            // The peer is not authenticated.
+        }
+        catch (CertificateEncodingException e)
+        {
+            // The certificate cannot be encoded.
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // SHA-256 is not available.
+        }
+
+        // Fall back to the verification without the cache.
+        return null;
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A reader of the status line and the header section of an HTTP/1.1
+ * response, shared by the opening handshake and the proxy handshake.
+ *
+ * <p>
+ * Bytes are read in bulk into a single buffer in which line ends are
+ * searched, instead of one {@code read()} call per byte. Header names and
+ * values are created directly from the bytes in the buffer. The buffer
+ * grows as necessary up to the limit of the total size of the status line
+ * and the header section, so that a broken or hostile server cannot make
+ * this client consume memory without bound.
+ * </p>
+ *
+ * <p>
+ * Bytes read beyond the header section (e.g. the first WebSocket frames)
+ * are given back to the stream by {@link #finish(InputStream)} when the
+ * stream supports {@link InputStream#mark(int) mark}.
+ * </p>
+ *
+ * @since 2.3
+ */
+class HttpResponseReader
+{
+    /**
+     * The default limit of the size of the status line and the header section.
+     */
+    static final int DEFAULT_MAX_SIZE = 64 * 1024;
+    private static final int INITIAL_SIZE = 1024;
+    private final int mMaxSize;
+    private byte[] mBuffer;
+    private int mLength;
+    private int mPosition;
+    private int mScanned;
+    private int mLineStart;
+    private boolean mEnded;
+    private boolean mMarked;
+
+
+    HttpResponseReader()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+
+    HttpResponseReader(int maxSize)
+    {
+        mMaxSize = maxSize;
+        mBuffer  = new byte[Math.min(INITIAL_SIZE, maxSize)];
+    }
+
+
+    /**
+     * Read the status line.
+     *
+     * @return
+     *         The status line. {@code null} if the end of the stream
+     *         was reached before any byte.
+     */
+    String readStatusLine(InputStream in) throws IOException
+    {
+        if (in.markSupported())
+        {
+            // Remember the position so that bytes read beyond the
+            // header section can be given back to the stream.
+            in.mark(mMaxSize);
+            mMarked = true;
+        }
+
+        int end = nextLine(in);
+
+        if (end < 0)
+        {
+            return null;
+        }
+
+        return Misc.toStringUTF8(mBuffer, mLineStart, end - mLineStart);
+    }
+
+
+    /**
+     * Read the header section including the empty line which terminates it.
+     *
+     * @param headers
+     *         A map to which the headers are added. {@code null} to skip
+     *         the headers without creating any string.
+     *
+     * @return
+     *         {@code true} if the empty line was read. {@code false} if the
+     *         end of the stream was reached before it.
+     */
+    boolean readHeaders(InputStream in, Map<String, List<String>> headers) throws IOException
+    {
+        // The values of the last header. Used to concatenate
+        // folded lines (obs-fold) to its last value.
+        List<String> values = null;
+
+        while (true)
+        {
+            int end = nextLine(in);
+
+            // If the end of the stream was reached.
+            if (end < 0)
+            {
+                return false;
+            }
+
+            int start = mLineStart;
+
+            // If the empty line was reached.
+            if (start == end)
+            {
+                return true;
+            }
+
+            if (headers == null)
+            {
+                // Skip the line.
+                continue;
+            }
+
+            byte first = mBuffer[start];
+
+            // If the line is a continuation of the previous line.
+            if (first == ' ' || first == '\t')
+            {
+                if (values != null)
+                {
+                    fold(values, start, end);
+                }
+
+                // Otherwise, no preceding "field-name:field-value" line. Ignore this line.
+                continue;
+            }
+
+            values = parseHeader(headers, start, end);
+        }
+    }
+
+
+    /**
+     * Finish reading. When the stream supports mark, the stream is
+     * positioned right after the header section.
+     *
+     * @return
+     *         The number of bytes which were read beyond the header section
+     *         and could not be given back to the stream.
+     */
+    int finish(InputStream in) throws IOException
+    {
+        if (mMarked == false)
+        {
+            return mLength - mPosition;
+        }
+
+        // Go back to the start of the response and skip the header section.
+        in.reset();
+
+        for (int remaining = mPosition; 0 < remaining; )
+        {
+            long skipped = in.skip(remaining);
+
+            if (skipped <= 0)
+            {
+                // The bytes have been read once, so this won't happen.
+                throw new IOException("Failed to skip the HTTP response header section.");
+            }
+
+            remaining -= (int)skipped;
+        }
+
+        return 0;
+    }
+
+
+    private List<String> parseHeader(Map<String, List<String>> headers, int start, int end)
+    {
+        int colon = indexOf(':', start, end);
+
+        if (colon < 0)
+        {
+            // Weird. Ignore this header.
+            return null;
+        }
+
+        // Name and value without leading and trailing spaces.
+        String name  = toString(start, colon);
+        String value = toString(colon + 1, end);
+
+        List<String> values = headers.get(name);
+
+        if (values == null)
+        {
+            values = new ArrayList<String>();
+            headers.put(name, values);
+        }
+
+        values.add(value);
+
+        return values;
+    }
+
+
+    private void fold(List<String> values, int start, int end)
+    {
+        String continuation = toString(start, end);
+
+        if (continuation.length() == 0)
+        {
+            return;
+        }
+
+        int last = values.size() - 1;
+        String value = values.get(last);
+
+        // Replace the line break and the leading 1*(SP|HT) with a single SP.
+        values.set(last, (value.length() == 0) ? continuation : value + " " + continuation);
+    }
+
+
+    private int indexOf(char ch, int start, int end)
+    {
+        for (int i = start; i < end; ++i)
+        {
+            if (mBuffer[i] == ch)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Create a string from the bytes in the range without leading and
+     * trailing whitespaces, in the same way as {@link String#trim()}.
+     */
+    private String toString(int start, int end)
+    {
+        while (start < end && (mBuffer[start] & 0xFF) <= ' ')
+        {
+            ++start;
+        }
+
+        while (start < end && (mBuffer[end - 1] & 0xFF) <= ' ')
+        {
+            --end;
+        }
+
+        return Misc.toStringUTF8(mBuffer, start, end - start);
+    }
+
+
+    /**
+     * Find the next line. On return, {@code mLineStart} points to the
+     * first byte of the line.
+     *
+     * @return
+     *         The end (exclusive) of the line excluding CR LF. -1 if the
+     *         end of the stream was reached before any byte of the line.
+     */
+    private int nextLine(InputStream in) throws IOException
+    {
+        mLineStart = mPosition;
+
+        while (true)
+        {
+            // Search the buffer for LF.
+            for (int i = mScanned; i < mLength; ++i)
+            {
+                if (mBuffer[i] != '\n')
+                {
+                    continue;
+                }
+
+                mPosition = mScanned = i + 1;
+
+                // Exclude CR which precedes LF.
+                return (mLineStart < i && mBuffer[i - 1] == '\r') ? i - 1 : i;
+            }
+
+            mScanned = mLength;
+
+            // Read more bytes. If the end of the stream was reached.
+            if (mEnded || fill(in) < 0)
+            {
+                mEnded = true;
+
+                if (mLineStart == mLength)
+                {
+                    // No more line.
+                    return -1;
+                }
+
+                // The last line without a line terminator.
+                mPosition = mLength;
+
+                return mLength;
+            }
+        }
+    }
+
+
+    private int fill(InputStream in) throws IOException
+    {
+        if (mLength == mBuffer.length)
+        {
+            if (mMaxSize <= mLength)
+            {
+                throw new IOException(String.format(
+                    "The header section of the HTTP response exceeds the limit (%d bytes).", mMaxSize));
+            }
+
+            // Grow the buffer.
+            byte[] buffer = new byte[Math.min(mBuffer.length * 2, mMaxSize)];
+            System.arraycopy(mBuffer, 0, buffer, 0, mLength);
+            mBuffer = buffer;
+        }
+
+        // Read as many bytes as are available without blocking
+        // after the first one.
+        int count = in.read(mBuffer, mLength, mBuffer.length - mLength);
+
+        if (0 < count)
+        {
+            mLength += count;
+        }
+
+        return count;
+    }
+}
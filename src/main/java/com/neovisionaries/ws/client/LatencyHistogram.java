@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Histogram of latencies in nanoseconds.
+ *
+ * <p>
+ * Like <a href="http://hdrhistogram.org/">HdrHistogram</a>, buckets are
+ * linear within each power of two, so the relative error of reported
+ * values is bounded (about 6%) over the whole range from 1 nanosecond to
+ * about 68 seconds. Larger values are counted as the maximum. Recording
+ * a value is lock-free and allocates nothing.
+ * </p>
+ *
+ * <p>
+ * Instances returned from the other classes of this library are
+ * snapshots and never change. Applications can also create their own
+ * histograms, for example to record round-trip times of their messages.
+ * </p>
+ *
+ * @see SendLatencies
+ *
+ * @since 2.3
+ */
+public class LatencyHistogram
+{
+    /**
+     * The number of bits used to divide each power of two linearly.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+
+    /**
+     * Values greater than or equal to this are recorded as this minus 1.
+     */
+    private static final long MAX_TRACKABLE_VALUE = 1L << 36;
+    private static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE_VALUE - 1) + 1;
+
+
+    private final AtomicLongArray mCounts;
+    private final AtomicLong mTotalCount = new AtomicLong();
+    private final AtomicLong mTotalValue = new AtomicLong();
+    private final AtomicLong mMaxValue = new AtomicLong();
+    private final LatencyHistogram mParent;
+
+
+    /**
+     * The default constructor.
+     */
+    public LatencyHistogram()
+    {
+        this(null);
+    }
+
+
+    LatencyHistogram(LatencyHistogram parent)
+    {
+        mCounts = new AtomicLongArray(BUCKET_COUNT);
+        mParent = parent;
+    }
+
+
+    private static int indexOf(long value)
+    {
+        if (value < SUB_BUCKET_COUNT)
+        {
+            return (int)value;
+        }
+
+        // The position of the highest one bit minus SUB_BUCKET_BITS.
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+
+        // (shift + 1) * SUB_BUCKET_COUNT + (the next SUB_BUCKET_BITS bits).
+        return (shift << SUB_BUCKET_BITS) + (int)(value >>> shift);
+    }
+
+
+    private static long highestValueOf(int index)
+    {
+        if (index < SUB_BUCKET_COUNT)
+        {
+            return index;
+        }
+
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long mantissa = index - (shift << SUB_BUCKET_BITS);
+
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+
+    /**
+     * Record a value.
+     *
+     * @param value
+     *         A latency in nanoseconds. Negative values are counted as 0
+     *         and too large values as the maximum trackable value.
+     */
+    public void record(long value)
+    {
+        if (value < 0)
+        {
+            value = 0;
+        }
+        else if (MAX_TRACKABLE_VALUE <= value)
+        {
+            value = MAX_TRACKABLE_VALUE - 1;
+        }
+
+        mCounts.incrementAndGet(indexOf(value));
+        mTotalCount.incrementAndGet();
+        mTotalValue.addAndGet(value);
+
+        // Update the maximum value.
+        while (true)
+        {
+            long max = mMaxValue.get();
+
+            if (value <= max || mMaxValue.compareAndSet(max, value))
+            {
+                break;
+            }
+        }
+
+        if (mParent != null)
+        {
+            mParent.record(value);
+        }
+    }
+
+
+    /**
+     * Get a copy of the current state of this histogram.
+     *
+     * @return
+     *         A snapshot which is not affected by later records.
+     */
+    public LatencyHistogram snapshot()
+    {
+        LatencyHistogram copy = new LatencyHistogram(null);
+
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+        {
+            long count = mCounts.get(i);
+
+            if (count != 0)
+            {
+                copy.mCounts.set(i, count);
+            }
+        }
+
+        copy.mTotalCount.set(mTotalCount.get());
+        copy.mTotalValue.set(mTotalValue.get());
+        copy.mMaxValue.set(mMaxValue.get());
+
+        return copy;
+    }
+
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return
+     *         The number of recorded values.
+     */
+    public long getCount()
+    {
+        return mTotalCount.get();
+    }
+
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return
+     *         The maximum latency in nanoseconds.
+     */
+    public long getMax()
+    {
+        return mMaxValue.get();
+    }
+
+
+    /**
+     * Get the mean of the recorded values.
+     *
+     * @return
+     *         The mean latency in nanoseconds. 0 if no value has been recorded.
+     */
+    public long getMean()
+    {
+        long count = mTotalCount.get();
+
+        return (count == 0) ? 0 : mTotalValue.get() / count;
+    }
+
+
+    /**
+     * Get the value at the given percentile.
+     *
+     * @param percentile
+     *         A percentile between 0 and 100, for example, 99.9.
+     *
+     * @return
+     *         The latency in nanoseconds below or at which the given
+     *         percentage of the recorded values fall. 0 if no value
+     *         has been recorded.
+     */
+    public long getPercentile(double percentile)
+    {
+        // Sum up the buckets instead of using mTotalCount so that the
+        // result is consistent with the buckets read below.
+        long total = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+        {
+            total += mCounts.get(i);
+        }
+
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        double p = Math.min(Math.max(percentile, 0.0), 100.0);
+
+        // The number of values which must be at or below the result.
+        long threshold = Math.max(1, (long)Math.ceil(total * p / 100.0));
+        long accumulated = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+        {
+            accumulated += mCounts.get(i);
+
+            if (threshold <= accumulated)
+            {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+            "LatencyHistogram(count=%d, mean=%dns, p50=%dns, p99=%dns, p99.9=%dns, max=%dns)",
+            getCount(), getMean(), getPercentile(50), getPercentile(99),
+            getPercentile(99.9), getMax());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Events of {@link WebSocketListener}. Each constant holds the signature
+ * of the corresponding listener method so that {@link ListenerManager}
+ * can find out by reflection whether a listener overrides the no-op
+ * implementation of {@link WebSocketAdapter}.
+ */
+enum ListenerEvent
+{
+    ON_STATE_CHANGED("onStateChanged", WebSocketState.class),
+    ON_CONNECTED("onConnected", Map.class),
+    ON_CONNECT_ERROR("onConnectError", WebSocketException.class),
+    ON_DISCONNECTED("onDisconnected", WebSocketFrame.class, WebSocketFrame.class, boolean.class),
+    ON_FRAME("onFrame", WebSocketFrame.class),
+    ON_CONTINUATION_FRAME("onContinuationFrame", WebSocketFrame.class),
+    ON_TEXT_FRAME("onTextFrame", WebSocketFrame.class),
+    ON_BINARY_FRAME("onBinaryFrame", WebSocketFrame.class),
+    ON_CLOSE_FRAME("onCloseFrame", WebSocketFrame.class),
+    ON_PING_FRAME("onPingFrame", WebSocketFrame.class),
+    ON_PONG_FRAME("onPongFrame", WebSocketFrame.class),
+    ON_TEXT_MESSAGE("onTextMessage", String.class),
+    ON_DIRECT_TEXT_MESSAGE("onTextMessageBytes", byte[].class),
+    ON_BINARY_MESSAGE("onBinaryMessage", byte[].class),
+    ON_SENDING_FRAME("onSendingFrame", WebSocketFrame.class),
+    ON_FRAME_SENT("onFrameSent", WebSocketFrame.class),
+    ON_FRAME_UNSENT("onFrameUnsent", WebSocketFrame.class),
+    ON_THREAD_CREATED("onThreadCreated", ThreadType.class, Thread.class),
+    ON_THREAD_STARTED("onThreadStarted", ThreadType.class, Thread.class),
+    ON_THREAD_STOPPING("onThreadStopping", ThreadType.class, Thread.class),
+    ON_ERROR("onError", WebSocketException.class),
+    ON_FRAME_ERROR("onFrameError", WebSocketException.class, WebSocketFrame.class),
+    ON_MESSAGE_ERROR("onMessageError", WebSocketException.class, List.class),
+    ON_MESSAGE_DECOMPRESSION_ERROR("onMessageDecompressionError", WebSocketException.class, byte[].class),
+    ON_TEXT_MESSAGE_ERROR("onTextMessageError", WebSocketException.class, byte[].class),
+    ON_SEND_ERROR("onSendError", WebSocketException.class, WebSocketFrame.class),
+    ON_UNEXPECTED_ERROR("onUnexpectedError", WebSocketException.class),
+    ON_SENDING_HANDSHAKE("onSendingHandshake", String.class, List.class),
+    ;
+
+
+    private final String mMethodName;
+    private final Class<?>[] mParameterTypes;
+
+
+    private ListenerEvent(String methodName, Class<?>... parameterTypes)
+    {
+        mMethodName = methodName;
+
+        // The first parameter of every listener method is WebSocket.
+        mParameterTypes = new Class<?>[parameterTypes.length + 1];
+        mParameterTypes[0] = WebSocket.class;
+        System.arraycopy(parameterTypes, 0, mParameterTypes, 1, parameterTypes.length);
+    }
+
+
+    /**
+     * Check if the listener implements the method for this event
+     * with something other than the no-op of {@link WebSocketAdapter}.
+     */
+    boolean isHandledBy(Class<?> listenerClass)
+    {
+        try
+        {
+            // The public method which will be invoked for this event.
+            Class<?> declaringClass = listenerClass
+                .getMethod(mMethodName, mParameterTypes).getDeclaringClass();
+
+            // Interested unless the method is the one of WebSocketAdapter.
+            return (declaringClass != WebSocketAdapter.class);
+        }
+        catch (Exception e)
+        {
+            // Assume the listener is interested in the event.
+            return true;
+        }
+    }
+}
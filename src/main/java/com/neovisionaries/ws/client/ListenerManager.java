@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2015-2016 Neo Visionaries Inc.
+ * Copyright (C) 2015-2017 Neo Visionaries Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,18 +16,65 @@
 package com.neovisionaries.ws.client;
 
 
+import static com.neovisionaries.ws.client.ListenerEvent.ON_BINARY_FRAME;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_BINARY_MESSAGE;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_CLOSE_FRAME;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_CONNECTED;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_CONNECT_ERROR;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_CONTINUATION_FRAME;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_DIRECT_TEXT_MESSAGE;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_DISCONNECTED;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_ERROR;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_FRAME;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_FRAME_ERROR;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_FRAME_SENT;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_FRAME_UNSENT;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_MESSAGE_DECOMPRESSION_ERROR;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_MESSAGE_ERROR;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_PING_FRAME;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_PONG_FRAME;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_SENDING_FRAME;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_SENDING_HANDSHAKE;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_SEND_ERROR;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_STATE_CHANGED;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_TEXT_FRAME;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_TEXT_MESSAGE;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_TEXT_MESSAGE_ERROR;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_THREAD_CREATED;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_THREAD_STARTED;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_THREAD_STOPPING;
+import static com.neovisionaries.ws.client.ListenerEvent.ON_UNEXPECTED_ERROR;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 
 class ListenerManager
 {
+    private static final WebSocketListener[] NO_LISTENERS = new WebSocketListener[0];
+    private static final ListenerEvent[] EVENTS = ListenerEvent.values();
+
+
+    /**
+     * Cache of the results of the reflection performed by
+     * {@link #getHandledEvents(Class)}. Weak keys so that listener
+     * classes can be unloaded.
+     */
+    private static final Map<Class<?>, boolean[]> sHandledEventsCache =
+            new WeakHashMap<Class<?>, boolean[]>();
+
+
     private final WebSocket mWebSocket;
     private final List<WebSocketListener> mListeners = new ArrayList<WebSocketListener>();
 
-    private boolean mSyncNeeded = true;
-    private List<WebSocketListener> mCopiedListeners;
+
+    /**
+     * Dispatch table. Listeners interested in each event, indexed by
+     * {@link ListenerEvent#ordinal()}. The table is rebuilt whenever
+     * the list of listeners is modified and is read without locking.
+     */
+    private volatile WebSocketListener[][] mDispatchTable = createEmptyTable();
 
 
     public ListenerManager(WebSocket websocket)
@@ -52,7 +99,7 @@ class ListenerManager
         synchronized (mListeners)
         {
             mListeners.add(listener);
-            mSyncNeeded = true;
+            rebuildDispatchTable();
         }
     }
 
@@ -66,6 +113,8 @@ class ListenerManager
 
         synchronized (mListeners)
         {
+            boolean modified = false;
+
             for (WebSocketListener listener : listeners)
             {
                 if (listener == null)
@@ -74,7 +123,12 @@ class ListenerManager
                 }
 
                 mListeners.add(listener);
-                mSyncNeeded = true;
+                modified = true;
+            }
+
+            if (modified)
+            {
+                rebuildDispatchTable();
             }
         }
     }
@@ -91,7 +145,7 @@ class ListenerManager
         {
             if (mListeners.remove(listener))
             {
-                mSyncNeeded = true;
+                rebuildDispatchTable();
             }
         }
     }
@@ -106,6 +160,8 @@ class ListenerManager
 
         synchronized (mListeners)
         {
+            boolean modified = false;
+
             for (WebSocketListener listener : listeners)
             {
                 if (listener == null)
@@ -115,9 +171,14 @@ class ListenerManager
 
                 if (mListeners.remove(listener))
                 {
-                    mSyncNeeded = true;
+                    modified = true;
                 }
             }
+
+            if (modified)
+            {
+                rebuildDispatchTable();
+            }
         }
     }
 
@@ -132,41 +193,125 @@ class ListenerManager
             }
 
             mListeners.clear();
-            mSyncNeeded = true;
+            rebuildDispatchTable();
         }
     }
 
 
-    private List<WebSocketListener> getSynchronizedListeners()
+    /**
+     * Check if at least one listener is interested in the event. This
+     * can be used to skip preparing arguments of a callback nobody
+     * listens to.
+     */
+    public boolean hasListeners(ListenerEvent event)
     {
-        synchronized (mListeners)
+        return (mDispatchTable[event.ordinal()].length != 0);
+    }
+
+
+    private WebSocketListener[] getListeners(ListenerEvent event)
+    {
+        return mDispatchTable[event.ordinal()];
+    }
+
+
+    private static WebSocketListener[][] createEmptyTable()
+    {
+        WebSocketListener[][] table = new WebSocketListener[EVENTS.length][];
+
+        for (int i = 0; i < table.length; ++i)
+        {
+            table[i] = NO_LISTENERS;
+        }
+
+        return table;
+    }
+
+
+    /**
+     * Rebuild the dispatch table. Must be called while the lock of
+     * {@code mListeners} is held.
+     */
+    private void rebuildDispatchTable()
+    {
+        int size = mListeners.size();
+
+        // Events handled by each listener.
+        boolean[][] handled = new boolean[size][];
+
+        for (int i = 0; i < size; ++i)
+        {
+            handled[i] = getHandledEvents(mListeners.get(i).getClass());
+        }
+
+        WebSocketListener[][] table = new WebSocketListener[EVENTS.length][];
+
+        for (int e = 0; e < EVENTS.length; ++e)
         {
-            if (mSyncNeeded == false)
+            // Count the listeners interested in the event.
+            int count = 0;
+
+            for (int i = 0; i < size; ++i)
+            {
+                if (handled[i][e])
+                {
+                    ++count;
+                }
+            }
+
+            if (count == 0)
+            {
+                table[e] = NO_LISTENERS;
+                continue;
+            }
+
+            WebSocketListener[] listeners = new WebSocketListener[count];
+
+            // Keep the registration order.
+            for (int i = 0, j = 0; i < size; ++i)
+            {
+                if (handled[i][e])
+                {
+                    listeners[j++] = mListeners.get(i);
+                }
+            }
+
+            table[e] = listeners;
+        }
+
+        // Publish the new table.
+        mDispatchTable = table;
+    }
+
+
+    private static boolean[] getHandledEvents(Class<?> listenerClass)
+    {
+        synchronized (sHandledEventsCache)
+        {
+            boolean[] handled = sHandledEventsCache.get(listenerClass);
+
+            if (handled != null)
             {
-                return mCopiedListeners;
+                return handled;
             }
 
-            // Copy mListeners to copiedListeners.
-            List<WebSocketListener> copiedListeners =
-                    new ArrayList<WebSocketListener>(mListeners.size());
+            handled = new boolean[EVENTS.length];
 
-            for (WebSocketListener listener : mListeners)
+            for (int e = 0; e < EVENTS.length; ++e)
             {
-                copiedListeners.add(listener);
+                handled[e] = EVENTS[e].isHandledBy(listenerClass);
             }
 
-            // Synchronize.
-            mCopiedListeners = copiedListeners;
-            mSyncNeeded      = false;
+            sHandledEventsCache.put(listenerClass, handled);
 
-            return copiedListeners;
+            return handled;
         }
     }
 
 
     public void callOnStateChanged(WebSocketState newState)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_STATE_CHANGED))
         {
             try
             {
@@ -182,7 +327,7 @@ class ListenerManager
 
     public void callOnConnected(Map<String, List<String>> headers)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_CONNECTED))
         {
             try
             {
@@ -198,7 +343,7 @@ class ListenerManager
 
     public void callOnConnectError(WebSocketException cause)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_CONNECT_ERROR))
         {
             try
             {
@@ -216,7 +361,7 @@ class ListenerManager
         WebSocketFrame serverCloseFrame, WebSocketFrame clientCloseFrame,
         boolean closedByServer)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_DISCONNECTED))
         {
             try
             {
@@ -233,7 +378,7 @@ class ListenerManager
 
     public void callOnFrame(WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_FRAME))
         {
             try
             {
@@ -249,7 +394,7 @@ class ListenerManager
 
     public void callOnContinuationFrame(WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_CONTINUATION_FRAME))
         {
             try
             {
@@ -265,7 +410,7 @@ class ListenerManager
 
     public void callOnTextFrame(WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_TEXT_FRAME))
         {
             try
             {
@@ -281,7 +426,7 @@ class ListenerManager
 
     public void callOnBinaryFrame(WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_BINARY_FRAME))
         {
             try
             {
@@ -297,7 +442,7 @@ class ListenerManager
 
     public void callOnCloseFrame(WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_CLOSE_FRAME))
         {
             try
             {
@@ -313,7 +458,7 @@ class ListenerManager
 
     public void callOnPingFrame(WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_PING_FRAME))
         {
             try
             {
@@ -329,7 +474,7 @@ class ListenerManager
 
     public void callOnPongFrame(WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_PONG_FRAME))
         {
             try
             {
@@ -345,7 +490,7 @@ class ListenerManager
 
     public void callOnTextMessage(String message)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_TEXT_MESSAGE))
         {
             try
             {
@@ -359,9 +504,25 @@ class ListenerManager
     }
 
 
+    public void callOnTextMessageBytes(byte[] data)
+    {
+        for (WebSocketListener listener : getListeners(ON_DIRECT_TEXT_MESSAGE))
+        {
+            try
+            {
+                listener.onTextMessageBytes(mWebSocket, data);
+            }
+            catch (Throwable t)
+            {
+                callHandleCallbackError(listener, t);
+            }
+        }
+    }
+
+
     public void callOnBinaryMessage(byte[] message)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_BINARY_MESSAGE))
         {
             try
             {
@@ -377,7 +538,7 @@ class ListenerManager
 
     public void callOnSendingFrame(WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_SENDING_FRAME))
         {
             try
             {
@@ -393,7 +554,7 @@ class ListenerManager
 
     public void callOnFrameSent(WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_FRAME_SENT))
         {
             try
             {
@@ -409,7 +570,7 @@ class ListenerManager
 
     public void callOnFrameUnsent(WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_FRAME_UNSENT))
         {
             try
             {
@@ -425,7 +586,7 @@ class ListenerManager
 
     public void callOnThreadCreated(ThreadType threadType, Thread thread)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_THREAD_CREATED))
         {
             try
             {
@@ -441,7 +602,7 @@ class ListenerManager
 
     public void callOnThreadStarted(ThreadType threadType, Thread thread)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_THREAD_STARTED))
         {
             try
             {
@@ -457,7 +618,7 @@ class ListenerManager
 
     public void callOnThreadStopping(ThreadType threadType, Thread thread)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_THREAD_STOPPING))
         {
             try
             {
@@ -473,7 +634,7 @@ class ListenerManager
 
     public void callOnError(WebSocketException cause)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_ERROR))
         {
             try
             {
@@ -489,7 +650,7 @@ class ListenerManager
 
     public void callOnFrameError(WebSocketException cause, WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_FRAME_ERROR))
         {
             try
             {
@@ -505,7 +666,7 @@ class ListenerManager
 
     public void callOnMessageError(WebSocketException cause, List<WebSocketFrame> frames)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_MESSAGE_ERROR))
         {
             try
             {
@@ -521,7 +682,7 @@ class ListenerManager
 
     public void callOnMessageDecompressionError(WebSocketException cause, byte[] compressed)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_MESSAGE_DECOMPRESSION_ERROR))
         {
             try
             {
@@ -537,7 +698,7 @@ class ListenerManager
 
     public void callOnTextMessageError(WebSocketException cause, byte[] data)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_TEXT_MESSAGE_ERROR))
         {
             try
             {
@@ -553,7 +714,7 @@ class ListenerManager
 
     public void callOnSendError(WebSocketException cause, WebSocketFrame frame)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_SEND_ERROR))
         {
             try
             {
@@ -569,7 +730,7 @@ class ListenerManager
 
     public void callOnUnexpectedError(WebSocketException cause)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_UNEXPECTED_ERROR))
         {
             try
             {
@@ -597,7 +758,7 @@ class ListenerManager
 
     public void callOnSendingHandshake(String requestLine, List<String[]> headers)
     {
-        for (WebSocketListener listener : getSynchronizedListeners())
+        for (WebSocketListener listener : getListeners(ON_SENDING_HANDSHAKE))
         {
             try
             {
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * JMX view of {@link WebSocketMetrics}.
+ *
+ * <p>
+ * This class is kept apart from {@link WebSocketMetrics} so that
+ * {@code javax.management}, which is not available on Android, is
+ * loaded only when an MBean is registered.
+ * </p>
+ */
+class MetricsMBean implements WebSocketMetricsMXBean
+{
+    private final WebSocketMetrics mMetrics;
+
+
+    private MetricsMBean(WebSocketMetrics metrics)
+    {
+        mMetrics = metrics;
+    }
+
+
+    static void register(WebSocketMetrics metrics, String name)
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try
+        {
+            server.registerMBean(new MetricsMBean(metrics), new ObjectName(name));
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException(
+                "Failed to register the MBean '" + name + "': " + e.getMessage(), e);
+        }
+    }
+
+
+    static void unregister(String name)
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try
+        {
+            server.unregisterMBean(new ObjectName(name));
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException(
+                "Failed to unregister the MBean '" + name + "': " + e.getMessage(), e);
+        }
+    }
+
+
+    private WebSocketMetricsSnapshot snapshot()
+    {
+        return mMetrics.snapshot();
+    }
+
+
+    @Override
+    public long getFramesIn()
+    {
+        return snapshot().getFramesIn();
+    }
+
+
+    @Override
+    public long getBytesIn()
+    {
+        return snapshot().getBytesIn();
+    }
+
+
+    @Override
+    public long getFramesOut()
+    {
+        return snapshot().getFramesOut();
+    }
+
+
+    @Override
+    public long getBytesOut()
+    {
+        return snapshot().getBytesOut();
+    }
+
+
+    @Override
+    public long getMessagesIn()
+    {
+        return mMetrics.get(WebSocketMetrics.MESSAGES_IN);
+    }
+
+
+    @Override
+    public long getMessagesOut()
+    {
+        return mMetrics.get(WebSocketMetrics.MESSAGES_OUT);
+    }
+
+
+    @Override
+    public long getCompressedBytesIn()
+    {
+        return mMetrics.get(WebSocketMetrics.COMPRESSED_IN);
+    }
+
+
+    @Override
+    public long getDecompressedBytesIn()
+    {
+        return mMetrics.get(WebSocketMetrics.DECOMPRESSED_IN);
+    }
+
+
+    @Override
+    public long getUncompressedBytesOut()
+    {
+        return mMetrics.get(WebSocketMetrics.UNCOMPRESSED_OUT);
+    }
+
+
+    @Override
+    public long getCompressedBytesOut()
+    {
+        return mMetrics.get(WebSocketMetrics.COMPRESSED_OUT);
+    }
+
+
+    @Override
+    public long getQueueDepth()
+    {
+        return snapshot().getQueueDepth();
+    }
+
+
+    @Override
+    public long getAverageQueueTime()
+    {
+        return snapshot().getAverageQueueTime();
+    }
+
+
+    @Override
+    public long getFlushCount()
+    {
+        return mMetrics.get(WebSocketMetrics.FLUSHES);
+    }
+
+
+    @Override
+    public long getReconnectCount()
+    {
+        return mMetrics.get(WebSocketMetrics.RECONNECTS);
+    }
+
+
+    @Override
+    public long getReconnectFailureCount()
+    {
+        return mMetrics.get(WebSocketMetrics.RECONNECT_FAILURES);
+    }
+
+
+    @Override
+    public long getReconnectedCount()
+    {
+        return mMetrics.get(WebSocketMetrics.RECONNECTED);
+    }
+
+
+    @Override
+    public long getAverageReconnectTime()
+    {
+        return snapshot().getAverageReconnectTime();
+    }
+}
@@ -25,8 +25,8 @@ import static com.neovisionaries.ws.client.WebSocketOpcode.TEXT;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.security.SecureRandom;
 import java.util.Collection;
 import java.util.regex.Matcher;
@@ -36,6 +36,7 @@ import java.util.regex.Pattern;
 class Misc
 {
     private static final SecureRandom sRandom = new SecureRandom();
+    private static final Charset UTF8 = Charset.forName("UTF-8");
 
 
     private Misc()
@@ -53,15 +54,24 @@ class Misc
             return null;
         }
 
-        try
-        {
-            return string.getBytes("UTF-8");
-        }
-        catch (UnsupportedEncodingException e)
+        int length = string.length();
+        byte[] bytes = new byte[length];
+
+        // ASCII fast path. Each character is converted into one byte.
+        for (int i = 0; i < length; ++i)
         {
-            // This never happens.
-            return null;
+            char ch = string.charAt(i);
+
+            if (0x80 <= ch)
+            {
+                // The string contains a non-ASCII character.
+                return string.getBytes(UTF8);
+            }
+
+            bytes[i] = (byte)ch;
         }
+
+        return bytes;
     }
 
 
@@ -91,12 +101,7 @@ class Misc
 
         try
         {
-            return new String(bytes, offset, length, "UTF-8");
-        }
-        catch (UnsupportedEncodingException e)
-        {
-            // This never happens.
-            return null;
+            return new String(bytes, offset, length, UTF8);
         }
         catch (IndexOutOfBoundsException e)
         {
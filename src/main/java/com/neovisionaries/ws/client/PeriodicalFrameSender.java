@@ -26,6 +26,7 @@ abstract class PeriodicalFrameSender
     private final String mTimerName;
     private Timer mTimer;
     private boolean mScheduled;
+    private boolean mStopped;
     private long mInterval;
     private PayloadGenerator mGenerator;
 
@@ -49,6 +50,9 @@ abstract class PeriodicalFrameSender
     {
         synchronized (this)
         {
+            // Keep scheduleOnce() from creating a timer after this.
+            mStopped = true;
+
             if (mTimer == null)
             {
                 return;
@@ -124,6 +128,39 @@ abstract class PeriodicalFrameSender
     }
 
 
+    /**
+     * Schedule a one-shot task on the timer of this sender. The task
+     * is discarded when {@link #stop()} is called.
+     *
+     * <p>
+     * The timer thread is created on demand, so a sender whose interval
+     * is 0 does not start one until a task is actually scheduled. No
+     * timer is created after {@link #stop()} is called.
+     * </p>
+     *
+     * @return
+     *         {@code true} if the task was scheduled.
+     */
+    public boolean scheduleOnce(TimerTask task, long delay)
+    {
+        synchronized (this)
+        {
+            if (mStopped)
+            {
+                // A timer created now would never be cancelled.
+                return false;
+            }
+
+            if (mTimer == null)
+            {
+                mTimer = new Timer(mTimerName);
+            }
+
+            return schedule(mTimer, task, delay);
+        }
+    }
+
+
     private final class Task extends TimerTask
     {
         @Override
@@ -146,6 +183,17 @@ abstract class PeriodicalFrameSender
                 return;
             }
 
+            // The time to wait before a frame is really needed.
+            long delay = getDelay(mInterval);
+
+            // If sending a frame now is not necessary.
+            if (0 < delay)
+            {
+                // Check again later without sending a frame.
+                mScheduled = schedule(mTimer, new Task(), delay);
+                return;
+            }
+
             // Create a frame and send it to the server.
             mWebSocket.sendFrame(createFrame());
 
@@ -185,7 +233,7 @@ abstract class PeriodicalFrameSender
     }
 
 
-    private static boolean schedule(Timer timer, Task task, long interval)
+    private static boolean schedule(Timer timer, TimerTask task, long interval)
     {
         try
         {
@@ -217,5 +265,28 @@ abstract class PeriodicalFrameSender
     }
 
 
+    /**
+     * Get the time to wait before a frame should be sent. The default
+     * implementation returns 0, which means that a frame is sent every
+     * interval.
+     *
+     * @param interval
+     *         The interval in milliseconds.
+     *
+     * @return
+     *         The delay in milliseconds. 0 to send a frame now.
+     */
+    protected long getDelay(long interval)
+    {
+        return 0;
+    }
+
+
+    protected WebSocket getWebSocket()
+    {
+        return mWebSocket;
+    }
+
+
     protected abstract WebSocketFrame createFrame(byte[] payload);
 }
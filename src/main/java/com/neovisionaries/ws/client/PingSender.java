@@ -27,6 +27,29 @@ class PingSender extends PeriodicalFrameSender
     }
 
 
+    @Override
+    protected long getDelay(long interval)
+    {
+        WebSocket websocket = getWebSocket();
+
+        // If a ping should be sent every interval regardless of traffic.
+        if (websocket.isPingOnlyWhenIdle() == false)
+        {
+            return 0;
+        }
+
+        // Milliseconds elapsed since the last frame was received. Frames
+        // sent by this client are not regarded as activity; otherwise, a
+        // client which keeps sending data to a dead peer would never send
+        // a ping and the pong timeout would never fire.
+        long idle = (System.nanoTime() - websocket.getLastReceivedAt()) / 1000000L;
+
+        // If the connection has been idle for the interval, send a ping.
+        // Otherwise, wait until it becomes idle for the interval.
+        return Math.max(interval - idle, 0);
+    }
+
+
     @Override
     protected WebSocketFrame createFrame(byte[] payload)
     {
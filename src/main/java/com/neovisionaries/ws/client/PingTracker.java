@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.TimerTask;
+
+
+/**
+ * Tracker of ping frames waiting for pong frames.
+ *
+ * <p>
+ * The writing thread reports ping frames when they have been written,
+ * and the reading thread reports pong frames. A pong frame is matched
+ * to an outstanding ping frame by payload. Because <a href=
+ * "https://tools.ietf.org/html/rfc6455#section-5.5.3">RFC 6455</a>
+ * allows the peer to respond only to the most recent ping, a match
+ * also settles all the older pings.
+ * </p>
+ *
+ * <p>
+ * If the pong timeout is set, a check is scheduled on the timer of
+ * the {@link PingSender} for every ping. When neither the ping nor a
+ * later ping has been answered at that time, the peer is regarded as
+ * dead. A ping forgotten because too many pings are outstanding is
+ * still regarded as unanswered.
+ * </p>
+ */
+class PingTracker
+{
+    /**
+     * The maximum number of outstanding pings to remember.
+     */
+    private static final int MAX_OUTSTANDING = 16;
+
+
+    /**
+     * The weight of a new sample in the smoothed round-trip time
+     * (the same as TCP's SRTT, RFC 6298).
+     */
+    private static final int SMOOTHING_SHIFT = 3;
+
+
+    private final WebSocket mWebSocket;
+    private final LinkedList<Ping> mOutstanding = new LinkedList<Ping>();
+    private final LatencyHistogram mHistogram = new LatencyHistogram(null);
+    private long mSequence;
+    private long mAnsweredSequence;
+    private long mLast = -1;
+    private long mMin = -1;
+    private long mSmoothed = -1;
+    private long mUnmatchedCount;
+    private long mTimeoutCount;
+    private boolean mTimedOut;
+
+
+    private static class Ping
+    {
+        final long sequence;
+        final WebSocketFrame frame;
+        final long sentAt;
+
+
+        Ping(long sequence, WebSocketFrame frame, long sentAt)
+        {
+            this.sequence = sequence;
+            this.frame    = frame;
+            this.sentAt   = sentAt;
+        }
+    }
+
+
+    private final class TimeoutTask extends TimerTask
+    {
+        private final long mPingSequence;
+
+
+        TimeoutTask(long sequence)
+        {
+            mPingSequence = sequence;
+        }
+
+
+        @Override
+        public void run()
+        {
+            checkTimeout(mPingSequence);
+        }
+    }
+
+
+    public PingTracker(WebSocket websocket)
+    {
+        mWebSocket = websocket;
+    }
+
+
+    /**
+     * Called by the writing thread after a ping frame was written.
+     */
+    public void onPingSent(WebSocketFrame frame)
+    {
+        long sequence;
+
+        synchronized (this)
+        {
+            sequence = ++mSequence;
+
+            mOutstanding.addLast(new Ping(sequence, frame, System.nanoTime()));
+
+            // Forget the oldest pings if too many are outstanding.
+            while (MAX_OUTSTANDING < mOutstanding.size())
+            {
+                mOutstanding.removeFirst();
+            }
+        }
+
+        long timeout = mWebSocket.getPongTimeout();
+
+        if (0 < timeout)
+        {
+            // Check later whether a pong has arrived.
+            mWebSocket.getPingSender().scheduleOnce(new TimeoutTask(sequence), timeout);
+        }
+    }
+
+
+    /**
+     * Called by the reading thread when a pong frame was received.
+     */
+    public void onPongReceived(WebSocketFrame frame)
+    {
+        long now = System.nanoTime();
+        byte[] payload = frame.getPayload();
+
+        synchronized (this)
+        {
+            // Search the outstanding pings from the newest one.
+            for (int i = mOutstanding.size() - 1; 0 <= i; --i)
+            {
+                Ping ping = mOutstanding.get(i);
+
+                if (Arrays.equals(payload, ping.frame.getPayload()) == false)
+                {
+                    continue;
+                }
+
+                // The ping and all the older pings are settled.
+                Iterator<Ping> it = mOutstanding.iterator();
+
+                for (int j = 0; j <= i; ++j)
+                {
+                    it.next();
+                    it.remove();
+                }
+
+                // Pings are answered in order, so remembering the sequence
+                // number is enough even for pings forgotten already.
+                mAnsweredSequence = ping.sequence;
+
+                record(now - ping.sentAt);
+                return;
+            }
+
+            // An unsolicited pong or a pong of a forgotten ping.
+            ++mUnmatchedCount;
+        }
+    }
+
+
+    private void record(long rtt)
+    {
+        mHistogram.record(rtt);
+
+        mLast = rtt;
+
+        if (mMin < 0 || rtt < mMin)
+        {
+            mMin = rtt;
+        }
+
+        if (mSmoothed < 0)
+        {
+            mSmoothed = rtt;
+        }
+        else
+        {
+            // SRTT = 7/8 * SRTT + 1/8 * RTT
+            mSmoothed += (rtt - mSmoothed) >> SMOOTHING_SHIFT;
+        }
+    }
+
+
+    private void checkTimeout(long sequence)
+    {
+        synchronized (this)
+        {
+            if (mTimedOut)
+            {
+                // Already reported.
+                return;
+            }
+
+            if (sequence <= mAnsweredSequence)
+            {
+                // The ping or a later ping has been answered.
+                return;
+            }
+
+            // Not answered, even if the ping has been removed from
+            // mOutstanding because too many pings are outstanding.
+            mTimedOut = true;
+            ++mTimeoutCount;
+        }
+
+        // The peer is regarded as dead.
+        mWebSocket.onPongTimeout();
+    }
+
+
+    public synchronized RoundTripStatistics getStatistics()
+    {
+        return new RoundTripStatistics(
+            mLast, mMin, mSmoothed, mHistogram.snapshot(),
+            mOutstanding.size(), mUnmatchedCount, mTimeoutCount);
+    }
+}
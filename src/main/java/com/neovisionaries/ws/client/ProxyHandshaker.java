@@ -28,32 +28,30 @@ import java.util.Map;
 class ProxyHandshaker
 {
     private static final String RN = "\r\n";
-    private final Socket mSocket;
     private final String mHost;
     private final int mPort;
     private final ProxySettings mSettings;
 
 
-    public ProxyHandshaker(Socket socket, String host, int port, ProxySettings settings)
+    public ProxyHandshaker(String host, int port, ProxySettings settings)
     {
-        mSocket   = socket;
         mHost     = host;
         mPort     = port;
         mSettings = settings;
     }
 
 
-    public void perform() throws IOException
+    public void perform(Socket socket) throws IOException
     {
         // Send a CONNECT request to the proxy server.
-        sendRequest();
+        sendRequest(socket);
 
         // Receive a response.
-        receiveResponse();
+        receiveResponse(socket);
     }
 
 
-    private void sendRequest() throws IOException
+    private void sendRequest(Socket socket) throws IOException
     {
         // Build a CONNECT request.
         String request = buildRequest();
@@ -62,7 +60,7 @@ class ProxyHandshaker
         byte[] requestBytes = Misc.getBytesUTF8(request);
 
         // Get the stream to send data to the proxy server.
-        OutputStream output = mSocket.getOutputStream();
+        OutputStream output = socket.getOutputStream();
 
         // Send the request to the proxy server.
         output.write(requestBytes);
@@ -140,24 +138,39 @@ class ProxyHandshaker
     }
 
 
-    private void receiveResponse() throws IOException
+    private void receiveResponse(Socket socket) throws IOException
     {
         // Get the stream to read data from the proxy server.
-        InputStream input = mSocket.getInputStream();
+        InputStream input = socket.getInputStream();
+
+        // The reader of the status line and the headers.
+        HttpResponseReader reader = new HttpResponseReader();
 
         // Read the status line.
-        readStatusLine(input);
+        readStatusLine(reader, input);
 
         // Skip HTTP headers, including an empty line (= the separator
         // between the header part and the body part).
-        skipHeaders(input);
+        if (reader.readHeaders(input, null) == false)
+        {
+            // Unexpected EOF.
+            throw new EOFException("The end of the stream from the proxy server was reached unexpectedly.");
+        }
+
+        // The reader reads bytes in bulk. This is safe because nothing
+        // flows through the tunnel until this client speaks first (a TLS
+        // ClientHello or the opening handshake request).
+        if (reader.finish(input) != 0)
+        {
+            throw new IOException("The proxy server sent unexpected data after the response.");
+        }
     }
 
 
-    private void readStatusLine(InputStream input) throws IOException
+    private void readStatusLine(HttpResponseReader reader, InputStream input) throws IOException
     {
         // Read the status line.
-        String statusLine = Misc.readLine(input, "UTF-8");
+        String statusLine = reader.readStatusLine(input);
 
         // If the response from the proxy server does not contain a status line.
         if (statusLine == null || statusLine.length() == 0)
@@ -187,78 +200,6 @@ class ProxyHandshaker
     }
 
 
-    private void skipHeaders(InputStream input) throws IOException
-    {
-        // The number of normal letters in a line.
-        int count = 0;
-
-        while (true)
-        {
-            // Read a byte from the stream.
-            int ch = input.read();
-
-            // If the end of the stream was reached.
-            if (ch == -1)
-            {
-                // Unexpected EOF.
-                throw new EOFException("The end of the stream from the proxy server was reached unexpectedly.");
-            }
-
-            // If the end of the line was reached.
-            if (ch == '\n')
-            {
-                // If there is no normal byte in the line.
-                if (count == 0)
-                {
-                    // An empty line (the separator) was found.
-                    return;
-                }
-
-                // Reset the counter and go to the next line.
-                count = 0;
-                continue;
-            }
-
-            // If the read byte is not a carriage return.
-            if (ch != '\r')
-            {
-                // Increment the number of normal bytes on the line.
-                ++count;
-                continue;
-            }
-
-            // Read the next byte.
-            ch = input.read();
-
-            // If the end of the stream was reached.
-            if (ch == -1)
-            {
-                // Unexpected EOF.
-                throw new EOFException("The end of the stream from the proxy server was reached unexpectedly after a carriage return.");
-            }
-
-            if (ch != '\n')
-            {
-                // Regard the last '\r' as a normal byte as well as the current 'ch'.
-                count += 2;
-                continue;
-            }
-
-            // '\r\n' was detected.
-
-            // If there is no normal byte in the line.
-            if (count == 0)
-            {
-                // An empty line (the separator) was found.
-                return;
-            }
-
-            // Reset the counter and go to the next line.
-            count = 0;
-        }
-    }
-
-
     /**
      * To be able to verify the hostname of the certificate received
      * if a connection is made to an https/wss endpoint, access to this
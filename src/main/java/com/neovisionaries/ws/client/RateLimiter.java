@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * A limiter which spaces out operations evenly to keep their rate
+ * under the given number per second.
+ *
+ * @since 2.3
+ */
+class RateLimiter
+{
+    private final long mInterval;
+    private boolean mStarted;
+    private long mNext;
+
+
+    /**
+     * @param rate
+     *         The maximum number of operations per second. Must be positive.
+     */
+    RateLimiter(double rate)
+    {
+        mInterval = (long)(1000000000L / rate);
+    }
+
+
+    /**
+     * Wait until the next operation is allowed.
+     */
+    void acquire() throws InterruptedException
+    {
+        long wait;
+
+        synchronized (this)
+        {
+            long now = System.nanoTime();
+
+            // Unused time slots are not saved up, so operations never burst.
+            if (mStarted == false || mNext - now < 0)
+            {
+                mStarted = true;
+                mNext    = now;
+            }
+
+            wait   = mNext - now;
+            mNext += mInterval;
+        }
+
+        if (0 < wait)
+        {
+            Thread.sleep(wait / 1000000L, (int)(wait % 1000000L));
+        }
+    }
+}
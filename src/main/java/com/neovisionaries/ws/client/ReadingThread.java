@@ -46,6 +46,9 @@ class ReadingThread extends WebSocketThread
     private CloseTask mCloseTask;
     private long mCloseDelay;
     private boolean mNotWaitForCloseFrame;
+    private final UTF8Decoder mUTF8Decoder = new UTF8Decoder();
+    private final CallbackDispatcher mCallbackDispatcher;
+    private final WebSocketTracer mTracer;
 
 
     public ReadingThread(WebSocket websocket)
@@ -53,6 +56,8 @@ class ReadingThread extends WebSocketThread
         super("ReadingThread", websocket, ThreadType.READING_THREAD);
 
         mPMCE = websocket.getPerMessageCompressionExtension();
+        mCallbackDispatcher = websocket.getCallbackDispatcher();
+        mTracer             = websocket.getTracer();
     }
 
 
@@ -224,15 +229,48 @@ class ReadingThread extends WebSocketThread
 
     /**
      * Call {@link WebSocketListener#onTextMessage(WebSocket, String)
-     * onTextMessage} method of the listeners.
+     * onTextMessage} method of the listeners, or {@link
+     * WebSocketListener#onTextMessageBytes(WebSocket, byte[]) onTextMessageBytes}
+     * method if {@link WebSocket#isDirectTextMessage()} returns {@code true}.
+     *
+     * @param validated
+     *         {@code true} if the data has already been validated as UTF-8
+     *         fragment by fragment.
+     *
+     * @return
+     *         {@code false} if the data is not a valid UTF-8 byte sequence.
      */
-    private void callOnTextMessage(byte[] data)
+    private boolean callOnTextMessage(byte[] data, boolean validated)
     {
+        // If the data has not been validated yet (= it was compressed).
+        if (validated == false && mUTF8Decoder.validateAll(data) == false)
+        {
+            // The payload of the text message is not valid UTF-8.
+            return failOnInvalidText(data);
+        }
+
+        // If the listeners want the byte array as it is.
+        if (mWebSocket.isDirectTextMessage())
+        {
+            // Call onTextMessageBytes() method of the listeners
+            // without constructing a string.
+            callOnDirectTextMessage(data);
+
+            return true;
+        }
+
+        // If no listener is interested in the text message.
+        if (mWebSocket.getListenerManager().hasListeners(ListenerEvent.ON_TEXT_MESSAGE) == false)
+        {
+            // Skip constructing a string.
+            return true;
+        }
+
         try
         {
             // Interpret the byte array as a string.
             // OutOfMemoryError may happen when the size of data is too big.
-            String message = Misc.toStringUTF8(data);
+            String message = mUTF8Decoder.decode(data);
 
             // Call onTextMessage() method of the listeners.
             callOnTextMessage(message);
@@ -248,6 +286,8 @@ class ReadingThread extends WebSocketThread
             callOnError(wse);
             callOnTextMessageError(wse, data);
         }
+
+        return true;
     }
 
 
@@ -257,7 +297,17 @@ class ReadingThread extends WebSocketThread
      */
     private void callOnTextMessage(String message)
     {
-        mWebSocket.getListenerManager().callOnTextMessage(message);
+        dispatchMessage(MessageCallback.TEXT, message);
+    }
+
+
+    /**
+     * Call {@link WebSocketListener#onTextMessageBytes(WebSocket, byte[])
+     * onTextMessageBytes} method of the listeners.
+     */
+    private void callOnDirectTextMessage(byte[] data)
+    {
+        dispatchMessage(MessageCallback.DIRECT_TEXT, data);
     }
 
 
@@ -267,7 +317,24 @@ class ReadingThread extends WebSocketThread
      */
     private void callOnBinaryMessage(byte[] message)
     {
-        mWebSocket.getListenerManager().callOnBinaryMessage(message);
+        dispatchMessage(MessageCallback.BINARY, message);
+    }
+
+
+    private void dispatchMessage(int type, Object message)
+    {
+        ListenerManager manager = mWebSocket.getListenerManager();
+
+        // If message callbacks are executed by the reading thread.
+        if (mCallbackDispatcher == null)
+        {
+            MessageCallback.call(manager, type, message);
+            return;
+        }
+
+        // Let the executor call the listeners. This blocks
+        // while the queue of the dispatcher is full.
+        mCallbackDispatcher.dispatch(new MessageCallback(manager, type, message));
     }
 
 
@@ -331,6 +398,15 @@ class ReadingThread extends WebSocketThread
             // Receive a frame from the server.
             frame = mWebSocket.getInput().readFrame();
 
+            // Count the frame and remember the time of the activity.
+            mWebSocket.getMetrics().onFrameReceived(frame);
+            mWebSocket.setLastReceivedAt(System.nanoTime());
+
+            if (mTracer != null)
+            {
+                traceFrameRead(frame);
+            }
+
             // Verify the frame. If invalid, WebSocketException is thrown.
             verifyFrame(frame);
 
@@ -769,6 +845,21 @@ class ReadingThread extends WebSocketThread
         // Notify the listeners that a continuation frame was received.
         callOnContinuationFrame(frame);
 
+        // The first frame of the continuation.
+        WebSocketFrame first = mContinuation.get(0);
+
+        // If the continuation forms an uncompressed text message.
+        if (first.isTextFrame() && isCompressed(first) == false)
+        {
+            // Validate the fragment now instead of after concatenation
+            // so that an invalid text message fails fast.
+            if (validateTextFragment(frame) == false)
+            {
+                // Stop reading.
+                return false;
+            }
+        }
+
         // Append the continuation frame to the existing continuation sequence.
         mContinuation.add(frame);
 
@@ -791,10 +882,15 @@ class ReadingThread extends WebSocketThread
         }
 
         // If the continuation forms a text message.
-        if (mContinuation.get(0).isTextFrame())
+        if (first.isTextFrame())
         {
             // Notify the listeners that a text message was received.
-            callOnTextMessage(data);
+            // Uncompressed fragments have been validated already.
+            if (callOnTextMessage(data, isCompressed(first) == false) == false)
+            {
+                // Stop reading.
+                return false;
+            }
         }
         else
         {
@@ -824,12 +920,18 @@ class ReadingThread extends WebSocketThread
 
         // If a per-message compression extension is enabled and
         // the Per-Message Compressed bit of the first frame is set.
-        if (mPMCE != null && frames.get(0).getRsv1())
+        if (isCompressed(frames.get(0)))
         {
             // Decompress the data.
             data = decompress(data);
         }
 
+        if (data != null)
+        {
+            // Count the message.
+            mWebSocket.getMetrics().onMessageReceived();
+        }
+
         return data;
     }
 
@@ -899,24 +1001,77 @@ class ReadingThread extends WebSocketThread
 
         // If a per-message compression extension is enabled and
         // the Per-Message Compressed bit of the frame is set.
-        if (mPMCE != null && frame.getRsv1())
+        if (isCompressed(frame))
         {
             // Decompress the payload.
             payload = decompress(payload);
+
+            if (payload == null)
+            {
+                // Decompression failed.
+                return null;
+            }
         }
 
+        // Count the message.
+        mWebSocket.getMetrics().onMessageReceived();
+
         return payload;
     }
 
 
+    private void traceFrameRead(WebSocketFrame frame)
+    {
+        try
+        {
+            mTracer.onFrameRead(mWebSocket, frame);
+        }
+        catch (Throwable t)
+        {
+            // Ignore any error raised by the tracer.
+        }
+    }
+
+
+    private void traceDecompression(int inputLength, int outputLength, long duration)
+    {
+        try
+        {
+            mTracer.onCompression(mWebSocket, false, inputLength, outputLength, duration);
+        }
+        catch (Throwable t)
+        {
+            // Ignore any error raised by the tracer.
+        }
+    }
+
+
+    private boolean isCompressed(WebSocketFrame frame)
+    {
+        return (mPMCE != null && frame.getRsv1());
+    }
+
+
     private byte[] decompress(byte[] input)
     {
         WebSocketException wse;
 
         try
         {
+            long startedAt = (mTracer != null) ? System.nanoTime() : 0;
+
             // Decompress the message.
-            return mPMCE.decompress(input);
+            byte[] output = mPMCE.decompress(input);
+
+            // Count the bytes.
+            mWebSocket.getMetrics().onDecompressed(input.length, output.length);
+
+            if (mTracer != null)
+            {
+                traceDecompression(input.length, output.length, System.nanoTime() - startedAt);
+            }
+
+            return output;
         }
         catch (WebSocketException e)
         {
@@ -945,6 +1100,22 @@ class ReadingThread extends WebSocketThread
         // Notify the listeners that a text frame was received.
         callOnTextFrame(frame);
 
+        // True if the payload is compressed. A compressed payload can be
+        // validated as UTF-8 only after the whole message is decompressed.
+        boolean compressed = isCompressed(frame);
+
+        if (compressed == false)
+        {
+            // Start validation of a new text message.
+            mUTF8Decoder.reset();
+
+            if (validateTextFragment(frame) == false)
+            {
+                // Stop reading.
+                return false;
+            }
+        }
+
         // If the frame indicates the start of fragmentation.
         if (frame.getFin() == false)
         {
@@ -960,10 +1131,62 @@ class ReadingThread extends WebSocketThread
         byte[] payload = getMessage(frame);
 
         // Notify the listeners that a text message was received.
-        callOnTextMessage(payload);
+        return callOnTextMessage(payload, compressed == false);
+    }
 
-        // Keep reading.
-        return true;
+
+    /**
+     * Validate the payload of a frame of an uncompressed text message.
+     * If the frame is the last one of the message, it is checked that
+     * the byte sequence of the message is complete.
+     *
+     * @return
+     *         {@code false} if the payload is not valid UTF-8. In this
+     *         case, the listeners have been notified and a close frame
+     *         has been queued.
+     */
+    private boolean validateTextFragment(WebSocketFrame frame)
+    {
+        if (mUTF8Decoder.validate(frame.getPayload()))
+        {
+            if (frame.getFin() == false || mUTF8Decoder.isComplete())
+            {
+                // Valid so far.
+                return true;
+            }
+        }
+
+        return failOnInvalidText(frame.getPayload());
+    }
+
+
+    private boolean failOnInvalidText(byte[] data)
+    {
+        // The payload of a text message is not valid UTF-8.
+        WebSocketException wse = new WebSocketException(
+            WebSocketError.INVALID_UTF8_PAYLOAD,
+            "The payload of a text message is not a valid UTF-8 byte sequence.");
+
+        // Notify the listeners that text message construction failed.
+        callOnError(wse);
+        callOnTextMessageError(wse, data);
+
+        // RFC 6455, 8.1. Handling Errors in UTF-8-Encoded Data
+        //
+        //   When an endpoint is to interpret a byte stream as UTF-8 but finds
+        //   that the byte stream is not, in fact, a valid UTF-8 stream, that
+        //   endpoint MUST _Fail the WebSocket Connection_.
+        //
+        WebSocketFrame frame = WebSocketFrame
+            .createCloseFrame(WebSocketCloseCode.INCONSISTENT, wse.getMessage());
+
+        // Send the close frame.
+        mWebSocket.sendFrame(frame);
+
+        // Clear the continuation, if any.
+        mContinuation.clear();
+
+        return false;
     }
 
 
@@ -1071,6 +1294,9 @@ class ReadingThread extends WebSocketThread
 
     private boolean handlePongFrame(WebSocketFrame frame)
     {
+        // Match the pong frame to the ping frame sent before.
+        mWebSocket.getPingTracker().onPongReceived(frame);
+
         // Notify the listeners that a pong frame was received.
         callOnPongFrame(frame);
 
@@ -1176,6 +1402,53 @@ class ReadingThread extends WebSocketThread
     }
 
 
+    private static class MessageCallback implements Runnable
+    {
+        static final int TEXT        = 0;
+        static final int DIRECT_TEXT = 1;
+        static final int BINARY      = 2;
+
+
+        private final ListenerManager mManager;
+        private final int mType;
+        private final Object mMessage;
+
+
+        MessageCallback(ListenerManager manager, int type, Object message)
+        {
+            mManager = manager;
+            mType    = type;
+            mMessage = message;
+        }
+
+
+        @Override
+        public void run()
+        {
+            call(mManager, mType, mMessage);
+        }
+
+
+        static void call(ListenerManager manager, int type, Object message)
+        {
+            switch (type)
+            {
+                case TEXT:
+                    manager.callOnTextMessage((String)message);
+                    break;
+
+                case DIRECT_TEXT:
+                    manager.callOnTextMessageBytes((byte[])message);
+                    break;
+
+                default:
+                    manager.callOnBinaryMessage((byte[])message);
+                    break;
+            }
+        }
+    }
+
+
     private class CloseTask extends TimerTask
     {
         @Override
@@ -1190,6 +1463,11 @@ class ReadingThread extends WebSocketThread
             {
                 // Ignore.
             }
+
+            // Terminate the timer thread. Otherwise, the thread remains
+            // when this task was scheduled after the reading thread had
+            // finished (e.g. when the server closed the connection first).
+            cancelClose();
         }
     }
 }
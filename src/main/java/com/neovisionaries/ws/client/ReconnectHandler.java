@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Handler of the events of {@link WebSocketReconnector}.
+ *
+ * @see WebSocketReconnector#setHandler(ReconnectHandler)
+ *
+ * @since 2.3
+ */
+public interface ReconnectHandler
+{
+    /**
+     * Called when a new WebSocket has completed the opening handshake,
+     * before its writing thread starts.
+     *
+     * <p>
+     * Frames sent to the WebSocket in this method are written before any
+     * other frames, including frames sent by {@link
+     * WebSocketListener#onConnected(WebSocket, java.util.Map) onConnected}
+     * of the listeners. This is the place to re-send subscription messages.
+     * This method is called on the thread of the reconnector and should
+     * not block.
+     * </p>
+     *
+     * @param websocket
+     *         The new WebSocket, which replaces the disconnected one.
+     */
+    void onReconnected(WebSocket websocket);
+
+
+    /**
+     * Called when the reconnector gave up after {@link
+     * ReconnectPolicy#getMaxAttempts() the maximum number of attempts}.
+     *
+     * @param websocket
+     *         The WebSocket of the last failed attempt.
+     *
+     * @param cause
+     *         The error of the last attempt.
+     */
+    void onReconnectFailed(WebSocket websocket, WebSocketException cause);
+}
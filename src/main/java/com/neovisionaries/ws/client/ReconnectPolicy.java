@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.Random;
+
+
+/**
+ * Backoff policy of {@link WebSocketReconnector}.
+ *
+ * <p>
+ * The delay before the <i>n</i>-th attempt (1-based) is chosen at random
+ * between 0 and {@code min(maxDelay, initialDelay * multiplier}<sup><i>n</i>-1</sup>{@code )}
+ * ("full jitter"). Randomizing the whole delay spreads the reconnections
+ * of many clients disconnected at the same time, e.g. by a server
+ * restart, instead of letting them hit the server in waves.
+ * </p>
+ *
+ * <pre style="border-left: solid 5px lightgray;"> ReconnectPolicy policy = new ReconnectPolicy()
+ *     .setInitialDelay(500)
+ *     .setMaxDelay(30000)
+ *     .setMaxAttempts(20);</pre>
+ *
+ * @see WebSocketReconnector
+ *
+ * @since 2.3
+ */
+public class ReconnectPolicy
+{
+    private long mInitialDelay = 1000;
+    private long mMaxDelay = 60 * 1000;
+    private double mMultiplier = 2.0;
+    private int mMaxAttempts;
+
+
+    /**
+     * Get the upper bound of the delay before the first attempt.
+     * The default value is 1000 milliseconds.
+     *
+     * @return
+     *         The initial delay in milliseconds.
+     */
+    public long getInitialDelay()
+    {
+        return mInitialDelay;
+    }
+
+
+    /**
+     * Set the upper bound of the delay before the first attempt.
+     *
+     * @param delay
+     *         The initial delay in milliseconds.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given delay is negative.
+     */
+    public ReconnectPolicy setInitialDelay(long delay)
+    {
+        if (delay < 0)
+        {
+            throw new IllegalArgumentException("delay cannot be negative.");
+        }
+
+        mInitialDelay = delay;
+
+        return this;
+    }
+
+
+    /**
+     * Get the maximum delay between attempts. The default value is
+     * 60 seconds.
+     *
+     * @return
+     *         The maximum delay in milliseconds.
+     */
+    public long getMaxDelay()
+    {
+        return mMaxDelay;
+    }
+
+
+    /**
+     * Set the maximum delay between attempts.
+     *
+     * @param delay
+     *         The maximum delay in milliseconds.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given delay is negative.
+     */
+    public ReconnectPolicy setMaxDelay(long delay)
+    {
+        if (delay < 0)
+        {
+            throw new IllegalArgumentException("delay cannot be negative.");
+        }
+
+        mMaxDelay = delay;
+
+        return this;
+    }
+
+
+    /**
+     * Get the factor by which the upper bound of the delay grows after
+     * each failed attempt. The default value is 2.
+     *
+     * @return
+     *         The multiplier.
+     */
+    public double getMultiplier()
+    {
+        return mMultiplier;
+    }
+
+
+    /**
+     * Set the factor by which the upper bound of the delay grows after
+     * each failed attempt.
+     *
+     * @param multiplier
+     *         The multiplier.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given multiplier is less than 1.
+     */
+    public ReconnectPolicy setMultiplier(double multiplier)
+    {
+        if (multiplier < 1)
+        {
+            throw new IllegalArgumentException("multiplier must be at least 1.");
+        }
+
+        mMultiplier = multiplier;
+
+        return this;
+    }
+
+
+    /**
+     * Get the maximum number of consecutive attempts. The default value
+     * is 0, which means no limit.
+     *
+     * @return
+     *         The maximum number of attempts.
+     */
+    public int getMaxAttempts()
+    {
+        return mMaxAttempts;
+    }
+
+
+    /**
+     * Set the maximum number of consecutive attempts. When all of them
+     * fail, the reconnector gives up and calls {@link
+     * ReconnectHandler#onReconnectFailed(WebSocket, WebSocketException)}.
+     *
+     * @param attempts
+     *         The maximum number of attempts. 0 means no limit.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given number is negative.
+     */
+    public ReconnectPolicy setMaxAttempts(int attempts)
+    {
+        if (attempts < 0)
+        {
+            throw new IllegalArgumentException("attempts cannot be negative.");
+        }
+
+        mMaxAttempts = attempts;
+
+        return this;
+    }
+
+
+    /**
+     * Compute the delay before the given attempt.
+     *
+     * @param attempt
+     *         The attempt number, starting from 1.
+     *
+     * @return
+     *         The delay in milliseconds.
+     */
+    long computeDelay(int attempt, Random random)
+    {
+        double ceiling = mInitialDelay * Math.pow(mMultiplier, attempt - 1);
+        double cap     = Math.min(ceiling, mMaxDelay);
+
+        // Full jitter.
+        return (long)(random.nextDouble() * cap);
+    }
+}
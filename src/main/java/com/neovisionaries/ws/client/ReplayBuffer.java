@@ -0,0 +1,463 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+
+/**
+ * A bounded buffer of outbound data frames which have not been
+ * acknowledged by the application protocol yet.
+ *
+ * <p>
+ * When a replay buffer is set to a WebSocket by {@link
+ * WebSocket#setReplayBuffer(ReplayBuffer)}, every data frame (text, binary
+ * and continuation) passed to {@link WebSocket#sendFrame(WebSocketFrame)}
+ * is copied into the buffer and given a sequence number, 1, 2, 3 and so on
+ * in the order in which the frames are queued. Frames sent while the
+ * WebSocket is not open are recorded, too. The buffer is shared with the
+ * WebSockets created by {@link WebSocket#recreate()}, and when one of them
+ * gets connected, the frames in the buffer are sent again in order ahead
+ * of any new frame (but after frames sent by {@link
+ * ReconnectHandler#onReconnected(WebSocket)}, which are not recorded).
+ * </p>
+ *
+ * <p>
+ * The application removes frames which the server has processed by
+ * {@link #acknowledge(long)}, typically when it receives an application
+ * level acknowledgement. The server should be prepared to receive frames
+ * it has already processed again after a reconnection.
+ * </p>
+ *
+ * <p>
+ * Payloads are stored in a single ring buffer of the given capacity,
+ * which can be allocated outside the Java heap to keep large backlogs
+ * away from the garbage collector. When the buffer is full, the oldest
+ * messages are discarded and their frames are counted by {@link
+ * #getDroppedCount()}. A fragmented message is always kept or discarded
+ * as a whole, and one which has not been finished is not replayed. Note
+ * that the buffer holds payloads before compression.
+ * </p>
+ *
+ * @see WebSocket#setReplayBuffer(ReplayBuffer)
+ *
+ * @since 2.3
+ */
+public class ReplayBuffer
+{
+    private final ByteBuffer mBuffer;
+    private final LinkedList<Entry> mEntries = new LinkedList<Entry>();
+    private int mHead;
+    private int mSize;
+    private long mLastSequence;
+    private long mDroppedCount;
+    private boolean mInMessage;
+    private boolean mDamaged;
+
+
+    /**
+     * A frame in the buffer.
+     */
+    private static class Entry
+    {
+        private final long mSequence;
+        private final int mOpcode;
+        private final boolean mFin;
+        private final int mOffset;
+        private final int mLength;
+
+
+        Entry(long sequence, int opcode, boolean fin, int offset, int length)
+        {
+            mSequence = sequence;
+            mOpcode   = opcode;
+            mFin      = fin;
+            mOffset   = offset;
+            mLength   = length;
+        }
+    }
+
+
+    /**
+     * Constructor with a buffer on the Java heap.
+     *
+     * @param capacity
+     *         The maximum total size of payloads in bytes.
+     *
+     * @throws IllegalArgumentException
+     *         The given capacity is less than 1.
+     */
+    public ReplayBuffer(int capacity)
+    {
+        this(capacity, false);
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param capacity
+     *         The maximum total size of payloads in bytes.
+     *
+     * @param direct
+     *         {@code true} to allocate the buffer outside the Java heap
+     *         by {@link ByteBuffer#allocateDirect(int)}.
+     *
+     * @throws IllegalArgumentException
+     *         The given capacity is less than 1.
+     */
+    public ReplayBuffer(int capacity, boolean direct)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("capacity must be at least 1.");
+        }
+
+        mBuffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+
+    /**
+     * Get the capacity of the buffer.
+     *
+     * @return
+     *         The maximum total size of payloads in bytes.
+     */
+    public int getCapacity()
+    {
+        return mBuffer.capacity();
+    }
+
+
+    /**
+     * Check if the buffer is allocated outside the Java heap.
+     *
+     * @return
+     *         {@code true} if the buffer is a direct buffer.
+     */
+    public boolean isDirect()
+    {
+        return mBuffer.isDirect();
+    }
+
+
+    /**
+     * Get the total size of the payloads in the buffer.
+     *
+     * @return
+     *         The size in bytes.
+     */
+    public synchronized int getSize()
+    {
+        return mSize;
+    }
+
+
+    /**
+     * Get the number of frames in the buffer.
+     *
+     * @return
+     *         The number of unacknowledged frames.
+     */
+    public synchronized int getFrameCount()
+    {
+        return mEntries.size();
+    }
+
+
+    /**
+     * Get the sequence number given to the most recent frame.
+     *
+     * @return
+     *         The last sequence number. 0 if no frame has been recorded.
+     */
+    public synchronized long getLastSequence()
+    {
+        return mLastSequence;
+    }
+
+
+    /**
+     * Get the number of frames discarded without acknowledgement
+     * because the buffer was full.
+     *
+     * @return
+     *         The number of dropped frames.
+     */
+    public synchronized long getDroppedCount()
+    {
+        return mDroppedCount;
+    }
+
+
+    /**
+     * Remove the frames whose sequence numbers are equal to or less than
+     * the given one.
+     *
+     * @param sequence
+     *         The sequence number of the last frame processed by the server.
+     *
+     * @return
+     *         The number of frames removed.
+     */
+    public synchronized int acknowledge(long sequence)
+    {
+        int count = 0;
+
+        while (mEntries.size() != 0 && mEntries.getFirst().mSequence <= sequence)
+        {
+            removeFirst();
+            count++;
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Remove all the frames. The sequence number is not reset.
+     */
+    public synchronized void clear()
+    {
+        mEntries.clear();
+        mHead = 0;
+        mSize = 0;
+
+        // The rest of a fragmented message being sent cannot be replayed.
+        mDamaged = mInMessage;
+    }
+
+
+    /**
+     * Copy a data frame into the buffer.
+     *
+     * <p>
+     * When a fragment of a message cannot be kept (because it is larger
+     * than the capacity or the first fragments have been evicted), all the
+     * fragments of the message are dropped so that a message with a hole
+     * is never replayed.
+     * </p>
+     *
+     * @return
+     *         The sequence number given to the frame.
+     */
+    synchronized long add(WebSocketFrame frame)
+    {
+        byte[] payload = frame.getPayload();
+        int length     = (payload == null) ? 0 : payload.length;
+        long sequence  = ++mLastSequence;
+        boolean first  = (frame.getOpcode() != WebSocketOpcode.CONTINUATION);
+        boolean fin    = frame.getFin();
+
+        if (first)
+        {
+            // A new message starts.
+            mDamaged = false;
+        }
+
+        mInMessage = (fin == false);
+
+        if (mDamaged == false && getCapacity() < length)
+        {
+            // The frame can never be stored. Drop the fragments of
+            // the message kept so far, too.
+            mDamaged = true;
+            dropLastMessage();
+        }
+
+        if (mDamaged == false)
+        {
+            // Make room for the frame by discarding the oldest messages.
+            while (getCapacity() - mSize < length)
+            {
+                dropFirstMessage(first);
+            }
+        }
+
+        if (mDamaged)
+        {
+            // The message has lost a fragment.
+            mDroppedCount++;
+
+            if (fin)
+            {
+                mDamaged = false;
+            }
+
+            return sequence;
+        }
+
+        int offset = (mHead + mSize) % getCapacity();
+
+        if (0 < length)
+        {
+            write(offset, payload);
+        }
+
+        mEntries.addLast(new Entry(sequence, frame.getOpcode(), fin, offset, length));
+        mSize += length;
+
+        return sequence;
+    }
+
+
+    /**
+     * Get copies of the frames in the buffer to send them again. Only
+     * complete messages are returned, so that frames sent after them
+     * (e.g. by {@link ReconnectHandler}) are not put in the middle of
+     * a fragmented message.
+     */
+    synchronized List<WebSocketFrame> getFrames()
+    {
+        List<WebSocketFrame> frames = new ArrayList<WebSocketFrame>(mEntries.size());
+
+        // The index of the first fragment of the current message.
+        int messageStart = 0;
+
+        for (Entry entry : mEntries)
+        {
+            // A message whose first fragment has been acknowledged
+            // cannot be sent again.
+            if (frames.size() == messageStart && entry.mOpcode == WebSocketOpcode.CONTINUATION)
+            {
+                continue;
+            }
+
+            frames.add(new WebSocketFrame()
+                .setFin(entry.mFin)
+                .setOpcode(entry.mOpcode)
+                .setPayload(read(entry.mOffset, entry.mLength)));
+
+            if (entry.mFin)
+            {
+                messageStart = frames.size();
+            }
+        }
+
+        // Drop the fragments of the message which has not been finished.
+        while (messageStart < frames.size())
+        {
+            frames.remove(frames.size() - 1);
+        }
+
+        return frames;
+    }
+
+
+    /**
+     * Discard the oldest message. If it is the message to which the frame
+     * being added belongs, the message is marked as damaged.
+     *
+     * @param first
+     *         {@code true} if the frame being added starts a new message.
+     */
+    private void dropFirstMessage(boolean first)
+    {
+        while (mEntries.size() != 0)
+        {
+            Entry entry = removeFirst();
+            mDroppedCount++;
+
+            if (entry.mFin)
+            {
+                return;
+            }
+        }
+
+        // All the kept fragments belonged to the message being added.
+        if (first == false)
+        {
+            mDamaged = true;
+        }
+    }
+
+
+    /**
+     * Discard the fragments of the message being added.
+     */
+    private void dropLastMessage()
+    {
+        while (mEntries.size() != 0 && mEntries.getLast().mFin == false)
+        {
+            Entry entry = mEntries.removeLast();
+
+            mSize -= entry.mLength;
+            mDroppedCount++;
+        }
+
+        if (mEntries.size() == 0)
+        {
+            mHead = 0;
+        }
+    }
+
+
+    private Entry removeFirst()
+    {
+        Entry entry = mEntries.removeFirst();
+
+        mSize -= entry.mLength;
+        mHead  = (mEntries.size() == 0) ? 0 : mEntries.getFirst().mOffset;
+
+        return entry;
+    }
+
+
+    private void write(int offset, byte[] data)
+    {
+        // The part up to the end of the ring.
+        int first = Math.min(data.length, getCapacity() - offset);
+
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.position(offset);
+        buffer.put(data, 0, first);
+
+        if (first < data.length)
+        {
+            // The rest goes to the beginning of the ring.
+            buffer.position(0);
+            buffer.put(data, first, data.length - first);
+        }
+    }
+
+
+    private byte[] read(int offset, int length)
+    {
+        if (length == 0)
+        {
+            return null;
+        }
+
+        byte[] data = new byte[length];
+        int first   = Math.min(length, getCapacity() - offset);
+
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.position(offset);
+        buffer.get(data, 0, first);
+
+        if (first < length)
+        {
+            buffer.position(0);
+            buffer.get(data, first, length - first);
+        }
+
+        return data;
+    }
+}
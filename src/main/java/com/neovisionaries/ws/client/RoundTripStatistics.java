@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Round-trip times measured by matching
+ * <a href="https://tools.ietf.org/html/rfc6455#section-5.5.3">pong</a>
+ * frames to <a href="https://tools.ietf.org/html/rfc6455#section-5.5.2"
+ * >ping</a> frames.
+ *
+ * <p>
+ * A round-trip time is measured from when a ping frame was written to
+ * the socket until the pong frame with the same payload was read.
+ * Both periodical pings ({@link WebSocket#setPingInterval(long)}) and
+ * pings sent explicitly are measured. An instance is a snapshot taken
+ * when {@link WebSocket#getRoundTripStatistics()} is called.
+ * </p>
+ *
+ * @since 2.3
+ */
+public class RoundTripStatistics
+{
+    private final long mLast;
+    private final long mMin;
+    private final long mSmoothed;
+    private final LatencyHistogram mHistogram;
+    private final int mOutstandingCount;
+    private final long mUnmatchedCount;
+    private final long mTimeoutCount;
+
+
+    RoundTripStatistics(
+            long last, long min, long smoothed, LatencyHistogram histogram,
+            int outstandingCount, long unmatchedCount, long timeoutCount)
+    {
+        mLast             = last;
+        mMin              = min;
+        mSmoothed         = smoothed;
+        mHistogram        = histogram;
+        mOutstandingCount = outstandingCount;
+        mUnmatchedCount   = unmatchedCount;
+        mTimeoutCount     = timeoutCount;
+    }
+
+
+    /**
+     * Get the last round-trip time.
+     *
+     * @return
+     *         The last round-trip time in nanoseconds. -1 if no pong
+     *         frame has been matched yet.
+     */
+    public long getLast()
+    {
+        return mLast;
+    }
+
+
+    /**
+     * Get the minimum round-trip time.
+     *
+     * @return
+     *         The minimum round-trip time in nanoseconds. -1 if no pong
+     *         frame has been matched yet.
+     */
+    public long getMin()
+    {
+        return mMin;
+    }
+
+
+    /**
+     * Get the smoothed round-trip time, which is an exponentially weighted
+     * moving average with the weight 1/8 for a new sample like TCP's SRTT.
+     *
+     * @return
+     *         The smoothed round-trip time in nanoseconds. -1 if no pong
+     *         frame has been matched yet.
+     */
+    public long getSmoothed()
+    {
+        return mSmoothed;
+    }
+
+
+    /**
+     * Get the histogram of the round-trip times, from which percentiles
+     * can be obtained.
+     *
+     * @return
+     *         The histogram of round-trip times.
+     */
+    public LatencyHistogram getHistogram()
+    {
+        return mHistogram;
+    }
+
+
+    /**
+     * Get the number of ping frames waiting for pong frames.
+     *
+     * @return
+     *         The number of outstanding pings.
+     */
+    public int getOutstandingCount()
+    {
+        return mOutstandingCount;
+    }
+
+
+    /**
+     * Get the number of pong frames which did not match any outstanding
+     * ping frame (e.g. unsolicited pongs).
+     *
+     * @return
+     *         The number of unmatched pong frames.
+     */
+    public long getUnmatchedCount()
+    {
+        return mUnmatchedCount;
+    }
+
+
+    /**
+     * Get the number of times a pong frame did not arrive within the
+     * timeout set by {@link WebSocket#setPongTimeout(long)}.
+     *
+     * @return
+     *         The number of pong timeouts.
+     */
+    public long getTimeoutCount()
+    {
+        return mTimeoutCount;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+            "RoundTripStatistics(last=%dns, min=%dns, smoothed=%dns, p99=%dns, outstanding=%d, unmatched=%d, timeouts=%d)",
+            mLast, mMin, mSmoothed, mHistogram.getPercentile(99),
+            mOutstandingCount, mUnmatchedCount, mTimeoutCount);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Latency histograms of the sending path of the writing thread.
+ *
+ * <p>
+ * Recording is enabled by {@link WebSocket#setSendLatencyRecording(boolean)}.
+ * Three latencies are recorded for each frame.
+ * </p>
+ *
+ * <ol>
+ *   <li>{@link #getQueueTime() Queue time}: from when the frame was queued
+ *       by {@code sendXxx} methods until the writing thread picked it up.</li>
+ *   <li>{@link #getWriteTime() Write time}: time spent in compressing,
+ *       masking and writing the frame to the output stream.</li>
+ *   <li>{@link #getFlushTime() Flush time}: time spent in flushing the
+ *       output stream (recorded per flush, not per frame).</li>
+ * </ol>
+ *
+ * @see WebSocket#getSendLatencies()
+ * @see WebSocketFactory#getSendLatencies()
+ *
+ * @since 2.3
+ */
+public class SendLatencies
+{
+    private final LatencyHistogram mQueueTime;
+    private final LatencyHistogram mWriteTime;
+    private final LatencyHistogram mFlushTime;
+
+
+    /**
+     * @param parent
+     *         Latencies to which recorded values are also added.
+     *         May be {@code null}.
+     */
+    SendLatencies(SendLatencies parent)
+    {
+        mQueueTime = new LatencyHistogram(parent == null ? null : parent.mQueueTime);
+        mWriteTime = new LatencyHistogram(parent == null ? null : parent.mWriteTime);
+        mFlushTime = new LatencyHistogram(parent == null ? null : parent.mFlushTime);
+    }
+
+
+    void recordQueueTime(long nanos)
+    {
+        mQueueTime.record(nanos);
+    }
+
+
+    void recordWriteTime(long nanos)
+    {
+        mWriteTime.record(nanos);
+    }
+
+
+    void recordFlushTime(long nanos)
+    {
+        mFlushTime.record(nanos);
+    }
+
+
+    /**
+     * Get a snapshot of the histogram of the time frames spent in the
+     * queue of the writing thread.
+     *
+     * @return
+     *         A snapshot of the queue time histogram.
+     */
+    public LatencyHistogram getQueueTime()
+    {
+        return mQueueTime.snapshot();
+    }
+
+
+    /**
+     * Get a snapshot of the histogram of the time spent in compressing,
+     * masking and writing a frame.
+     *
+     * @return
+     *         A snapshot of the write time histogram.
+     */
+    public LatencyHistogram getWriteTime()
+    {
+        return mWriteTime.snapshot();
+    }
+
+
+    /**
+     * Get a snapshot of the histogram of the time spent in flushing.
+     *
+     * @return
+     *         A snapshot of the flush time histogram.
+     */
+    public LatencyHistogram getFlushTime()
+    {
+        return mFlushTime.snapshot();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format("SendLatencies(queue=%s, write=%s, flush=%s)",
+            getQueueTime(), getWriteTime(), getFlushTime());
+    }
+}
@@ -17,7 +17,11 @@ package com.neovisionaries.ws.client;
 
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.UnknownHostException;
+import javax.net.SocketFactory;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
@@ -32,29 +36,45 @@ import javax.net.ssl.SSLSocketFactory;
  */
 class SocketConnector
 {
+    private final SocketFactory mSocketFactory;
     private Socket mSocket;
     private final Address mAddress;
     private final int mConnectionTimeout;
+    private final DnsCache mDnsCache;
+    private final AddressStatistics mStatistics;
+    private final int mAttemptDelay;
+    private final HostnameVerificationCache mVerificationCache;
     private final ProxyHandshaker mProxyHandshaker;
     private final SSLSocketFactory mSSLSocketFactory;
     private final String mHost;
     private final int mPort;
+    private WebSocket mWebSocket;
 
 
-    SocketConnector(Socket socket, Address address, int timeout)
+    SocketConnector(
+            SocketFactory socketFactory, Socket socket, Address address,
+            int timeout, DnsCache dnsCache, AddressStatistics statistics, int attemptDelay,
+            HostnameVerificationCache verificationCache)
     {
-        this(socket, address, timeout, null, null, null, 0);
+        this(socketFactory, socket, address, timeout, dnsCache, statistics, attemptDelay,
+             verificationCache, null, null, null, 0);
     }
 
 
     SocketConnector(
-            Socket socket, Address address, int timeout,
-            ProxyHandshaker handshaker, SSLSocketFactory sslSocketFactory,
+            SocketFactory socketFactory, Socket socket, Address address,
+            int timeout, DnsCache dnsCache, AddressStatistics statistics, int attemptDelay,
+            HostnameVerificationCache verificationCache, ProxyHandshaker handshaker, SSLSocketFactory sslSocketFactory,
             String host, int port)
     {
+        mSocketFactory     = socketFactory;
         mSocket            = socket;
         mAddress           = address;
         mConnectionTimeout = timeout;
+        mDnsCache          = dnsCache;
+        mStatistics        = statistics;
+        mAttemptDelay      = attemptDelay;
+        mVerificationCache = verificationCache;
         mProxyHandshaker   = handshaker;
         mSSLSocketFactory  = sslSocketFactory;
         mHost              = host;
@@ -62,6 +82,16 @@ class SocketConnector
     }
 
 
+    /**
+     * Set the WebSocket to which the durations of the connection phases
+     * are reported.
+     */
+    void setWebSocket(WebSocket websocket)
+    {
+        mWebSocket = websocket;
+    }
+
+
     public Socket getSocket()
     {
         return mSocket;
@@ -105,48 +135,215 @@ class SocketConnector
         // True if a proxy server is set.
         boolean proxied = mProxyHandshaker != null;
 
+        // Resolve the host name into all its addresses.
+        InetAddress[] addresses = resolve();
+
+        // Connect to the server (either a proxy or a WebSocket endpoint).
+        connectSocket(addresses);
+
+        if (mSocket instanceof SSLSocket)
+        {
+            // Perform the SSL handshake explicitly so that its duration
+            // can be measured separately from the TCP connection.
+            startHandshake((SSLSocket)mSocket);
+
+            // Verify that the hostname matches the certificate here since
+            // this is not automatically done by the SSLSocket.
+            verifyHostname((SSLSocket)mSocket, mAddress.getHostname());
+        }
+
+        // If a proxy server is set.
+        if (proxied)
+        {
+            // Perform handshake with the proxy server.
+            // SSL handshake is performed as necessary, too.
+            handshake();
+        }
+    }
+
+
+    private InetAddress[] resolve() throws WebSocketException
+    {
+        long startedAt = System.nanoTime();
+
         try
         {
-            // Connect to the server (either a proxy or a WebSocket endpoint).
-            mSocket.connect(mAddress.toInetSocketAddress(), mConnectionTimeout);
+            // Resolve the host name. The result may come from the cache.
+            InetAddress[] addresses = mDnsCache.resolve(mAddress.getHostname());
+
+            record(ConnectPhase.DNS_LOOKUP, startedAt, null);
+
+            return addresses;
+        }
+        catch (UnknownHostException e)
+        {
+            record(ConnectPhase.DNS_LOOKUP, startedAt, e);
+
+            // Failed to resolve the host name.
+            String message = String.format("Failed to resolve the host name of %s'%s'",
+                (mProxyHandshaker != null ? "the proxy " : ""), mAddress);
 
-            if (mSocket instanceof SSLSocket)
+            // Raise an exception with SOCKET_CONNECT_ERROR.
+            throw new WebSocketException(WebSocketError.SOCKET_CONNECT_ERROR, message, e);
+        }
+    }
+
+
+    /**
+     * Connect the socket to one of the addresses. The addresses are
+     * tried until a connection is established, so that an unreachable
+     * address does not make the whole connection fail.
+     */
+    private void connectSocket(InetAddress[] addresses) throws WebSocketException
+    {
+        long startedAt = System.nanoTime();
+
+        // True if connection attempts should be raced.
+        boolean racing = (0 < mAttemptDelay && 1 < addresses.length);
+
+        // Try the addresses which worked last time first.
+        addresses = mStatistics.sort(addresses, racing);
+
+        // The options set to the first socket by the application.
+        // They are applied to the sockets created for other addresses.
+        SocketOptions options = (addresses.length < 2) ? null : new SocketOptions(mSocket);
+
+        try
+        {
+            if (racing)
+            {
+                mSocket = new SocketRacer(mSocketFactory, options, mAddress.getPort(),
+                        mConnectionTimeout, mAttemptDelay, mStatistics).race(mSocket, addresses);
+            }
+            else
             {
-                // Verify that the hostname matches the certificate here since
-                // this is not automatically done by the SSLSocket.
-                verifyHostname((SSLSocket)mSocket, mAddress.getHostname());
+                connectSequentially(addresses, options);
             }
+
+            record(ConnectPhase.SOCKET_CONNECT, startedAt, null);
         }
         catch (IOException e)
         {
+            record(ConnectPhase.SOCKET_CONNECT, startedAt, e);
+
             // Failed to connect the server.
-            String message = String.format("Failed to connect to %s'%s': %s",
-                (proxied ? "the proxy " : ""), mAddress, e.getMessage());
+            String message = String.format("Failed to connect to %s'%s'%s: %s",
+                (mProxyHandshaker != null ? "the proxy " : ""), mAddress,
+                (addresses.length < 2 ? "" : " (" + addresses.length + " addresses tried)"),
+                e.getMessage());
 
             // Raise an exception with SOCKET_CONNECT_ERROR.
             throw new WebSocketException(WebSocketError.SOCKET_CONNECT_ERROR, message, e);
         }
+    }
 
-        // If a proxy server is set.
-        if (proxied)
+
+    private void connectSequentially(InetAddress[] addresses, SocketOptions options) throws IOException
+    {
+        IOException error = null;
+
+        for (int i = 0; i < addresses.length; ++i)
         {
-            // Perform handshake with the proxy server.
-            // SSL handshake is performed as necessary, too.
-            handshake();
+            if (i != 0)
+            {
+                // The previous attempt failed. A socket cannot be
+                // reconnected once connect() has failed.
+                closeSilently();
+
+                // Let the socket factory create a socket and set it up
+                // in the same way as the first one.
+                mSocket = options.applyTo(mSocketFactory.createSocket());
+            }
+
+            long startedAt = System.nanoTime();
+
+            try
+            {
+                mSocket.connect(new InetSocketAddress(addresses[i], mAddress.getPort()), mConnectionTimeout);
+            }
+            catch (IOException e)
+            {
+                mStatistics.onFailure(addresses[i]);
+                error = e;
+                continue;
+            }
+
+            mStatistics.onSuccess(addresses[i], System.nanoTime() - startedAt);
+
+            // Connected.
+            return;
+        }
+
+        throw error;
+    }
+
+
+    private void startHandshake(SSLSocket socket) throws WebSocketException
+    {
+        long startedAt = System.nanoTime();
+
+        try
+        {
+            // Start the SSL handshake manually.
+            socket.startHandshake();
+
+            record(ConnectPhase.TLS_HANDSHAKE, startedAt, null);
+        }
+        catch (IOException e)
+        {
+            record(ConnectPhase.TLS_HANDSHAKE, startedAt, e);
+
+            // SSL handshake with the WebSocket endpoint failed.
+            String message = String.format(
+                "SSL handshake with the WebSocket endpoint (%s) failed: %s", mAddress, e.getMessage());
+
+            // Raise an exception with SSL_HANDSHAKE_ERROR.
+            throw new WebSocketException(WebSocketError.SSL_HANDSHAKE_ERROR, message, e);
+        }
+
+        if (mWebSocket != null)
+        {
+            // Let the WebSocket check whether the session was resumed.
+            mWebSocket.onTlsSession(socket.getSession());
+        }
+    }
+
+
+    private void record(ConnectPhase phase, long startedAt, Throwable error)
+    {
+        if (mWebSocket != null)
+        {
+            mWebSocket.onConnectPhase(phase, System.nanoTime() - startedAt, error);
         }
     }
 
 
     private void verifyHostname(SSLSocket socket, String hostname) throws HostnameUnverifiedException
     {
-        // Hostname verifier.
-        OkHostnameVerifier verifier = OkHostnameVerifier.INSTANCE;
+        long startedAt = System.nanoTime();
+
+        try
+        {
+            doVerifyHostname(socket, hostname);
+        }
+        catch (HostnameUnverifiedException e)
+        {
+            record(ConnectPhase.HOSTNAME_VERIFICATION, startedAt, e);
+            throw e;
+        }
+
+        record(ConnectPhase.HOSTNAME_VERIFICATION, startedAt, null);
+    }
+
 
+    private void doVerifyHostname(SSLSocket socket, String hostname) throws HostnameUnverifiedException
+    {
         // The SSL session.
         SSLSession session = socket.getSession();
 
-        // Verify the hostname.
-        if (verifier.verify(hostname, session))
+        // Verify the hostname. The result of the previous verification
+        // against the same certificate is reused.
+        if (mVerificationCache.verify(hostname, session))
         {
             // Verified. No problem.
             return;
@@ -162,13 +359,19 @@ class SocketConnector
      */
     private void handshake() throws WebSocketException
     {
+        long startedAt = System.nanoTime();
+
         try
         {
             // Perform handshake with the proxy server.
-            mProxyHandshaker.perform();
+            mProxyHandshaker.perform(mSocket);
+
+            record(ConnectPhase.PROXY_HANDSHAKE, startedAt, null);
         }
         catch (IOException e)
         {
+            record(ConnectPhase.PROXY_HANDSHAKE, startedAt, e);
+
             // Handshake with the proxy server failed.
             String message = String.format(
                 "Handshake with the proxy server (%s) failed: %s", mAddress, e.getMessage());
@@ -197,28 +400,13 @@ class SocketConnector
             throw new WebSocketException(WebSocketError.SOCKET_OVERLAY_ERROR, message, e);
         }
 
-        try
-        {
-            // Start the SSL handshake manually. As for the reason, see
-            // http://docs.oracle.com/javase/7/docs/technotes/guides/security/jsse/samples/sockets/client/SSLSocketClient.java
-            ((SSLSocket)mSocket).startHandshake();
-
-            if (mSocket instanceof SSLSocket)
-            {
-                // Verify that the proxied hostname matches the certificate here since
-                // this is not automatically done by the SSLSocket.
-                verifyHostname((SSLSocket)mSocket, mProxyHandshaker.getProxiedHostname());
-            }
-        }
-        catch (IOException e)
-        {
-            // SSL handshake with the WebSocket endpoint failed.
-            String message = String.format(
-                "SSL handshake with the WebSocket endpoint (%s) failed: %s", mAddress, e.getMessage());
+        // Start the SSL handshake manually. As for the reason, see
+        // http://docs.oracle.com/javase/7/docs/technotes/guides/security/jsse/samples/sockets/client/SSLSocketClient.java
+        startHandshake((SSLSocket)mSocket);
 
-            // Raise an exception with SSL_HANDSHAKE_ERROR.
-            throw new WebSocketException(WebSocketError.SSL_HANDSHAKE_ERROR, message, e);
-        }
+        // Verify that the proxied hostname matches the certificate here since
+        // this is not automatically done by the SSLSocket.
+        verifyHostname((SSLSocket)mSocket, mProxyHandshaker.getProxiedHostname());
     }
 
 
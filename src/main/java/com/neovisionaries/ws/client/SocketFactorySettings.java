@@ -16,8 +16,10 @@
 package com.neovisionaries.ws.client;
 
 
+import java.security.NoSuchAlgorithmException;
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocketFactory;
 
 
@@ -88,4 +90,29 @@ class SocketFactorySettings
 
         return SocketFactory.getDefault();
     }
+
+
+    public SSLSessionContext selectSSLSessionContext()
+    {
+        if (mSSLContext != null)
+        {
+            return mSSLContext.getClientSessionContext();
+        }
+
+        if (mSSLSocketFactory != null)
+        {
+            // The SSL context behind the factory is unknown.
+            return null;
+        }
+
+        try
+        {
+            return SSLContext.getDefault().getClientSessionContext();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // The default SSL context is not available.
+            return null;
+        }
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.io.IOException;
+import java.net.Socket;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+
+
+/**
+ * Socket options set on a socket by the application, which should
+ * survive the replacement of the socket by another one created for
+ * a different address of the same host.
+ *
+ * @since 2.3
+ */
+class SocketOptions
+{
+    private final int mSoTimeout;
+    private final boolean mTcpNoDelay;
+    private final boolean mKeepAlive;
+    private final SSLParameters mSSLParameters;
+    private final IOException mError;
+
+
+    SocketOptions(Socket socket)
+    {
+        int soTimeout      = 0;
+        boolean tcpNoDelay = false;
+        boolean keepAlive  = false;
+        IOException error  = null;
+
+        try
+        {
+            soTimeout  = socket.getSoTimeout();
+            tcpNoDelay = socket.getTcpNoDelay();
+            keepAlive  = socket.getKeepAlive();
+        }
+        catch (IOException e)
+        {
+            // The options cannot be copied.
+            error = e;
+        }
+
+        mSoTimeout     = soTimeout;
+        mTcpNoDelay    = tcpNoDelay;
+        mKeepAlive     = keepAlive;
+        mError         = error;
+        mSSLParameters = (socket instanceof SSLSocket)
+                       ? ((SSLSocket)socket).getSSLParameters() : null;
+    }
+
+
+    /**
+     * Apply the options to the given socket.
+     *
+     * @return
+     *         The given socket.
+     */
+    Socket applyTo(Socket socket) throws IOException
+    {
+        if (mError != null)
+        {
+            socket.close();
+            throw mError;
+        }
+
+        socket.setSoTimeout(mSoTimeout);
+        socket.setTcpNoDelay(mTcpNoDelay);
+        socket.setKeepAlive(mKeepAlive);
+
+        if (mSSLParameters != null && socket instanceof SSLSocket)
+        {
+            ((SSLSocket)socket).setSSLParameters(mSSLParameters);
+        }
+
+        return socket;
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import javax.net.SocketFactory;
+
+
+/**
+ * Connection racing across the addresses of a host ("Happy Eyeballs",
+ * RFC 8305).
+ *
+ * <p>
+ * Connection attempts are started one by one, each {@code attemptDelay}
+ * milliseconds after the previous one or immediately after the previous
+ * one failed, without waiting for the preceding attempts to complete.
+ * The first socket that gets connected wins and the others are closed.
+ * </p>
+ *
+ * @since 2.3
+ */
+class SocketRacer
+{
+    private final SocketFactory mSocketFactory;
+    private final SocketOptions mOptions;
+    private final int mPort;
+    private final int mConnectionTimeout;
+    private final int mAttemptDelay;
+    private final AddressStatistics mStatistics;
+    private final List<Socket> mSockets = new ArrayList<Socket>();
+    private Socket mWinner;
+    private int mRunningCount;
+    private IOException mError;
+
+
+    SocketRacer(
+            SocketFactory socketFactory, SocketOptions options, int port,
+            int connectionTimeout, int attemptDelay, AddressStatistics statistics)
+    {
+        mSocketFactory     = socketFactory;
+        mOptions           = options;
+        mPort              = port;
+        mConnectionTimeout = connectionTimeout;
+        mAttemptDelay      = attemptDelay;
+        mStatistics        = statistics;
+    }
+
+
+    /**
+     * A thread to perform a connection attempt.
+     */
+    private class Attempt extends Thread
+    {
+        private final Socket mSocket;
+        private final InetAddress mAddress;
+
+
+        Attempt(Socket socket, InetAddress address)
+        {
+            super("ConnectAttempt");
+
+            mSocket  = socket;
+            mAddress = address;
+        }
+
+
+        @Override
+        public void run()
+        {
+            long startedAt = System.nanoTime();
+
+            try
+            {
+                mSocket.connect(new InetSocketAddress(mAddress, mPort), mConnectionTimeout);
+            }
+            catch (IOException e)
+            {
+                onFailure(this, e);
+                return;
+            }
+
+            onSuccess(this, System.nanoTime() - startedAt);
+        }
+    }
+
+
+    /**
+     * Race connection attempts to the addresses.
+     *
+     * @param first
+     *         The socket to use for the first address.
+     *
+     * @return
+     *         The connected socket.
+     *
+     * @throws IOException
+     *         All the attempts failed. The error of the last failed
+     *         attempt is thrown.
+     */
+    synchronized Socket race(Socket first, InetAddress[] addresses) throws IOException
+    {
+        try
+        {
+            for (int i = 0; i < addresses.length && mWinner == null; ++i)
+            {
+                if (start((i == 0) ? first : null, addresses[i]) == false)
+                {
+                    // Failed to create a socket. Try the next address.
+                    continue;
+                }
+
+                // Wait until the attempt delay elapses, a socket gets
+                // connected, or all the running attempts fail.
+                awaitAttempts(mAttemptDelay);
+            }
+
+            // Wait for the last attempts.
+            awaitAttempts(0);
+        }
+        catch (InterruptedException e)
+        {
+            // An attempt may have won just now. The winner is not
+            // returned, so close it, too.
+            closeAll();
+
+            throw new InterruptedIOException("Interrupted while connecting.");
+        }
+
+        // Close the sockets whose attempts are still running.
+        closeLosers();
+
+        if (mWinner == null)
+        {
+            throw mError;
+        }
+
+        return mWinner;
+    }
+
+
+    private boolean start(Socket socket, InetAddress address)
+    {
+        if (socket == null)
+        {
+            try
+            {
+                socket = mOptions.applyTo(mSocketFactory.createSocket());
+            }
+            catch (IOException e)
+            {
+                mError = e;
+                return false;
+            }
+        }
+
+        mSockets.add(socket);
+        mRunningCount++;
+
+        new Attempt(socket, address).start();
+
+        return true;
+    }
+
+
+    /**
+     * Wait for the running attempts.
+     *
+     * @param timeout
+     *         The maximum time to wait in milliseconds. 0 means to wait
+     *         until a socket gets connected or all the attempts fail.
+     */
+    private void awaitAttempts(long timeout) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+
+        while (mWinner == null && 0 < mRunningCount)
+        {
+            if (timeout == 0)
+            {
+                wait();
+                continue;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+
+            if (remaining <= 0)
+            {
+                break;
+            }
+
+            wait(remaining);
+        }
+    }
+
+
+    private synchronized void onSuccess(Attempt attempt, long connectTime)
+    {
+        mRunningCount--;
+
+        if (mWinner == null)
+        {
+            mWinner = attempt.mSocket;
+            mStatistics.onSuccess(attempt.mAddress, connectTime);
+        }
+        else
+        {
+            // Another attempt has already won.
+            closeSilently(attempt.mSocket);
+        }
+
+        notifyAll();
+    }
+
+
+    private synchronized void onFailure(Attempt attempt, IOException error)
+    {
+        mRunningCount--;
+
+        // A loser closed after the race is not counted as a failure.
+        if (mWinner == null && mSockets.contains(attempt.mSocket))
+        {
+            mError = error;
+            mStatistics.onFailure(attempt.mAddress);
+        }
+
+        notifyAll();
+    }
+
+
+    private void closeLosers()
+    {
+        for (Socket socket : mSockets)
+        {
+            if (socket != mWinner)
+            {
+                closeSilently(socket);
+            }
+        }
+
+        // Attempts failing from now on are the losers.
+        mSockets.clear();
+    }
+
+
+    private void closeAll()
+    {
+        for (Socket socket : mSockets)
+        {
+            closeSilently(socket);
+        }
+
+        // Attempts finishing from now on are ignored.
+        mSockets.clear();
+    }
+
+
+    private static void closeSilently(Socket socket)
+    {
+        try
+        {
+            socket.close();
+        }
+        catch (Throwable t)
+        {
+            // Ignored.
+        }
+    }
+}
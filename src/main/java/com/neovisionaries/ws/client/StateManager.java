@@ -32,6 +32,7 @@ class StateManager
 
     private WebSocketState mState;
     private CloseInitiator mCloseInitiator = CloseInitiator.NONE;
+    private long mClosingStartedAt;
 
 
     public StateManager()
@@ -54,6 +55,12 @@ class StateManager
 
     public void changeToClosing(CloseInitiator closeInitiator)
     {
+        if (mState != CLOSING)
+        {
+            // Remember when the closing handshake started.
+            mClosingStartedAt = System.nanoTime();
+        }
+
         mState = CLOSING;
 
         // Set the close initiator only when it has not been set yet.
@@ -64,6 +71,16 @@ class StateManager
     }
 
 
+    /**
+     * Get the value of {@link System#nanoTime()} at which the state
+     * was changed to {@code CLOSING}. 0 if it has never been changed.
+     */
+    public long getClosingStartedAt()
+    {
+        return mClosingStartedAt;
+    }
+
+
     public boolean getClosedByServer()
     {
         return mCloseInitiator == CloseInitiator.SERVER;
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A fixed set of counters which can be updated by many threads with
+ * little contention.
+ *
+ * <p>
+ * Each stripe holds its own copy of all the counters. A thread updates
+ * the stripe selected by its thread ID, and {@link #get(int)} sums up
+ * the stripes. With one stripe, this is a plain {@link AtomicLongArray}.
+ * </p>
+ */
+class StripedCounters
+{
+    /**
+     * Extra slots between stripes so that two stripes do not share
+     * a cache line.
+     */
+    private static final int PADDING = 8;
+
+
+    private final int mSize;
+    private final int mStride;
+    private final int mMask;
+    private final AtomicLongArray mCells;
+
+
+    /**
+     * @param size
+     *         The number of counters.
+     *
+     * @param stripes
+     *         The number of stripes. Rounded up to a power of two.
+     */
+    public StripedCounters(int size, int stripes)
+    {
+        int n = 1;
+
+        while (n < stripes)
+        {
+            n <<= 1;
+        }
+
+        mSize   = size;
+        mStride = (n == 1) ? size : size + PADDING;
+        mMask   = n - 1;
+        mCells  = new AtomicLongArray(mStride * n);
+    }
+
+
+    /**
+     * The number of stripes suitable for counters shared by all threads.
+     */
+    public static int defaultStripes()
+    {
+        return Math.min(Runtime.getRuntime().availableProcessors(), 64);
+    }
+
+
+    public void add(int index, long delta)
+    {
+        mCells.addAndGet(offset() + index, delta);
+    }
+
+
+    public void increment(int index)
+    {
+        add(index, 1);
+    }
+
+
+    public long get(int index)
+    {
+        long sum = 0;
+
+        for (int base = 0; base < mCells.length(); base += mStride)
+        {
+            sum += mCells.get(base + index);
+        }
+
+        return sum;
+    }
+
+
+    /**
+     * Get the current values of all the counters.
+     */
+    public long[] getAll()
+    {
+        long[] values = new long[mSize];
+
+        for (int base = 0; base < mCells.length(); base += mStride)
+        {
+            for (int i = 0; i < mSize; ++i)
+            {
+                values[i] += mCells.get(base + i);
+            }
+        }
+
+        return values;
+    }
+
+
+    private int offset()
+    {
+        if (mMask == 0)
+        {
+            return 0;
+        }
+
+        // Spread thread IDs which are usually sequential.
+        int h = (int)Thread.currentThread().getId() * 0x9E3779B9;
+
+        return ((h >>> 16) & mMask) * mStride;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.net.ssl.SSLSession;
+
+
+/**
+ * The IDs of the TLS sessions last established with servers, keyed by
+ * the host and the port of the peer, to tell whether a TLS handshake
+ * resumed a session.
+ *
+ * <p>
+ * JSSE does not tell whether a handshake resumed a session. A resumed
+ * session has the same ID as the session of the previous connection to
+ * the server, so the ID after a handshake is compared with the ID which
+ * was recorded after the previous handshake. The creation time of the
+ * session is not a reliable signal; it has only millisecond resolution
+ * and providers may give a resumed session a new creation time.
+ * </p>
+ *
+ * <p>
+ * A provider may give a resumed session a new ID (session IDs are kept
+ * only for compatibility in TLS 1.3). Such a resumption is not detected
+ * and the handshake is reported as a full one.
+ * </p>
+ *
+ * @since 2.3
+ */
+class TlsSessionHistory
+{
+    /**
+     * The maximum number of servers remembered.
+     */
+    private static final int MAX_ENTRIES = 256;
+
+
+    private final Map<String, String> mSessionIds = new SessionIdMap();
+
+
+    /**
+     * A map which discards the least recently used entry when full.
+     */
+    private static class SessionIdMap extends LinkedHashMap<String, String>
+    {
+        private static final long serialVersionUID = 1L;
+
+
+        SessionIdMap()
+        {
+            super(16, 0.75f, true);
+        }
+
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+        {
+            return MAX_ENTRIES < size();
+        }
+    }
+
+
+    /**
+     * Record the session established by a TLS handshake.
+     *
+     * @return
+     *         {@code true} if the handshake resumed the session of the
+     *         previous connection to the same server.
+     */
+    boolean onHandshake(SSLSession session)
+    {
+        byte[] id = session.getId();
+        String host = session.getPeerHost();
+
+        if (id == null || id.length == 0 || host == null)
+        {
+            // The session cannot be identified.
+            return false;
+        }
+
+        String key = host + ":" + session.getPeerPort();
+        String value = Base64.encode(id);
+        String previous;
+
+        synchronized (mSessionIds)
+        {
+            previous = mSessionIds.put(key, value);
+        }
+
+        return value.equals(previous);
+    }
+}
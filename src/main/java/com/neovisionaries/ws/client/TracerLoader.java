@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+
+/**
+ * Finds the default {@link WebSocketTracer} by {@link ServiceLoader}.
+ */
+class TracerLoader
+{
+    private static final WebSocketTracer DEFAULT_TRACER = load();
+
+
+    private TracerLoader()
+    {
+    }
+
+
+    /**
+     * Get the tracer registered as a service, or {@code null}.
+     */
+    public static WebSocketTracer getDefault()
+    {
+        return DEFAULT_TRACER;
+    }
+
+
+    private static WebSocketTracer load()
+    {
+        try
+        {
+            Iterator<WebSocketTracer> it = ServiceLoader.load(
+                WebSocketTracer.class, WebSocketTracer.class.getClassLoader()).iterator();
+
+            if (it.hasNext())
+            {
+                return it.next();
+            }
+        }
+        catch (Throwable t)
+        {
+            // The service could not be loaded (e.g. the JFR module is on
+            // the class path of an old JDK). Tracing is just disabled.
+        }
+
+        return null;
+    }
+}
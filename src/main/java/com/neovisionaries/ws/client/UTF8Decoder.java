@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Incremental UTF-8 validator and decoder.
+ *
+ * <p>
+ * An instance is owned by one reading thread and reused for all the
+ * text messages received through the connection. Fragments of a text
+ * message are passed to {@link #validate(byte[])} as they arrive so
+ * that an invalid byte sequence can be detected without waiting for
+ * the whole message. Once the whole message has been validated, {@link
+ * #decode(byte[])} converts it into a string without checking the bytes
+ * again.
+ * </p>
+ *
+ * <p>
+ * The validation follows "Table 3-7. Well-Formed UTF-8 Byte Sequences"
+ * of the Unicode Standard, so overlong encodings, surrogate code points
+ * and code points greater than U+10FFFF are rejected as required by
+ * <a href="https://tools.ietf.org/html/rfc3629">RFC 3629</a>.
+ * </p>
+ */
+class UTF8Decoder
+{
+    /**
+     * The maximum size of the character buffer kept for reuse. Larger
+     * messages are decoded into a temporary buffer.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 8192;
+
+
+    private char[] mBuffer = new char[256];
+    private int mRemaining;
+    private int mLower = 0x80;
+    private int mUpper = 0xBF;
+    private boolean mValid = true;
+
+
+    /**
+     * Start validation of a new text message.
+     */
+    public void reset()
+    {
+        mRemaining = 0;
+        mLower     = 0x80;
+        mUpper     = 0xBF;
+        mValid     = true;
+    }
+
+
+    /**
+     * Validate a fragment of a text message.
+     *
+     * @return
+     *         {@code false} if the bytes validated so far cannot be
+     *         a prefix of a valid UTF-8 byte sequence.
+     */
+    public boolean validate(byte[] data)
+    {
+        if (data == null)
+        {
+            return mValid;
+        }
+
+        return validate(data, 0, data.length);
+    }
+
+
+    /**
+     * Validate a fragment of a text message.
+     *
+     * @return
+     *         {@code false} if the bytes validated so far cannot be
+     *         a prefix of a valid UTF-8 byte sequence.
+     */
+    public boolean validate(byte[] data, int offset, int length)
+    {
+        if (mValid == false)
+        {
+            return false;
+        }
+
+        int end = offset + length;
+
+        for (int i = offset; i < end; ++i)
+        {
+            int b = data[i] & 0xFF;
+
+            if (mRemaining == 0)
+            {
+                // ASCII.
+                if (b < 0x80)
+                {
+                    continue;
+                }
+
+                if (startSequence(b) == false)
+                {
+                    mValid = false;
+                    return false;
+                }
+
+                continue;
+            }
+
+            // A continuation byte is expected.
+            if (b < mLower || mUpper < b)
+            {
+                mValid = false;
+                return false;
+            }
+
+            --mRemaining;
+            mLower = 0x80;
+            mUpper = 0xBF;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Check if the bytes validated since the last {@link #reset()}
+     * form a complete and valid UTF-8 byte sequence.
+     */
+    public boolean isComplete()
+    {
+        return mValid && mRemaining == 0;
+    }
+
+
+    /**
+     * Validate the whole text message.
+     */
+    public boolean validateAll(byte[] data)
+    {
+        reset();
+
+        return validate(data) && isComplete();
+    }
+
+
+    private boolean startSequence(int b)
+    {
+        if (0xC2 <= b && b <= 0xDF)
+        {
+            return expect(1, 0x80, 0xBF);
+        }
+
+        if (b == 0xE0)
+        {
+            // Reject overlong encodings.
+            return expect(2, 0xA0, 0xBF);
+        }
+
+        if ((0xE1 <= b && b <= 0xEC) || b == 0xEE || b == 0xEF)
+        {
+            return expect(2, 0x80, 0xBF);
+        }
+
+        if (b == 0xED)
+        {
+            // Reject surrogates (U+D800 - U+DFFF).
+            return expect(2, 0x80, 0x9F);
+        }
+
+        if (b == 0xF0)
+        {
+            // Reject overlong encodings.
+            return expect(3, 0x90, 0xBF);
+        }
+
+        if (0xF1 <= b && b <= 0xF3)
+        {
+            return expect(3, 0x80, 0xBF);
+        }
+
+        if (b == 0xF4)
+        {
+            // Reject code points greater than U+10FFFF.
+            return expect(3, 0x80, 0x8F);
+        }
+
+        // 0x80 - 0xC1 and 0xF5 - 0xFF never appear as a leading byte.
+        return false;
+    }
+
+
+    private boolean expect(int remaining, int lower, int upper)
+    {
+        mRemaining = remaining;
+        mLower     = lower;
+        mUpper     = upper;
+
+        return true;
+    }
+
+
+    /**
+     * Convert a byte array which has already been validated into a string.
+     * The result for an invalid byte sequence is undefined.
+     */
+    public String decode(byte[] data)
+    {
+        if (data == null)
+        {
+            return null;
+        }
+
+        int length = data.length;
+
+        // The number of UTF-16 code units never exceeds the number of bytes.
+        char[] chars = prepareBuffer(length);
+        int count = 0;
+        int i = 0;
+
+        // ASCII fast path.
+        while (i < length && 0 <= data[i])
+        {
+            chars[count++] = (char)data[i++];
+        }
+
+        while (i < length)
+        {
+            int b = data[i++];
+
+            if (0 <= b)
+            {
+                chars[count++] = (char)b;
+            }
+            else if ((b & 0xE0) == 0xC0)
+            {
+                chars[count++] = (char)(((b & 0x1F) << 6) | (data[i++] & 0x3F));
+            }
+            else if ((b & 0xF0) == 0xE0)
+            {
+                chars[count++] = (char)(((b & 0x0F) << 12) | ((data[i] & 0x3F) << 6) | (data[i + 1] & 0x3F));
+                i += 2;
+            }
+            else
+            {
+                int cp = ((b & 0x07) << 18) | ((data[i] & 0x3F) << 12)
+                       | ((data[i + 1] & 0x3F) << 6) | (data[i + 2] & 0x3F);
+                i += 3;
+
+                // Surrogate pair.
+                cp -= 0x10000;
+                chars[count++] = (char)(0xD800 | (cp >>> 10));
+                chars[count++] = (char)(0xDC00 | (cp & 0x3FF));
+            }
+        }
+
+        return new String(chars, 0, count);
+    }
+
+
+    private char[] prepareBuffer(int length)
+    {
+        if (length <= mBuffer.length)
+        {
+            return mBuffer;
+        }
+
+        char[] buffer = new char[length];
+
+        if (length <= MAX_RETAINED_BUFFER_SIZE)
+        {
+            // Keep the buffer for later use.
+            mBuffer = buffer;
+        }
+
+        return buffer;
+    }
+}
@@ -26,12 +26,15 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import javax.net.ssl.SSLSession;
 import com.neovisionaries.ws.client.StateManager.CloseInitiator;
 
 
@@ -338,6 +341,10 @@ import com.neovisionaries.ws.client.StateManager.CloseInitiator;
  *       <td>Called when a text message was received.</td>
  *     </tr>
  *     <tr>
+ *       <td>{@link WebSocketListener#onTextMessageBytes(WebSocket, byte[]) onTextMessageBytes}</td>
+ *       <td>Called when a text message was received as a byte array.</td>
+ *     </tr>
+ *     <tr>
  *       <td>{@link WebSocketListener#onTextMessageError(WebSocket, WebSocketException, byte[]) onTextMessageError}</td>
  *       <td>Called when a text message failed to be constructed.</td>
  *     </tr>
@@ -415,6 +422,18 @@ import com.neovisionaries.ws.client.StateManager.CloseInitiator;
  *       <td>{@link #setMissingCloseFrameAllowed(boolean) setMissingCloseFrameAllowed}</td>
  *       <td>Set whether to allow the server to close the connection without sending a close frame.</td>
  *     </tr>
+ *     <tr>
+ *       <td>{@link #setSendingBeforeOpenAllowed(boolean) setSendingBeforeOpenAllowed}</td>
+ *       <td>Set whether to queue frames sent before the handshake completes.</td>
+ *     </tr>
+ *     <tr>
+ *       <td>{@link #setDirectTextMessage(boolean) setDirectTextMessage}</td>
+ *       <td>Set whether to receive text messages as UTF-8 byte arrays.</td>
+ *     </tr>
+ *     <tr>
+ *       <td>{@link #setCallbackExecutor(Executor) setCallbackExecutor}</td>
+ *       <td>Set an executor to run message callbacks off the reading thread.</td>
+ *     </tr>
  *   </tbody>
  * </table>
  * </blockquote>
@@ -1047,6 +1066,7 @@ import com.neovisionaries.ws.client.StateManager.CloseInitiator;
 public class WebSocket
 {
     private static final long DEFAULT_CLOSE_DELAY = 10 * 1000L;
+    private static final int DEFAULT_CALLBACK_QUEUE_SIZE = 1000;
     private final WebSocketFactory mWebSocketFactory;
     private final SocketConnector mSocketConnector;
     private final StateManager mStateManager;
@@ -1054,6 +1074,13 @@ public class WebSocket
     private final ListenerManager mListenerManager;
     private final PingSender mPingSender;
     private final PongSender mPongSender;
+    private final PingTracker mPingTracker;
+    private final WebSocketTracer mTracer;
+    private volatile ConnectTimings mConnectTimings;
+    private final WebSocketMetrics mMetrics;
+    private WebSocketReconnector mReconnector;
+    private ReplayBuffer mReplayBuffer;
+    private boolean mRecordingPaused;
     private final Object mThreadsLock = new Object();
     private WebSocketInputStream mInput;
     private WebSocketOutputStream mOutput;
@@ -1065,8 +1092,20 @@ public class WebSocket
     private boolean mExtended;
     private boolean mAutoFlush = true;
     private boolean mMissingCloseFrameAllowed = true;
+    private volatile boolean mSendingBeforeOpenAllowed;
+    private final List<WebSocketFrame> mPendingFrames = new ArrayList<WebSocketFrame>();
+    private boolean mPendingFramesFlushed;
     private int mFrameQueueSize;
     private int mMaxPayloadSize;
+    private boolean mDirectTextMessage;
+    private Executor mCallbackExecutor;
+    private int mCallbackQueueSize = DEFAULT_CALLBACK_QUEUE_SIZE;
+    private volatile CallbackDispatcher mCallbackDispatcher;
+    private boolean mSendLatencyRecording;
+    private long mPongTimeout;
+    private boolean mPingOnlyWhenIdle;
+    private volatile long mLastReceivedAt;
+    private SendLatencies mSendLatencies;
     private boolean mOnConnectedCalled;
     private Object mOnConnectedCalledLock = new Object();
     private boolean mReadingThreadStarted;
@@ -1088,6 +1127,12 @@ public class WebSocket
         mListenerManager   = new ListenerManager(this);
         mPingSender        = new PingSender(this, new CounterPayloadGenerator());
         mPongSender        = new PongSender(this, new CounterPayloadGenerator());
+        mPingTracker       = new PingTracker(this);
+        mTracer            = factory.getTracer();
+
+        // Let the connector report the connection phases.
+        connector.setWebSocket(this);
+        mMetrics           = new WebSocketMetrics(factory.getMetrics());
     }
 
 
@@ -1162,10 +1207,21 @@ public class WebSocket
         instance.setPongInterval(getPongInterval());
         instance.setPingPayloadGenerator(getPingPayloadGenerator());
         instance.setPongPayloadGenerator(getPongPayloadGenerator());
+        instance.mPongTimeout = mPongTimeout;
+        instance.mPingOnlyWhenIdle = mPingOnlyWhenIdle;
         instance.mExtended = mExtended;
         instance.mAutoFlush = mAutoFlush;
         instance.mMissingCloseFrameAllowed = mMissingCloseFrameAllowed;
+        instance.mSendingBeforeOpenAllowed = mSendingBeforeOpenAllowed;
         instance.mFrameQueueSize = mFrameQueueSize;
+        instance.mDirectTextMessage = mDirectTextMessage;
+        instance.mCallbackExecutor = mCallbackExecutor;
+        instance.mCallbackQueueSize = mCallbackQueueSize;
+        instance.setSendLatencyRecording(mSendLatencyRecording);
+        instance.mReplayBuffer = mReplayBuffer;
+
+        // Count the reconnection.
+        instance.mMetrics.onReconnect();
 
         // Copy listeners.
         List<WebSocketListener> listeners = mListenerManager.getListeners();
@@ -1640,6 +1696,251 @@ public class WebSocket
     }
 
 
+    /**
+     * Check if frames sent before the opening handshake completes are
+     * queued. The default value is {@code false}.
+     *
+     * @return
+     *         {@code true} if frames sent in {@link WebSocketState#CREATED
+     *         CREATED} or {@link WebSocketState#CONNECTING CONNECTING}
+     *         state are queued.
+     *
+     * @see #setSendingBeforeOpenAllowed(boolean)
+     *
+     * @since 2.3
+     */
+    public boolean isSendingBeforeOpenAllowed()
+    {
+        return mSendingBeforeOpenAllowed;
+    }
+
+
+    /**
+     * Set whether to queue frames sent before the opening handshake
+     * completes.
+     *
+     * <p>
+     * By default, {@link #sendFrame(WebSocketFrame)} ignores frames
+     * unless the state is {@link WebSocketState#OPEN OPEN}, so the
+     * application has to wait for {@link WebSocketListener#onConnected(
+     * WebSocket, Map) onConnected()} before sending e.g. subscription
+     * messages. If this setting is enabled, frames sent in {@link
+     * WebSocketState#CREATED CREATED} or {@link WebSocketState#CONNECTING
+     * CONNECTING} state are kept and written right after the response
+     * from the server is validated, all together with a single flush.
+     * They are discarded if the connection fails.
+     * </p>
+     *
+     * <p>
+     * Frames sent by {@link ReconnectHandler#onReconnected(WebSocket)} and
+     * frames in the {@link #setReplayBuffer(ReplayBuffer) replay buffer}
+     * are written first. Data frames recorded in the replay buffer are not
+     * queued twice.
+     * </p>
+     *
+     * @param allowed
+     *         {@code true} to queue frames sent before the opening handshake
+     *         completes.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @since 2.3
+     */
+    public WebSocket setSendingBeforeOpenAllowed(boolean allowed)
+    {
+        mSendingBeforeOpenAllowed = allowed;
+
+        return this;
+    }
+
+
+    /**
+     * Check if text messages are passed to listeners as byte arrays.
+     * The default value is {@code false}.
+     *
+     * @return
+     *         {@code true} if {@link WebSocketListener#onTextMessageBytes(WebSocket,
+     *         byte[]) onTextMessageBytes} is called instead of
+     *         {@link WebSocketListener#onTextMessage(WebSocket, String)
+     *         onTextMessage(WebSocket, String)}.
+     *
+     * @since 2.3
+     */
+    public boolean isDirectTextMessage()
+    {
+        return mDirectTextMessage;
+    }
+
+
+    /**
+     * Set whether to pass text messages to listeners as byte arrays.
+     *
+     * <p>
+     * If {@code true} is given, {@link WebSocketListener#onTextMessageBytes(WebSocket,
+     * byte[]) onTextMessageBytes} is called with the UTF-8 byte
+     * sequence of a text message instead of {@link WebSocketListener#onTextMessage(
+     * WebSocket, String) onTextMessage(WebSocket, String)}, and no {@code String}
+     * is constructed. The byte sequence is validated as UTF-8 in either case.
+     * </p>
+     *
+     * @param direct
+     *         {@code true} to receive text messages as byte arrays.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @since 2.3
+     */
+    public WebSocket setDirectTextMessage(boolean direct)
+    {
+        mDirectTextMessage = direct;
+
+        return this;
+    }
+
+
+    /**
+     * Get the executor which runs message callbacks.
+     *
+     * @return
+     *         The executor set by {@link #setCallbackExecutor(Executor)}.
+     *         {@code null} means that the callbacks are executed by the
+     *         reading thread.
+     *
+     * @since 2.3
+     */
+    public Executor getCallbackExecutor()
+    {
+        return mCallbackExecutor;
+    }
+
+
+    /**
+     * Set an executor which runs message callbacks.
+     *
+     * <p>
+     * By default, all the callback methods of {@link WebSocketListener} are
+     * executed by the reading thread, so a slow {@link
+     * WebSocketListener#onTextMessage(WebSocket, String) onTextMessage}
+     * delays reading of subsequent frames including pong frames. If an
+     * executor is set, {@link WebSocketListener#onTextMessage(WebSocket,
+     * String) onTextMessage}, {@link WebSocketListener#onTextMessageBytes(
+     * WebSocket, byte[]) onTextMessageBytes} and {@link
+     * WebSocketListener#onBinaryMessage(WebSocket, byte[]) onBinaryMessage}
+     * are executed by the executor instead. The executor may be shared by
+     * many WebSockets. The callbacks of one WebSocket are still executed
+     * one at a time in the order the messages were received.
+     * </p>
+     *
+     * <p>
+     * Other callback methods, such as {@code onFrame} and {@code onDisconnected},
+     * are executed as before and may therefore run before message callbacks
+     * queued earlier.
+     * </p>
+     *
+     * <p>
+     * This setting takes effect at the next call of {@link #connect()}.
+     * </p>
+     *
+     * @param executor
+     *         An executor. {@code null} to execute message callbacks
+     *         on the reading thread.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @see #setCallbackQueueSize(int)
+     * @see #getCallbackStatistics()
+     *
+     * @since 2.3
+     */
+    public WebSocket setCallbackExecutor(Executor executor)
+    {
+        mCallbackExecutor = executor;
+
+        return this;
+    }
+
+
+    /**
+     * Get the maximum number of message callbacks waiting for the executor.
+     *
+     * @return
+     *         The size of the callback queue. 0 means no limit.
+     *         The default value is 1000.
+     *
+     * @since 2.3
+     */
+    public int getCallbackQueueSize()
+    {
+        return mCallbackQueueSize;
+    }
+
+
+    /**
+     * Set the maximum number of message callbacks waiting for the executor
+     * set by {@link #setCallbackExecutor(Executor)}.
+     *
+     * <p>
+     * When the queue is full, the reading thread waits until the callbacks
+     * catch up, so that no more frames are read from the server until then.
+     * While this WebSocket is being closed, the reading thread does not
+     * wait and the callbacks are queued beyond the size instead, so that
+     * the closing handshake is not delayed and no message is lost.
+     * </p>
+     *
+     * <p>
+     * This setting takes effect at the next call of {@link #connect()}.
+     * </p>
+     *
+     * @param size
+     *         The size of the callback queue. 0 means no limit.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         {@code size} is negative.
+     *
+     * @since 2.3
+     */
+    public WebSocket setCallbackQueueSize(int size) throws IllegalArgumentException
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("size must not be negative.");
+        }
+
+        mCallbackQueueSize = size;
+
+        return this;
+    }
+
+
+    /**
+     * Get the statistics of message callbacks executed by the executor
+     * set by {@link #setCallbackExecutor(Executor)}.
+     *
+     * @return
+     *         A snapshot of the statistics of the current (or last)
+     *         connection. {@code null} if no executor was used.
+     *
+     * @since 2.3
+     */
+    public CallbackStatistics getCallbackStatistics()
+    {
+        CallbackDispatcher dispatcher = mCallbackDispatcher;
+
+        if (dispatcher == null)
+        {
+            return null;
+        }
+
+        return dispatcher.getStatistics();
+    }
+
+
     /**
      * Flush frames to the server. Flush is performed asynchronously.
      *
@@ -1828,6 +2129,125 @@ public class WebSocket
     }
 
 
+    /**
+     * Check if periodical ping frames are sent only when the connection
+     * is idle. The default value is {@code false}.
+     *
+     * @return
+     *         {@code true} if ping frames are sent only when no frame has
+     *         been received within the ping interval.
+     *
+     * @since 2.3
+     */
+    public boolean isPingOnlyWhenIdle()
+    {
+        return mPingOnlyWhenIdle;
+    }
+
+
+    /**
+     * Set whether to send periodical ping frames only when the connection
+     * is idle.
+     *
+     * <p>
+     * By default, a ping frame is sent every interval set by {@link
+     * #setPingInterval(long)} regardless of traffic. If {@code true} is
+     * given, a ping frame is sent only when no frame has been received
+     * from the server within the interval. Connections on which the
+     * server keeps sending frames therefore send no ping frame, while
+     * idle connections are kept alive as before. Frames sent to the
+     * server are not regarded as activity, so that a dead peer is still
+     * detected by the {@linkplain #setPongTimeout(long) pong timeout}
+     * while the client keeps sending data.
+     * </p>
+     *
+     * @param idleOnly
+     *         {@code true} to send ping frames only when the connection
+     *         is idle.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @since 2.3
+     */
+    public WebSocket setPingOnlyWhenIdle(boolean idleOnly)
+    {
+        mPingOnlyWhenIdle = idleOnly;
+
+        return this;
+    }
+
+
+    /**
+     * Get the timeout for a
+     * <a href="https://tools.ietf.org/html/rfc6455#section-5.5.3">pong</a>
+     * frame to arrive after a ping frame was sent.
+     *
+     * @return
+     *         The timeout in milliseconds. 0 means no timeout.
+     *
+     * @since 2.3
+     */
+    public long getPongTimeout()
+    {
+        return mPongTimeout;
+    }
+
+
+    /**
+     * Set the timeout for a
+     * <a href="https://tools.ietf.org/html/rfc6455#section-5.5.3">pong</a>
+     * frame to arrive after a
+     * <a href="https://tools.ietf.org/html/rfc6455#section-5.5.2">ping</a>
+     * frame was sent.
+     *
+     * <p>
+     * If no pong frame for a ping frame (or for a later ping frame) is
+     * received within the timeout, the peer is regarded as dead (e.g.
+     * a half-open TCP connection), {@link
+     * WebSocketListener#onError(WebSocket, WebSocketException) onError}
+     * of the listeners is called with {@link WebSocketError#PONG_TIMEOUT
+     * PONG_TIMEOUT}, and this WebSocket is closed without waiting for a
+     * close frame from the server. Without
+     * this, a dead connection may be noticed only when the operating
+     * system gives up retransmission minutes later. This is typically
+     * used together with {@link #setPingInterval(long)}.
+     * </p>
+     *
+     * @param timeout
+     *         The timeout in milliseconds. 0 means no timeout.
+     *         A negative value is regarded as zero.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @see #getRoundTripStatistics()
+     *
+     * @since 2.3
+     */
+    public WebSocket setPongTimeout(long timeout)
+    {
+        mPongTimeout = Math.max(timeout, 0);
+
+        return this;
+    }
+
+
+    /**
+     * Get the round-trip times measured by matching pong frames to ping
+     * frames.
+     *
+     * @return
+     *         A snapshot of the round-trip time statistics.
+     *
+     * @since 2.3
+     */
+    public RoundTripStatistics getRoundTripStatistics()
+    {
+        return mPingTracker.getStatistics();
+    }
+
+
     /**
      * Get the interval of periodical
      * <a href="https://tools.ietf.org/html/rfc6455#section-5.5.3">pong</a>
@@ -2042,68 +2462,219 @@ public class WebSocket
 
 
     /**
-     * Get the raw socket which this WebSocket uses internally.
+     * Get the built-in metrics of this WebSocket. Updates of the
+     * metrics are also added to the metrics of the {@link
+     * WebSocketFactory} which created this WebSocket.
      *
      * @return
-     *         The underlying {@link Socket} instance.
+     *         The metrics of this WebSocket.
+     *
+     * @since 2.3
+     *
+     * @see WebSocketFactory#getMetrics()
      */
-    public Socket getSocket()
+    public WebSocketMetrics getMetrics()
     {
-        return mSocketConnector.getSocket();
+        return mMetrics;
     }
 
 
     /**
-     * Get the URI of the WebSocket endpoint. The scheme part is either
-     * {@code "ws"} or {@code "wss"}. The authority part is always empty.
+     * Get the replay buffer.
      *
      * @return
-     *         The URI of the WebSocket endpoint.
+     *         The replay buffer. {@code null} if not set.
      *
-     * @since 1.1
+     * @since 2.3
      */
-    public URI getURI()
+    public ReplayBuffer getReplayBuffer()
     {
-        return mHandshakeBuilder.getURI();
+        return mReplayBuffer;
     }
 
 
     /**
-     * Connect to the server, send an opening handshake to the server,
-     * receive the response and then start threads to communicate with
-     * the server.
-     *
-     * <p>
-     * As necessary, {@link #addProtocol(String)}, {@link #addExtension(WebSocketExtension)}
-     * {@link #addHeader(String, String)} should be called before you call this
-     * method. It is because the parameters set by these methods are used in the
-     * opening handshake.
-     * </p>
+     * Set a replay buffer which records outbound data frames until they
+     * are {@link ReplayBuffer#acknowledge(long) acknowledged}. The buffer
+     * is shared with the WebSockets created by {@link #recreate()}, which
+     * send the recorded frames again right after they get connected.
+     * See {@link ReplayBuffer} for details.
      *
      * <p>
-     * Also, as necessary, {@link #getSocket()} should be used to set up socket
-     * parameters before you call this method. For example, you can set the
-     * socket timeout like the following.
+     * This method should be called before {@link #connect()}.
      * </p>
      *
-     * <pre>
-     * WebSocket websocket = ......;
-     * websocket.{@link #getSocket() getSocket()}.{@link Socket#setSoTimeout(int)
-     * setSoTimeout}(5000);
-     * </pre>
+     * @param buffer
+     *         A replay buffer. {@code null} to stop recording.
      *
-     * <p>
-     * If the WebSocket endpoint requires Basic Authentication, you can set
-     * credentials by {@link #setUserInfo(String) setUserInfo(userInfo)} or
-     * {@link #setUserInfo(String, String) setUserInfo(id, password)} before
-     * you call this method.
-     * Note that if the URI passed to {@link WebSocketFactory}{@code
-     * .createSocket} method contains the user-info part, you don't have to
-     * call {@code setUserInfo} method.
-     * </p>
+     * @return
+     *         {@code this} object.
      *
-     * <p>
-     * Note that this method can be called at most only once regardless of
+     * @since 2.3
+     */
+    public WebSocket setReplayBuffer(ReplayBuffer buffer)
+    {
+        mReplayBuffer = buffer;
+
+        return this;
+    }
+
+
+    /**
+     * Check if latencies of the sending path are recorded.
+     * The default value is {@code false}.
+     *
+     * @return
+     *         {@code true} if latencies are recorded.
+     *
+     * @since 2.3
+     */
+    public boolean isSendLatencyRecording()
+    {
+        return mSendLatencyRecording;
+    }
+
+
+    /**
+     * Set whether to record latencies of the sending path into the
+     * histograms returned from {@link #getSendLatencies()}. The values
+     * are also recorded into the histograms of the {@link WebSocketFactory}
+     * ({@link WebSocketFactory#getSendLatencies()}).
+     *
+     * <p>
+     * When disabled, the writing thread does not even read the clock for
+     * this purpose. This setting takes effect at the next call of {@link
+     * #connect()}.
+     * </p>
+     *
+     * @param enabled
+     *         {@code true} to record latencies.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @since 2.3
+     */
+    public WebSocket setSendLatencyRecording(boolean enabled)
+    {
+        if (enabled && mSendLatencies == null)
+        {
+            // Histograms are allocated only when they are needed.
+            mSendLatencies = new SendLatencies(mWebSocketFactory.getSendLatencies());
+        }
+
+        mSendLatencyRecording = enabled;
+
+        return this;
+    }
+
+
+    /**
+     * Get the latency histograms of the sending path of this WebSocket.
+     *
+     * @return
+     *         The latency histograms. {@code null} if latency recording
+     *         has never been enabled.
+     *
+     * @since 2.3
+     *
+     * @see #setSendLatencyRecording(boolean)
+     */
+    public SendLatencies getSendLatencies()
+    {
+        return mSendLatencies;
+    }
+
+
+    /**
+     * Get the durations of the phases of the last attempt to connect
+     * to the server (DNS lookup, TCP connection, proxy handshake, TLS
+     * handshake, hostname verification and the opening handshake).
+     *
+     * <p>
+     * The timings are available in {@link WebSocketListener#onConnected(WebSocket, Map)
+     * onConnected} and {@link WebSocketListener#onConnectError(WebSocket, WebSocketException)
+     * onConnectError}, so they can tell which phase made a connection
+     * attempt slow or fail.
+     * </p>
+     *
+     * @return
+     *         The timings. {@code null} if {@link #connect()} has never
+     *         been called.
+     *
+     * @since 2.3
+     *
+     * @see WebSocketFactory#getConnectLatencies()
+     */
+    public ConnectTimings getConnectTimings()
+    {
+        return mConnectTimings;
+    }
+
+
+    /**
+     * Get the raw socket which this WebSocket uses internally.
+     *
+     * @return
+     *         The underlying {@link Socket} instance.
+     */
+    public Socket getSocket()
+    {
+        return mSocketConnector.getSocket();
+    }
+
+
+    /**
+     * Get the URI of the WebSocket endpoint. The scheme part is either
+     * {@code "ws"} or {@code "wss"}. The authority part is always empty.
+     *
+     * @return
+     *         The URI of the WebSocket endpoint.
+     *
+     * @since 1.1
+     */
+    public URI getURI()
+    {
+        return mHandshakeBuilder.getURI();
+    }
+
+
+    /**
+     * Connect to the server, send an opening handshake to the server,
+     * receive the response and then start threads to communicate with
+     * the server.
+     *
+     * <p>
+     * As necessary, {@link #addProtocol(String)}, {@link #addExtension(WebSocketExtension)}
+     * {@link #addHeader(String, String)} should be called before you call this
+     * method. It is because the parameters set by these methods are used in the
+     * opening handshake.
+     * </p>
+     *
+     * <p>
+     * Also, as necessary, {@link #getSocket()} should be used to set up socket
+     * parameters before you call this method. For example, you can set the
+     * socket timeout like the following.
+     * </p>
+     *
+     * <pre>
+     * WebSocket websocket = ......;
+     * websocket.{@link #getSocket() getSocket()}.{@link Socket#setSoTimeout(int)
+     * setSoTimeout}(5000);
+     * </pre>
+     *
+     * <p>
+     * If the WebSocket endpoint requires Basic Authentication, you can set
+     * credentials by {@link #setUserInfo(String) setUserInfo(userInfo)} or
+     * {@link #setUserInfo(String, String) setUserInfo(id, password)} before
+     * you call this method.
+     * Note that if the URI passed to {@link WebSocketFactory}{@code
+     * .createSocket} method contains the user-info part, you don't have to
+     * call {@code setUserInfo} method.
+     * </p>
+     *
+     * <p>
+     * Note that this method can be called at most only once regardless of
      * whether this method succeeded or failed. If you want to re-connect to
      * the WebSocket endpoint, you have to create a new {@code WebSocket}
      * instance again by calling one of {@code createSocket} methods of a
@@ -2130,6 +2701,11 @@ public class WebSocket
         // the change is not CREATED, an exception is thrown.
         changeStateOnConnect();
 
+        // Timings of the connection phases.
+        ConnectTimings timings = new ConnectTimings();
+        mConnectTimings = timings;
+        long startedAt = System.nanoTime();
+
         // HTTP headers from the server.
         Map<String, List<String>> headers;
 
@@ -2143,12 +2719,21 @@ public class WebSocket
         }
         catch (WebSocketException e)
         {
+            // The time taken until the failure.
+            timings.setTotal(System.nanoTime() - startedAt);
+
             // Close the socket.
             mSocketConnector.closeSilently();
 
             // Change the state to CLOSED.
             mStateManager.setState(CLOSED);
 
+            // Discard the frames sent before the connection.
+            synchronized (mPendingFrames)
+            {
+                mPendingFrames.clear();
+            }
+
             // Notify the listener of the state change.
             mListenerManager.callOnStateChanged(CLOSED);
 
@@ -2156,6 +2741,11 @@ public class WebSocket
             throw e;
         }
 
+        // The time taken by the successful connection.
+        long total = System.nanoTime() - startedAt;
+        timings.setTotal(total);
+        mWebSocketFactory.getConnectLatencies().recordTotal(total);
+
         // HTTP headers in the response from the server.
         mServerHeaders = headers;
 
@@ -2501,7 +3091,11 @@ public class WebSocket
      * <p>
      * When the current state of this WebSocket is not {@link
      * WebSocketState#OPEN OPEN}, this method does not accept
-     * the frame.
+     * the frame. However, if a {@link #setReplayBuffer(ReplayBuffer) replay
+     * buffer} is set, data frames are recorded in it regardless of the state.
+     * And if {@link #setSendingBeforeOpenAllowed(boolean) sending before
+     * open} is allowed, frames sent before the opening handshake completes
+     * are queued until the connection is established.
      * </p>
      *
      * <p>
@@ -2533,6 +3127,94 @@ public class WebSocket
             return this;
         }
 
+        // If the frame was kept until the connection is established.
+        if (mSendingBeforeOpenAllowed && queuePendingFrame(frame))
+        {
+            return this;
+        }
+
+        return recordAndQueueFrame(frame);
+    }
+
+
+    private boolean queuePendingFrame(WebSocketFrame frame)
+    {
+        synchronized (mPendingFrames)
+        {
+            // If the frames have been flushed, or if the threads have been
+            // set by the thread flushing them (e.g. a reconnect handler).
+            if (mPendingFramesFlushed || mWritingThread != null)
+            {
+                return false;
+            }
+
+            synchronized (mStateManager)
+            {
+                WebSocketState state = mStateManager.getState();
+
+                // CLOSED if the connection failed.
+                if (state != CREATED && state != CONNECTING && state != OPEN)
+                {
+                    return false;
+                }
+            }
+
+            // Data frames recorded in the replay buffer are sent by
+            // the replay, so they must not be kept here again.
+            if (recordFrame(frame) == false)
+            {
+                mPendingFrames.add(frame);
+            }
+
+            return true;
+        }
+    }
+
+
+    private boolean recordFrame(WebSocketFrame frame)
+    {
+        ReplayBuffer replayBuffer = mReplayBuffer;
+
+        if (replayBuffer == null || (frame.isDataFrame() == false && frame.isContinuationFrame() == false))
+        {
+            return false;
+        }
+
+        synchronized (replayBuffer)
+        {
+            replayBuffer.add(frame);
+        }
+
+        return true;
+    }
+
+
+    private WebSocket recordAndQueueFrame(WebSocketFrame frame)
+    {
+        ReplayBuffer replayBuffer = mReplayBuffer;
+
+        // If data frames should be recorded for replay.
+        if (replayBuffer != null && (frame.isDataFrame() || frame.isContinuationFrame()))
+        {
+            // Record and queue the frame atomically so that the order of
+            // the sequence numbers matches the order of transmission.
+            synchronized (replayBuffer)
+            {
+                if (mRecordingPaused == false)
+                {
+                    replayBuffer.add(frame);
+                }
+
+                return queueFrame(frame);
+            }
+        }
+
+        return queueFrame(frame);
+    }
+
+
+    private WebSocket queueFrame(WebSocketFrame frame)
+    {
         synchronized (mStateManager)
         {
             WebSocketState state = mStateManager.getState();
@@ -3101,13 +3783,28 @@ public class WebSocket
         WebSocketOutputStream output = openOutputStream(socket);
 
         // Generate a value for Sec-WebSocket-Key.
-        String key = generateWebSocketKey();
+        byte[] keyBytes = generateWebSocketKey();
+        String key      = Misc.toStringUTF8(keyBytes);
 
-        // Send an opening handshake to the server.
-        writeHandshake(output, key);
+        long startedAt = System.nanoTime();
 
-        // Read the response from the server.
-        Map<String, List<String>> headers = readHandshake(input, key);
+        Map<String, List<String>> headers;
+
+        try
+        {
+            // Send an opening handshake to the server.
+            writeHandshake(output, keyBytes, key);
+
+            // Read the response from the server.
+            headers = readHandshake(input, key);
+        }
+        catch (WebSocketException e)
+        {
+            onConnectPhase(ConnectPhase.OPENING_HANDSHAKE, System.nanoTime() - startedAt, e);
+            throw e;
+        }
+
+        onConnectPhase(ConnectPhase.OPENING_HANDSHAKE, System.nanoTime() - startedAt, null);
 
         // Keep the input stream and the output stream to pass them
         // to the reading thread and the writing thread later.
@@ -3119,6 +3816,121 @@ public class WebSocket
     }
 
 
+    /**
+     * Called when a phase of establishing the connection finished.
+     */
+    void onConnectPhase(ConnectPhase phase, long duration, Throwable error)
+    {
+        // Record the duration.
+        mConnectTimings.setDuration(phase, duration, error != null);
+
+        if (error == null)
+        {
+            // Add the duration to the histogram of the factory.
+            mWebSocketFactory.getConnectLatencies().record(phase, duration);
+        }
+
+        if (mTracer == null)
+        {
+            return;
+        }
+
+        try
+        {
+            mTracer.onConnectPhase(this, phase, duration, error);
+        }
+        catch (Throwable t)
+        {
+            // Ignore any error raised by the tracer.
+        }
+    }
+
+
+    private void setThreadsAndReplay(ReadingThread readingThread, WritingThread writingThread)
+    {
+        ReplayBuffer replayBuffer = mReplayBuffer;
+
+        if (replayBuffer == null)
+        {
+            setThreads(readingThread, writingThread);
+            return;
+        }
+
+        // Keep other threads from sending frames until the frames
+        // in the replay buffer have been queued.
+        synchronized (replayBuffer)
+        {
+            setThreads(readingThread, writingThread);
+
+            // Send the unacknowledged frames again ahead of new ones.
+            for (WebSocketFrame frame : replayBuffer.getFrames())
+            {
+                queueFrame(frame);
+            }
+        }
+    }
+
+
+    private void setThreads(ReadingThread readingThread, WritingThread writingThread)
+    {
+        synchronized (mThreadsLock)
+        {
+            mReadingThread = readingThread;
+            mWritingThread = writingThread;
+        }
+
+        if (mReconnector == null)
+        {
+            return;
+        }
+
+        // Frames sent by the reconnector (e.g. subscriptions) are queued
+        // before the threads start, so that they precede any other frame.
+        // They are not recorded in the replay buffer since the reconnector
+        // sends them on every connection.
+        mRecordingPaused = true;
+
+        try
+        {
+            mReconnector.onOpen(this);
+        }
+        finally
+        {
+            mRecordingPaused = false;
+        }
+    }
+
+
+    /**
+     * Set the reconnector which created this instance. It is notified
+     * right before the threads start.
+     */
+    void setReconnector(WebSocketReconnector reconnector)
+    {
+        mReconnector = reconnector;
+    }
+
+
+    /**
+     * Called when a TLS handshake succeeded, right after its
+     * {@link ConnectPhase#TLS_HANDSHAKE TLS_HANDSHAKE} phase was reported.
+     */
+    void onTlsSession(SSLSession session)
+    {
+        // A resumed session has the same ID as the previous session.
+        boolean resumed = mWebSocketFactory.getTlsSessionHistory().onHandshake(session);
+
+        mConnectTimings.setSessionResumed(resumed);
+
+        if (resumed)
+        {
+            // Record the duration separately to show the saving.
+            mWebSocketFactory.getConnectLatencies().recordResumed(
+                    mConnectTimings.getDuration(ConnectPhase.TLS_HANDSHAKE));
+        }
+    }
+
+
     /**
      * Open the input stream of the WebSocket connection.
      * The stream is used by the reading thread.
@@ -3178,9 +3990,9 @@ public class WebSocket
      * </blockquote>
      *
      * @return
-     *         A randomly generated WebSocket key.
+     *         A randomly generated WebSocket key in ASCII.
      */
-    private static String generateWebSocketKey()
+    private static byte[] generateWebSocketKey()
     {
         // "16-byte value"
         byte[] data = new byte[16];
@@ -3188,29 +4000,32 @@ public class WebSocket
         // "randomly selected"
         Misc.nextBytes(data);
 
-        // "base64-encoded"
-        return Base64.encode(data);
+        // "base64-encoded", directly into the bytes put in the request.
+        return Base64.encodeToBytes(data);
     }
 
 
     /**
      * Send an opening handshake request to the WebSocket server.
      */
-    private void writeHandshake(WebSocketOutputStream output, String key) throws WebSocketException
+    private void writeHandshake(WebSocketOutputStream output, byte[] keyBytes, String key) throws WebSocketException
     {
-        // Generate an opening handshake sent to the server from this client.
-        mHandshakeBuilder.setKey(key);
-        String requestLine     = mHandshakeBuilder.buildRequestLine();
-        List<String[]> headers = mHandshakeBuilder.buildHeaders();
-        String handshake       = HandshakeBuilder.build(requestLine, headers);
+        // The opening handshake encoded in advance. It is shared with the
+        // instances created by recreate(), and with other instances created
+        // for the same endpoint unless the handshake has been customized.
+        HandshakeTemplate template = mHandshakeBuilder.getTemplate(mWebSocketFactory.getHandshakeTemplateCache());
 
-        // Call onSendingHandshake() method of listeners.
-        mListenerManager.callOnSendingHandshake(requestLine, headers);
+        // If a listener wants the request line and the headers.
+        if (mListenerManager.hasListeners(ListenerEvent.ON_SENDING_HANDSHAKE))
+        {
+            // Call onSendingHandshake() method of listeners.
+            mListenerManager.callOnSendingHandshake(template.getRequestLine(), template.buildHeaders(key));
+        }
 
         try
         {
-            // Send the opening handshake to the server.
-            output.write(handshake);
+            // Send the opening handshake with the key to the server.
+            output.write(template.build(keyBytes));
             output.flush();
         }
         catch (IOException e)
@@ -3245,13 +4060,33 @@ public class WebSocket
      */
     private void startThreads()
     {
+        // If message callbacks should be executed by the executor.
+        if (mCallbackExecutor != null)
+        {
+            // A new dispatcher per connection to keep its own order.
+            mCallbackDispatcher = new CallbackDispatcher(mCallbackExecutor, mCallbackQueueSize);
+        }
+
         ReadingThread readingThread = new ReadingThread(this);
         WritingThread writingThread = new WritingThread(this);
 
-        synchronized (mThreadsLock)
+        // Keep other threads from sending frames until the frames sent
+        // before the connection was established have been queued.
+        synchronized (mPendingFrames)
         {
-            mReadingThread = readingThread;
-            mWritingThread = writingThread;
+            setThreadsAndReplay(readingThread, writingThread);
+
+            mPendingFramesFlushed = true;
+
+            // Queue the frames in the order they were sent. They are
+            // queued before the writing thread starts, so they are
+            // written together and flushed once.
+            for (WebSocketFrame frame : mPendingFrames)
+            {
+                queueFrame(frame);
+            }
+
+            mPendingFrames.clear();
         }
 
         // Execute onThreadCreated of the listeners.
@@ -3318,6 +4153,103 @@ public class WebSocket
     }
 
 
+    /**
+     * Get the number of frames waiting in the queue of the writing thread.
+     * 0 is returned when the writing thread is not available.
+     */
+    int getQueuedFrameCount()
+    {
+        WritingThread wt = mWritingThread;
+
+        if (wt == null)
+        {
+            return 0;
+        }
+
+        return wt.getQueueSize();
+    }
+
+
+    /**
+     * Get the dispatcher which executes message callbacks on the executor
+     * set by {@link #setCallbackExecutor(Executor)}. {@code null} is
+     * returned when the callbacks are executed by the reading thread.
+     */
+    CallbackDispatcher getCallbackDispatcher()
+    {
+        return mCallbackDispatcher;
+    }
+
+
+    /**
+     * Get the histograms into which the writing thread records latencies.
+     * {@code null} is returned when latency recording is disabled.
+     */
+    SendLatencies getSendLatencyRecorder()
+    {
+        return mSendLatencyRecording ? mSendLatencies : null;
+    }
+
+
+    /**
+     * Called by the reading thread when a frame was received.
+     */
+    void setLastReceivedAt(long nanoTime)
+    {
+        mLastReceivedAt = nanoTime;
+    }
+
+
+    /**
+     * Get the value of {@link System#nanoTime()} at which the last frame
+     * was received.
+     */
+    long getLastReceivedAt()
+    {
+        return mLastReceivedAt;
+    }
+
+
+    /**
+     * Get the tracer. {@code null} is returned when tracing is disabled.
+     */
+    WebSocketTracer getTracer()
+    {
+        return mTracer;
+    }
+
+
+    PingSender getPingSender()
+    {
+        return mPingSender;
+    }
+
+
+    PingTracker getPingTracker()
+    {
+        return mPingTracker;
+    }
+
+
+    /**
+     * Called by {@link PingTracker} when a pong frame did not arrive
+     * within the pong timeout.
+     */
+    void onPongTimeout()
+    {
+        WebSocketException cause = new WebSocketException(
+            WebSocketError.PONG_TIMEOUT,
+            "No pong frame was received within the pong timeout.");
+
+        // Notify the listeners.
+        mListenerManager.callOnError(cause);
+
+        // The peer is not responding. Close the connection without
+        // waiting for a close frame from the server.
+        disconnect(WebSocketCloseCode.AWAY, "No pong frame was received in time.", 0);
+    }
+
+
     /**
      * Get the manager that manages the state of this {@code WebSocket} instance.
      */
@@ -3452,6 +4384,9 @@ public class WebSocket
      */
     private void onThreadsStarted()
     {
+        // The connection is regarded as active when it has been opened.
+        mLastReceivedAt = System.nanoTime();
+
         // Start sending ping frames periodically.
         // If the interval is zero, this call does nothing.
         mPingSender.start();
@@ -3544,6 +4479,29 @@ public class WebSocket
         // Notify the listeners that the WebSocket was disconnected.
         mListenerManager.callOnDisconnected(
             mServerCloseFrame, mClientCloseFrame, mStateManager.getClosedByServer());
+
+        if (mTracer != null)
+        {
+            traceClose();
+        }
+    }
+
+
+    private void traceClose()
+    {
+        // When the closing handshake started.
+        long closingAt = mStateManager.getClosingStartedAt();
+        long duration  = (closingAt == 0) ? 0 : System.nanoTime() - closingAt;
+
+        try
+        {
+            mTracer.onClose(this, mServerCloseFrame, mClientCloseFrame,
+                mStateManager.getClosedByServer(), duration);
+        }
+        catch (Throwable t)
+        {
+            // Ignore any error raised by the tracer.
+        }
     }
 
 
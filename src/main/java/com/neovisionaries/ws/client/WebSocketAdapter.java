@@ -101,6 +101,12 @@ public class WebSocketAdapter implements WebSocketListener
     }
 
 
+    @Override
+    public void onTextMessageBytes(WebSocket websocket, byte[] data) throws Exception
+    {
+    }
+
+
     @Override
     public void onBinaryMessage(WebSocket websocket, byte[] binary) throws Exception
     {
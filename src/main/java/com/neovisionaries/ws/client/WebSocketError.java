@@ -451,5 +451,35 @@ public enum WebSocketError
      * @since 2.1
      */
     HOSTNAME_UNVERIFIED,
+
+
+    /**
+     * The payload of a text message is not a valid UTF-8 byte sequence.
+     *
+     * <p>
+     * When this error is detected, a close frame with the close code
+     * {@link WebSocketCloseCode#INCONSISTENT INCONSISTENT} (1007) is sent
+     * to the server as required by <a href="https://tools.ietf.org/html/rfc6455#section-8.1"
+     * >RFC 6455, 8.1. Handling Errors in UTF-8-Encoded Data</a>.
+     * </p>
+     *
+     * @since 2.3
+     */
+    INVALID_UTF8_PAYLOAD,
+
+
+    /**
+     * No <a href="https://tools.ietf.org/html/rfc6455#section-5.5.3">pong</a>
+     * frame was received within the timeout set by {@link
+     * WebSocket#setPongTimeout(long)} after a ping frame was sent.
+     *
+     * <p>
+     * The peer is regarded as dead and the WebSocket is closed without
+     * waiting for a close frame from the server.
+     * </p>
+     *
+     * @since 2.3
+     */
+    PONG_TIMEOUT,
     ;
 }
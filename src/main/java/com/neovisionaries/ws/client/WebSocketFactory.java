@@ -23,6 +23,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocketFactory;
 
 
@@ -34,6 +35,16 @@ public class WebSocketFactory
     private final SocketFactorySettings mSocketFactorySettings;
     private final ProxySettings mProxySettings;
     private int mConnectionTimeout;
+    private int mConnectionAttemptDelay;
+    private final WebSocketMetrics mMetrics = new WebSocketMetrics();
+    private final SendLatencies mSendLatencies = new SendLatencies(null);
+    private final ConnectLatencies mConnectLatencies = new ConnectLatencies();
+    private final DnsCache mDnsCache = new DnsCache();
+    private final AddressStatistics mAddressStatistics = new AddressStatistics();
+    private final HostnameVerificationCache mVerificationCache = new HostnameVerificationCache();
+    private final TlsSessionHistory mTlsSessionHistory = new TlsSessionHistory();
+    private final HandshakeTemplateCache mHandshakeTemplateCache = new HandshakeTemplateCache();
+    private WebSocketTracer mTracer = TracerLoader.getDefault();
 
 
     public WebSocketFactory()
@@ -135,6 +146,37 @@ public class WebSocketFactory
     }
 
 
+    /**
+     * Get the client session cache of the SSL context used for secure
+     * connections.
+     *
+     * <p>
+     * TLS sessions are cached per SSL context and keyed by the host and
+     * the port of the server, so reconnections to the same server through
+     * this factory resume sessions instead of performing full handshakes.
+     * The returned object can be used to tune the size and the timeout of
+     * the cache. Whether a connection resumed a session is available from
+     * {@link ConnectTimings#isSessionResumed()}.
+     * </p>
+     *
+     * <p>
+     * Note that the cache of the default SSL context is shared by the
+     * whole JVM.
+     * </p>
+     *
+     * @return
+     *         The client session cache. {@code null} if it is not available,
+     *         e.g. when an SSL socket factory has been set by {@link
+     *         #setSSLSocketFactory(SSLSocketFactory)} without an SSL context.
+     *
+     * @since 2.3
+     */
+    public SSLSessionContext getSSLSessionContext()
+    {
+        return mSocketFactorySettings.selectSSLSessionContext();
+    }
+
+
     /**
      * Get the proxy settings.
      *
@@ -151,6 +193,114 @@ public class WebSocketFactory
     }
 
 
+    /**
+     * Get the metrics aggregated over all the WebSockets created
+     * by this factory.
+     *
+     * @return
+     *         The factory-wide metrics.
+     *
+     * @since 2.3
+     *
+     * @see WebSocket#getMetrics()
+     */
+    public WebSocketMetrics getMetrics()
+    {
+        return mMetrics;
+    }
+
+
+    /**
+     * Get the latency histograms aggregated over all the WebSockets
+     * created by this factory whose latency recording is enabled.
+     *
+     * @return
+     *         The factory-wide latency histograms.
+     *
+     * @since 2.3
+     *
+     * @see WebSocket#setSendLatencyRecording(boolean)
+     */
+    public SendLatencies getSendLatencies()
+    {
+        return mSendLatencies;
+    }
+
+
+    /**
+     * Get the latency histograms of the connection phases aggregated
+     * over all the WebSockets created by this factory.
+     *
+     * @return
+     *         The factory-wide connect latency histograms.
+     *
+     * @since 2.3
+     *
+     * @see WebSocket#getConnectTimings()
+     */
+    public ConnectLatencies getConnectLatencies()
+    {
+        return mConnectLatencies;
+    }
+
+
+    /**
+     * Get the IDs of the TLS sessions last established by WebSockets
+     * created by this factory.
+     */
+    TlsSessionHistory getTlsSessionHistory()
+    {
+        return mTlsSessionHistory;
+    }
+
+
+    /**
+     * Get the cache of opening handshake requests shared by WebSockets
+     * created by this factory.
+     */
+    HandshakeTemplateCache getHandshakeTemplateCache()
+    {
+        return mHandshakeTemplateCache;
+    }
+
+
+    /**
+     * Get the tracer given to WebSockets created by this factory.
+     *
+     * @return
+     *         The tracer. {@code null} if tracing is disabled.
+     *
+     * @since 2.3
+     */
+    public WebSocketTracer getTracer()
+    {
+        return mTracer;
+    }
+
+
+    /**
+     * Set the tracer given to WebSockets created by this factory after
+     * this call. By default, the tracer found by {@link java.util.ServiceLoader}
+     * is used, if any.
+     *
+     * @param tracer
+     *         A tracer. {@code null} to disable tracing.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @since 2.3
+     *
+     * @see WebSocketTracer
+     */
+    public WebSocketFactory setTracer(WebSocketTracer tracer)
+    {
+        mTracer = tracer;
+
+        return this;
+    }
+
+
     /**
      * Get the timeout value in milliseconds for socket connection.
      * The default value is 0 and it means an infinite timeout.
@@ -200,6 +350,198 @@ public class WebSocketFactory
     }
 
 
+    /**
+     * Get the delay in milliseconds between connection attempts to the
+     * addresses of a host when connection racing is enabled. The default
+     * value is 0, which means that connection racing is disabled.
+     *
+     * @return
+     *         The connection attempt delay in milliseconds.
+     *
+     * @since 2.3
+     */
+    public int getConnectionAttemptDelay()
+    {
+        return mConnectionAttemptDelay;
+    }
+
+
+    /**
+     * Set the delay in milliseconds between connection attempts to the
+     * addresses of a host ("Happy Eyeballs", <a href=
+     * "https://tools.ietf.org/html/rfc8305">RFC 8305</a>).
+     *
+     * <p>
+     * When a positive value is set and a host name resolves to multiple
+     * addresses, a connection attempt to the next address is started when
+     * the delay elapses or the previous attempt fails, without waiting for
+     * the previous attempts to complete. The first socket that gets
+     * connected is used and the others are closed. IPv6 and IPv4 addresses
+     * are tried alternately. RFC 8305 recommends 250 milliseconds.
+     * </p>
+     *
+     * <p>
+     * When 0 is set, the addresses are tried one by one, each attempt
+     * taking up to {@link #getConnectionTimeout() the connection timeout}.
+     * </p>
+     *
+     * <p>
+     * In either case, addresses to which the last connection attempt
+     * succeeded are tried first, and addresses to which the last attempt
+     * failed are tried last.
+     * </p>
+     *
+     * <p>
+     * Note that a socket other than the one returned by {@link
+     * WebSocket#getSocket()} before {@code connect()} may be used. Its
+     * timeout, {@code TCP_NODELAY}, keep-alive and SSL parameters are
+     * copied from the original socket.
+     * </p>
+     *
+     * @param delay
+     *         The connection attempt delay in milliseconds. 0 disables
+     *         connection racing.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given delay is negative.
+     *
+     * @since 2.3
+     */
+    public WebSocketFactory setConnectionAttemptDelay(int delay)
+    {
+        if (delay < 0)
+        {
+            throw new IllegalArgumentException("delay cannot be negative.");
+        }
+
+        mConnectionAttemptDelay = delay;
+
+        return this;
+    }
+
+
+    /**
+     * Get the time in milliseconds for which the result of a host name
+     * lookup is cached. The default value is 0, which means that host
+     * names are resolved every time a connection is established.
+     *
+     * @return
+     *         The TTL of successful host name lookups in milliseconds.
+     *
+     * @since 2.3
+     */
+    public long getDnsCacheTtl()
+    {
+        return mDnsCache.getTtl();
+    }
+
+
+    /**
+     * Set the time in milliseconds for which the result of a host name
+     * lookup is cached.
+     *
+     * <p>
+     * The cache is shared by all WebSockets created by this factory. While
+     * a host name is being resolved, other WebSockets connecting to the
+     * same host wait for the result instead of issuing their own lookups.
+     * Whether cached or not, all the addresses of a host are tried in order
+     * until a connection is established.
+     * </p>
+     *
+     * <p>
+     * Note that the JVM has its own cache (see the {@code
+     * networkaddress.cache.ttl} security property) underneath this one.
+     * </p>
+     *
+     * @param ttl
+     *         The TTL of successful host name lookups in milliseconds.
+     *         0 disables caching.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given TTL is negative.
+     *
+     * @since 2.3
+     */
+    public WebSocketFactory setDnsCacheTtl(long ttl)
+    {
+        if (ttl < 0)
+        {
+            throw new IllegalArgumentException("ttl cannot be negative.");
+        }
+
+        mDnsCache.setTtl(ttl);
+
+        return this;
+    }
+
+
+    /**
+     * Get the time in milliseconds for which a failed host name lookup
+     * is cached. The default value is 0.
+     *
+     * @return
+     *         The TTL of failed host name lookups in milliseconds.
+     *
+     * @since 2.3
+     */
+    public long getDnsNegativeCacheTtl()
+    {
+        return mDnsCache.getNegativeTtl();
+    }
+
+
+    /**
+     * Set the time in milliseconds for which a failed host name lookup
+     * is cached. While the failure is cached, connection attempts to the
+     * host fail immediately without querying the resolver.
+     *
+     * @param ttl
+     *         The TTL of failed host name lookups in milliseconds.
+     *         0 disables negative caching.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given TTL is negative.
+     *
+     * @since 2.3
+     */
+    public WebSocketFactory setDnsNegativeCacheTtl(long ttl)
+    {
+        if (ttl < 0)
+        {
+            throw new IllegalArgumentException("ttl cannot be negative.");
+        }
+
+        mDnsCache.setNegativeTtl(ttl);
+
+        return this;
+    }
+
+
+    /**
+     * Discard all the cached results of host name lookups.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @since 2.3
+     */
+    public WebSocketFactory clearDnsCache()
+    {
+        mDnsCache.clear();
+
+        return this;
+    }
+
+
     /**
      * Create a WebSocket.
      *
@@ -487,6 +829,83 @@ public class WebSocketFactory
     }
 
 
+    /**
+     * Create a connector which connects many WebSockets with bounded
+     * parallelism and rate. URIs given to it are turned into WebSockets
+     * by this factory.
+     *
+     * @return
+     *         A new bulk connector.
+     *
+     * @since 2.3
+     *
+     * @see BulkConnector
+     */
+    public BulkConnector createBulkConnector()
+    {
+        return new BulkConnector(this);
+    }
+
+
+    /**
+     * Create a pool of standby WebSockets connected to the given endpoint.
+     *
+     * <p>
+     * This method is an alias of {@link #createPool(URI) createPool}{@code
+     * (URI.}{@link URI#create(String) create}{@code (uri))}.
+     * </p>
+     *
+     * @param uri
+     *         The URI of the WebSocket endpoint on the server side.
+     *
+     * @return
+     *         A pool, which has not been started yet.
+     *
+     * @throws IllegalArgumentException
+     *         The given URI is {@code null} or violates RFC 2396.
+     *
+     * @since 2.3
+     */
+    public WebSocketPool createPool(String uri)
+    {
+        if (uri == null)
+        {
+            throw new IllegalArgumentException("The given URI is null.");
+        }
+
+        return createPool(URI.create(uri));
+    }
+
+
+    /**
+     * Create a pool of standby WebSockets connected to the given endpoint.
+     * The WebSockets are created by this factory with {@link
+     * #getConnectionTimeout() the connection timeout} of this factory.
+     *
+     * @param uri
+     *         The URI of the WebSocket endpoint on the server side.
+     *
+     * @return
+     *         A pool, which has not been started yet.
+     *
+     * @throws IllegalArgumentException
+     *         The given URI is {@code null}.
+     *
+     * @since 2.3
+     *
+     * @see WebSocketPool
+     */
+    public WebSocketPool createPool(URI uri)
+    {
+        if (uri == null)
+        {
+            throw new IllegalArgumentException("The given URI is null.");
+        }
+
+        return new WebSocketPool(this, uri);
+    }
+
+
     private WebSocket createSocket(
         String scheme, String userInfo, String host, int port,
         String path, String query, int timeout) throws IOException
@@ -595,7 +1014,7 @@ public class WebSocketFactory
         Address address = new Address(mProxySettings.getHost(), proxyPort);
 
         // The delegatee for the handshake with the proxy.
-        ProxyHandshaker handshaker = new ProxyHandshaker(socket, host, port, mProxySettings);
+        ProxyHandshaker handshaker = new ProxyHandshaker(host, port, mProxySettings);
 
         // SSLSocketFactory for SSL handshake with the WebSocket endpoint.
         SSLSocketFactory sslSocketFactory = secure ?
@@ -603,7 +1022,8 @@ public class WebSocketFactory
 
         // Create an instance that will execute the task to connect to the server later.
         return new SocketConnector(
-                socket, address, timeout, handshaker, sslSocketFactory, host, port);
+                socketFactory, socket, address, timeout, mDnsCache,
+                mAddressStatistics, mConnectionAttemptDelay, mVerificationCache, handshaker, sslSocketFactory, host, port);
     }
 
 
@@ -619,7 +1039,8 @@ public class WebSocketFactory
         Address address = new Address(host, port);
 
         // Create an instance that will execute the task to connect to the server later.
-        return new SocketConnector(socket, address, timeout);
+        return new SocketConnector(factory, socket, address, timeout,
+                mDnsCache, mAddressStatistics, mConnectionAttemptDelay, mVerificationCache);
     }
 
 
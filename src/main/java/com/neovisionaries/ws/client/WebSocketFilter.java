@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Filter to select {@link WebSocket} instances.
+ *
+ * @see WebSocketGroup#broadcastText(String, WebSocketFilter)
+ *
+ * @since 2.3
+ */
+public interface WebSocketFilter
+{
+    /**
+     * Check whether the given {@link WebSocket} should be selected.
+     *
+     * <p>
+     * This method may be called from multiple threads concurrently.
+     * </p>
+     *
+     * @param websocket
+     *         A WebSocket.
+     *
+     * @return
+     *         {@code true} if the WebSocket should be selected.
+     */
+    boolean accept(WebSocket websocket);
+}
@@ -42,6 +42,7 @@ public class WebSocketFrame
     private int mOpcode;
     private boolean mMask;
     private byte[] mPayload;
+    private long mQueuedAt;
 
 
     /**
@@ -439,6 +440,24 @@ public class WebSocketFrame
     }
 
 
+    /**
+     * Get the time at which this frame was queued to the writing thread.
+     *
+     * @return
+     *         The value of {@link System#nanoTime()} at the time.
+     */
+    long getQueuedAt()
+    {
+        return mQueuedAt;
+    }
+
+
+    void setQueuedAt(long queuedAt)
+    {
+        mQueuedAt = queuedAt;
+    }
+
+
     /**
      * Get the unmasked payload.
      *
@@ -0,0 +1,709 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static com.neovisionaries.ws.client.WebSocketState.CLOSED;
+import static com.neovisionaries.ws.client.WebSocketState.OPEN;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * A set of {@link WebSocket} instances to which the same message can be
+ * broadcast.
+ *
+ * <p>
+ * A WebSocket added to a group is removed from the group automatically
+ * when it is disconnected. A broadcast visits the WebSockets in the
+ * group and queues the message to each of them, skipping WebSockets
+ * whose state is not {@link WebSocketState#OPEN OPEN} and WebSockets
+ * whose frame queue has reached the {@linkplain #setQueueWatermark(int)
+ * watermark}. A text message is encoded into UTF-8 only once regardless
+ * of the number of WebSockets in the group.
+ * </p>
+ *
+ * <p>
+ * By default, a broadcast is performed on the calling thread. If an
+ * {@link Executor} is set by {@link #setExecutor(Executor)} and the
+ * {@linkplain #setParallelism(int) parallelism} is greater than 1,
+ * the WebSockets are split into chunks and the chunks are processed
+ * in parallel. In either case, the broadcast methods return after all
+ * the WebSockets have been visited.
+ * </p>
+ *
+ * <pre style="border-left: solid 5px lightgray;"> WebSocketGroup group = new WebSocketGroup()
+ *     .setExecutor(executor)
+ *     .setParallelism(4)
+ *     .setQueueWatermark(100);
+ *
+ * group.add(ws1).add(ws2).add(ws3);
+ *
+ * BroadcastResult result = group.broadcastText("Hello");</pre>
+ *
+ * @see BroadcastResult
+ * @see WebSocketFilter
+ *
+ * @since 2.3
+ */
+public class WebSocketGroup
+{
+    private static final WebSocket[] EMPTY = new WebSocket[0];
+    private final Object mLock = new Object();
+    private final WebSocketListener mRemover = new Remover();
+    private volatile WebSocket[] mWebSockets = EMPTY;
+    private Executor mExecutor;
+    private int mParallelism = 1;
+    private int mQueueWatermark;
+
+
+    /**
+     * Add a WebSocket to this group.
+     *
+     * @param websocket
+     *         A WebSocket to add. {@code null} is silently ignored.
+     *         Adding a WebSocket which is already in this group has
+     *         no effect.
+     *
+     * @return
+     *         {@code this} object.
+     */
+    public WebSocketGroup add(WebSocket websocket)
+    {
+        if (websocket == null)
+        {
+            return this;
+        }
+
+        synchronized (mLock)
+        {
+            if (indexOf(mWebSockets, websocket) >= 0)
+            {
+                return this;
+            }
+
+            WebSocket[] websockets = Arrays.copyOf(mWebSockets, mWebSockets.length + 1);
+            websockets[websockets.length - 1] = websocket;
+            mWebSockets = websockets;
+        }
+
+        // Remove the WebSocket from this group when it is disconnected.
+        websocket.addListener(mRemover);
+
+        // If the WebSocket was closed before the listener was registered.
+        if (websocket.getState() == CLOSED)
+        {
+            remove(websocket);
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Remove a WebSocket from this group.
+     *
+     * @param websocket
+     *         A WebSocket to remove. {@code null} is silently ignored.
+     *
+     * @return
+     *         {@code this} object.
+     */
+    public WebSocketGroup remove(WebSocket websocket)
+    {
+        if (websocket == null)
+        {
+            return this;
+        }
+
+        synchronized (mLock)
+        {
+            int index = indexOf(mWebSockets, websocket);
+
+            if (index < 0)
+            {
+                return this;
+            }
+
+            WebSocket[] websockets = new WebSocket[mWebSockets.length - 1];
+            System.arraycopy(mWebSockets, 0, websockets, 0, index);
+            System.arraycopy(mWebSockets, index + 1, websockets, index, websockets.length - index);
+            mWebSockets = websockets;
+        }
+
+        websocket.removeListener(mRemover);
+
+        return this;
+    }
+
+
+    /**
+     * Remove all the WebSockets from this group.
+     *
+     * @return
+     *         {@code this} object.
+     */
+    public WebSocketGroup clear()
+    {
+        WebSocket[] websockets;
+
+        synchronized (mLock)
+        {
+            websockets  = mWebSockets;
+            mWebSockets = EMPTY;
+        }
+
+        for (WebSocket websocket : websockets)
+        {
+            websocket.removeListener(mRemover);
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Get the WebSockets in this group.
+     *
+     * @return
+     *         A copy of the list of the WebSockets in this group.
+     */
+    public List<WebSocket> getWebSockets()
+    {
+        return new ArrayList<WebSocket>(Arrays.asList(mWebSockets));
+    }
+
+
+    /**
+     * Get the number of WebSockets in this group.
+     *
+     * @return
+     *         The number of WebSockets in this group.
+     */
+    public int size()
+    {
+        return mWebSockets.length;
+    }
+
+
+    /**
+     * Get the executor used for parallel broadcast.
+     *
+     * @return
+     *         The executor. {@code null} means that broadcast is
+     *         performed on the calling thread.
+     */
+    public Executor getExecutor()
+    {
+        synchronized (mLock)
+        {
+            return mExecutor;
+        }
+    }
+
+
+    /**
+     * Set the executor used for parallel broadcast. The executor can be
+     * shared among multiple groups.
+     *
+     * @param executor
+     *         An executor. {@code null} to perform broadcast on the calling
+     *         thread.
+     *
+     * @return
+     *         {@code this} object.
+     */
+    public WebSocketGroup setExecutor(Executor executor)
+    {
+        synchronized (mLock)
+        {
+            mExecutor = executor;
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Get the maximum number of chunks processed in parallel during
+     * a broadcast. The default value is 1.
+     *
+     * @return
+     *         The parallelism.
+     */
+    public int getParallelism()
+    {
+        synchronized (mLock)
+        {
+            return mParallelism;
+        }
+    }
+
+
+    /**
+     * Set the maximum number of chunks processed in parallel during
+     * a broadcast. This setting takes effect only when an executor
+     * has been set by {@link #setExecutor(Executor)}.
+     *
+     * @param parallelism
+     *         The parallelism. Must be 1 or greater.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         {@code parallelism} is less than 1.
+     */
+    public WebSocketGroup setParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("parallelism must be 1 or greater.");
+        }
+
+        synchronized (mLock)
+        {
+            mParallelism = parallelism;
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Get the queue watermark. The default value is 0 and it means
+     * that WebSockets are not skipped based on their queue sizes.
+     *
+     * @return
+     *         The queue watermark.
+     */
+    public int getQueueWatermark()
+    {
+        synchronized (mLock)
+        {
+            return mQueueWatermark;
+        }
+    }
+
+
+    /**
+     * Set the queue watermark.
+     *
+     * <p>
+     * A WebSocket whose number of queued frames has reached the watermark
+     * is skipped by broadcast so that a slow peer does not make the
+     * queue grow without limit. Regardless of this setting, a WebSocket
+     * whose queue has reached the limit set by {@link
+     * WebSocket#setFrameQueueSize(int)} is skipped, because queuing a
+     * frame to it would block the broadcast.
+     * </p>
+     *
+     * @param watermark
+     *         The queue watermark. 0 means no watermark.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         {@code watermark} is negative.
+     */
+    public WebSocketGroup setQueueWatermark(int watermark)
+    {
+        if (watermark < 0)
+        {
+            throw new IllegalArgumentException("watermark must not be negative.");
+        }
+
+        synchronized (mLock)
+        {
+            mQueueWatermark = watermark;
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Broadcast a text message to all the WebSockets in this group.
+     *
+     * @param message
+     *         A text message.
+     *
+     * @return
+     *         The statistics of the broadcast.
+     */
+    public BroadcastResult broadcastText(String message)
+    {
+        return broadcastText(message, null);
+    }
+
+
+    /**
+     * Broadcast a text message to the WebSockets selected by the filter.
+     *
+     * @param message
+     *         A text message.
+     *
+     * @param filter
+     *         A filter to select WebSockets. {@code null} selects all.
+     *
+     * @return
+     *         The statistics of the broadcast.
+     */
+    public BroadcastResult broadcastText(String message, WebSocketFilter filter)
+    {
+        return broadcastFrame(WebSocketFrame.createTextFrame(message), filter);
+    }
+
+
+    /**
+     * Broadcast a binary message to all the WebSockets in this group.
+     *
+     * @param message
+     *         A binary message. The array must not be modified until
+     *         the frames are sent.
+     *
+     * @return
+     *         The statistics of the broadcast.
+     */
+    public BroadcastResult broadcastBinary(byte[] message)
+    {
+        return broadcastBinary(message, null);
+    }
+
+
+    /**
+     * Broadcast a binary message to the WebSockets selected by the filter.
+     *
+     * @param message
+     *         A binary message. The array must not be modified until
+     *         the frames are sent.
+     *
+     * @param filter
+     *         A filter to select WebSockets. {@code null} selects all.
+     *
+     * @return
+     *         The statistics of the broadcast.
+     */
+    public BroadcastResult broadcastBinary(byte[] message, WebSocketFilter filter)
+    {
+        return broadcastFrame(WebSocketFrame.createBinaryFrame(message), filter);
+    }
+
+
+    /**
+     * Broadcast a frame to all the WebSockets in this group.
+     *
+     * @param frame
+     *         A frame. Each WebSocket receives its own copy of the frame
+     *         which shares the payload with the given one.
+     *
+     * @return
+     *         The statistics of the broadcast.
+     */
+    public BroadcastResult broadcastFrame(WebSocketFrame frame)
+    {
+        return broadcastFrame(frame, null);
+    }
+
+
+    /**
+     * Broadcast a frame to the WebSockets selected by the filter.
+     *
+     * @param frame
+     *         A frame. Each WebSocket receives its own copy of the frame
+     *         which shares the payload with the given one.
+     *
+     * @param filter
+     *         A filter to select WebSockets. {@code null} selects all.
+     *
+     * @return
+     *         The statistics of the broadcast.
+     *
+     * @throws IllegalArgumentException
+     *         {@code frame} is {@code null}.
+     */
+    public BroadcastResult broadcastFrame(WebSocketFrame frame, WebSocketFilter filter)
+    {
+        if (frame == null)
+        {
+            throw new IllegalArgumentException("frame is null.");
+        }
+
+        long startedAt = System.nanoTime();
+
+        // The WebSockets at this moment.
+        WebSocket[] websockets = mWebSockets;
+
+        Executor executor;
+        int parallelism;
+        int watermark;
+
+        synchronized (mLock)
+        {
+            executor    = mExecutor;
+            parallelism = mParallelism;
+            watermark   = mQueueWatermark;
+        }
+
+        // The number of chunks processed in parallel.
+        int chunks = (executor == null) ? 1 : Math.min(parallelism, websockets.length);
+
+        Tally[] tallies;
+
+        if (chunks <= 1)
+        {
+            // Process all the WebSockets on the calling thread.
+            Tally tally = new Tally(websockets, 0, websockets.length, frame, filter, watermark, null);
+            tally.run();
+            tallies = new Tally[] { tally };
+        }
+        else
+        {
+            tallies = fanOut(executor, chunks, websockets, frame, filter, watermark);
+        }
+
+        return summarize(websockets.length, tallies, System.nanoTime() - startedAt);
+    }
+
+
+    private static Tally[] fanOut(
+            Executor executor, int chunks, WebSocket[] websockets,
+            WebSocketFrame frame, WebSocketFilter filter, int watermark)
+    {
+        CountDownLatch latch = new CountDownLatch(chunks);
+        Tally[] tallies = new Tally[chunks];
+
+        for (int i = 0; i < chunks; ++i)
+        {
+            int from = (int)((long)websockets.length *  i      / chunks);
+            int to   = (int)((long)websockets.length * (i + 1) / chunks);
+
+            tallies[i] = new Tally(websockets, from, to, frame, filter, watermark, latch);
+        }
+
+        // Let the executor process all the chunks but the first one.
+        for (int i = 1; i < chunks; ++i)
+        {
+            try
+            {
+                executor.execute(tallies[i]);
+            }
+            catch (RejectedExecutionException e)
+            {
+                // Process the chunk on the calling thread instead.
+                tallies[i].run();
+            }
+        }
+
+        // Process the first chunk on the calling thread.
+        tallies[0].run();
+
+        boolean interrupted = false;
+
+        while (true)
+        {
+            try
+            {
+                // Wait for the other chunks to be processed.
+                latch.await();
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted)
+        {
+            // Restore the interrupted status.
+            Thread.currentThread().interrupt();
+        }
+
+        return tallies;
+    }
+
+
+    private static BroadcastResult summarize(int targetCount, Tally[] tallies, long elapsedTime)
+    {
+        int queued = 0, filtered = 0, notOpen = 0, overWatermark = 0, failed = 0;
+
+        for (Tally tally : tallies)
+        {
+            queued        += tally.mQueued;
+            filtered      += tally.mFiltered;
+            notOpen       += tally.mNotOpen;
+            overWatermark += tally.mOverWatermark;
+            failed        += tally.mFailed;
+        }
+
+        return new BroadcastResult(
+            targetCount, queued, filtered, notOpen, overWatermark, failed, elapsedTime);
+    }
+
+
+    private static int indexOf(WebSocket[] websockets, WebSocket websocket)
+    {
+        for (int i = 0; i < websockets.length; ++i)
+        {
+            if (websockets[i] == websocket)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Create a copy of the frame which shares the payload with the original.
+     * Each WebSocket needs its own instance because the writing thread may
+     * modify the frame (e.g. on compression).
+     */
+    private static WebSocketFrame copyFrame(WebSocketFrame frame)
+    {
+        return new WebSocketFrame()
+            .setFin(frame.getFin())
+            .setRsv1(frame.getRsv1())
+            .setRsv2(frame.getRsv2())
+            .setRsv3(frame.getRsv3())
+            .setOpcode(frame.getOpcode())
+            .setPayload(frame.getPayload());
+    }
+
+
+    /**
+     * A task which queues a frame to a range of WebSockets and counts the results.
+     */
+    private static class Tally implements Runnable
+    {
+        private final WebSocket[] mWebSockets;
+        private final int mFrom;
+        private final int mTo;
+        private final WebSocketFrame mFrame;
+        private final WebSocketFilter mFilter;
+        private final int mWatermark;
+        private final CountDownLatch mLatch;
+        private int mQueued;
+        private int mFiltered;
+        private int mNotOpen;
+        private int mOverWatermark;
+        private int mFailed;
+
+
+        Tally(WebSocket[] websockets, int from, int to, WebSocketFrame frame,
+              WebSocketFilter filter, int watermark, CountDownLatch latch)
+        {
+            mWebSockets = websockets;
+            mFrom       = from;
+            mTo         = to;
+            mFrame      = frame;
+            mFilter     = filter;
+            mWatermark  = watermark;
+            mLatch      = latch;
+        }
+
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                for (int i = mFrom; i < mTo; ++i)
+                {
+                    send(mWebSockets[i]);
+                }
+            }
+            finally
+            {
+                if (mLatch != null)
+                {
+                    mLatch.countDown();
+                }
+            }
+        }
+
+
+        private void send(WebSocket websocket)
+        {
+            try
+            {
+                if (mFilter != null && mFilter.accept(websocket) == false)
+                {
+                    ++mFiltered;
+                    return;
+                }
+
+                if (websocket.getState() != OPEN)
+                {
+                    ++mNotOpen;
+                    return;
+                }
+
+                if (isOverWatermark(websocket))
+                {
+                    ++mOverWatermark;
+                    return;
+                }
+
+                websocket.sendFrame(copyFrame(mFrame));
+
+                ++mQueued;
+            }
+            catch (Throwable t)
+            {
+                ++mFailed;
+            }
+        }
+
+
+        private boolean isOverWatermark(WebSocket websocket)
+        {
+            int count = websocket.getQueuedFrameCount();
+
+            if (0 < mWatermark && mWatermark <= count)
+            {
+                return true;
+            }
+
+            // queueFrame() would block if the queue is full.
+            int limit = websocket.getFrameQueueSize();
+
+            return (0 < limit && limit <= count);
+        }
+    }
+
+
+    /**
+     * Removes a WebSocket from the group when it is disconnected.
+     */
+    private class Remover extends WebSocketAdapter
+    {
+        @Override
+        public void onDisconnected(WebSocket websocket,
+            WebSocketFrame serverCloseFrame, WebSocketFrame clientCloseFrame,
+            boolean closedByServer) throws Exception
+        {
+            remove(websocket);
+        }
+    }
+}
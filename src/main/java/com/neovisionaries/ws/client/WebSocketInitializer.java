@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Initializer to set up {@link WebSocket} instances created by a
+ * {@link WebSocketPool} before they are connected.
+ *
+ * @see WebSocketPool#setInitializer(WebSocketInitializer)
+ *
+ * @since 2.3
+ */
+public interface WebSocketInitializer
+{
+    /**
+     * Set up the given WebSocket, e.g. add extensions, protocols and
+     * headers to it. It is called before {@link WebSocket#connect()}.
+     *
+     * <p>
+     * This method is called on the background thread of the pool, or on
+     * the thread calling {@link WebSocketPool#checkout()} when no standby
+     * WebSocket is available.
+     * </p>
+     *
+     * @param websocket
+     *         A WebSocket which has not been connected yet.
+     */
+    void initialize(WebSocket websocket);
+}
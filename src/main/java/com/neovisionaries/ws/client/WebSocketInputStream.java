@@ -29,12 +29,6 @@ class WebSocketInputStream extends FilterInputStream
     }
 
 
-    public String readLine() throws IOException
-    {
-        return Misc.readLine(this, "UTF-8");
-    }
-
-
     public WebSocketFrame readFrame() throws IOException, WebSocketException
     {
         // Buffer.
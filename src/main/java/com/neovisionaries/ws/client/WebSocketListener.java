@@ -59,6 +59,11 @@ public interface WebSocketListener
     /**
      * Called after the opening handshake of the WebSocket connection succeeded.
      *
+     * <p>
+     * The durations of the connection phases are available from
+     * {@link WebSocket#getConnectTimings()}.
+     * </p>
+     *
      * @param websocket
      *         The WebSsocket.
      *
@@ -86,6 +91,11 @@ public interface WebSocketListener
      * connect(ExecutorService)} will trigger this callback method.
      * </p>
      *
+     * <p>
+     * {@link WebSocket#getConnectTimings()} tells which phase failed and
+     * how long the phases before it took.
+     * </p>
+     *
      * @param websocket
      *         The WebSocket.
      *
@@ -263,6 +273,32 @@ public interface WebSocketListener
     void onTextMessage(WebSocket websocket, String text) throws Exception;
 
 
+    /**
+     * Called when a text message was received instead of
+     * {@link #onTextMessage(WebSocket, String)} when {@link
+     * WebSocket#isDirectTextMessage()} returns {@code true}.
+     *
+     * <p>
+     * The byte array has already been validated as a UTF-8 byte sequence,
+     * so it can be passed to a parser which reads UTF-8 directly without
+     * constructing a {@code String}.
+     * </p>
+     *
+     * @param websocket
+     *         The WebSocket.
+     *
+     * @param data
+     *         The UTF-8 byte sequence of the text message.
+     *
+     * @throws Exception
+     *         An exception thrown by an implementation of this method.
+     *         The exception is passed to {@link #handleCallbackError(WebSocket, Throwable)}.
+     *
+     * @since 2.3
+     */
+    void onTextMessageBytes(WebSocket websocket, byte[] data) throws Exception;
+
+
     /**
      * Called when a binary message was received.
      *
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Built-in counters of a {@link WebSocket} or of all the WebSockets
+ * created by a {@link WebSocketFactory}.
+ *
+ * <p>
+ * The counters are updated by the reading thread and the writing thread
+ * without calling any listener. Each {@link WebSocket} has its own
+ * instance ({@link WebSocket#getMetrics()}) whose updates are also added
+ * to the instance of the factory ({@link WebSocketFactory#getMetrics()}).
+ * The counters of the factory are striped so that many connections can
+ * update them concurrently without contention.
+ * </p>
+ *
+ * <p>
+ * Byte counts are payload lengths of frames. Frame headers are not
+ * included.
+ * </p>
+ *
+ * <pre style="border-left: solid 5px lightgray;"> WebSocketMetricsSnapshot snapshot = ws.{@link
+ * WebSocket#getMetrics() getMetrics()}.{@link #snapshot()};
+ *
+ * System.out.println(snapshot.{@link WebSocketMetricsSnapshot#getFramesIn() getFramesIn()});</pre>
+ *
+ * @see WebSocketMetricsSnapshot
+ *
+ * @since 2.3
+ */
+public class WebSocketMetrics
+{
+    static final int FRAMES_IN           = 0;
+    static final int BYTES_IN            = 16;
+    static final int FRAMES_OUT          = 32;
+    static final int BYTES_OUT           = 48;
+    static final int MESSAGES_IN         = 64;
+    static final int MESSAGES_OUT        = 65;
+    static final int COMPRESSED_IN       = 66;
+    static final int DECOMPRESSED_IN     = 67;
+    static final int UNCOMPRESSED_OUT    = 68;
+    static final int COMPRESSED_OUT      = 69;
+    static final int QUEUED              = 70;
+    static final int DEQUEUED            = 71;
+    static final int QUEUE_TIME          = 72;
+    static final int FLUSHES             = 73;
+    static final int RECONNECTS          = 74;
+    static final int RECONNECT_FAILURES  = 75;
+    static final int RECONNECTED         = 76;
+    static final int RECONNECT_TIME      = 77;
+    static final int DISCARDED           = 78;
+    static final int SIZE                = 79;
+
+
+    private final StripedCounters mCounters;
+    private final WebSocketMetrics mParent;
+
+
+    /**
+     * Constructor for the metrics shared by all the WebSockets
+     * created by a factory.
+     */
+    WebSocketMetrics()
+    {
+        mCounters = new StripedCounters(SIZE, StripedCounters.defaultStripes());
+        mParent   = null;
+    }
+
+
+    /**
+     * Constructor for the metrics of one WebSocket.
+     *
+     * @param parent
+     *         The metrics of the factory. May be {@code null}.
+     */
+    WebSocketMetrics(WebSocketMetrics parent)
+    {
+        mCounters = new StripedCounters(SIZE, 1);
+        mParent   = parent;
+    }
+
+
+    /**
+     * Take a snapshot of the counters.
+     *
+     * @return
+     *         A snapshot of the counters.
+     */
+    public WebSocketMetricsSnapshot snapshot()
+    {
+        return new WebSocketMetricsSnapshot(mCounters.getAll());
+    }
+
+
+    /**
+     * Register the metrics to the platform MBean server as a {@link
+     * WebSocketMetricsMXBean}.
+     *
+     * <p>
+     * This method is not available on platforms which do not support
+     * JMX such as Android.
+     * </p>
+     *
+     * @param objectName
+     *         The object name of the MBean, for example,
+     *         {@code "com.neovisionaries.ws.client:type=WebSocketMetrics,name=chat"}.
+     *
+     * @throws IllegalStateException
+     *         Registration failed. For example, the object name is
+     *         malformed or already registered.
+     */
+    public void registerMBean(String objectName)
+    {
+        MetricsMBean.register(this, objectName);
+    }
+
+
+    /**
+     * Unregister the MBean registered by {@link #registerMBean(String)}.
+     *
+     * @param objectName
+     *         The object name of the MBean.
+     *
+     * @throws IllegalStateException
+     *         Unregistration failed.
+     */
+    public void unregisterMBean(String objectName)
+    {
+        MetricsMBean.unregister(objectName);
+    }
+
+
+    long get(int index)
+    {
+        return mCounters.get(index);
+    }
+
+
+    private void add(int index, long delta)
+    {
+        mCounters.add(index, delta);
+
+        if (mParent != null)
+        {
+            mParent.add(index, delta);
+        }
+    }
+
+
+    void onFrameReceived(WebSocketFrame frame)
+    {
+        int opcode = frame.getOpcode() & 0x0F;
+
+        add(FRAMES_IN + opcode, 1);
+        add(BYTES_IN  + opcode, frame.getPayloadLength());
+    }
+
+
+    void onFrameSent(WebSocketFrame frame)
+    {
+        int opcode = frame.getOpcode() & 0x0F;
+
+        add(FRAMES_OUT + opcode, 1);
+        add(BYTES_OUT  + opcode, frame.getPayloadLength());
+
+        // If the frame is the last frame of a data message.
+        if (frame.getFin() && (frame.isDataFrame() || frame.isContinuationFrame()))
+        {
+            add(MESSAGES_OUT, 1);
+        }
+    }
+
+
+    void onMessageReceived()
+    {
+        add(MESSAGES_IN, 1);
+    }
+
+
+    void onDecompressed(int compressed, int decompressed)
+    {
+        add(COMPRESSED_IN,   compressed);
+        add(DECOMPRESSED_IN, decompressed);
+    }
+
+
+    void onCompressed(int uncompressed, int compressed)
+    {
+        add(UNCOMPRESSED_OUT, uncompressed);
+        add(COMPRESSED_OUT,   compressed);
+    }
+
+
+    void onFrameQueued()
+    {
+        add(QUEUED, 1);
+    }
+
+
+    void onFrameDequeued(long queueTime)
+    {
+        add(DEQUEUED, 1);
+        add(QUEUE_TIME, queueTime);
+    }
+
+
+    void onFramesDiscarded(int count)
+    {
+        add(DISCARDED, count);
+    }
+
+
+    void onFlush()
+    {
+        add(FLUSHES, 1);
+    }
+
+
+    void onReconnect()
+    {
+        add(RECONNECTS, 1);
+    }
+
+
+    void onReconnectFailed()
+    {
+        add(RECONNECT_FAILURES, 1);
+    }
+
+
+    void onReconnected(long reconnectTime)
+    {
+        add(RECONNECTED, 1);
+        add(RECONNECT_TIME, reconnectTime);
+    }
+}
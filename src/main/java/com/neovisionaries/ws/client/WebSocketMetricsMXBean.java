@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Management interface of {@link WebSocketMetrics} registered by
+ * {@link WebSocketMetrics#registerMBean(String)}. See
+ * {@link WebSocketMetricsSnapshot} for the meaning of each attribute.
+ *
+ * @since 2.3
+ */
+public interface WebSocketMetricsMXBean
+{
+    long getFramesIn();
+    long getBytesIn();
+    long getFramesOut();
+    long getBytesOut();
+    long getMessagesIn();
+    long getMessagesOut();
+    long getCompressedBytesIn();
+    long getDecompressedBytesIn();
+    long getUncompressedBytesOut();
+    long getCompressedBytesOut();
+    long getQueueDepth();
+    long getAverageQueueTime();
+    long getFlushCount();
+    long getReconnectCount();
+    long getReconnectFailureCount();
+    long getReconnectedCount();
+    long getAverageReconnectTime();
+}
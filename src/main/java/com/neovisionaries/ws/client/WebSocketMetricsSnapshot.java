@@ -0,0 +1,401 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static com.neovisionaries.ws.client.WebSocketMetrics.BYTES_IN;
+import static com.neovisionaries.ws.client.WebSocketMetrics.BYTES_OUT;
+import static com.neovisionaries.ws.client.WebSocketMetrics.COMPRESSED_IN;
+import static com.neovisionaries.ws.client.WebSocketMetrics.COMPRESSED_OUT;
+import static com.neovisionaries.ws.client.WebSocketMetrics.DECOMPRESSED_IN;
+import static com.neovisionaries.ws.client.WebSocketMetrics.DEQUEUED;
+import static com.neovisionaries.ws.client.WebSocketMetrics.DISCARDED;
+import static com.neovisionaries.ws.client.WebSocketMetrics.FLUSHES;
+import static com.neovisionaries.ws.client.WebSocketMetrics.FRAMES_IN;
+import static com.neovisionaries.ws.client.WebSocketMetrics.FRAMES_OUT;
+import static com.neovisionaries.ws.client.WebSocketMetrics.MESSAGES_IN;
+import static com.neovisionaries.ws.client.WebSocketMetrics.MESSAGES_OUT;
+import static com.neovisionaries.ws.client.WebSocketMetrics.QUEUED;
+import static com.neovisionaries.ws.client.WebSocketMetrics.QUEUE_TIME;
+import static com.neovisionaries.ws.client.WebSocketMetrics.RECONNECTED;
+import static com.neovisionaries.ws.client.WebSocketMetrics.RECONNECTS;
+import static com.neovisionaries.ws.client.WebSocketMetrics.RECONNECT_FAILURES;
+import static com.neovisionaries.ws.client.WebSocketMetrics.RECONNECT_TIME;
+import static com.neovisionaries.ws.client.WebSocketMetrics.UNCOMPRESSED_OUT;
+
+
+/**
+ * A snapshot of {@link WebSocketMetrics}.
+ *
+ * <p>
+ * Counters are read one by one without stopping the threads which
+ * update them, so the values in a snapshot are not guaranteed to be
+ * mutually consistent while traffic is flowing.
+ * </p>
+ *
+ * @since 2.3
+ */
+public class WebSocketMetricsSnapshot
+{
+    private final long[] mValues;
+
+
+    WebSocketMetricsSnapshot(long[] values)
+    {
+        mValues = values;
+    }
+
+
+    private long sum(int base)
+    {
+        long sum = 0;
+
+        for (int opcode = 0; opcode < 16; ++opcode)
+        {
+            sum += mValues[base + opcode];
+        }
+
+        return sum;
+    }
+
+
+    /**
+     * Get the number of frames received.
+     *
+     * @return
+     *         The number of frames received.
+     */
+    public long getFramesIn()
+    {
+        return sum(FRAMES_IN);
+    }
+
+
+    /**
+     * Get the number of frames received with the opcode.
+     *
+     * @param opcode
+     *         An opcode. See {@link WebSocketOpcode}.
+     *
+     * @return
+     *         The number of frames received with the opcode.
+     */
+    public long getFramesIn(int opcode)
+    {
+        return mValues[FRAMES_IN + (opcode & 0x0F)];
+    }
+
+
+    /**
+     * Get the total payload length of the frames received.
+     *
+     * @return
+     *         The number of payload bytes received.
+     */
+    public long getBytesIn()
+    {
+        return sum(BYTES_IN);
+    }
+
+
+    /**
+     * Get the total payload length of the frames received with the opcode.
+     *
+     * @param opcode
+     *         An opcode. See {@link WebSocketOpcode}.
+     *
+     * @return
+     *         The number of payload bytes received with the opcode.
+     */
+    public long getBytesIn(int opcode)
+    {
+        return mValues[BYTES_IN + (opcode & 0x0F)];
+    }
+
+
+    /**
+     * Get the number of frames sent.
+     *
+     * @return
+     *         The number of frames sent.
+     */
+    public long getFramesOut()
+    {
+        return sum(FRAMES_OUT);
+    }
+
+
+    /**
+     * Get the number of frames sent with the opcode.
+     *
+     * @param opcode
+     *         An opcode. See {@link WebSocketOpcode}.
+     *
+     * @return
+     *         The number of frames sent with the opcode.
+     */
+    public long getFramesOut(int opcode)
+    {
+        return mValues[FRAMES_OUT + (opcode & 0x0F)];
+    }
+
+
+    /**
+     * Get the total payload length of the frames sent. When compression
+     * is enabled, the compressed lengths are counted.
+     *
+     * @return
+     *         The number of payload bytes sent.
+     */
+    public long getBytesOut()
+    {
+        return sum(BYTES_OUT);
+    }
+
+
+    /**
+     * Get the total payload length of the frames sent with the opcode.
+     *
+     * @param opcode
+     *         An opcode. See {@link WebSocketOpcode}.
+     *
+     * @return
+     *         The number of payload bytes sent with the opcode.
+     */
+    public long getBytesOut(int opcode)
+    {
+        return mValues[BYTES_OUT + (opcode & 0x0F)];
+    }
+
+
+    /**
+     * Get the number of text and binary messages received.
+     *
+     * @return
+     *         The number of messages received.
+     */
+    public long getMessagesIn()
+    {
+        return mValues[MESSAGES_IN];
+    }
+
+
+    /**
+     * Get the number of text and binary messages sent.
+     *
+     * @return
+     *         The number of messages sent.
+     */
+    public long getMessagesOut()
+    {
+        return mValues[MESSAGES_OUT];
+    }
+
+
+    /**
+     * Get the number of compressed bytes received.
+     *
+     * @return
+     *         The number of bytes given to the decompressor.
+     */
+    public long getCompressedBytesIn()
+    {
+        return mValues[COMPRESSED_IN];
+    }
+
+
+    /**
+     * Get the number of bytes obtained by decompressing received messages.
+     *
+     * @return
+     *         The number of bytes produced by the decompressor.
+     */
+    public long getDecompressedBytesIn()
+    {
+        return mValues[DECOMPRESSED_IN];
+    }
+
+
+    /**
+     * Get the number of bytes given to the compressor.
+     *
+     * @return
+     *         The number of bytes before compression.
+     */
+    public long getUncompressedBytesOut()
+    {
+        return mValues[UNCOMPRESSED_OUT];
+    }
+
+
+    /**
+     * Get the number of bytes produced by the compressor.
+     *
+     * @return
+     *         The number of bytes after compression.
+     */
+    public long getCompressedBytesOut()
+    {
+        return mValues[COMPRESSED_OUT];
+    }
+
+
+    /**
+     * Get the number of frames waiting in the queues of writing threads.
+     *
+     * @return
+     *         The depth of the writer queue.
+     */
+    public long getQueueDepth()
+    {
+        return Math.max(0, mValues[QUEUED] - mValues[DEQUEUED] - mValues[DISCARDED]);
+    }
+
+
+    /**
+     * Get the number of frames which have been taken out from the queues
+     * of writing threads.
+     *
+     * @return
+     *         The number of dequeued frames.
+     */
+    public long getDequeuedFrames()
+    {
+        return mValues[DEQUEUED];
+    }
+
+
+    /**
+     * Get the number of frames which were left in the queues of writing
+     * threads when the threads finished, for example, because of an I/O
+     * error. Such frames are never sent.
+     *
+     * @return
+     *         The number of discarded frames.
+     */
+    public long getDiscardedFrames()
+    {
+        return mValues[DISCARDED];
+    }
+
+
+    /**
+     * Get the total time frames spent in the queues of writing threads.
+     *
+     * @return
+     *         The total queueing time in nanoseconds.
+     */
+    public long getTotalQueueTime()
+    {
+        return mValues[QUEUE_TIME];
+    }
+
+
+    /**
+     * Get the average time frames spent in the queues of writing threads.
+     *
+     * @return
+     *         The average queueing time in nanoseconds. 0 if no frame
+     *         has been dequeued.
+     */
+    public long getAverageQueueTime()
+    {
+        long count = mValues[DEQUEUED];
+
+        return (count == 0) ? 0 : mValues[QUEUE_TIME] / count;
+    }
+
+
+    /**
+     * Get the number of times the output stream was flushed.
+     *
+     * @return
+     *         The number of flushes.
+     */
+    public long getFlushCount()
+    {
+        return mValues[FLUSHES];
+    }
+
+
+    /**
+     * Get the number of WebSockets created by {@link WebSocket#recreate()}.
+     *
+     * @return
+     *         The number of reconnections.
+     */
+    public long getReconnectCount()
+    {
+        return mValues[RECONNECTS];
+    }
+
+
+    /**
+     * Get the number of attempts by {@link WebSocketReconnector} which
+     * failed to connect.
+     *
+     * @return
+     *         The number of failed reconnection attempts.
+     */
+    public long getReconnectFailureCount()
+    {
+        return mValues[RECONNECT_FAILURES];
+    }
+
+
+    /**
+     * Get the number of times {@link WebSocketReconnector} restored a
+     * connection.
+     *
+     * @return
+     *         The number of successful automatic reconnections.
+     */
+    public long getReconnectedCount()
+    {
+        return mValues[RECONNECTED];
+    }
+
+
+    /**
+     * Get the average time taken by {@link WebSocketReconnector} from
+     * noticing a disconnection to restoring the connection, including
+     * the backoff delays and the failed attempts.
+     *
+     * @return
+     *         The average reconnection time in nanoseconds. 0 if no
+     *         connection has been restored.
+     */
+    public long getAverageReconnectTime()
+    {
+        long count = mValues[RECONNECTED];
+
+        return (count == 0) ? 0 : mValues[RECONNECT_TIME] / count;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+            "WebSocketMetricsSnapshot(framesIn=%d, bytesIn=%d, framesOut=%d, bytesOut=%d, " +
+            "messagesIn=%d, messagesOut=%d, queueDepth=%d, avgQueueTime=%dns, flushes=%d, reconnects=%d, " +
+            "reconnectFailures=%d, reconnected=%d, avgReconnectTime=%dns)",
+            getFramesIn(), getBytesIn(), getFramesOut(), getBytesOut(),
+            getMessagesIn(), getMessagesOut(), getQueueDepth(), getAverageQueueTime(),
+            getFlushCount(), getReconnectCount(), getReconnectFailureCount(),
+            getReconnectedCount(), getAverageReconnectTime());
+    }
+}
@@ -38,6 +38,14 @@ class WebSocketOutputStream extends FilterOutputStream
     }
 
 
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException
+    {
+        // FilterOutputStream writes the bytes one by one.
+        out.write(bytes, offset, length);
+    }
+
+
     public void write(WebSocketFrame frame) throws IOException
     {
         writeFrame0(frame);
@@ -0,0 +1,698 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+
+/**
+ * A pool of standby {@link WebSocket} instances which have already
+ * completed the opening handshake with the same endpoint.
+ *
+ * <p>
+ * A pool is created by {@link WebSocketFactory#createPool(URI)}. Once
+ * {@link #start() started}, a background thread keeps {@link #setSize(int)
+ * size} WebSockets connected, and {@link #checkout()} hands one of them
+ * out without waiting for the TCP connection, the TLS handshake and the
+ * opening handshake. The thread connects a new WebSocket to replace the
+ * one checked out.
+ * </p>
+ *
+ * <p>
+ * Standby WebSockets send ping frames every {@link #setPingInterval(long)
+ * ping interval} so that idle connections are not dropped by proxies,
+ * and are disconnected when they have been idle longer than the {@link
+ * #setMaxIdleTime(long) maximum idle time}. A standby WebSocket closed
+ * by the server is replaced, too.
+ * </p>
+ *
+ * <pre style="border-left: solid 5px lightgray;"> WebSocketPool pool = factory.createPool(uri)
+ *     .setSize(4)
+ *     .setInitializer(initializer)
+ *     .start();
+ *
+ * WebSocket ws = pool.checkout().addListener(listener);
+ * ...
+ * pool.shutdown();</pre>
+ *
+ * <p>
+ * Note that listeners are added to a WebSocket after it has been
+ * checked out, so {@link WebSocketListener#onConnected(WebSocket,
+ * java.util.Map) onConnected} is not delivered to them, and messages
+ * sent by the server before the checkout are not delivered, either.
+ * Listeners which need them should be added by the {@link
+ * WebSocketInitializer initializer}.
+ * </p>
+ *
+ * @since 2.3
+ */
+public class WebSocketPool
+{
+    /**
+     * The maximum interval in milliseconds between retries after
+     * failures to connect a standby WebSocket.
+     */
+    private static final long MAX_RETRY_INTERVAL = 60 * 1000L;
+
+
+    /**
+     * A standby WebSocket closed within this time in milliseconds after
+     * it was connected is regarded as a failure to connect, e.g. when the
+     * server accepts the opening handshake and closes the connection
+     * immediately because of an authentication error or overload.
+     */
+    private static final long EARLY_CLOSE_TIME = 1000L;
+
+
+    private final WebSocketFactory mFactory;
+    private final URI mURI;
+    private final LinkedList<Standby> mStandbys = new LinkedList<Standby>();
+    private int mSize = 1;
+    private long mMaxIdleTime = 5 * 60 * 1000L;
+    private long mPingInterval = 30 * 1000L;
+    private WebSocketInitializer mInitializer;
+    private Replenisher mReplenisher;
+    private boolean mShutdown;
+    private int mFailures;
+    private long mRetryAt;
+
+
+    WebSocketPool(WebSocketFactory factory, URI uri)
+    {
+        mFactory = factory;
+        mURI     = uri;
+    }
+
+
+    /**
+     * A connected WebSocket waiting to be checked out.
+     */
+    private static class Standby
+    {
+        private final WebSocket mWebSocket;
+        private final WebSocketListener mListener;
+        private final long mPingInterval;
+        private final long mConnectedAt;
+
+
+        Standby(WebSocket websocket, WebSocketListener listener, long pingInterval)
+        {
+            mWebSocket    = websocket;
+            mListener     = listener;
+            mPingInterval = pingInterval;
+            mConnectedAt  = System.currentTimeMillis();
+        }
+    }
+
+
+    /**
+     * A listener to notice that a standby WebSocket has been closed.
+     */
+    private class Remover extends WebSocketAdapter
+    {
+        @Override
+        public void onDisconnected(WebSocket websocket,
+            WebSocketFrame serverCloseFrame, WebSocketFrame clientCloseFrame,
+            boolean closedByServer) throws Exception
+        {
+            remove(websocket);
+        }
+    }
+
+
+    /**
+     * The thread to keep the standby WebSockets.
+     */
+    private class Replenisher extends Thread
+    {
+        Replenisher()
+        {
+            super("WebSocketPool");
+
+            setDaemon(true);
+        }
+
+
+        @Override
+        public void run()
+        {
+            replenish();
+        }
+    }
+
+
+    /**
+     * Get the endpoint of the WebSockets in this pool.
+     *
+     * @return
+     *         The URI of the WebSocket endpoint.
+     */
+    public URI getURI()
+    {
+        return mURI;
+    }
+
+
+    /**
+     * Get the number of standby WebSockets to keep. The default value is 1.
+     *
+     * @return
+     *         The number of standby WebSockets to keep.
+     */
+    public synchronized int getSize()
+    {
+        return mSize;
+    }
+
+
+    /**
+     * Set the number of standby WebSockets to keep.
+     *
+     * @param size
+     *         The number of standby WebSockets to keep. If it is smaller
+     *         than the current number of standby WebSockets, the excess
+     *         ones are disconnected.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given size is negative.
+     */
+    public WebSocketPool setSize(int size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("size cannot be negative.");
+        }
+
+        synchronized (this)
+        {
+            mSize = size;
+
+            // Let the background thread adjust the standby WebSockets.
+            notifyAll();
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Get the maximum time in milliseconds for which a standby WebSocket
+     * is kept. The default value is 5 minutes.
+     *
+     * @return
+     *         The maximum idle time in milliseconds. 0 means no limit.
+     */
+    public synchronized long getMaxIdleTime()
+    {
+        return mMaxIdleTime;
+    }
+
+
+    /**
+     * Set the maximum time in milliseconds for which a standby WebSocket
+     * is kept. A standby WebSocket idle longer than this is disconnected
+     * and replaced by a new one, so that a checked out WebSocket does not
+     * carry a stale session on the server side.
+     *
+     * @param time
+     *         The maximum idle time in milliseconds. 0 means no limit.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given time is negative.
+     */
+    public WebSocketPool setMaxIdleTime(long time)
+    {
+        if (time < 0)
+        {
+            throw new IllegalArgumentException("time cannot be negative.");
+        }
+
+        synchronized (this)
+        {
+            mMaxIdleTime = time;
+
+            notifyAll();
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Get the interval in milliseconds of ping frames sent by standby
+     * WebSockets. The default value is 30 seconds.
+     *
+     * @return
+     *         The ping interval in milliseconds.
+     */
+    public synchronized long getPingInterval()
+    {
+        return mPingInterval;
+    }
+
+
+    /**
+     * Set the interval in milliseconds of ping frames sent by standby
+     * WebSockets. It is applied to WebSockets connected after this call.
+     * When a WebSocket is checked out, its ping interval is restored to
+     * the value set by the {@link #setInitializer(WebSocketInitializer)
+     * initializer}, if any.
+     *
+     * @param interval
+     *         The ping interval in milliseconds. 0 disables pings.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalArgumentException
+     *         The given interval is negative.
+     */
+    public synchronized WebSocketPool setPingInterval(long interval)
+    {
+        if (interval < 0)
+        {
+            throw new IllegalArgumentException("interval cannot be negative.");
+        }
+
+        mPingInterval = interval;
+
+        return this;
+    }
+
+
+    /**
+     * Get the initializer of WebSockets.
+     *
+     * @return
+     *         The initializer. {@code null} if not set.
+     */
+    public synchronized WebSocketInitializer getInitializer()
+    {
+        return mInitializer;
+    }
+
+
+    /**
+     * Set the initializer which sets up WebSockets before they are
+     * connected. It is applied to WebSockets connected after this call.
+     *
+     * @param initializer
+     *         An initializer. {@code null} to use WebSockets as created
+     *         by the factory.
+     *
+     * @return
+     *         {@code this} object.
+     */
+    public synchronized WebSocketPool setInitializer(WebSocketInitializer initializer)
+    {
+        mInitializer = initializer;
+
+        return this;
+    }
+
+
+    /**
+     * Get the number of standby WebSockets currently available.
+     *
+     * @return
+     *         The number of standby WebSockets.
+     */
+    public synchronized int getStandbyCount()
+    {
+        return mStandbys.size();
+    }
+
+
+    /**
+     * Start the background thread which keeps the standby WebSockets.
+     * Calling this method on a started pool has no effect.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalStateException
+     *         The pool has been shut down.
+     */
+    public synchronized WebSocketPool start()
+    {
+        if (mShutdown)
+        {
+            throw new IllegalStateException("The pool has been shut down.");
+        }
+
+        if (mReplenisher == null)
+        {
+            mReplenisher = new Replenisher();
+            mReplenisher.start();
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Stop the background thread and disconnect the standby WebSockets.
+     * WebSockets already checked out are not affected.
+     */
+    public void shutdown()
+    {
+        List<Standby> standbys;
+
+        synchronized (this)
+        {
+            mShutdown = true;
+
+            standbys = new ArrayList<Standby>(mStandbys);
+            mStandbys.clear();
+
+            // Wake up the background thread to let it exit.
+            notifyAll();
+        }
+
+        disconnect(standbys);
+    }
+
+
+    /**
+     * Check out a WebSocket.
+     *
+     * <p>
+     * If a standby WebSocket is available, it is returned immediately and
+     * the background thread starts to connect a new one. Otherwise, a new
+     * WebSocket is created and connected on the calling thread.
+     * </p>
+     *
+     * @return
+     *         A WebSocket whose state is {@link WebSocketState#OPEN OPEN}.
+     *         It is no longer managed by this pool.
+     *
+     * @throws IOException
+     *         Failed to create a socket.
+     *
+     * @throws WebSocketException
+     *         Failed to connect the WebSocket.
+     */
+    public WebSocket checkout() throws IOException, WebSocketException
+    {
+        while (true)
+        {
+            Standby standby;
+
+            synchronized (this)
+            {
+                // The most recently connected one.
+                standby = mStandbys.pollLast();
+
+                if (standby == null)
+                {
+                    break;
+                }
+
+                // Let the background thread replace it.
+                notifyAll();
+            }
+
+            // Release the WebSocket from the pool.
+            standby.mWebSocket.removeListener(standby.mListener);
+
+            onStandbyLeft(standby);
+
+            if (standby.mWebSocket.isOpen() == false)
+            {
+                // Closed just before the checkout. Try the next one.
+                continue;
+            }
+
+            // Restore the ping interval set by the initializer.
+            standby.mWebSocket.setPingInterval(standby.mPingInterval);
+
+            return standby.mWebSocket;
+        }
+
+        // No standby WebSocket is available.
+        return createWebSocket().connect();
+    }
+
+
+    private WebSocket createWebSocket() throws IOException
+    {
+        WebSocketInitializer initializer;
+
+        synchronized (this)
+        {
+            initializer = mInitializer;
+        }
+
+        WebSocket websocket = mFactory.createSocket(mURI);
+
+        if (initializer != null)
+        {
+            initializer.initialize(websocket);
+        }
+
+        return websocket;
+    }
+
+
+    private void remove(WebSocket websocket)
+    {
+        synchronized (this)
+        {
+            for (Standby standby : mStandbys)
+            {
+                if (standby.mWebSocket == websocket)
+                {
+                    mStandbys.remove(standby);
+
+                    if (System.currentTimeMillis() - standby.mConnectedAt < EARLY_CLOSE_TIME)
+                    {
+                        // Closed right after the connection. The server
+                        // is not healthy. Back off before reconnecting.
+                        onFailure();
+                    }
+                    else
+                    {
+                        onStandbyLeft(standby);
+                    }
+
+                    // Let the background thread replace it.
+                    notifyAll();
+                    break;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Record a failure to keep a standby WebSocket and schedule the next
+     * attempt with exponential backoff. Must be called while the lock of
+     * this pool is held.
+     */
+    private void onFailure()
+    {
+        mFailures++;
+        mRetryAt = System.currentTimeMillis()
+                 + Math.min(1000L << Math.min(mFailures - 1, 16), MAX_RETRY_INTERVAL);
+    }
+
+
+    /**
+     * Reset the backoff if the standby WebSocket leaving the pool has
+     * lived long enough to prove that the server is healthy.
+     */
+    private synchronized void onStandbyLeft(Standby standby)
+    {
+        if (EARLY_CLOSE_TIME <= System.currentTimeMillis() - standby.mConnectedAt)
+        {
+            mFailures = 0;
+        }
+    }
+
+
+    /**
+     * The body of the background thread.
+     */
+    private void replenish()
+    {
+        while (true)
+        {
+            List<Standby> excess = new ArrayList<Standby>();
+            boolean needed;
+            long wait;
+
+            synchronized (this)
+            {
+                if (mShutdown)
+                {
+                    return;
+                }
+
+                wait   = collectExcess(excess);
+                needed = mStandbys.size() < mSize;
+
+                // The time to wait before retrying not to hammer the server.
+                long backoff = mRetryAt - System.currentTimeMillis();
+
+                if (needed && 0 < backoff)
+                {
+                    needed = false;
+                    wait   = (wait == 0) ? backoff : Math.min(wait, backoff);
+                }
+            }
+
+            // Disconnect the idle ones and the ones exceeding the size.
+            disconnect(excess);
+
+            if (needed)
+            {
+                if (addStandby() == false)
+                {
+                    synchronized (this)
+                    {
+                        onFailure();
+                    }
+                }
+
+                continue;
+            }
+
+            synchronized (this)
+            {
+                if (mShutdown)
+                {
+                    return;
+                }
+
+                try
+                {
+                    // Wait until something changes or the time comes.
+                    wait(wait);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Move the standby WebSockets to disconnect into the list.
+     *
+     * @return
+     *         The time in milliseconds until the next standby WebSocket
+     *         expires. 0 if none will.
+     */
+    private long collectExcess(List<Standby> excess)
+    {
+        long now = System.currentTimeMillis();
+
+        // Expire the idle ones, which are at the head of the list.
+        while (0 < mMaxIdleTime && mStandbys.size() != 0
+                && mMaxIdleTime <= now - mStandbys.getFirst().mConnectedAt)
+        {
+            Standby standby = mStandbys.removeFirst();
+            onStandbyLeft(standby);
+            excess.add(standby);
+        }
+
+        // Shrink to the size, keeping the newer ones.
+        while (mSize < mStandbys.size())
+        {
+            excess.add(mStandbys.removeFirst());
+        }
+
+        if (mMaxIdleTime == 0 || mStandbys.size() == 0)
+        {
+            return 0;
+        }
+
+        return Math.max(1, mMaxIdleTime - (now - mStandbys.getFirst().mConnectedAt));
+    }
+
+
+    /**
+     * Connect a new WebSocket and add it to the standby list.
+     *
+     * @return
+     *         {@code false} if the WebSocket failed to be connected, was
+     *         closed right after the connection, or the pool has been
+     *         shut down.
+     */
+    private boolean addStandby()
+    {
+        WebSocket websocket;
+        long pingInterval;
+
+        try
+        {
+            websocket = createWebSocket();
+
+            // Keep the WebSocket alive while it is idle.
+            pingInterval = websocket.getPingInterval();
+            websocket.setPingInterval(getPingInterval());
+
+            websocket.connect();
+        }
+        catch (Exception e)
+        {
+            // Failed to create or connect a WebSocket.
+            return false;
+        }
+
+        WebSocketListener remover = new Remover();
+        websocket.addListener(remover);
+
+        synchronized (this)
+        {
+            if (mShutdown == false && websocket.isOpen())
+            {
+                mStandbys.addLast(new Standby(websocket, remover, pingInterval));
+                return true;
+            }
+        }
+
+        // The pool has been shut down, or the WebSocket has been closed.
+        websocket.removeListener(remover);
+        websocket.disconnect();
+
+        // A WebSocket closed right after the connection is a failure.
+        return false;
+    }
+
+
+    private static void disconnect(List<Standby> standbys)
+    {
+        for (Standby standby : standbys)
+        {
+            standby.mWebSocket.removeListener(standby.mListener);
+            standby.mWebSocket.disconnect();
+        }
+    }
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.io.IOException;
+import java.util.Random;
+
+
+/**
+ * Reconnects a {@link WebSocket} automatically when it is disconnected.
+ *
+ * <p>
+ * A WebSocket cannot be connected twice. When the watched WebSocket is
+ * disconnected, the reconnector creates a new one by {@link
+ * WebSocket#recreate()}, which copies the settings and the listeners,
+ * and connects it after a delay chosen by the {@link ReconnectPolicy}.
+ * Failed attempts are retried with growing delays. {@link #getWebSocket()}
+ * returns the current WebSocket, and the listeners receive the events of
+ * the new WebSocket as usual.
+ * </p>
+ *
+ * <pre style="border-left: solid 5px lightgray;"> WebSocket ws = factory.createSocket(uri).addListener(listener);
+ *
+ * WebSocketReconnector reconnector = new WebSocketReconnector(ws, new ReconnectPolicy())
+ *     .setHandler(handler)
+ *     .start();
+ *
+ * ws.connect();
+ * ...
+ * reconnector.getWebSocket().sendText("Hello");
+ * ...
+ * reconnector.disconnect();</pre>
+ *
+ * <p>
+ * Every disconnection is followed by a reconnection until {@link #stop()}
+ * or {@link #disconnect()} is called. Reconnection attempts, failures and
+ * times are counted by {@link WebSocketMetrics} of the factory, and {@link
+ * #getLatency()} gives the distribution of the reconnection times.
+ * </p>
+ *
+ * @see ReconnectPolicy
+ * @see ReconnectHandler
+ *
+ * @since 2.3
+ */
+public class WebSocketReconnector
+{
+    private final ReconnectPolicy mPolicy;
+    private final Random mRandom = new Random();
+    private final LatencyHistogram mLatency = new LatencyHistogram();
+    private final WebSocketListener mWatcher = new Watcher();
+    private volatile WebSocket mWebSocket;
+    private volatile ReconnectHandler mHandler;
+    private ReconnectThread mThread;
+    private boolean mStarted;
+    private boolean mStopped;
+
+
+    /**
+     * Constructor.
+     *
+     * @param websocket
+     *         The WebSocket to watch. It may or may not be connected yet.
+     *
+     * @param policy
+     *         The backoff policy.
+     *
+     * @throws IllegalArgumentException
+     *         An argument is {@code null}.
+     */
+    public WebSocketReconnector(WebSocket websocket, ReconnectPolicy policy)
+    {
+        if (websocket == null)
+        {
+            throw new IllegalArgumentException("The given WebSocket is null.");
+        }
+
+        if (policy == null)
+        {
+            throw new IllegalArgumentException("The given policy is null.");
+        }
+
+        mWebSocket = websocket;
+        mPolicy    = policy;
+    }
+
+
+    /**
+     * A listener to notice disconnections. It is copied to the new
+     * WebSockets by {@link WebSocket#recreate()}.
+     */
+    private class Watcher extends WebSocketAdapter
+    {
+        @Override
+        public void onDisconnected(WebSocket websocket,
+            WebSocketFrame serverCloseFrame, WebSocketFrame clientCloseFrame,
+            boolean closedByServer) throws Exception
+        {
+            onClosed(websocket);
+        }
+    }
+
+
+    /**
+     * The thread to reconnect after a disconnection.
+     */
+    private class ReconnectThread extends Thread
+    {
+        private final WebSocket mDisconnected;
+
+
+        ReconnectThread(WebSocket disconnected)
+        {
+            super("WebSocketReconnector");
+
+            mDisconnected = disconnected;
+        }
+
+
+        @Override
+        public void run()
+        {
+            reconnect(this, mDisconnected);
+        }
+    }
+
+
+    /**
+     * Get the current WebSocket.
+     *
+     * @return
+     *         The WebSocket most recently connected by this reconnector,
+     *         or the WebSocket given to the constructor.
+     */
+    public WebSocket getWebSocket()
+    {
+        return mWebSocket;
+    }
+
+
+    /**
+     * Get the backoff policy.
+     *
+     * @return
+     *         The backoff policy.
+     */
+    public ReconnectPolicy getPolicy()
+    {
+        return mPolicy;
+    }
+
+
+    /**
+     * Get the handler of reconnection events.
+     *
+     * @return
+     *         The handler. {@code null} if not set.
+     */
+    public ReconnectHandler getHandler()
+    {
+        return mHandler;
+    }
+
+
+    /**
+     * Set the handler of reconnection events.
+     *
+     * @param handler
+     *         A handler. {@code null} to remove the current one.
+     *
+     * @return
+     *         {@code this} object.
+     */
+    public WebSocketReconnector setHandler(ReconnectHandler handler)
+    {
+        mHandler = handler;
+
+        return this;
+    }
+
+
+    /**
+     * Get a snapshot of the histogram of the times taken from noticing
+     * disconnections to restoring the connections.
+     *
+     * @return
+     *         A snapshot of the reconnection time histogram.
+     */
+    public LatencyHistogram getLatency()
+    {
+        return mLatency.snapshot();
+    }
+
+
+    /**
+     * Start watching the WebSocket. If it has already been closed, a
+     * reconnection starts immediately.
+     *
+     * @return
+     *         {@code this} object.
+     *
+     * @throws IllegalStateException
+     *         The reconnector has been stopped.
+     */
+    public WebSocketReconnector start()
+    {
+        WebSocket websocket;
+
+        synchronized (this)
+        {
+            if (mStopped)
+            {
+                throw new IllegalStateException("The reconnector has been stopped.");
+            }
+
+            if (mStarted)
+            {
+                return this;
+            }
+
+            mStarted  = true;
+            websocket = mWebSocket;
+        }
+
+        websocket.addListener(mWatcher);
+
+        if (websocket.getState() == WebSocketState.CLOSED)
+        {
+            // Disconnected before the listener was added.
+            onClosed(websocket);
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Stop reconnecting. The current WebSocket is not disconnected.
+     * A reconnection in progress is abandoned.
+     */
+    public void stop()
+    {
+        Thread thread;
+        WebSocket websocket;
+
+        synchronized (this)
+        {
+            mStopped  = true;
+            thread    = mThread;
+            websocket = mWebSocket;
+        }
+
+        websocket.removeListener(mWatcher);
+
+        if (thread != null)
+        {
+            // Wake up the thread waiting for the next attempt.
+            thread.interrupt();
+        }
+    }
+
+
+    /**
+     * Stop reconnecting and disconnect the current WebSocket.
+     */
+    public void disconnect()
+    {
+        stop();
+
+        mWebSocket.disconnect();
+    }
+
+
+    private void onClosed(WebSocket websocket)
+    {
+        synchronized (this)
+        {
+            // If the closed one is not the current one, a reconnection
+            // is in progress, or reconnecting is disabled.
+            if (websocket != mWebSocket || mThread != null || mStopped)
+            {
+                return;
+            }
+
+            mThread = new ReconnectThread(websocket);
+            mThread.start();
+        }
+    }
+
+
+    private void reconnect(ReconnectThread thread, WebSocket disconnected)
+    {
+        long startedAt = System.nanoTime();
+        WebSocket websocket = disconnected;
+        WebSocketException error = null;
+
+        for (int attempt = 1; ; ++attempt)
+        {
+            int maxAttempts = mPolicy.getMaxAttempts();
+
+            if (0 < maxAttempts && maxAttempts < attempt)
+            {
+                // Give up.
+                break;
+            }
+
+            try
+            {
+                Thread.sleep(mPolicy.computeDelay(attempt, mRandom));
+            }
+            catch (InterruptedException e)
+            {
+                // Stopped.
+                finish(thread, null);
+                return;
+            }
+
+            try
+            {
+                websocket = disconnected.recreate();
+            }
+            catch (IOException e)
+            {
+                disconnected.getMetrics().onReconnectFailed();
+                error = new WebSocketException(WebSocketError.SOCKET_CONNECT_ERROR,
+                        "Failed to create a socket: " + e.getMessage(), e);
+                continue;
+            }
+
+            // Let the handler resubscribe before other frames are sent.
+            websocket.setReconnector(this);
+
+            try
+            {
+                websocket.connect();
+            }
+            catch (WebSocketException e)
+            {
+                websocket.getMetrics().onReconnectFailed();
+                error = e;
+                continue;
+            }
+
+            long elapsed = System.nanoTime() - startedAt;
+            websocket.getMetrics().onReconnected(elapsed);
+            mLatency.record(elapsed);
+
+            if (finish(thread, websocket) == false)
+            {
+                // Stopped during the last attempt.
+                websocket.removeListener(mWatcher);
+                websocket.disconnect();
+                return;
+            }
+
+            if (websocket.getState() == WebSocketState.CLOSED)
+            {
+                // Disconnected before the WebSocket was published.
+                onClosed(websocket);
+            }
+
+            return;
+        }
+
+        finish(thread, null);
+
+        ReconnectHandler handler = mHandler;
+
+        if (handler != null)
+        {
+            callOnReconnectFailed(handler, websocket, error);
+        }
+    }
+
+
+    /**
+     * Finish the reconnection thread.
+     *
+     * @param websocket
+     *         The new WebSocket. {@code null} if none was connected.
+     *
+     * @return
+     *         {@code false} if the reconnector has been stopped.
+     */
+    private synchronized boolean finish(ReconnectThread thread, WebSocket websocket)
+    {
+        if (mThread == thread)
+        {
+            mThread = null;
+        }
+
+        if (mStopped)
+        {
+            return false;
+        }
+
+        if (websocket != null)
+        {
+            mWebSocket = websocket;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Called by the new WebSocket before its writing thread starts.
+     */
+    void onOpen(WebSocket websocket)
+    {
+        ReconnectHandler handler = mHandler;
+
+        if (handler == null)
+        {
+            return;
+        }
+
+        try
+        {
+            handler.onReconnected(websocket);
+        }
+        catch (Throwable t)
+        {
+            // Ignore any error raised by the handler.
+        }
+    }
+
+
+    private static void callOnReconnectFailed(
+            ReconnectHandler handler, WebSocket websocket, WebSocketException error)
+    {
+        try
+        {
+            handler.onReconnectFailed(websocket, error);
+        }
+        catch (Throwable t)
+        {
+            // Ignore any error raised by the handler.
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * Low-level hooks into the internals of WebSocket connections for
+ * profiling and tracing tools.
+ *
+ * <p>
+ * Unlike {@link WebSocketListener}, a tracer is shared by all the
+ * WebSockets created by a {@link WebSocketFactory} and is called
+ * synchronously on hot paths (the reading thread and the writing thread),
+ * so implementations must be cheap and must not block. When no tracer is
+ * set, the hooks cost a {@code null} check.
+ * </p>
+ *
+ * <p>
+ * A tracer can be set by {@link WebSocketFactory#setTracer(WebSocketTracer)}.
+ * If not set, the first implementation found by {@link java.util.ServiceLoader}
+ * ({@code META-INF/services/com.neovisionaries.ws.client.WebSocketTracer})
+ * is used. For example, the optional {@code nv-websocket-client-jfr} module
+ * registers a tracer which emits Java Flight Recorder events.
+ * </p>
+ *
+ * <p>
+ * All durations are in nanoseconds.
+ * </p>
+ *
+ * @since 2.3
+ */
+public interface WebSocketTracer
+{
+    /**
+     * Called when a phase of establishing a connection finished.
+     *
+     * @param websocket
+     *         The WebSocket.
+     *
+     * @param phase
+     *         The phase.
+     *
+     * @param duration
+     *         The time taken by the phase.
+     *
+     * @param error
+     *         The error which made the phase fail. {@code null} on success.
+     */
+    void onConnectPhase(WebSocket websocket, ConnectPhase phase, long duration, Throwable error);
+
+
+    /**
+     * Called by the reading thread when a frame was read.
+     *
+     * @param websocket
+     *         The WebSocket.
+     *
+     * @param frame
+     *         The frame.
+     */
+    void onFrameRead(WebSocket websocket, WebSocketFrame frame);
+
+
+    /**
+     * Called by the writing thread when a frame was written to the
+     * output stream (not necessarily flushed yet).
+     *
+     * @param websocket
+     *         The WebSocket.
+     *
+     * @param frame
+     *         The frame.
+     *
+     * @param duration
+     *         The time taken by masking and writing the frame.
+     */
+    void onFrameWritten(WebSocket websocket, WebSocketFrame frame, long duration);
+
+
+    /**
+     * Called when a message was compressed or decompressed.
+     *
+     * @param websocket
+     *         The WebSocket.
+     *
+     * @param compress
+     *         {@code true} for compression, {@code false} for decompression.
+     *
+     * @param inputLength
+     *         The number of input bytes.
+     *
+     * @param outputLength
+     *         The number of output bytes.
+     *
+     * @param duration
+     *         The time taken by the compression or decompression.
+     */
+    void onCompression(WebSocket websocket, boolean compress, int inputLength, int outputLength, long duration);
+
+
+    /**
+     * Called when a thread which tried to queue a frame had to wait
+     * because the frame queue was full.
+     *
+     * @param websocket
+     *         The WebSocket.
+     *
+     * @param duration
+     *         The time the thread waited.
+     *
+     * @param queueSize
+     *         The upper limit of the frame queue.
+     *
+     * @see WebSocket#setFrameQueueSize(int)
+     */
+    void onQueueStall(WebSocket websocket, long duration, int queueSize);
+
+
+    /**
+     * Called when a WebSocket was closed.
+     *
+     * @param websocket
+     *         The WebSocket.
+     *
+     * @param serverCloseFrame
+     *         The close frame sent by the server. May be {@code null}.
+     *
+     * @param clientCloseFrame
+     *         The close frame sent by this client. May be {@code null}.
+     *
+     * @param closedByServer
+     *         {@code true} if the closing handshake was started by the server.
+     *
+     * @param duration
+     *         The time from the start of the closing handshake until the
+     *         connection was closed. 0 if no closing handshake took place.
+     */
+    void onClose(WebSocket websocket, WebSocketFrame serverCloseFrame,
+            WebSocketFrame clientCloseFrame, boolean closedByServer, long duration);
+}
@@ -32,6 +32,8 @@ class WritingThread extends WebSocketThread
     private static final int FLUSH_THRESHOLD = 1000;
     private final LinkedList<WebSocketFrame> mFrames;
     private final PerMessageCompressionExtension mPMCE;
+    private final SendLatencies mLatencies;
+    private final WebSocketTracer mTracer;
     private boolean mStopRequested;
     private WebSocketFrame mCloseFrame;
     private boolean mFlushNeeded;
@@ -43,7 +45,9 @@ class WritingThread extends WebSocketThread
         super("WritingThread", websocket, ThreadType.WRITING_THREAD);
 
         mFrames = new LinkedList<WebSocketFrame>();
-        mPMCE   = websocket.getPerMessageCompressionExtension();
+        mPMCE      = websocket.getPerMessageCompressionExtension();
+        mLatencies = websocket.getSendLatencyRecorder();
+        mTracer    = websocket.getTracer();
     }
 
 
@@ -67,11 +71,24 @@ class WritingThread extends WebSocketThread
             manager.callOnUnexpectedError(cause);
         }
 
+        int discarded;
+
         synchronized (this)
         {
             // Mainly for queueFrame().
             mStopped = true;
             notifyAll();
+
+            // Frames left in the queue (e.g. after an I/O error) will
+            // never be sent.
+            discarded = mFrames.size();
+            mFrames.clear();
+        }
+
+        if (discarded != 0)
+        {
+            // Keep the queue depth of the metrics from drifting.
+            mWebSocket.getMetrics().onFramesDiscarded(discarded);
         }
 
         // Notify this writing thread finished.
@@ -141,6 +158,9 @@ class WritingThread extends WebSocketThread
 
     public boolean queueFrame(WebSocketFrame frame)
     {
+        // When the caller started waiting for the queue to get spaces.
+        long stalledAt = 0;
+
         synchronized (this)
         {
             while (true)
@@ -167,6 +187,15 @@ class WritingThread extends WebSocketThread
                     break;
                 }
 
+                // If this thread has not started yet, nobody makes spaces.
+                // This happens when frames sent before the connection was
+                // established are queued.
+                if (isAlive() == false)
+                {
+                    // Add the frame to mFrames unconditionally.
+                    break;
+                }
+
                 // Get the upper limit of the queue size.
                 int queueSize = mWebSocket.getFrameQueueSize();
 
@@ -184,6 +213,11 @@ class WritingThread extends WebSocketThread
                     break;
                 }
 
+                if (stalledAt == 0 && mTracer != null)
+                {
+                    stalledAt = System.nanoTime();
+                }
+
                 try
                 {
                     // Wait until the queue gets spaces.
@@ -194,6 +228,10 @@ class WritingThread extends WebSocketThread
                 }
             }
 
+            // Remember when the frame was queued.
+            frame.setQueuedAt(System.nanoTime());
+            mWebSocket.getMetrics().onFrameQueued();
+
             // Add the frame to the queue.
             if (isHighPriorityFrame(frame))
             {
@@ -210,11 +248,25 @@ class WritingThread extends WebSocketThread
             notifyAll();
         }
 
+        if (stalledAt != 0)
+        {
+            traceQueueStall(System.nanoTime() - stalledAt);
+        }
+
         // Queued.
         return true;
     }
 
 
+    public int getQueueSize()
+    {
+        synchronized (this)
+        {
+            return mFrames.size();
+        }
+    }
+
+
     private static boolean isHighPriorityFrame(WebSocketFrame frame)
     {
         return (frame.isPingFrame() || frame.isPongFrame());
@@ -356,8 +408,28 @@ class WritingThread extends WebSocketThread
                 }
             }
 
-            // Send the frame to the server.
-            sendFrame(frame);
+            // The time the frame spent in the queue.
+            long dequeuedAt = System.nanoTime();
+            long queueTime  = dequeuedAt - frame.getQueuedAt();
+
+            // Count the time.
+            mWebSocket.getMetrics().onFrameDequeued(queueTime);
+
+            if (mLatencies == null)
+            {
+                // Send the frame to the server.
+                sendFrame(frame);
+            }
+            else
+            {
+                mLatencies.recordQueueTime(queueTime);
+
+                // Send the frame to the server.
+                sendFrame(frame);
+
+                // Record the time taken by compression, masking and writing.
+                mLatencies.recordWriteTime(System.nanoTime() - dequeuedAt);
+            }
 
             // If the frame is PING or PONG.
             if (frame.isPingFrame() || frame.isPongFrame())
@@ -419,7 +491,22 @@ class WritingThread extends WebSocketThread
         try
         {
             // Flush
-            flush();
+            if (mLatencies == null)
+            {
+                flush();
+            }
+            else
+            {
+                long startedAt = System.nanoTime();
+
+                flush();
+
+                // Record the time taken by the flush.
+                mLatencies.recordFlushTime(System.nanoTime() - startedAt);
+            }
+
+            // Count the flush.
+            mWebSocket.getMetrics().onFlush();
 
             synchronized (this)
             {
@@ -445,9 +532,26 @@ class WritingThread extends WebSocketThread
 
     private void sendFrame(WebSocketFrame frame) throws WebSocketException
     {
+        // The payload length and the RSV1 bit before compression.
+        int length = frame.getPayloadLength();
+        boolean rsv1 = frame.getRsv1();
+        long startedAt = (mTracer != null) ? System.nanoTime() : 0;
+
         // Compress the frame if appropriate.
         frame = WebSocketFrame.compressFrame(frame, mPMCE);
 
+        // If the frame has been compressed by compressFrame().
+        if (rsv1 == false && frame.getRsv1())
+        {
+            // Count the bytes.
+            mWebSocket.getMetrics().onCompressed(length, frame.getPayloadLength());
+
+            if (mTracer != null)
+            {
+                traceCompression(length, frame.getPayloadLength(), System.nanoTime() - startedAt);
+            }
+        }
+
         // Notify the listeners that the frame is about to be sent.
         mWebSocket.getListenerManager().callOnSendingFrame(frame);
 
@@ -482,8 +586,15 @@ class WritingThread extends WebSocketThread
 
         try
         {
+            long writeStartedAt = (mTracer != null) ? System.nanoTime() : 0;
+
             // Send the frame to the server.
             mWebSocket.getOutput().write(frame);
+
+            if (mTracer != null)
+            {
+                traceFrameWritten(frame, System.nanoTime() - writeStartedAt);
+            }
         }
         catch (IOException e)
         {
@@ -500,11 +611,60 @@ class WritingThread extends WebSocketThread
             throw cause;
         }
 
+        // Count the frame.
+        mWebSocket.getMetrics().onFrameSent(frame);
+
+        // If the frame is a ping frame.
+        if (frame.isPingFrame())
+        {
+            // Start waiting for the pong frame.
+            mWebSocket.getPingTracker().onPingSent(frame);
+        }
+
         // Notify the listeners that the frame was sent.
         mWebSocket.getListenerManager().callOnFrameSent(frame);
     }
 
 
+    private void traceQueueStall(long duration)
+    {
+        try
+        {
+            mTracer.onQueueStall(mWebSocket, duration, mWebSocket.getFrameQueueSize());
+        }
+        catch (Throwable t)
+        {
+            // Ignore any error raised by the tracer.
+        }
+    }
+
+
+    private void traceCompression(int inputLength, int outputLength, long duration)
+    {
+        try
+        {
+            mTracer.onCompression(mWebSocket, true, inputLength, outputLength, duration);
+        }
+        catch (Throwable t)
+        {
+            // Ignore any error raised by the tracer.
+        }
+    }
+
+
+    private void traceFrameWritten(WebSocketFrame frame, long duration)
+    {
+        try
+        {
+            mTracer.onFrameWritten(mWebSocket, frame, duration);
+        }
+        catch (Throwable t)
+        {
+            // Ignore any error raised by the tracer.
+        }
+    }
+
+
     private void changeToClosing()
     {
         StateManager manager = mWebSocket.getStateManager();
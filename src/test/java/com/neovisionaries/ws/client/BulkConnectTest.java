@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+
+public class BulkConnectTest
+{
+    /**
+     * A connect which does not finish until it is released.
+     */
+    private static class SlowConnect implements Callable<WebSocket>
+    {
+        final CountDownLatch mStarted = new CountDownLatch(1);
+        final CountDownLatch mReleased = new CountDownLatch(1);
+        final WebSocket mWebSocket;
+
+
+        SlowConnect(WebSocket websocket)
+        {
+            mWebSocket = websocket;
+        }
+
+
+        @Override
+        public WebSocket call() throws Exception
+        {
+            mStarted.countDown();
+            mReleased.await();
+
+            return mWebSocket;
+        }
+    }
+
+
+    @Test
+    public void cancel() throws Exception
+    {
+        WebSocket ws = new WebSocketFactory().createSocket("ws://127.0.0.1/");
+        SlowConnect first  = new SlowConnect(ws);
+        SlowConnect second = new SlowConnect(ws);
+
+        List<Callable<WebSocket>> callables = new ArrayList<Callable<WebSocket>>();
+        callables.add(first);
+        callables.add(second);
+
+        BulkConnect bulk = new BulkConnect(callables, null);
+        bulk.start(1);
+
+        assertTrue(first.mStarted.await(10, TimeUnit.SECONDS));
+
+        // The running connect is not cancelled. The pending one is.
+        bulk.cancel();
+        assertFalse(bulk.getFutures().get(0).cancel(true));
+        first.mReleased.countDown();
+
+        assertTrue(bulk.await(10, TimeUnit.SECONDS));
+        assertSame(ws, bulk.getFutures().get(0).get());
+        assertTrue(bulk.getFutures().get(1).isCancelled());
+        assertEquals(1, bulk.getSucceededCount());
+        assertEquals(1, bulk.getCancelledCount());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+
+public class CallbackDispatcherTest
+{
+    private static class Append implements Runnable
+    {
+        private final List<Integer> mList;
+        private final int mValue;
+        private final CountDownLatch mLatch;
+
+
+        Append(List<Integer> list, int value, CountDownLatch latch)
+        {
+            mList  = list;
+            mValue = value;
+            mLatch = latch;
+        }
+
+
+        @Override
+        public void run()
+        {
+            // The dispatcher never runs two callbacks at the same time.
+            mList.add(mValue);
+            mLatch.countDown();
+        }
+    }
+
+
+    /**
+     * An executor which has stalled.
+     */
+    private static class StalledExecutor implements Executor
+    {
+        @Override
+        public void execute(Runnable command)
+        {
+            // Never run.
+        }
+    }
+
+
+    /**
+     * A thread which dispatches a callback, like the reading thread.
+     */
+    private static class Dispatcher extends Thread
+    {
+        private final CallbackDispatcher mDispatcher;
+        private volatile boolean mInterrupted;
+
+
+        Dispatcher(CallbackDispatcher dispatcher)
+        {
+            mDispatcher = dispatcher;
+        }
+
+
+        @Override
+        public void run()
+        {
+            mDispatcher.dispatch(new Append(new ArrayList<Integer>(), 0, new CountDownLatch(1)));
+            mInterrupted = isInterrupted();
+        }
+    }
+
+
+    @Test
+    public void test001() throws InterruptedException
+    {
+        // Order is kept even on a multi-threaded executor.
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CallbackDispatcher dispatcher = new CallbackDispatcher(executor, 16);
+        List<Integer> list = new ArrayList<Integer>();
+        int count = 1000;
+        CountDownLatch latch = new CountDownLatch(count);
+
+        for (int i = 0; i < count; ++i)
+        {
+            dispatcher.dispatch(new Append(list, i, latch));
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        // Wait for the last callback to be recorded.
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < count; ++i)
+        {
+            assertEquals(i, list.get(i).intValue());
+        }
+
+        CallbackStatistics stats = dispatcher.getStatistics();
+        assertEquals(count, stats.getDispatchedCount());
+        assertTrue(stats.getMaxQueueDepth() <= 16);
+    }
+
+
+    @Test
+    public void test002() throws InterruptedException
+    {
+        // Callbacks are run on the calling thread when the executor
+        // rejects them.
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        CallbackDispatcher dispatcher = new CallbackDispatcher(executor, 1);
+        List<Integer> list = new ArrayList<Integer>();
+        CountDownLatch latch = new CountDownLatch(3);
+
+        dispatcher.dispatch(new Append(list, 0, latch));
+        dispatcher.dispatch(new Append(list, 1, latch));
+        dispatcher.dispatch(new Append(list, 2, latch));
+
+        assertEquals(0, latch.getCount());
+        assertEquals(3, list.size());
+        assertEquals(0, dispatcher.getStatistics().getQueueDepth());
+    }
+
+
+    @Test
+    public void test003() throws InterruptedException
+    {
+        // A thread blocked on a full queue can be stopped by interrupt()
+        // even when the executor has stalled.
+        CallbackDispatcher dispatcher = new CallbackDispatcher(new StalledExecutor(), 1);
+        dispatcher.dispatch(new Append(new ArrayList<Integer>(), 0, new CountDownLatch(1)));
+
+        Dispatcher thread = new Dispatcher(dispatcher);
+        thread.start();
+
+        // Wait until the thread is blocked.
+        while (dispatcher.getStatistics().getBlockedCount() == 0)
+        {
+            Thread.sleep(10);
+        }
+
+        thread.interrupt();
+        thread.join(10000);
+
+        assertFalse(thread.isAlive());
+        assertTrue(thread.mInterrupted);
+
+        // The callback is queued beyond the capacity, not dropped.
+        CallbackStatistics stats = dispatcher.getStatistics();
+        assertEquals(1, stats.getOverflowCount());
+        assertEquals(2, stats.getQueueDepth());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import org.junit.Test;
+
+
+public class DnsCacheTest
+{
+    // Literal addresses are resolved without querying the resolver.
+    private static final String HOST    = "127.0.0.1";
+    private static final String INVALID = "[::1";
+
+
+    private static UnknownHostException resolveError(DnsCache cache)
+    {
+        try
+        {
+            cache.resolve(INVALID);
+        }
+        catch (UnknownHostException e)
+        {
+            return e;
+        }
+
+        fail("UnknownHostException was not thrown.");
+
+        return null;
+    }
+
+
+    @Test
+    public void disabled() throws UnknownHostException
+    {
+        DnsCache cache = new DnsCache();
+
+        InetAddress[] addresses = cache.resolve(HOST);
+
+        assertEquals(1, addresses.length);
+        assertNotSame(addresses, cache.resolve(HOST));
+        assertNotSame(resolveError(cache), resolveError(cache));
+    }
+
+
+    @Test
+    public void positive() throws UnknownHostException
+    {
+        DnsCache cache = new DnsCache();
+        cache.setTtl(60 * 1000);
+
+        InetAddress[] addresses = cache.resolve(HOST);
+
+        assertSame(addresses, cache.resolve(HOST));
+
+        // Failures are not cached unless the negative TTL is set.
+        assertNotSame(resolveError(cache).getCause(), resolveError(cache).getCause());
+
+        cache.clear();
+
+        assertNotSame(addresses, cache.resolve(HOST));
+    }
+
+
+    @Test
+    public void negative() throws UnknownHostException
+    {
+        DnsCache cache = new DnsCache();
+        cache.setNegativeTtl(60 * 1000);
+
+        UnknownHostException first  = resolveError(cache);
+        UnknownHostException second = resolveError(cache);
+
+        // Each caller gets its own exception caused by the cached one.
+        assertNotSame(first, second);
+        assertNotNull(first.getCause());
+        assertSame(first.getCause(), second.getCause());
+
+        // Successes are not cached unless the TTL is set.
+        assertNotSame(cache.resolve(HOST), cache.resolve(HOST));
+    }
+}
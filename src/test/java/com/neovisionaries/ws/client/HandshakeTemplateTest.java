@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+
+public class HandshakeTemplateTest
+{
+    private static final String KEY = "dGhlIHNhbXBsZSBub25jZQ==";
+
+
+    @Test
+    public void build()
+    {
+        HandshakeBuilder builder = new HandshakeBuilder(false, "id:pw", "example.com:8080", "/chat?room=1");
+        builder.addProtocol("chat");
+        builder.addHeader("X-Custom", "value");
+
+        HandshakeTemplate template = builder.getTemplate(new HandshakeTemplateCache());
+
+        String expected = HandshakeBuilder.build(builder.buildRequestLine(), builder.buildHeaders(KEY));
+
+        assertEquals(expected, Misc.toStringUTF8(template.build(Misc.getBytesUTF8(KEY))));
+        assertEquals(expected, HandshakeBuilder.build(template.getRequestLine(), template.buildHeaders(KEY)));
+    }
+
+
+    @Test
+    public void cache()
+    {
+        HandshakeTemplateCache cache = new HandshakeTemplateCache();
+        HandshakeBuilder builder1 = new HandshakeBuilder(false, null, "example.com", "/");
+        HandshakeBuilder builder2 = new HandshakeBuilder(false, null, "example.com", "/");
+
+        // Builders which have not been customized share the template.
+        HandshakeTemplate template = builder1.getTemplate(cache);
+        assertSame(template, builder2.getTemplate(cache));
+
+        // Copies share the template, too.
+        HandshakeBuilder copy = new HandshakeBuilder(builder1);
+        assertSame(template, copy.getTemplate(cache));
+
+        // A change rebuilds the template.
+        copy.addHeader("X-Custom", "value");
+        assertNotSame(template, copy.getTemplate(cache));
+        assertSame(template, builder1.getTemplate(cache));
+    }
+
+
+    @Test
+    public void base64()
+    {
+        assertArrayEquals(Misc.getBytesUTF8(""), Base64.encodeToBytes(new byte[0]));
+        assertEquals("Zg==", Base64.encode("f"));
+        assertEquals("Zm8=", Base64.encode("fo"));
+        assertEquals("Zm9v", Base64.encode("foo"));
+        assertEquals("Zm9vYmFy", Base64.encode("foobar"));
+        assertEquals("/+8=", Base64.encode(new byte[] { (byte)0xFF, (byte)0xEF }));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.security.cert.CertificateEncodingException;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import org.junit.Test;
+
+
+public class HostnameVerificationCacheTest
+{
+    /**
+     * A verifier which accepts a certificate whose encoded form is the
+     * hostname, and counts verifications.
+     */
+    private static class CountingVerifier implements HostnameVerifier
+    {
+        int mCount;
+
+
+        @Override
+        public boolean verify(String hostname, SSLSession session)
+        {
+            ++mCount;
+
+            try
+            {
+                byte[] encoded = session.getPeerCertificates()[0].getEncoded();
+
+                return hostname.equals(Misc.toStringUTF8(encoded));
+            }
+            catch (SSLPeerUnverifiedException e)
+            {
+                return false;
+            }
+            catch (CertificateEncodingException e)
+            {
+                return false;
+            }
+        }
+    }
+
+
+    private static SSLSession session(String certificate)
+    {
+        return new TestSSLSession("id", "example.com", 443, certificate);
+    }
+
+
+    @Test
+    public void test001()
+    {
+        // A successful verification is reused for the same certificate.
+        CountingVerifier verifier = new CountingVerifier();
+        HostnameVerificationCache cache = new HostnameVerificationCache(verifier, 60000);
+
+        assertTrue(cache.verify("example.com", session("example.com")));
+        assertTrue(cache.verify("example.com", session("example.com")));
+        assertEquals(1, verifier.mCount);
+    }
+
+
+    @Test
+    public void test002()
+    {
+        // A different certificate is verified again.
+        CountingVerifier verifier = new CountingVerifier();
+        HostnameVerificationCache cache = new HostnameVerificationCache(verifier, 60000);
+
+        assertTrue(cache.verify("example.com", session("example.com")));
+        assertFalse(cache.verify("example.com", session("example.org")));
+        assertEquals(2, verifier.mCount);
+
+        // Failures are not cached.
+        assertFalse(cache.verify("example.com", session("example.org")));
+        assertEquals(3, verifier.mCount);
+    }
+
+
+    @Test
+    public void test003() throws InterruptedException
+    {
+        // A verification expires after the lifetime.
+        CountingVerifier verifier = new CountingVerifier();
+        HostnameVerificationCache cache = new HostnameVerificationCache(verifier, 50);
+
+        assertTrue(cache.verify("example.com", session("example.com")));
+
+        Thread.sleep(100);
+
+        assertTrue(cache.verify("example.com", session("example.com")));
+        assertEquals(2, verifier.mCount);
+    }
+}
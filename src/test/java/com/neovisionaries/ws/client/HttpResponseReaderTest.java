@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+
+
+public class HttpResponseReaderTest
+{
+    /**
+     * A stream which returns at most 3 bytes per read() so that lines
+     * are split across reads.
+     */
+    private static class ChoppedInputStream extends ByteArrayInputStream
+    {
+        ChoppedInputStream(String data)
+        {
+            super(Misc.getBytesUTF8(data));
+        }
+
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len)
+        {
+            return super.read(b, off, Math.min(len, 3));
+        }
+    }
+
+
+    private static Map<String, List<String>> createHeaders()
+    {
+        return new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+    }
+
+
+    @Test
+    public void response() throws IOException
+    {
+        InputStream in = new ChoppedInputStream(
+            "HTTP/1.1 101 Switching Protocols\r\n" +
+            "Upgrade: websocket\r\n" +
+            "Connection:Upgrade  \n" +
+            "X-Folded: a\r\n" +
+            " \t b\r\n" +
+            "x-folded: c\r\n" +
+            "Broken\r\n" +
+            "\r\n" +
+            "frame");
+
+        HttpResponseReader reader = new HttpResponseReader();
+        Map<String, List<String>> headers = createHeaders();
+
+        assertEquals("HTTP/1.1 101 Switching Protocols", reader.readStatusLine(in));
+        assertTrue(reader.readHeaders(in, headers));
+        assertEquals(0, reader.finish(in));
+
+        assertEquals(3, headers.size());
+        assertEquals("websocket", headers.get("upgrade").get(0));
+        assertEquals("Upgrade", headers.get("Connection").get(0));
+        assertEquals("a b", headers.get("X-Folded").get(0));
+        assertEquals("c", headers.get("X-Folded").get(1));
+
+        // Bytes after the header section are given back to the stream.
+        assertEquals('f', in.read());
+    }
+
+
+    @Test
+    public void eof() throws IOException
+    {
+        HttpResponseReader reader = new HttpResponseReader();
+
+        assertNull(reader.readStatusLine(new ChoppedInputStream("")));
+
+        InputStream in = new ChoppedInputStream("HTTP/1.1 200 OK\r\nA: 1");
+        Map<String, List<String>> headers = createHeaders();
+
+        reader = new HttpResponseReader();
+
+        assertEquals("HTTP/1.1 200 OK", reader.readStatusLine(in));
+        assertFalse(reader.readHeaders(in, headers));
+        assertEquals("1", headers.get("A").get(0));
+    }
+
+
+    @Test
+    public void limit() throws IOException
+    {
+        StringBuilder builder = new StringBuilder("HTTP/1.1 101 Switching Protocols\r\n");
+
+        for (int i = 0; i < 100; ++i)
+        {
+            builder.append("X-Header-").append(i).append(": value\r\n");
+        }
+
+        String response = builder.append("\r\n").toString();
+
+        // Within the limit.
+        HttpResponseReader reader = new HttpResponseReader(response.length());
+        InputStream in = new ChoppedInputStream(response);
+        reader.readStatusLine(in);
+        assertTrue(reader.readHeaders(in, null));
+
+        // Beyond the limit.
+        reader = new HttpResponseReader(response.length() - 1);
+        in = new ChoppedInputStream(response);
+        reader.readStatusLine(in);
+
+        try
+        {
+            reader.readHeaders(in, null);
+            fail("The limit was not enforced.");
+        }
+        catch (IOException e)
+        {
+            // Expected.
+        }
+    }
+}
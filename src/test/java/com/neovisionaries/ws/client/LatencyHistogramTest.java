@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class LatencyHistogramTest
+{
+    private static void assertNear(long expected, long actual)
+    {
+        // Buckets have a relative error of 1/16.
+        assertTrue(expected + " vs " + actual,
+            expected <= actual && actual <= expected + expected / 16 + 1);
+    }
+
+
+    @Test
+    public void test001()
+    {
+        LatencyHistogram histogram = new LatencyHistogram(null);
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0, histogram.getMean());
+    }
+
+
+    @Test
+    public void test002()
+    {
+        LatencyHistogram histogram = new LatencyHistogram(null);
+
+        for (int i = 1; i <= 1000; ++i)
+        {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean());
+        assertNear(500000, histogram.getPercentile(50));
+        assertNear(990000, histogram.getPercentile(99));
+        assertEquals(1000000, histogram.getPercentile(100));
+    }
+
+
+    @Test
+    public void test003()
+    {
+        // Values are added to the parent, and snapshots don't change.
+        LatencyHistogram parent = new LatencyHistogram(null);
+        LatencyHistogram child  = new LatencyHistogram(parent);
+
+        child.record(7);
+        LatencyHistogram snapshot = child.snapshot();
+        child.record(100000000000L);
+
+        assertEquals(1, snapshot.getCount());
+        assertEquals(7, snapshot.getPercentile(50));
+        assertEquals(2, parent.getCount());
+        assertEquals((1L << 36) - 1, parent.getMax());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import org.junit.Test;
+
+
+public class ListenerManagerTest
+{
+    private static class TextListener extends WebSocketAdapter
+    {
+        private int mCount;
+
+
+        @Override
+        public void onTextMessage(WebSocket websocket, String text)
+        {
+            ++mCount;
+        }
+    }
+
+
+    @Test
+    public void test001()
+    {
+        // Every listener method except handleCallbackError has an event.
+        int count = 0;
+
+        for (Method method : WebSocketListener.class.getMethods())
+        {
+            if (method.getName().equals("handleCallbackError"))
+            {
+                continue;
+            }
+
+            ++count;
+        }
+
+        assertEquals(count, ListenerEvent.values().length);
+    }
+
+
+    @Test
+    public void test002()
+    {
+        ListenerManager manager = new ListenerManager(null);
+        TextListener listener = new TextListener();
+
+        manager.addListener(listener);
+
+        assertTrue(manager.hasListeners(ListenerEvent.ON_TEXT_MESSAGE));
+        assertFalse(manager.hasListeners(ListenerEvent.ON_DIRECT_TEXT_MESSAGE));
+        assertFalse(manager.hasListeners(ListenerEvent.ON_FRAME));
+
+        manager.callOnTextMessage("hello");
+        assertEquals(1, listener.mCount);
+
+        manager.removeListener(listener);
+
+        assertFalse(manager.hasListeners(ListenerEvent.ON_TEXT_MESSAGE));
+    }
+
+
+    @Test
+    public void test003()
+    {
+        ListenerManager manager = new ListenerManager(null);
+
+        // A listener which does not extend WebSocketAdapter is
+        // interested in all the events.
+        manager.addListener((WebSocketListener)Proxy.newProxyInstance(
+            WebSocketListener.class.getClassLoader(),
+            new Class<?>[] { WebSocketListener.class },
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args)
+                {
+                    return null;
+                }
+            }));
+
+        for (ListenerEvent event : ListenerEvent.values())
+        {
+            assertTrue(manager.hasListeners(event));
+        }
+    }
+}
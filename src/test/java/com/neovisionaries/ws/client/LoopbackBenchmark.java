@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * End-to-end throughput and latency of the client against
+ * {@link TestServer} over the loopback interface.
+ *
+ * <p>
+ * Unlike the JMH benchmarks in the {@code benchmarks} module, this
+ * measures the whole client: the hand-off between the caller, the
+ * writing thread and the reading thread, the flush policy and the
+ * listener dispatch. Each connection keeps a fixed number of binary
+ * messages in flight against an echo server; every message carries the
+ * time it was sent, so the round-trip time is measured per message.
+ * </p>
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes \
+ *     com.neovisionaries.ws.client.LoopbackBenchmark [connections] [seconds] [window]
+ * </pre>
+ *
+ * <p>
+ * The numbers are affected by everything else running on the machine,
+ * including the server which shares the CPUs with the client. Compare
+ * runs made on the same machine only.
+ * </p>
+ */
+public class LoopbackBenchmark
+{
+    private static final int[] SIZES = { 64, 1024, 16384, 131072 };
+    private static final int WARMUP_SECONDS = 2;
+
+
+    /**
+     * A client which sends a new message each time one is echoed back.
+     */
+    private static class EchoClient extends WebSocketAdapter
+    {
+        private final Run mRun;
+        private final byte[] mTemplate;
+
+
+        EchoClient(Run run, byte[] template)
+        {
+            mRun      = run;
+            mTemplate = template;
+        }
+
+
+        void send(WebSocket websocket)
+        {
+            byte[] message = mTemplate.clone();
+            long now = System.nanoTime();
+
+            // The first 8 bytes carry the time at which the message was sent.
+            for (int i = 0; i < 8; ++i)
+            {
+                message[i] = (byte)(now >>> (56 - i * 8));
+            }
+
+            websocket.sendBinary(message);
+        }
+
+
+        @Override
+        public void onBinaryMessage(WebSocket websocket, byte[] binary)
+        {
+            long sentAt = 0;
+
+            for (int i = 0; i < 8; ++i)
+            {
+                sentAt = (sentAt << 8) | (binary[i] & 0xFF);
+            }
+
+            mRun.onEchoed(System.nanoTime() - sentAt, binary.length);
+
+            if (mRun.isStopped() == false)
+            {
+                send(websocket);
+            }
+        }
+    }
+
+
+    /**
+     * Counters of a run (one size and one compression setting).
+     */
+    private static class Run
+    {
+        private final LatencyHistogram mRoundTrips = new LatencyHistogram(null);
+        private final AtomicLong mMessages = new AtomicLong();
+        private final AtomicLong mBytes = new AtomicLong();
+        private volatile boolean mMeasuring;
+        private volatile boolean mStopped;
+
+
+        void onEchoed(long roundTrip, int length)
+        {
+            if (mMeasuring == false)
+            {
+                // Warming up.
+                return;
+            }
+
+            mRoundTrips.record(roundTrip);
+            mMessages.incrementAndGet();
+            mBytes.addAndGet(length);
+        }
+
+
+        boolean isStopped()
+        {
+            return mStopped;
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception
+    {
+        int connections = (0 < args.length) ? Integer.parseInt(args[0]) : 4;
+        int seconds     = (1 < args.length) ? Integer.parseInt(args[1]) : 5;
+        int window      = (2 < args.length) ? Integer.parseInt(args[2]) : 8;
+
+        System.out.printf("connections=%d, seconds=%d, window=%d%n%n", connections, seconds, window);
+        System.out.printf("%-8s %8s %12s %10s %10s %10s %10s%n",
+            "deflate", "size", "msgs/sec", "MB/sec", "p50(us)", "p99(us)", "p999(us)");
+
+        for (boolean compression : new boolean[] { false, true })
+        {
+            for (int size : SIZES)
+            {
+                run(compression, size, connections, seconds, window);
+            }
+        }
+    }
+
+
+    private static void run(
+            boolean compression, int size, int connections, int seconds, int window) throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.ECHO).setCompression(compression).start();
+        WebSocketFactory factory = new WebSocketFactory();
+        List<WebSocket> websockets = new ArrayList<WebSocket>();
+        Run run = new Run();
+        byte[] template = createTemplate(size);
+
+        try
+        {
+            for (int i = 0; i < connections; ++i)
+            {
+                EchoClient client = new EchoClient(run, template);
+                WebSocket ws = factory.createSocket(server.getURI()).addListener(client);
+
+                if (compression)
+                {
+                    ws.addExtension(WebSocketExtension.PERMESSAGE_DEFLATE);
+                }
+
+                websockets.add(ws.connect());
+
+                for (int j = 0; j < window; ++j)
+                {
+                    client.send(ws);
+                }
+            }
+
+            Thread.sleep(WARMUP_SECONDS * 1000L);
+
+            run.mMeasuring = true;
+            long startedAt = System.nanoTime();
+
+            Thread.sleep(seconds * 1000L);
+
+            run.mMeasuring = false;
+            run.mStopped   = true;
+            double elapsed = (System.nanoTime() - startedAt) / 1e9;
+
+            report(compression, size, run, elapsed);
+        }
+        finally
+        {
+            for (WebSocket ws : websockets)
+            {
+                ws.disconnect();
+            }
+
+            server.stop();
+        }
+    }
+
+
+    private static byte[] createTemplate(int size)
+    {
+        // Moderately compressible content after the 8-byte timestamp.
+        byte[] seed = Misc.getBytesUTF8("{\"type\":\"quote\",\"symbol\":\"NVWS\",\"bid\":101.25,\"ask\":101.27}");
+        byte[] template = new byte[Math.max(size, 8)];
+
+        for (int i = 8; i < template.length; ++i)
+        {
+            template[i] = seed[i % seed.length];
+        }
+
+        return template;
+    }
+
+
+    private static void report(boolean compression, int size, Run run, double elapsed)
+    {
+        LatencyHistogram rtt = run.mRoundTrips.snapshot();
+
+        System.out.printf("%-8s %8d %12.0f %10.2f %10.1f %10.1f %10.1f%n",
+            compression, size,
+            run.mMessages.get() / elapsed,
+            run.mBytes.get() / elapsed / (1024 * 1024),
+            rtt.getPercentile(50.0) / 1000.0,
+            rtt.getPercentile(99.0) / 1000.0,
+            rtt.getPercentile(99.9) / 1000.0);
+    }
+}
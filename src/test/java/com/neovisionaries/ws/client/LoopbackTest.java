@@ -0,0 +1,674 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+
+public class LoopbackTest
+{
+    private static final long TIMEOUT = 10;
+
+
+    private static class Collector extends WebSocketAdapter
+    {
+        final BlockingQueue<Object> mMessages = new LinkedBlockingQueue<Object>();
+        final BlockingQueue<Boolean> mDisconnected = new LinkedBlockingQueue<Boolean>();
+        final BlockingQueue<byte[]> mTextBytes = new LinkedBlockingQueue<byte[]>();
+        final BlockingQueue<byte[]> mTextErrors = new LinkedBlockingQueue<byte[]>();
+
+
+        @Override
+        public void onTextMessage(WebSocket websocket, String text)
+        {
+            mMessages.add(text);
+        }
+
+
+        @Override
+        public void onTextMessageBytes(WebSocket websocket, byte[] data)
+        {
+            mTextBytes.add(data);
+        }
+
+
+        @Override
+        public void onTextMessageError(WebSocket websocket, WebSocketException cause, byte[] data)
+        {
+            mTextErrors.add(data);
+        }
+
+
+        @Override
+        public void onBinaryMessage(WebSocket websocket, byte[] binary)
+        {
+            mMessages.add(binary);
+        }
+
+
+        @Override
+        public void onDisconnected(
+                WebSocket websocket, WebSocketFrame serverCloseFrame,
+                WebSocketFrame clientCloseFrame, boolean closedByServer)
+        {
+            mDisconnected.add(closedByServer);
+        }
+
+
+        Object next() throws InterruptedException
+        {
+            Object message = mMessages.poll(TIMEOUT, TimeUnit.SECONDS);
+
+            assertNotNull("No message was received in time.", message);
+
+            return message;
+        }
+    }
+
+
+    private static class Only implements WebSocketFilter
+    {
+        private final WebSocket mWebSocket;
+
+
+        Only(WebSocket websocket)
+        {
+            mWebSocket = websocket;
+        }
+
+
+        @Override
+        public boolean accept(WebSocket websocket)
+        {
+            return websocket == mWebSocket;
+        }
+    }
+
+
+    private static class Handler implements ReconnectHandler
+    {
+        final BlockingQueue<WebSocket> mReconnected = new LinkedBlockingQueue<WebSocket>();
+        final BlockingQueue<WebSocketException> mFailed = new LinkedBlockingQueue<WebSocketException>();
+
+
+        @Override
+        public void onReconnected(WebSocket websocket)
+        {
+            mReconnected.add(websocket);
+        }
+
+
+        @Override
+        public void onReconnectFailed(WebSocket websocket, WebSocketException cause)
+        {
+            mFailed.add(cause);
+        }
+    }
+
+
+    private static void echo(boolean compression) throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.ECHO).setCompression(compression).start();
+        Collector collector = new Collector();
+
+        try
+        {
+            WebSocket ws = new WebSocketFactory().createSocket(server.getURI())
+                .addListener(collector);
+
+            if (compression)
+            {
+                ws.addExtension(WebSocketExtension.PERMESSAGE_DEFLATE);
+            }
+
+            ws.connect();
+
+            byte[] binary = new byte[100000];
+            new Random(1).nextBytes(binary);
+
+            // Compressible text, a large random binary and a fragmented text.
+            ws.sendText("hello hello hello hello hello");
+            ws.sendBinary(binary);
+            ws.sendText("frag", false).sendContinuation("ment", true);
+
+            assertEquals("hello hello hello hello hello", collector.next());
+            assertArrayEquals(binary, (byte[])collector.next());
+            assertEquals("fragment", collector.next());
+
+            ws.disconnect();
+
+            assertEquals(Boolean.FALSE, collector.mDisconnected.poll(TIMEOUT, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+
+    @Test
+    public void echo() throws Exception
+    {
+        echo(false);
+    }
+
+
+    @Test
+    public void echoCompressed() throws Exception
+    {
+        echo(true);
+    }
+
+
+    @Test
+    public void directTextMessage() throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.ECHO).start();
+        Collector collector = new Collector();
+
+        try
+        {
+            WebSocket ws = new WebSocketFactory().createSocket(server.getURI())
+                .addListener(collector).setDirectTextMessage(true).connect();
+
+            String text = "h\u00E9llo \u2713";
+
+            ws.sendText(text);
+
+            // The UTF-8 bytes are passed as they are.
+            byte[] data = collector.mTextBytes.poll(TIMEOUT, TimeUnit.SECONDS);
+            assertArrayEquals(Misc.getBytesUTF8(text), data);
+
+            // Invalid UTF-8 is rejected before it reaches onTextMessageBytes.
+            byte[] invalid = { (byte)0xC3, (byte)0x28 };
+            ws.sendFrame(WebSocketFrame.createTextFrame("").setPayload(invalid));
+
+            assertArrayEquals(invalid, collector.mTextErrors.poll(TIMEOUT, TimeUnit.SECONDS));
+            assertNotNull(collector.mDisconnected.poll(TIMEOUT, TimeUnit.SECONDS));
+
+            // No string was constructed and nothing else was delivered.
+            assertNull(collector.mMessages.poll());
+            assertNull(collector.mTextBytes.poll());
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Queue large binary frames to a WebSocket connected to a
+     * {@link TestServer.Mode#STALL STALL} server until its writing
+     * thread keeps holding {@code count} frames, that is, until the
+     * writing thread is blocked by the full TCP buffers.
+     */
+    private static void fillQueue(WebSocket ws, int count) throws Exception
+    {
+        byte[] payload = new byte[1024 * 1024];
+        long deadline = System.currentTimeMillis() + TIMEOUT * 1000L;
+
+        while (true)
+        {
+            while (ws.getQueuedFrameCount() < count)
+            {
+                assertTrue("The queue did not fill in time.", System.currentTimeMillis() < deadline);
+
+                ws.sendBinary(payload);
+            }
+
+            // Give the writing thread time to take out more frames.
+            Thread.sleep(200);
+
+            if (count <= ws.getQueuedFrameCount())
+            {
+                return;
+            }
+        }
+    }
+
+
+    @Test
+    public void broadcast() throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.ECHO).start();
+        WebSocketFactory factory = new WebSocketFactory();
+        WebSocketGroup group = new WebSocketGroup();
+        List<WebSocket> sockets = new ArrayList<WebSocket>();
+        List<Collector> collectors = new ArrayList<Collector>();
+
+        try
+        {
+            for (int i = 0; i < 3; ++i)
+            {
+                Collector collector = new Collector();
+                WebSocket ws = factory.createSocket(server.getURI()).addListener(collector).connect();
+
+                sockets.add(ws);
+                collectors.add(collector);
+                group.add(ws);
+            }
+
+            // A WebSocket which has not been connected.
+            group.add(factory.createSocket(server.getURI()));
+
+            BroadcastResult result = group.broadcastText("hello");
+
+            assertEquals(4, result.getTargetCount());
+            assertEquals(3, result.getQueuedCount());
+            assertEquals(1, result.getNotOpenCount());
+            assertEquals(0, result.getFilteredCount());
+            assertEquals(0, result.getOverWatermarkCount());
+            assertEquals(0, result.getFailedCount());
+
+            for (Collector collector : collectors)
+            {
+                assertEquals("hello", collector.next());
+            }
+
+            // The filter is applied before the state is checked.
+            result = group.broadcastText("only", new Only(sockets.get(1)));
+
+            assertEquals(1, result.getQueuedCount());
+            assertEquals(3, result.getFilteredCount());
+            assertEquals(0, result.getNotOpenCount());
+            assertEquals("only", collectors.get(1).next());
+
+            // A disconnected WebSocket leaves the group.
+            sockets.get(0).disconnect();
+            assertNotNull(collectors.get(0).mDisconnected.poll(TIMEOUT, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 100 && group.size() != 3; ++i)
+            {
+                Thread.sleep(10);
+            }
+
+            assertEquals(3, group.broadcastText("bye").getTargetCount());
+            assertEquals("bye", collectors.get(2).next());
+            assertNull(collectors.get(0).mMessages.poll());
+        }
+        finally
+        {
+            for (WebSocket ws : sockets)
+            {
+                ws.disconnect();
+            }
+
+            server.stop();
+        }
+    }
+
+
+    @Test
+    public void broadcastOverWatermark() throws Exception
+    {
+        TestServer echo  = new TestServer(TestServer.Mode.ECHO).start();
+        TestServer stall = new TestServer(TestServer.Mode.STALL).start();
+        WebSocketFactory factory = new WebSocketFactory();
+        Collector collector = new Collector();
+
+        WebSocket active  = factory.createSocket(echo.getURI()).addListener(collector).connect();
+        WebSocket limited = factory.createSocket(stall.getURI()).setFrameQueueSize(4).connect();
+        WebSocket growing = factory.createSocket(stall.getURI()).connect();
+
+        try
+        {
+            fillQueue(limited, 4);
+            fillQueue(growing, 4);
+
+            WebSocketGroup group = new WebSocketGroup().add(active).add(limited).add(growing);
+
+            // Without a watermark, only the WebSocket whose frame queue
+            // is full is skipped, because queuing would block.
+            BroadcastResult result = group.broadcastText("first");
+
+            assertEquals(3, result.getTargetCount());
+            assertEquals(2, result.getQueuedCount());
+            assertEquals(1, result.getOverWatermarkCount());
+            assertEquals("first", collector.next());
+
+            // With a watermark, the slow WebSocket is skipped, too.
+            result = group.setQueueWatermark(4).broadcastText("second");
+
+            assertEquals(1, result.getQueuedCount());
+            assertEquals(2, result.getOverWatermarkCount());
+            assertEquals("second", collector.next());
+        }
+        finally
+        {
+            active.disconnect();
+            limited.disconnect();
+            growing.disconnect();
+            echo.stop();
+            stall.stop();
+        }
+    }
+
+
+    @Test
+    public void sendBeforeOpen() throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.ECHO).start();
+        Collector collector = new Collector();
+
+        try
+        {
+            // The frames are kept until the handshake completes.
+            WebSocket ws = new WebSocketFactory().createSocket(server.getURI())
+                .addListener(collector).setSendingBeforeOpenAllowed(true)
+                .sendText("first").sendText("second").connect();
+
+            ws.sendText("third");
+
+            assertEquals("first", collector.next());
+            assertEquals("second", collector.next());
+            assertEquals("third", collector.next());
+
+            ws.disconnect();
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+
+    @Test
+    public void source() throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.SOURCE)
+            .setSourceMessage(Misc.getBytesUTF8("tick"), true, 100).start();
+        Collector collector = new Collector();
+
+        try
+        {
+            new WebSocketFactory().createSocket(server.getURI())
+                .addListener(collector).connect();
+
+            for (int i = 0; i < 100; ++i)
+            {
+                assertEquals("tick", collector.next());
+            }
+
+            // The server closes the connection after the messages.
+            assertEquals(Boolean.TRUE, collector.mDisconnected.poll(TIMEOUT, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+
+    private static void awaitStandbyCount(WebSocketPool pool, int count) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT * 1000;
+
+        while (pool.getStandbyCount() != count && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+
+        assertEquals(count, pool.getStandbyCount());
+    }
+
+
+    @Test
+    public void pool() throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.ECHO).start();
+        WebSocketPool pool = new WebSocketFactory().createPool(server.getURI()).setSize(2).start();
+        Collector collector = new Collector();
+
+        try
+        {
+            awaitStandbyCount(pool, 2);
+
+            WebSocket ws = pool.checkout().addListener(collector);
+
+            assertTrue(ws.isOpen());
+
+            ws.sendText("Hello");
+            assertEquals("Hello", collector.next());
+
+            // The checked out one is replaced.
+            awaitStandbyCount(pool, 2);
+
+            pool.shutdown();
+
+            assertEquals(0, pool.getStandbyCount());
+            assertTrue(ws.isOpen());
+
+            ws.disconnect();
+        }
+        finally
+        {
+            pool.shutdown();
+            server.stop();
+        }
+    }
+
+
+    @Test
+    public void poolWithClosingServer() throws Exception
+    {
+        // The server closes each connection right after the handshake.
+        TestServer server = new TestServer(TestServer.Mode.SOURCE).start();
+        WebSocketPool pool = new WebSocketFactory().createPool(server.getURI()).start();
+
+        try
+        {
+            Thread.sleep(2500);
+
+            // Reconnects back off (1 second, 2 seconds, ...) instead of
+            // looping as fast as the server closes the connections.
+            assertTrue(server.getAcceptedCount() <= 3);
+            assertEquals(0, pool.getStandbyCount());
+        }
+        finally
+        {
+            pool.shutdown();
+            server.stop();
+        }
+    }
+
+
+    @Test
+    public void bulkConnect() throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.ECHO).start();
+
+        // A port on which nobody listens.
+        ServerSocket closed = new ServerSocket(0);
+        closed.close();
+
+        List<URI> uris = new ArrayList<URI>();
+
+        for (int i = 0; i < 20; ++i)
+        {
+            uris.add(URI.create(server.getURI()));
+        }
+
+        uris.add(URI.create("ws://127.0.0.1:" + closed.getLocalPort() + "/"));
+
+        try
+        {
+            long startedAt = System.currentTimeMillis();
+
+            BulkConnect bulk = new WebSocketFactory().createBulkConnector()
+                .setConcurrency(4).setRate(100).connectTo(uris);
+
+            assertTrue(bulk.await(TIMEOUT, TimeUnit.SECONDS));
+
+            // 21 connects at 100 per second take at least 200 milliseconds.
+            assertTrue(200 <= System.currentTimeMillis() - startedAt);
+            assertEquals(20, bulk.getSucceededCount());
+            assertEquals(1, bulk.getFailedCount());
+
+            for (int i = 0; i < 20; ++i)
+            {
+                WebSocket ws = bulk.getFutures().get(i).get();
+
+                assertTrue(ws.isOpen());
+
+                ws.disconnect();
+            }
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+
+    @Test
+    public void replay() throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.ECHO).start();
+        ReplayBuffer buffer = new ReplayBuffer(1024);
+        Collector collector = new Collector();
+
+        try
+        {
+            WebSocket ws = new WebSocketFactory().createSocket(server.getURI())
+                .addListener(collector).setReplayBuffer(buffer).connect();
+
+            ws.sendText("A");
+            long seq = buffer.getLastSequence();
+            ws.sendText("B");
+
+            assertEquals("A", collector.next());
+            assertEquals("B", collector.next());
+
+            // "A" has been processed, "B" has not.
+            assertEquals(1, buffer.acknowledge(seq));
+            assertEquals(1, buffer.getFrameCount());
+
+            ws.disconnect();
+            assertEquals(Boolean.FALSE, collector.mDisconnected.poll(TIMEOUT, TimeUnit.SECONDS));
+
+            // The unacknowledged frame is sent again ahead of new ones.
+            ws = ws.recreate().connect();
+            ws.sendText("C");
+
+            assertEquals("B", collector.next());
+            assertEquals("C", collector.next());
+            assertEquals(2, buffer.getFrameCount());
+
+            ws.disconnect();
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+
+    @Test
+    public void replayFragments() throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.ECHO).start();
+        ReplayBuffer buffer = new ReplayBuffer(10);
+        Collector collector = new Collector();
+
+        try
+        {
+            WebSocket ws = new WebSocketFactory().createSocket(server.getURI())
+                .addListener(collector).setReplayBuffer(buffer);
+
+            // A message whose first fragments are evicted by its last one.
+            ws.sendText("AAAA", false).sendContinuation("BBBB").sendContinuation("CCCC", true);
+
+            // A message whose middle fragment exceeds the capacity.
+            ws.sendText("GG", false).sendContinuation("XXXXXXXXXXXX").sendContinuation("HH", true);
+
+            assertEquals(6, buffer.getDroppedCount());
+
+            // A complete message and an unfinished one.
+            ws.sendText("DDDD").sendText("EEEE", false);
+
+            // Only the complete message is replayed. Otherwise, the server
+            // would close the connection on the next message.
+            ws.connect();
+            ws.sendText("FFFF");
+
+            assertEquals("DDDD", collector.next());
+            assertEquals("FFFF", collector.next());
+
+            ws.disconnect();
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+
+    @Test
+    public void reconnect() throws Exception
+    {
+        // The server closes each connection after a message.
+        TestServer server = new TestServer(TestServer.Mode.SOURCE)
+            .setSourceMessage(Misc.getBytesUTF8("tick"), true, 1).start();
+        WebSocketFactory factory = new WebSocketFactory();
+        Collector collector = new Collector();
+        Handler handler = new Handler();
+
+        WebSocket ws = factory.createSocket(server.getURI()).addListener(collector);
+
+        WebSocketReconnector reconnector = new WebSocketReconnector(ws,
+                new ReconnectPolicy().setInitialDelay(10).setMaxAttempts(2))
+            .setHandler(handler).start();
+
+        try
+        {
+            ws.connect();
+            assertEquals("tick", collector.next());
+
+            // The listener is copied to the new WebSocket.
+            assertNotNull(handler.mReconnected.poll(TIMEOUT, TimeUnit.SECONDS));
+            assertEquals("tick", collector.next());
+
+            // Attempts fail once the server is gone.
+            server.stop();
+            assertNotNull(handler.mFailed.poll(TIMEOUT, TimeUnit.SECONDS));
+
+            WebSocketMetricsSnapshot metrics = factory.getMetrics().snapshot();
+            assertTrue(1 <= metrics.getReconnectedCount());
+            assertTrue(2 <= metrics.getReconnectFailureCount());
+            assertTrue(1 <= reconnector.getLatency().getCount());
+        }
+        finally
+        {
+            reconnector.disconnect();
+            server.stop();
+        }
+    }
+}
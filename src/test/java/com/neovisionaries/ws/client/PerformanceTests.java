@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+/**
+ * JUnit category of tests which check resource usage (allocation per
+ * frame, threads per socket) against the budgets in
+ * {@code budgets.properties}.
+ *
+ * <p>
+ * They run with the other tests by default. To skip them, e.g. on a
+ * loaded CI machine:
+ * </p>
+ *
+ * <pre>
+ * mvn test -DexcludedGroups=com.neovisionaries.ws.client.PerformanceTests
+ * </pre>
+ */
+public interface PerformanceTests
+{
+}
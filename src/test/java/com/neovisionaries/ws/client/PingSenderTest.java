@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import org.junit.Test;
+
+
+public class PingSenderTest
+{
+    private static final long INTERVAL = 10000;
+
+
+    private static WebSocket createWebSocket() throws IOException
+    {
+        // The WebSocket is never connected.
+        return new WebSocketFactory().createSocket("ws://localhost/");
+    }
+
+
+    private static void setIdleTime(WebSocket ws, long millis)
+    {
+        ws.setLastReceivedAt(System.nanoTime() - millis * 1000000L);
+    }
+
+
+    @Test
+    public void test001() throws IOException
+    {
+        // A ping is sent every interval regardless of traffic by default.
+        WebSocket ws = createWebSocket();
+        setIdleTime(ws, 0);
+
+        assertEquals(0, new PingSender(ws, null).getDelay(INTERVAL));
+    }
+
+
+    @Test
+    public void test002() throws IOException
+    {
+        // A connection which has received a frame recently is not idle.
+        WebSocket ws = createWebSocket().setPingOnlyWhenIdle(true);
+        setIdleTime(ws, 3000);
+
+        long delay = new PingSender(ws, null).getDelay(INTERVAL);
+
+        // The sender waits until the connection has been idle for the interval.
+        assertTrue(6000 < delay && delay <= 7000);
+    }
+
+
+    @Test
+    public void test003() throws IOException
+    {
+        // A connection which has received nothing for the interval is idle.
+        WebSocket ws = createWebSocket().setPingOnlyWhenIdle(true);
+        setIdleTime(ws, INTERVAL + 1000);
+
+        assertEquals(0, new PingSender(ws, null).getDelay(INTERVAL));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.util.TimerTask;
+import org.junit.Test;
+
+
+public class PingTrackerTest
+{
+    private static class NoOpTask extends TimerTask
+    {
+        @Override
+        public void run()
+        {
+        }
+    }
+
+
+    private static PingTracker createTracker() throws IOException
+    {
+        // The WebSocket is never connected.
+        return new WebSocketFactory().createSocket("ws://localhost/").getPingTracker();
+    }
+
+
+    @Test
+    public void test001() throws IOException
+    {
+        PingTracker tracker = createTracker();
+        RoundTripStatistics stats = tracker.getStatistics();
+
+        assertEquals(-1, stats.getLast());
+        assertEquals(-1, stats.getSmoothed());
+        assertEquals(0, stats.getOutstandingCount());
+    }
+
+
+    @Test
+    public void test002() throws IOException
+    {
+        PingTracker tracker = createTracker();
+
+        tracker.onPingSent(WebSocketFrame.createPingFrame("1"));
+        tracker.onPingSent(WebSocketFrame.createPingFrame("2"));
+        tracker.onPingSent(WebSocketFrame.createPingFrame("3"));
+
+        assertEquals(3, tracker.getStatistics().getOutstandingCount());
+
+        // A pong for the second ping settles the first one, too.
+        tracker.onPongReceived(WebSocketFrame.createPongFrame("2"));
+
+        RoundTripStatistics stats = tracker.getStatistics();
+        assertEquals(1, stats.getOutstandingCount());
+        assertTrue(0 <= stats.getLast());
+        assertEquals(stats.getLast(), stats.getMin());
+        assertEquals(stats.getLast(), stats.getSmoothed());
+        assertEquals(1, stats.getHistogram().getCount());
+    }
+
+
+    @Test
+    public void test003() throws IOException
+    {
+        PingTracker tracker = createTracker();
+
+        tracker.onPingSent(WebSocketFrame.createPingFrame("1"));
+
+        // An unsolicited pong.
+        tracker.onPongReceived(WebSocketFrame.createPongFrame("x"));
+
+        RoundTripStatistics stats = tracker.getStatistics();
+        assertEquals(1, stats.getOutstandingCount());
+        assertEquals(1, stats.getUnmatchedCount());
+        assertEquals(-1, stats.getLast());
+    }
+
+
+    private static long awaitTimeoutCount(PingTracker tracker) throws InterruptedException
+    {
+        for (int i = 0; i < 100; ++i)
+        {
+            long count = tracker.getStatistics().getTimeoutCount();
+
+            if (count != 0)
+            {
+                return count;
+            }
+
+            Thread.sleep(10);
+        }
+
+        return 0;
+    }
+
+
+    @Test
+    public void test004() throws Exception
+    {
+        WebSocket ws = new WebSocketFactory().createSocket("ws://localhost/").setPongTimeout(50);
+        PingTracker tracker = ws.getPingTracker();
+
+        try
+        {
+            // Only the first ping is checked for the timeout.
+            tracker.onPingSent(WebSocketFrame.createPingFrame("0"));
+            ws.setPongTimeout(0);
+
+            // Too many outstanding pings. The first one is forgotten.
+            for (int i = 1; i <= 16; ++i)
+            {
+                tracker.onPingSent(WebSocketFrame.createPingFrame(String.valueOf(i)));
+            }
+
+            // A forgotten ping is not regarded as answered.
+            assertEquals(1, awaitTimeoutCount(tracker));
+        }
+        finally
+        {
+            ws.getPingSender().stop();
+        }
+    }
+
+
+    @Test
+    public void test005() throws Exception
+    {
+        WebSocket ws = new WebSocketFactory().createSocket("ws://localhost/").setPongTimeout(50);
+        PingTracker tracker = ws.getPingTracker();
+
+        try
+        {
+            tracker.onPingSent(WebSocketFrame.createPingFrame("1"));
+            tracker.onPingSent(WebSocketFrame.createPingFrame("2"));
+
+            // A pong for the later ping settles the earlier one, too.
+            tracker.onPongReceived(WebSocketFrame.createPongFrame("2"));
+
+            Thread.sleep(200);
+
+            assertEquals(0, tracker.getStatistics().getTimeoutCount());
+        }
+        finally
+        {
+            ws.getPingSender().stop();
+        }
+    }
+
+
+    @Test
+    public void test006() throws Exception
+    {
+        WebSocket ws = new WebSocketFactory().createSocket("ws://localhost/").setPongTimeout(50);
+
+        ws.getPingSender().stop();
+
+        // No timer is created for a ping sent after the sender stopped.
+        assertFalse(ws.getPingSender().scheduleOnce(new NoOpTask(), 50));
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+
+/**
+ * Checks that allocation per frame and threads per socket stay within
+ * the budgets recorded in {@code budgets.properties}. When a change
+ * legitimately needs more, update the budget in the same commit and say
+ * why.
+ */
+@Category(PerformanceTests.class)
+public class ResourceBudgetTest
+{
+    private static final int PAYLOAD_SIZE = 125;
+    private static final int WARMUP_FRAMES = 20000;
+    private static final int MEASURED_FRAMES = 20000;
+    private static final int SOCKETS = 10;
+    private static final long TIMEOUT = 30 * 1000L;
+
+
+    private static final Properties sBudgets = loadBudgets();
+
+
+    private static Properties loadBudgets()
+    {
+        Properties properties = new Properties();
+        InputStream in = ResourceBudgetTest.class.getResourceAsStream("budgets.properties");
+
+        try
+        {
+            properties.load(in);
+            in.close();
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException("Failed to load budgets.properties", e);
+        }
+
+        return properties;
+    }
+
+
+    private static double getBudget(String key)
+    {
+        return Double.parseDouble(sBudgets.getProperty(key));
+    }
+
+
+    private static void assertWithinBudget(String key, double actual)
+    {
+        double budget = getBudget(key);
+
+        assertTrue(String.format("%s: %.1f exceeds the budget %.1f", key, actual, budget),
+            actual <= budget);
+    }
+
+
+    /**
+     * Counts echoed messages and remembers the threads of the WebSocket.
+     */
+    private static class Recorder extends WebSocketAdapter
+    {
+        final AtomicLong mReceived = new AtomicLong();
+        volatile Thread mReadingThread;
+        volatile Thread mWritingThread;
+
+
+        @Override
+        public void onThreadStarted(WebSocket websocket, ThreadType threadType, Thread thread)
+        {
+            if (threadType == ThreadType.READING_THREAD)
+            {
+                mReadingThread = thread;
+            }
+            else if (threadType == ThreadType.WRITING_THREAD)
+            {
+                mWritingThread = thread;
+            }
+        }
+
+
+        @Override
+        public void onBinaryMessage(WebSocket websocket, byte[] binary)
+        {
+            mReceived.incrementAndGet();
+        }
+
+
+        void awaitReceived(long count) throws InterruptedException
+        {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+
+            while (mReceived.get() < count)
+            {
+                if (deadline < System.currentTimeMillis())
+                {
+                    fail("Echoes were not received in time: " + mReceived.get() + "/" + count);
+                }
+
+                Thread.sleep(1);
+            }
+        }
+    }
+
+
+    private static com.sun.management.ThreadMXBean getAllocationBean()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        // Per-thread allocation counters are a HotSpot extension.
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean)bean;
+
+        Assume.assumeTrue(allocation.isThreadAllocatedMemorySupported());
+        allocation.setThreadAllocatedMemoryEnabled(true);
+
+        return allocation;
+    }
+
+
+    private static void exchange(WebSocket ws, Recorder recorder, byte[] payload, int count)
+            throws InterruptedException
+    {
+        long expected = recorder.mReceived.get() + count;
+
+        for (int i = 0; i < count; ++i)
+        {
+            ws.sendBinary(payload);
+        }
+
+        recorder.awaitReceived(expected);
+    }
+
+
+    @Test
+    public void allocationPerFrame() throws Exception
+    {
+        com.sun.management.ThreadMXBean bean = getAllocationBean();
+        TestServer server = new TestServer(TestServer.Mode.ECHO).start();
+        Recorder recorder = new Recorder();
+        byte[] payload = new byte[PAYLOAD_SIZE];
+
+        try
+        {
+            WebSocket ws = new WebSocketFactory().createSocket(server.getURI())
+                .addListener(recorder).connect();
+
+            // Let the JIT compiler settle.
+            exchange(ws, recorder, payload, WARMUP_FRAMES);
+
+            long caller  = Thread.currentThread().getId();
+            long writing = recorder.mWritingThread.getId();
+            long reading = recorder.mReadingThread.getId();
+
+            long[] before = bean.getThreadAllocatedBytes(new long[] { caller, writing, reading });
+
+            exchange(ws, recorder, payload, MEASURED_FRAMES);
+
+            long[] after = bean.getThreadAllocatedBytes(new long[] { caller, writing, reading });
+
+            ws.disconnect();
+
+            // The caller (sendBinary) and the writing thread are on the sending path.
+            double sent = (double)((after[0] - before[0]) + (after[1] - before[1])) / MEASURED_FRAMES;
+
+            // The reading thread is on the receiving path, including the listener call.
+            double received = (double)(after[2] - before[2]) / MEASURED_FRAMES;
+
+            assertWithinBudget("bytesPerSentFrame", sent);
+            assertWithinBudget("bytesPerReceivedFrame", received);
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+
+    private static int countLiveThreads()
+    {
+        return ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+
+    private static int awaitStableThreadCount() throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        int count = countLiveThreads();
+
+        // Timers of ping senders are started asynchronously after connect().
+        while (System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(200);
+
+            int current = countLiveThreads();
+
+            if (current == count)
+            {
+                break;
+            }
+
+            count = current;
+        }
+
+        return count;
+    }
+
+
+    private static int awaitThreadCount(int expected) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        int count;
+
+        // Threads finish asynchronously after disconnect().
+        while (expected < (count = countLiveThreads()) && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+
+        return count;
+    }
+
+
+    private static void threadsPerSocket(long pingInterval, String key) throws Exception
+    {
+        TestServer server = new TestServer(TestServer.Mode.SINK).start();
+        List<WebSocket> websockets = new ArrayList<WebSocket>();
+
+        try
+        {
+            int baseline = countLiveThreads();
+
+            for (int i = 0; i < SOCKETS; ++i)
+            {
+                WebSocket ws = new WebSocketFactory().createSocket(server.getURI())
+                    .setPingInterval(pingInterval);
+
+                websockets.add(ws.connect());
+            }
+
+            // The server has a thread per connection, too.
+            int clientThreads = awaitStableThreadCount() - baseline - SOCKETS;
+
+            assertWithinBudget(key, (double)clientThreads / SOCKETS);
+
+            for (WebSocket ws : websockets)
+            {
+                ws.disconnect();
+            }
+
+            server.stop();
+
+            // No thread may remain after the connections are closed.
+            int remaining = awaitThreadCount(baseline);
+
+            assertTrue(String.format("%d threads remain after disconnect()", remaining - baseline),
+                remaining <= baseline);
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+
+    @Test
+    public void threadsPerSocket() throws Exception
+    {
+        threadsPerSocket(0, "threadsPerSocket");
+    }
+
+
+    @Test
+    public void threadsPerSocketWithPing() throws Exception
+    {
+        threadsPerSocket(60 * 1000L, "threadsPerSocketWithPing");
+    }
+}
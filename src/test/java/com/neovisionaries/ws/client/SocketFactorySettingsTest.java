@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import org.junit.Test;
+
+
+public class SocketFactorySettingsTest
+{
+    @Test
+    public void test001() throws Exception
+    {
+        // Without any setting, the cache of the default SSL context is used.
+        SocketFactorySettings settings = new SocketFactorySettings();
+
+        assertSame(SSLContext.getDefault().getClientSessionContext(), settings.selectSSLSessionContext());
+    }
+
+
+    @Test
+    public void test002() throws Exception
+    {
+        // The cache of the SSL context which has been set.
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, null, null);
+
+        SocketFactorySettings settings = new SocketFactorySettings();
+        settings.setSSLContext(context);
+
+        assertSame(context.getClientSessionContext(), settings.selectSSLSessionContext());
+    }
+
+
+    @Test
+    public void test003() throws Exception
+    {
+        // The SSL context behind an SSL socket factory is unknown.
+        SocketFactorySettings settings = new SocketFactorySettings();
+        settings.setSSLSocketFactory((SSLSocketFactory)SSLSocketFactory.getDefault());
+
+        assertNull(settings.selectSSLSessionContext());
+    }
+}
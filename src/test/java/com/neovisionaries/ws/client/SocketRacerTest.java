@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import javax.net.SocketFactory;
+import org.junit.Assume;
+import org.junit.Test;
+
+
+public class SocketRacerTest
+{
+    /**
+     * A socket which pretends to get connected immediately.
+     */
+    private static class ConnectedSocket extends Socket
+    {
+        @Override
+        public void connect(SocketAddress endpoint, int timeout)
+        {
+        }
+    }
+
+
+    /**
+     * Statistics which interrupt the racing thread right after a winner
+     * has been decided.
+     */
+    private static class InterruptingStatistics extends AddressStatistics
+    {
+        private final Thread mRacingThread;
+
+
+        InterruptingStatistics(Thread racingThread)
+        {
+            mRacingThread = racingThread;
+        }
+
+
+        @Override
+        synchronized void onSuccess(InetAddress address, long connectTime)
+        {
+            super.onSuccess(address, connectTime);
+
+            mRacingThread.interrupt();
+        }
+    }
+
+
+    private static InetAddress address(String literal) throws IOException
+    {
+        return InetAddress.getByName(literal);
+    }
+
+
+    @Test
+    public void sort() throws IOException
+    {
+        InetAddress a = address("127.0.0.1");
+        InetAddress b = address("127.0.0.2");
+        InetAddress c = address("::1");
+        InetAddress d = address("127.0.0.3");
+
+        AddressStatistics stats = new AddressStatistics();
+
+        // Unknown addresses keep the resolver's order.
+        assertArrayEquals(new InetAddress[] { a, b, c, d },
+                stats.sort(new InetAddress[] { a, b, c, d }, false));
+
+        // Address families are interleaved.
+        assertArrayEquals(new InetAddress[] { a, c, b, d },
+                stats.sort(new InetAddress[] { a, b, c, d }, true));
+
+        // Succeeded ones first (faster first), failed ones last.
+        stats.onFailure(a);
+        stats.onSuccess(d, 2000);
+        stats.onSuccess(b, 1000);
+
+        assertArrayEquals(new InetAddress[] { b, d, c, a },
+                stats.sort(new InetAddress[] { a, b, c, d }, false));
+    }
+
+
+    @Test
+    public void race() throws IOException
+    {
+        // The first address refuses connections and the second accepts them.
+        InetAddress refused  = address("127.0.0.1");
+        InetAddress accepted = address("127.0.0.2");
+        ServerSocket server  = new ServerSocket();
+
+        try
+        {
+            server.bind(new InetSocketAddress(accepted, 0));
+        }
+        catch (IOException e)
+        {
+            // 127.0.0.2 is not available on this platform.
+            server.close();
+            Assume.assumeTrue(false);
+        }
+
+        try
+        {
+            Socket first = new Socket();
+            AddressStatistics stats = new AddressStatistics();
+            SocketRacer racer = new SocketRacer(SocketFactory.getDefault(),
+                    new SocketOptions(first), server.getLocalPort(), 5000, 250, stats);
+
+            Socket socket = racer.race(first, new InetAddress[] { refused, accepted });
+
+            assertTrue(socket.isConnected());
+            assertEquals(accepted, socket.getInetAddress());
+            assertTrue(first.isClosed());
+            assertEquals(1, stats.getFailureCount(refused));
+            assertEquals(1, stats.getSuccessCount(accepted));
+
+            socket.close();
+        }
+        finally
+        {
+            server.close();
+        }
+    }
+
+
+    @Test
+    public void raceInterrupted() throws Exception
+    {
+        InetAddress[] addresses = { address("127.0.0.1") };
+        Socket first = new ConnectedSocket();
+        SocketRacer racer = new SocketRacer(SocketFactory.getDefault(),
+                new SocketOptions(first), 80, 5000, 250,
+                new InterruptingStatistics(Thread.currentThread()));
+
+        try
+        {
+            // The winner is returned.
+            racer.race(first, addresses).close();
+        }
+        catch (InterruptedIOException e)
+        {
+            // The winner is not returned, so it must have been closed.
+            assertTrue(first.isClosed());
+        }
+        finally
+        {
+            // Clear the interrupted status.
+            Thread.interrupted();
+        }
+    }
+}
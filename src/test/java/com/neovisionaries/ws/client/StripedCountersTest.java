@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+
+public class StripedCountersTest
+{
+    private static class Adder extends Thread
+    {
+        private final StripedCounters mCounters;
+
+
+        Adder(StripedCounters counters)
+        {
+            mCounters = counters;
+        }
+
+
+        @Override
+        public void run()
+        {
+            for (int i = 0; i < 10000; ++i)
+            {
+                mCounters.increment(0);
+                mCounters.add(2, 3);
+            }
+        }
+    }
+
+
+    @Test
+    public void test001()
+    {
+        StripedCounters counters = new StripedCounters(3, 1);
+
+        counters.increment(0);
+        counters.add(2, 5);
+
+        assertEquals(1, counters.get(0));
+        assertEquals(0, counters.get(1));
+        assertEquals(5, counters.get(2));
+    }
+
+
+    @Test
+    public void test002() throws InterruptedException
+    {
+        StripedCounters counters = new StripedCounters(3, 8);
+        Adder[] adders = new Adder[4];
+
+        for (int i = 0; i < adders.length; ++i)
+        {
+            adders[i] = new Adder(counters);
+            adders[i].start();
+        }
+
+        for (Adder adder : adders)
+        {
+            adder.join();
+        }
+
+        long[] values = counters.getAll();
+
+        assertEquals(40000, values[0]);
+        assertEquals(0, values[1]);
+        assertEquals(120000, values[2]);
+    }
+
+
+    @Test
+    public void test003()
+    {
+        // Updates of a WebSocket are added to the parent.
+        WebSocketMetrics parent = new WebSocketMetrics();
+        WebSocketMetrics child  = new WebSocketMetrics(parent);
+
+        child.onFrameReceived(WebSocketFrame.createTextFrame("hello"));
+        child.onFrameSent(WebSocketFrame.createBinaryFrame(new byte[3]));
+
+        WebSocketMetricsSnapshot snapshot = parent.snapshot();
+
+        assertEquals(1, snapshot.getFramesIn());
+        assertEquals(5, snapshot.getBytesIn(WebSocketOpcode.TEXT));
+        assertEquals(1, snapshot.getFramesOut(WebSocketOpcode.BINARY));
+        assertEquals(1, snapshot.getMessagesOut());
+        assertEquals(0, snapshot.getMessagesIn());
+    }
+
+
+    @Test
+    public void test004()
+    {
+        // Frames discarded by a finished writing thread leave the queue.
+        WebSocketMetrics metrics = new WebSocketMetrics();
+
+        metrics.onFrameQueued();
+        metrics.onFrameQueued();
+        metrics.onFrameQueued();
+        metrics.onFrameDequeued(10);
+
+        assertEquals(2, metrics.snapshot().getQueueDepth());
+
+        metrics.onFramesDiscarded(2);
+
+        WebSocketMetricsSnapshot snapshot = metrics.snapshot();
+
+        assertEquals(0, snapshot.getQueueDepth());
+        assertEquals(1, snapshot.getDequeuedFrames());
+        assertEquals(2, snapshot.getDiscardedFrames());
+    }
+}
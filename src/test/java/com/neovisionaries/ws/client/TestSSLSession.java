@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.security.Principal;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+
+
+/**
+ * A fake {@link SSLSession} with a session ID, a peer and a peer certificate.
+ */
+class TestSSLSession implements SSLSession
+{
+    /**
+     * A fake certificate whose encoded form is given bytes.
+     */
+    static class TestCertificate extends Certificate
+    {
+        private static final long serialVersionUID = 1L;
+        private final byte[] mEncoded;
+
+
+        TestCertificate(String encoded)
+        {
+            super("X.509");
+
+            mEncoded = Misc.getBytesUTF8(encoded);
+        }
+
+
+        @Override
+        public byte[] getEncoded()
+        {
+            return mEncoded;
+        }
+
+
+        @Override
+        public void verify(PublicKey key)
+        {
+        }
+
+
+        @Override
+        public void verify(PublicKey key, String sigProvider)
+        {
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "TestCertificate";
+        }
+
+
+        @Override
+        public PublicKey getPublicKey()
+        {
+            return null;
+        }
+    }
+
+
+    private final byte[] mId;
+    private final String mPeerHost;
+    private final int mPeerPort;
+    private final Certificate mCertificate;
+
+
+    TestSSLSession(String id, String peerHost, int peerPort, String certificate)
+    {
+        mId          = (id == null) ? new byte[0] : Misc.getBytesUTF8(id);
+        mPeerHost    = peerHost;
+        mPeerPort    = peerPort;
+        mCertificate = (certificate == null) ? null : new TestCertificate(certificate);
+    }
+
+
+    @Override
+    public byte[] getId()
+    {
+        return mId;
+    }
+
+
+    @Override
+    public SSLSessionContext getSessionContext()
+    {
+        return null;
+    }
+
+
+    @Override
+    public long getCreationTime()
+    {
+        return 0;
+    }
+
+
+    @Override
+    public long getLastAccessedTime()
+    {
+        return 0;
+    }
+
+
+    @Override
+    public void invalidate()
+    {
+    }
+
+
+    @Override
+    public boolean isValid()
+    {
+        return true;
+    }
+
+
+    @Override
+    public void putValue(String name, Object value)
+    {
+    }
+
+
+    @Override
+    public Object getValue(String name)
+    {
+        return null;
+    }
+
+
+    @Override
+    public void removeValue(String name)
+    {
+    }
+
+
+    @Override
+    public String[] getValueNames()
+    {
+        return new String[0];
+    }
+
+
+    @Override
+    public Certificate[] getPeerCertificates()
+    {
+        return new Certificate[] { mCertificate };
+    }
+
+
+    @Override
+    public Certificate[] getLocalCertificates()
+    {
+        return null;
+    }
+
+
+    @Override
+    public javax.security.cert.X509Certificate[] getPeerCertificateChain()
+    {
+        return null;
+    }
+
+
+    @Override
+    public Principal getPeerPrincipal()
+    {
+        return null;
+    }
+
+
+    @Override
+    public Principal getLocalPrincipal()
+    {
+        return null;
+    }
+
+
+    @Override
+    public String getCipherSuite()
+    {
+        return "TLS_AES_128_GCM_SHA256";
+    }
+
+
+    @Override
+    public String getProtocol()
+    {
+        return "TLSv1.2";
+    }
+
+
+    @Override
+    public String getPeerHost()
+    {
+        return mPeerHost;
+    }
+
+
+    @Override
+    public int getPeerPort()
+    {
+        return mPeerPort;
+    }
+
+
+    @Override
+    public int getPacketBufferSize()
+    {
+        return 16384;
+    }
+
+
+    @Override
+    public int getApplicationBufferSize()
+    {
+        return 16384;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A minimal WebSocket server for tests and loopback benchmarks.
+ *
+ * <p>
+ * The server listens on the loopback interface, implements the framing
+ * of RFC 6455 and optionally {@code permessage-deflate} (RFC 7692) with
+ * {@code no_context_takeover} in both directions. It does not depend on
+ * anything outside the JDK except for the compressor of this library.
+ * </p>
+ *
+ * <pre>
+ * TestServer server = new TestServer(TestServer.Mode.ECHO).start();
+ * WebSocket ws = new WebSocketFactory().createSocket(server.getURI()).connect();
+ * ...
+ * server.stop();
+ * </pre>
+ */
+class TestServer implements Runnable
+{
+    /**
+     * What the server does with connections.
+     */
+    enum Mode
+    {
+        /**
+         * Send received data messages back.
+         */
+        ECHO,
+
+
+        /**
+         * Discard received data messages.
+         */
+        SINK,
+
+
+        /**
+         * Send the {@link TestServer#setSourceMessage(byte[], boolean, int)
+         * source message} repeatedly right after the opening handshake,
+         * then close the connection.
+         */
+        SOURCE,
+
+
+        /**
+         * Read nothing after the opening handshake, so that the writing
+         * threads of clients block once the TCP buffers are full.
+         */
+        STALL,
+    }
+
+
+    private final Mode mMode;
+    private final List<TestServerConnection> mConnections = new ArrayList<TestServerConnection>();
+    private final AtomicLong mAcceptedCount = new AtomicLong();
+    private final AtomicLong mReceivedMessageCount = new AtomicLong();
+    private final AtomicLong mReceivedPayloadBytes = new AtomicLong();
+    private boolean mCompression;
+    private byte[] mSourceMessage = new byte[0];
+    private boolean mSourceMessageText;
+    private int mSourceMessageCount;
+    private ServerSocket mServerSocket;
+    private Thread mAcceptThread;
+
+
+    TestServer(Mode mode)
+    {
+        mMode = mode;
+    }
+
+
+    Mode getMode()
+    {
+        return mMode;
+    }
+
+
+    boolean isCompression()
+    {
+        return mCompression;
+    }
+
+
+    /**
+     * Accept {@code permessage-deflate} when the client offers it.
+     */
+    TestServer setCompression(boolean compression)
+    {
+        mCompression = compression;
+
+        return this;
+    }
+
+
+    byte[] getSourceMessage()
+    {
+        return mSourceMessage;
+    }
+
+
+    boolean isSourceMessageText()
+    {
+        return mSourceMessageText;
+    }
+
+
+    int getSourceMessageCount()
+    {
+        return mSourceMessageCount;
+    }
+
+
+    /**
+     * Set the message which is sent {@code count} times in
+     * {@link Mode#SOURCE SOURCE} mode.
+     */
+    TestServer setSourceMessage(byte[] payload, boolean text, int count)
+    {
+        mSourceMessage      = payload;
+        mSourceMessageText  = text;
+        mSourceMessageCount = count;
+
+        return this;
+    }
+
+
+    /**
+     * Bind an ephemeral port of the loopback interface and start
+     * accepting connections.
+     */
+    TestServer start() throws IOException
+    {
+        mServerSocket = new ServerSocket(0, 128, InetAddress.getByName("127.0.0.1"));
+        mAcceptThread = new Thread(this, "TestServer");
+        mAcceptThread.setDaemon(true);
+        mAcceptThread.start();
+
+        return this;
+    }
+
+
+    int getPort()
+    {
+        return mServerSocket.getLocalPort();
+    }
+
+
+    String getURI()
+    {
+        return "ws://127.0.0.1:" + getPort() + "/";
+    }
+
+
+    long getAcceptedCount()
+    {
+        return mAcceptedCount.get();
+    }
+
+
+    long getReceivedMessageCount()
+    {
+        return mReceivedMessageCount.get();
+    }
+
+
+    long getReceivedPayloadBytes()
+    {
+        return mReceivedPayloadBytes.get();
+    }
+
+
+    void onMessageReceived(int length)
+    {
+        mReceivedMessageCount.incrementAndGet();
+        mReceivedPayloadBytes.addAndGet(length);
+    }
+
+
+    /**
+     * Stop accepting connections and close all the connections.
+     */
+    void stop()
+    {
+        try
+        {
+            mServerSocket.close();
+        }
+        catch (IOException e)
+        {
+            // Ignore.
+        }
+
+        synchronized (mConnections)
+        {
+            for (TestServerConnection connection : mConnections)
+            {
+                connection.close();
+            }
+
+            mConnections.clear();
+        }
+    }
+
+
+    @Override
+    public void run()
+    {
+        while (true)
+        {
+            Socket socket;
+
+            try
+            {
+                socket = mServerSocket.accept();
+            }
+            catch (IOException e)
+            {
+                // The server socket was closed.
+                return;
+            }
+
+            mAcceptedCount.incrementAndGet();
+
+            TestServerConnection connection = new TestServerConnection(this, socket);
+
+            synchronized (mConnections)
+            {
+                mConnections.add(connection);
+            }
+
+            Thread thread = new Thread(connection, "TestServerConnection");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+
+/**
+ * A connection accepted by {@link TestServer}.
+ */
+class TestServerConnection implements Runnable
+{
+    private static final String ACCEPT_MAGIC = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final byte[] COMPRESSION_TERMINATOR = { 0x00, 0x00, (byte)0xFF, (byte)0xFF };
+
+
+    private final TestServer mServer;
+    private final Socket mSocket;
+    private DataInputStream mInput;
+    private OutputStream mOutput;
+    private boolean mCompression;
+    private PerMessageDeflateExtension mCompressor;
+    private Inflater mInflater;
+
+
+    TestServerConnection(TestServer server, Socket socket)
+    {
+        mServer = server;
+        mSocket = socket;
+    }
+
+
+    void close()
+    {
+        try
+        {
+            mSocket.close();
+        }
+        catch (IOException e)
+        {
+            // Ignore.
+        }
+
+        synchronized (this)
+        {
+            // Mainly for stall().
+            notifyAll();
+        }
+    }
+
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            mSocket.setTcpNoDelay(true);
+            mInput  = new DataInputStream(new BufferedInputStream(mSocket.getInputStream()));
+            mOutput = new BufferedOutputStream(mSocket.getOutputStream());
+
+            // Opening handshake.
+            handshake();
+
+            if (mServer.getMode() == TestServer.Mode.SOURCE)
+            {
+                source();
+            }
+            else if (mServer.getMode() == TestServer.Mode.STALL)
+            {
+                stall();
+            }
+            else
+            {
+                serve();
+            }
+        }
+        catch (IOException e)
+        {
+            // The connection was closed.
+        }
+        catch (DataFormatException e)
+        {
+            // Broken compressed data.
+        }
+        finally
+        {
+            close();
+
+            if (mInflater != null)
+            {
+                mInflater.end();
+            }
+        }
+    }
+
+
+    private void handshake() throws IOException
+    {
+        String key = null;
+        boolean deflate = false;
+
+        // Read the request line and the headers.
+        for (String line = readLine(); line.length() != 0; line = readLine())
+        {
+            int colon = line.indexOf(':');
+
+            if (colon < 0)
+            {
+                // The request line.
+                continue;
+            }
+
+            String name  = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+
+            if (name.equalsIgnoreCase("Sec-WebSocket-Key"))
+            {
+                key = value;
+            }
+            else if (name.equalsIgnoreCase("Sec-WebSocket-Extensions"))
+            {
+                deflate |= value.contains(WebSocketExtension.PERMESSAGE_DEFLATE);
+            }
+        }
+
+        if (key == null)
+        {
+            throw new IOException("Sec-WebSocket-Key is missing.");
+        }
+
+        StringBuilder response = new StringBuilder()
+            .append("HTTP/1.1 101 Switching Protocols\r\n")
+            .append("Upgrade: websocket\r\n")
+            .append("Connection: Upgrade\r\n")
+            .append("Sec-WebSocket-Accept: ").append(computeAccept(key)).append("\r\n");
+
+        if (deflate && mServer.isCompression())
+        {
+            // Every message is compressed independently in both directions.
+            response.append("Sec-WebSocket-Extensions: permessage-deflate; ")
+                    .append("server_no_context_takeover; client_no_context_takeover\r\n");
+
+            mCompression = true;
+            mCompressor  = new PerMessageDeflateExtension();
+            mInflater    = new Inflater(true);
+        }
+
+        response.append("\r\n");
+
+        mOutput.write(Misc.getBytesUTF8(response.toString()));
+        mOutput.flush();
+    }
+
+
+    private String readLine() throws IOException
+    {
+        String line = Misc.readLine(mInput, "UTF-8");
+
+        if (line == null)
+        {
+            throw new IOException("The connection was closed during the handshake.");
+        }
+
+        return line;
+    }
+
+
+    private static String computeAccept(String key) throws IOException
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+
+            return Base64.encode(md.digest(Misc.getBytesUTF8(key + ACCEPT_MAGIC)));
+        }
+        catch (Exception e)
+        {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+
+    private void source() throws IOException, DataFormatException
+    {
+        int opcode = mServer.isSourceMessageText() ? WebSocketOpcode.TEXT : WebSocketOpcode.BINARY;
+        byte[] message = mServer.getSourceMessage();
+
+        for (int i = 0; i < mServer.getSourceMessageCount(); ++i)
+        {
+            writeMessage(opcode, message);
+        }
+
+        // Close the connection gracefully.
+        writeFrame(true, false, WebSocketOpcode.CLOSE, new byte[] { 0x03, (byte)0xE8 });
+        mOutput.flush();
+
+        // Wait for the close frame from the client.
+        serve();
+    }
+
+
+    private synchronized void stall()
+    {
+        // Keep the connection open without reading until close() is called.
+        while (mSocket.isClosed() == false)
+        {
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+        }
+    }
+
+
+    private void serve() throws IOException, DataFormatException
+    {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        int messageOpcode = 0;
+        boolean messageCompressed = false;
+        boolean inMessage = false;
+
+        while (true)
+        {
+            int b0 = mInput.readUnsignedByte();
+            int b1 = mInput.readUnsignedByte();
+
+            boolean fin    = (b0 & 0x80) != 0;
+            boolean rsv1   = (b0 & 0x40) != 0;
+            int opcode     = (b0 & 0x0F);
+            boolean masked = (b1 & 0x80) != 0;
+            byte[] payload = readPayload(b1 & 0x7F, masked);
+
+            switch (opcode)
+            {
+                case WebSocketOpcode.CLOSE:
+                    // Reply with the same close code and finish.
+                    writeFrame(true, false, WebSocketOpcode.CLOSE, payload);
+                    mOutput.flush();
+                    return;
+
+                case WebSocketOpcode.PING:
+                    writeFrame(true, false, WebSocketOpcode.PONG, payload);
+                    mOutput.flush();
+                    continue;
+
+                case WebSocketOpcode.PONG:
+                    continue;
+
+                case WebSocketOpcode.CONTINUATION:
+                    if (inMessage == false)
+                    {
+                        throw new IOException("A continuation frame without a preceding data frame.");
+                    }
+                    break;
+
+                default:
+                    if (inMessage)
+                    {
+                        // RFC 6455, 5.4. Fragmentation.
+                        throw new IOException("A data frame in the middle of a fragmented message.");
+                    }
+
+                    // The first frame of a data message.
+                    messageOpcode     = opcode;
+                    messageCompressed = rsv1;
+                    message.reset();
+                    break;
+            }
+
+            message.write(payload, 0, payload.length);
+
+            inMessage = (fin == false);
+
+            if (inMessage)
+            {
+                continue;
+            }
+
+            byte[] data = message.toByteArray();
+
+            if (messageCompressed)
+            {
+                data = inflate(data);
+            }
+
+            mServer.onMessageReceived(data.length);
+
+            if (mServer.getMode() == TestServer.Mode.ECHO)
+            {
+                writeMessage(messageOpcode, data);
+            }
+        }
+    }
+
+
+    private byte[] readPayload(int length, boolean masked) throws IOException
+    {
+        long len = length;
+
+        if (length == 126)
+        {
+            len = mInput.readUnsignedShort();
+        }
+        else if (length == 127)
+        {
+            len = mInput.readLong();
+        }
+
+        byte[] maskingKey = new byte[4];
+
+        if (masked)
+        {
+            mInput.readFully(maskingKey);
+        }
+
+        byte[] payload = new byte[(int)len];
+
+        mInput.readFully(payload);
+
+        if (masked)
+        {
+            for (int i = 0; i < payload.length; ++i)
+            {
+                payload[i] ^= maskingKey[i % 4];
+            }
+        }
+
+        return payload;
+    }
+
+
+    private byte[] inflate(byte[] compressed) throws DataFormatException
+    {
+        // RFC 7692, 7.2.2. Decompression
+        mInflater.reset();
+        mInflater.setInput(compressed);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(compressed.length * 4);
+        byte[] buffer = new byte[8192];
+
+        inflate(buffer, output);
+
+        mInflater.setInput(COMPRESSION_TERMINATOR);
+
+        inflate(buffer, output);
+
+        return output.toByteArray();
+    }
+
+
+    private void inflate(byte[] buffer, ByteArrayOutputStream output) throws DataFormatException
+    {
+        while (true)
+        {
+            int n = mInflater.inflate(buffer);
+
+            if (n == 0)
+            {
+                return;
+            }
+
+            output.write(buffer, 0, n);
+        }
+    }
+
+
+    private void writeMessage(int opcode, byte[] data) throws IOException
+    {
+        boolean rsv1 = false;
+
+        if (mCompression)
+        {
+            try
+            {
+                byte[] compressed = mCompressor.compress(data);
+
+                // compress() returns the input as is when it is not worth it.
+                rsv1 = (compressed != data);
+                data = compressed;
+            }
+            catch (WebSocketException e)
+            {
+                throw new IOException(e.getMessage());
+            }
+        }
+
+        writeFrame(true, rsv1, opcode, data);
+
+        // A frame is flushed when no more data is waiting to be echoed,
+        // which batches writes under load like real servers do.
+        if (mInput.available() == 0)
+        {
+            mOutput.flush();
+        }
+    }
+
+
+    private void writeFrame(boolean fin, boolean rsv1, int opcode, byte[] payload) throws IOException
+    {
+        // Frames from a server are not masked.
+        mOutput.write((fin ? 0x80 : 0x00) | (rsv1 ? 0x40 : 0x00) | opcode);
+
+        int len = payload.length;
+
+        if (len <= 125)
+        {
+            mOutput.write(len);
+        }
+        else if (len <= 65535)
+        {
+            mOutput.write(126);
+            mOutput.write(len >>> 8);
+            mOutput.write(len);
+        }
+        else
+        {
+            mOutput.write(127);
+
+            for (int shift = 56; 0 <= shift; shift -= 8)
+            {
+                mOutput.write((int)(((long)len) >>> shift));
+            }
+        }
+
+        mOutput.write(payload);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class TlsSessionHistoryTest
+{
+    @Test
+    public void test001()
+    {
+        TlsSessionHistory history = new TlsSessionHistory();
+
+        // The first session with a server is new.
+        assertFalse(history.onHandshake(new TestSSLSession("A", "example.com", 443, null)));
+
+        // The same ID means that the session was resumed.
+        assertTrue(history.onHandshake(new TestSSLSession("A", "example.com", 443, null)));
+
+        // A new ID means a full handshake.
+        assertFalse(history.onHandshake(new TestSSLSession("B", "example.com", 443, null)));
+        assertTrue(history.onHandshake(new TestSSLSession("B", "example.com", 443, null)));
+    }
+
+
+    @Test
+    public void test002()
+    {
+        TlsSessionHistory history = new TlsSessionHistory();
+
+        // Servers are distinguished by the host and the port.
+        assertFalse(history.onHandshake(new TestSSLSession("A", "example.com", 443, null)));
+        assertFalse(history.onHandshake(new TestSSLSession("A", "example.com", 8443, null)));
+        assertFalse(history.onHandshake(new TestSSLSession("A", "example.org", 443, null)));
+    }
+
+
+    @Test
+    public void test003()
+    {
+        TlsSessionHistory history = new TlsSessionHistory();
+
+        // Sessions without an ID are never regarded as resumed.
+        assertFalse(history.onHandshake(new TestSSLSession(null, "example.com", 443, null)));
+        assertFalse(history.onHandshake(new TestSSLSession(null, "example.com", 443, null)));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2017 Neo Visionaries Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.neovisionaries.ws.client;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class UTF8DecoderTest
+{
+    private static byte[] bytes(int... values)
+    {
+        byte[] data = new byte[values.length];
+
+        for (int i = 0; i < values.length; ++i)
+        {
+            data[i] = (byte)values[i];
+        }
+
+        return data;
+    }
+
+
+    private static void isValid(byte[] data)
+    {
+        assertTrue(new UTF8Decoder().validateAll(data));
+    }
+
+
+    private static void isInvalid(byte[] data)
+    {
+        assertFalse(new UTF8Decoder().validateAll(data));
+    }
+
+
+    private static void decode(String text)
+    {
+        byte[] data = Misc.getBytesUTF8(text);
+        UTF8Decoder decoder = new UTF8Decoder();
+
+        assertTrue(decoder.validateAll(data));
+        assertEquals(text, decoder.decode(data));
+    }
+
+
+    @Test
+    public void test001()
+    {
+        // Empty and ASCII.
+        isValid(new byte[0]);
+        isValid(Misc.getBytesUTF8("Hello"));
+    }
+
+
+    @Test
+    public void test002()
+    {
+        // U+00A9, U+3042, U+1F600
+        isValid(bytes(0xC2, 0xA9));
+        isValid(bytes(0xE3, 0x81, 0x82));
+        isValid(bytes(0xF0, 0x9F, 0x98, 0x80));
+    }
+
+
+    @Test
+    public void test003()
+    {
+        // Overlong encodings.
+        isInvalid(bytes(0xC0, 0xAF));
+        isInvalid(bytes(0xC1, 0xBF));
+        isInvalid(bytes(0xE0, 0x80, 0xAF));
+        isInvalid(bytes(0xF0, 0x80, 0x80, 0xAF));
+    }
+
+
+    @Test
+    public void test004()
+    {
+        // Surrogates U+D800 and U+DFFF.
+        isInvalid(bytes(0xED, 0xA0, 0x80));
+        isInvalid(bytes(0xED, 0xBF, 0xBF));
+
+        // U+D7FF is valid.
+        isValid(bytes(0xED, 0x9F, 0xBF));
+    }
+
+
+    @Test
+    public void test005()
+    {
+        // Greater than U+10FFFF.
+        isInvalid(bytes(0xF4, 0x90, 0x80, 0x80));
+        isInvalid(bytes(0xF5, 0x80, 0x80, 0x80));
+
+        // U+10FFFF is valid.
+        isValid(bytes(0xF4, 0x8F, 0xBF, 0xBF));
+    }
+
+
+    @Test
+    public void test006()
+    {
+        // Truncated sequence and stray continuation byte.
+        isInvalid(bytes(0xE3, 0x81));
+        isInvalid(bytes(0x80));
+        isInvalid(bytes(0xFF));
+    }
+
+
+    @Test
+    public void test007()
+    {
+        // A character split across fragments.
+        UTF8Decoder decoder = new UTF8Decoder();
+
+        assertTrue(decoder.validate(bytes(0x41, 0xF0, 0x9F)));
+        assertFalse(decoder.isComplete());
+        assertTrue(decoder.validate(bytes(0x98)));
+        assertFalse(decoder.isComplete());
+        assertTrue(decoder.validate(bytes(0x80, 0x42)));
+        assertTrue(decoder.isComplete());
+    }
+
+
+    @Test
+    public void test008()
+    {
+        // An invalid byte in a later fragment.
+        UTF8Decoder decoder = new UTF8Decoder();
+
+        assertTrue(decoder.validate(bytes(0xE3, 0x81)));
+        assertFalse(decoder.validate(bytes(0x41)));
+        assertFalse(decoder.validate(bytes(0x82)));
+
+        // Reusable after reset().
+        decoder.reset();
+        assertTrue(decoder.validate(bytes(0x41)));
+        assertTrue(decoder.isComplete());
+    }
+
+
+    @Test
+    public void test009()
+    {
+        decode("");
+        decode("Hello, world");
+        decode("\u00A9 \u3042\u3044\u3046 \uD83D\uDE00 end");
+    }
+}